@@ -0,0 +1,78 @@
+package server.api.verticle;
+
+import io.vertx.core.buffer.Buffer;
+import server.api.model.ProjectInfo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+/**
+ * Fixtures of GitHub repository search results for the benchmarks, made of copies of a recorded search item with
+ * their id, name and owner changed, so that the pages have the size and shape of real ones.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+final class BenchmarkFixtures
+{
+  static final int PAGE_SIZE = 100;
+
+  private static final String ITEM_TEMPLATE = readResource("/fixtures/search-item.json");
+
+  private BenchmarkFixtures()
+  {
+  }
+
+  /**
+   * The search result pages holding the given number of items, 100 to a page.
+   */
+  static List<Buffer> searchPages(int itemCount)
+  {
+    List<Buffer> pages = new ArrayList<>();
+    for (int first = 0; first < itemCount; first += PAGE_SIZE) {
+      StringBuilder page = new StringBuilder("{\"total_count\":").append(itemCount)
+                                                                  .append(",\"incomplete_results\":false,\"items\":[");
+      for (int i = first; i < Math.min(itemCount, first + PAGE_SIZE); i++) {
+        if (i > first) {
+          page.append(',');
+        }
+        page.append(ITEM_TEMPLATE.replace("3081286", String.valueOf(1000000 + i))
+                                 .replace("dtrupenn", "owner-" + i)
+                                 .replace("Tetris", "project-" + i));
+      }
+      pages.add(Buffer.buffer(page.append("]}").toString()));
+    }
+    return pages;
+  }
+
+  static List<ProjectInfo> projects(int itemCount)
+  {
+    List<ProjectInfo> projects = new ArrayList<>();
+    for (Buffer page : searchPages(itemCount)) {
+      projects.addAll(ProjectInfoPageDecoder.decode(page));
+    }
+    return projects;
+  }
+
+  /**
+   * The Link header of a page of the search results.
+   */
+  static String linkHeader(int page, int lastPage)
+  {
+    String uri = "https://api.github.com/search/repositories?per_page=100&q=language%3Ajava&page=";
+    return "<" + uri + (page + 1) + ">; rel=\"next\", <" + uri + lastPage + ">; rel=\"last\", " +
+           "<" + uri + 1 + ">; rel=\"first\", <" + uri + (page - 1) + ">; rel=\"prev\"";
+  }
+
+  private static String readResource(String name)
+  {
+    try (InputStream in = BenchmarkFixtures.class.getResourceAsStream(name)) {
+      return new Scanner(in, "UTF-8").useDelimiter("\\A").next();
+    } catch (IOException e) {
+      throw new IllegalStateException("Can't read fixture " + name, e);
+    }
+  }
+}
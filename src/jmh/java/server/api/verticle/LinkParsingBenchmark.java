@@ -0,0 +1,41 @@
+package server.api.verticle;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks parsing the Link header of GitHub search result pages.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LinkParsingBenchmark
+{
+  private final String linkHeader = BenchmarkFixtures.linkHeader(5, 10);
+
+  @Benchmark
+  public String extractNextPageURIFromLinks()
+  {
+    return GitHubServiceClientImpl.extractNextPageURIFromLinks(linkHeader);
+  }
+
+  @Benchmark
+  public Map<String, String> extractLinks()
+  {
+    return GitHubServiceClientImpl.extractLinks(linkHeader);
+  }
+
+  @Benchmark
+  public int extractLastPageNumber()
+  {
+    return GitHubServiceClientImpl.extractPageNumber(GitHubServiceClientImpl.extractLinks(linkHeader).get("last"));
+  }
+}
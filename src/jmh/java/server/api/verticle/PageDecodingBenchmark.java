@@ -0,0 +1,71 @@
+package server.api.verticle;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.*;
+import server.api.model.ProjectInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks decoding the projects of GitHub search result pages, either by parsing the pages into JsonObjects and
+ * mapping those with ProjectsApiImpl.createAllProjectInfos, or with the streaming ProjectInfoPageDecoder.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageDecodingBenchmark
+{
+  @Param({"100", "1000"})
+  int itemCount;
+
+  private List<Buffer> pages;
+  private List<JsonObject> parsedPages;
+
+  @Setup
+  public void setUp()
+  {
+    pages = BenchmarkFixtures.searchPages(itemCount);
+    parsedPages = parseJsonObjects();
+  }
+
+  @Benchmark
+  public List<JsonObject> parseJsonObjects()
+  {
+    List<JsonObject> parsed = new ArrayList<>(pages.size());
+    for (Buffer page : pages) {
+      parsed.add(new JsonObject(page.toString()));
+    }
+    return parsed;
+  }
+
+  @Benchmark
+  public List<ProjectInfo> createAllProjectInfos()
+  {
+    return ProjectsApiImpl.createAllProjectInfos(parsedPages);
+  }
+
+  @Benchmark
+  public List<ProjectInfo> treeModel()
+  {
+    return ProjectsApiImpl.createAllProjectInfos(parseJsonObjects());
+  }
+
+  @Benchmark
+  public List<ProjectInfo> streaming()
+  {
+    List<ProjectInfo> projects = new ArrayList<>(itemCount);
+    for (Buffer page : pages) {
+      projects.addAll(ProjectInfoPageDecoder.decode(page));
+    }
+    return projects;
+  }
+}
@@ -0,0 +1,72 @@
+package server.api.verticle;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import org.openjdk.jmh.annotations.*;
+import server.api.model.ProjectInfo;
+import server.api.model.ProjectInfoJson;
+import server.api.model.ProjectInfoList;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks encoding the findByLang response : the original event bus reply encoding, Jackson, and the compact
+ * ProjectInfoJson encoding with and without gzip compression.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseEncodingBenchmark
+{
+  @Param({"100", "1000"})
+  int itemCount;
+
+  private List<ProjectInfo> projects;
+
+  @Setup
+  public void setUp()
+  {
+    projects = BenchmarkFixtures.projects(itemCount);
+  }
+
+  /**
+   * The reply encoding ProjectsApiVerticle used to make : encoded, parsed back, then pretty printed.
+   */
+  @Benchmark
+  public String reencodedPrettyReply()
+  {
+    return new JsonArray(Json.encode(projects)).encodePrettily();
+  }
+
+  @Benchmark
+  public String jacksonPretty()
+  {
+    return Json.encodePrettily(projects);
+  }
+
+  @Benchmark
+  public String jacksonCompact()
+  {
+    return Json.encode(projects);
+  }
+
+  @Benchmark
+  public Buffer compact()
+  {
+    return ProjectInfoJson.encode(projects);
+  }
+
+  @Benchmark
+  public Buffer compactGzipped()
+  {
+    return new ProjectInfoList(projects, false).toGzippedJson();
+  }
+}
@@ -0,0 +1,281 @@
+package server.api.loadtest;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A stub of the GitHub repository search API, standing in for api.github.com in load tests.
+ * <p>
+ * It serves GET /search/repositories?q=language:{language} with the configured number of generated repositories per
+ * language, paged by the per_page and page parameters with first, prev, next and last Link headers as GitHub does.
+ * Responses are delayed by the configured latency, a configured fraction of them fail with an HTTP error, and the
+ * requests are counted against a rate limit window, reported in the X-RateLimit-* headers, beyond which they fail with
+ * a 403 until the window is reset. Pages have an ETag, and a request whose If-None-Match matches it is answered with a
+ * 304 that isn't counted against the rate limit. GET /stats returns the counts of the requests served, failed, rate
+ * limited and not modified.
+ * <p>
+ * It should be deployed as a single instance, as each instance has its own rate limit window and counts.
+ * <p>
+ * Supported configuration (all optional) :
+ * <ul>
+ * <li>port : the port the stub listens on (default 9090)</li>
+ * <li>host : the host the stub binds to (default localhost)</li>
+ * <li>latencyMillis : the minimum delay of each response (default 50)</li>
+ * <li>latencyJitterMillis : the maximum random delay added to it (default 50)</li>
+ * <li>errorRate : the fraction of requests failed with the error status, from 0 to 1 (default 0)</li>
+ * <li>errorStatus : the HTTP status of the failed requests (default 502)</li>
+ * <li>totalCount : the number of repositories found for each language, of which at most 1000 are served (default
+ * 1000)</li>
+ * <li>lastLink : whether the rel="last" link is given (default true)</li>
+ * <li>rateLimit.requestsPerWindow : the requests allowed in each rate limit window (default 5000)</li>
+ * <li>rateLimit.windowSeconds : the length of a rate limit window (default 60)</li>
+ * </ul>
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class GitHubStubVerticle extends AbstractVerticle
+{
+  final static Logger LOGGER = LoggerFactory.getLogger(GitHubStubVerticle.class);
+
+  // the search API only ever returns the first 1000 results
+  private static final int MAX_RESULTS = 1000;
+  private static final int DEFAULT_PER_PAGE = 30;
+  private static final int MAX_PER_PAGE = 100;
+  private static final int MAX_CACHED_PAGES = 1000;
+
+  private final Random random = new Random();
+
+  // the encoded pages, keyed by language, page size and page number, so they are only generated once
+  private final Map<String, Buffer> pages = new LinkedHashMap<String, Buffer>(16, 0.75f, true)
+  {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Buffer> eldest)
+    {
+      return size() > MAX_CACHED_PAGES;
+    }
+  };
+
+  private long latencyMillis;
+  private int latencyJitterMillis;
+  private double errorRate;
+  private int errorStatus;
+  private int totalCount;
+  private boolean lastLink;
+  private int requestsPerWindow;
+  private long windowMillis;
+
+  private long resetAt;
+  private int remaining;
+
+  private long requests;
+  private long errors;
+  private long rateLimited;
+  private long notModified;
+
+  @Override
+  public void start(Future<Void> startFuture)
+  {
+    int port = config().getInteger("port", 9090);
+    String host = config().getString("host", "localhost");
+    latencyMillis = config().getLong("latencyMillis", 50L);
+    latencyJitterMillis = config().getInteger("latencyJitterMillis", 50);
+    errorRate = config().getDouble("errorRate", 0.0);
+    errorStatus = config().getInteger("errorStatus", 502);
+    totalCount = config().getInteger("totalCount", MAX_RESULTS);
+    lastLink = config().getBoolean("lastLink", true);
+    JsonObject rateLimitConfig = config().getJsonObject("rateLimit", new JsonObject());
+    requestsPerWindow = rateLimitConfig.getInteger("requestsPerWindow", 5000);
+    windowMillis = rateLimitConfig.getLong("windowSeconds", 60L) * 1000;
+
+    vertx.createHttpServer()
+         .requestHandler(this::handle)
+         .listen(port, host, listen -> {
+           if (listen.succeeded()) {
+             LOGGER.info("GitHub stub installed on {0}:{1}", host, String.valueOf(port));
+             startFuture.complete();
+           } else {
+             startFuture.fail(listen.cause());
+           }
+         });
+  }
+
+  private void handle(HttpServerRequest request)
+  {
+    HttpServerResponse response = request.response();
+    if (request.path().equals("/stats")) {
+      response.putHeader("Content-Type", "application/json").end(getStats().encode());
+      return;
+    }
+    if (!request.path().equals("/search/repositories")) {
+      response.setStatusCode(404).end("{\"message\":\"Not Found\"}");
+      return;
+    }
+    requests++;
+    long now = System.currentTimeMillis();
+    if (now >= resetAt) {
+      resetAt = now + windowMillis;
+      remaining = requestsPerWindow;
+    }
+    // the generated pages never change, so are only modified if they aren't the ones the client has
+    boolean modified = !pageETag(request).equals(request.getHeader("If-None-Match"));
+    boolean allowed = !modified || remaining > 0;
+    if (allowed && modified) {
+      remaining--;
+    }
+    response.putHeader("Content-Type", "application/json; charset=utf-8")
+            .putHeader("X-RateLimit-Limit", String.valueOf(requestsPerWindow))
+            .putHeader("X-RateLimit-Remaining", String.valueOf(remaining))
+            .putHeader("X-RateLimit-Reset", String.valueOf((resetAt + 999) / 1000));
+    Runnable respond;
+    if (!modified) {
+      notModified++;
+      respond = () -> response.setStatusCode(304).putHeader("ETag", pageETag(request)).end();
+    } else if (!allowed) {
+      rateLimited++;
+      respond = () -> response.setStatusCode(403).end("{\"message\":\"API rate limit exceeded\"}");
+    } else if (random.nextDouble() < errorRate) {
+      errors++;
+      respond = () -> response.setStatusCode(errorStatus).end("{\"message\":\"Server Error\"}");
+    } else {
+      respond = () -> respondWithPage(request);
+    }
+    long delay = latencyMillis + (latencyJitterMillis > 0 ? random.nextInt(latencyJitterMillis + 1) : 0);
+    if (delay > 0) {
+      vertx.setTimer(delay, timer -> respond.run());
+    } else {
+      respond.run();
+    }
+  }
+
+  private void respondWithPage(HttpServerRequest request)
+  {
+    String query = request.getParam("q") == null ? "" : request.getParam("q");
+    String language = query.startsWith("language:") ? query.substring("language:".length()) : query;
+    int perPage = Math.max(1, Math.min(MAX_PER_PAGE, intParam(request, "per_page", DEFAULT_PER_PAGE)));
+    int page = Math.max(1, intParam(request, "page", 1));
+    int results = Math.min(totalCount, MAX_RESULTS);
+    int lastPage = Math.max(1, (results + perPage - 1) / perPage);
+
+    String links = "";
+    if (page > 1) {
+      links += link(request, query, perPage, page - 1, "prev") + ", " + link(request, query, perPage, 1, "first");
+    }
+    if (page < lastPage) {
+      links += (links.isEmpty() ? "" : ", ") + link(request, query, perPage, page + 1, "next");
+      if (lastLink) {
+        links += ", " + link(request, query, perPage, lastPage, "last");
+      }
+    }
+    if (!links.isEmpty()) {
+      request.response().putHeader("Link", links);
+    }
+    request.response()
+           .putHeader("ETag", pageETag(request))
+           .end(pages.computeIfAbsent(language.toLowerCase() + "/" + perPage + "/" + page,
+                                      key -> createPage(language, perPage, page, results)));
+  }
+
+  /**
+   * The ETag of the page requested, made from the parameters it is generated from.
+   */
+  private String pageETag(HttpServerRequest request)
+  {
+    String query = request.getParam("q") == null ? "" : request.getParam("q");
+    int perPage = Math.max(1, Math.min(MAX_PER_PAGE, intParam(request, "per_page", DEFAULT_PER_PAGE)));
+    int page = Math.max(1, intParam(request, "page", 1));
+    String key = query.toLowerCase() + "/" + perPage + "/" + page + "/" + totalCount;
+    return "\"" + Integer.toHexString(key.hashCode()) + "\"";
+  }
+
+  private static int intParam(HttpServerRequest request, String name, int defaultValue)
+  {
+    try {
+      return request.getParam(name) == null ? defaultValue : Integer.parseInt(request.getParam(name));
+    } catch (NumberFormatException e) {
+      return defaultValue;
+    }
+  }
+
+  private static String link(HttpServerRequest request, String query, int perPage, int page, String rel)
+  {
+    try {
+      return "<http://" + request.host() + "/search/repositories?q=" + URLEncoder.encode(query, "UTF-8") +
+             "&per_page=" + perPage + "&page=" + page + ">; rel=\"" + rel + "\"";
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static Buffer createPage(String language, int perPage, int page, int results)
+  {
+    JsonArray items = new JsonArray();
+    for (int index = (page - 1) * perPage; index < Math.min(results, page * perPage); index++) {
+      items.add(createItem(language, index, results));
+    }
+    return Buffer.buffer(new JsonObject().put("total_count", results)
+                                         .put("incomplete_results", false)
+                                         .put("items", items)
+                                         .encode());
+  }
+
+  /**
+   * A repository with the fields GitHub returns that are most used, so that pages are of a realistic size.
+   */
+  private static JsonObject createItem(String language, int index, int results)
+  {
+    String owner = "owner" + (index % 50);
+    String name = language.toLowerCase() + "-project-" + index;
+    String fullName = owner + "/" + name;
+    long id = (language.toLowerCase().hashCode() & 0xffffL) * 100000 + index;
+    return new JsonObject().put("id", id)
+                           .put("node_id", "MDEwOlJlcG9zaXRvcnk" + id)
+                           .put("name", name)
+                           .put("full_name", fullName)
+                           .put("owner", new JsonObject().put("login", owner)
+                                                         .put("id", index % 50)
+                                                         .put("url", "https://api.github.com/users/" + owner)
+                                                         .put("html_url", "https://github.com/" + owner)
+                                                         .put("type", "User")
+                                                         .put("site_admin", false))
+                           .put("private", false)
+                           .put("html_url", "https://github.com/" + fullName)
+                           .put("description", "A " + language + " project, number " + index + " of the stub")
+                           .put("fork", false)
+                           .put("url", "https://api.github.com/repos/" + fullName)
+                           .put("created_at", "2018-02-21T09:00:00Z")
+                           .put("updated_at", "2018-02-21T09:00:00Z")
+                           .put("pushed_at", "2018-02-21T09:00:00Z")
+                           .putNull("homepage")
+                           .put("size", 1024 + index)
+                           .put("stargazers_count", results - index)
+                           .put("watchers_count", results - index)
+                           .put("language", language)
+                           .put("forks_count", index % 100)
+                           .put("open_issues_count", index % 10)
+                           .put("default_branch", "master")
+                           .put("score", 1.0);
+  }
+
+  private JsonObject getStats()
+  {
+    return new JsonObject().put("requests", requests)
+                           .put("errors", errors)
+                           .put("rateLimited", rateLimited)
+                           .put("notModified", notModified)
+                           .put("served", requests - errors - rateLimited);
+  }
+}
@@ -0,0 +1,80 @@
+package server.api.loadtest;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.Arrays;
+
+/**
+ * Records latencies and reports their exact percentiles.
+ * <p>
+ * Every latency is kept, which takes 8 bytes each, so is fine for the few million requests of a load test run. It is
+ * not thread safe, so must only be used from a single thread, e.g. a Vert.x context.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class LatencyRecorder
+{
+  private long[] latencies = new long[1024];
+  private int count;
+  private boolean sorted = true;
+
+  public void record(long latencyNanos)
+  {
+    if (count == latencies.length) {
+      latencies = Arrays.copyOf(latencies, count * 2);
+    }
+    latencies[count++] = latencyNanos;
+    sorted = false;
+  }
+
+  public int getCount()
+  {
+    return count;
+  }
+
+  /**
+   * The latency that the given percentage of the recorded latencies are less than or equal to, by the nearest rank
+   * method, or 0 if none have been recorded.
+   */
+  public long getPercentile(double percentile)
+  {
+    if (count == 0) {
+      return 0;
+    }
+    if (!sorted) {
+      Arrays.sort(latencies, 0, count);
+      sorted = true;
+    }
+    int rank = (int)Math.ceil(percentile / 100 * count);
+    return latencies[Math.max(0, Math.min(count, rank) - 1)];
+  }
+
+  public long getMean()
+  {
+    long total = 0;
+    for (int i = 0; i < count; i++) {
+      total += latencies[i];
+    }
+    return count == 0 ? 0 : total / count;
+  }
+
+  /**
+   * The count, mean, p50, p90, p99, p99.9 and maximum of the recorded latencies, in milliseconds.
+   */
+  public JsonObject toJson()
+  {
+    return new JsonObject().put("count", count)
+                           .put("mean", toMillis(getMean()))
+                           .put("p50", toMillis(getPercentile(50)))
+                           .put("p90", toMillis(getPercentile(90)))
+                           .put("p99", toMillis(getPercentile(99)))
+                           .put("p99.9", toMillis(getPercentile(99.9)))
+                           .put("max", toMillis(getPercentile(100)));
+  }
+
+  private static double toMillis(long nanos)
+  {
+    return Math.round(nanos / 10000.0) / 100.0;
+  }
+}
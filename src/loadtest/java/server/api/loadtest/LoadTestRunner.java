@@ -0,0 +1,113 @@
+package server.api.loadtest;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import server.api.MainApiVerticle;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.logging.LogManager;
+
+/**
+ * Runs a load test of the service, as set by a JSON configuration file given as the only argument (default the
+ * loadtest.json resource), and prints its report.
+ * <p>
+ * The configuration has the following sections :
+ * <ul>
+ * <li>stub : if given, a {@link GitHubStubVerticle} is deployed with this configuration</li>
+ * <li>service : if given, the service is deployed with this configuration, which should have its github.baseUrl
+ * pointing at the stub</li>
+ * <li>driver : the configuration of the {@link OpenLoopDriver} sending the requests</li>
+ * <li>slo : the limits the run is checked against, of which maxErrorRate (a fraction of the requests), p99Millis and
+ * p999Millis can be given</li>
+ * </ul>
+ * The stub and the service can be left out to run the driver against ones running in other JVMs, which keeps them from
+ * competing with the driver for the same cores. The process exits with status 1 if any of the limits were exceeded.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class LoadTestRunner
+{
+  final static Logger LOGGER = LoggerFactory.getLogger(LoadTestRunner.class);
+
+  public static void main(String[] args) throws IOException
+  {
+    // the service logs each GitHub request, so only warnings are logged under load
+    try (InputStream logging = LoadTestRunner.class.getResourceAsStream("/loadtest-logging.properties")) {
+      LogManager.getLogManager().readConfiguration(logging);
+    }
+    Vertx vertx = Vertx.vertx();
+    JsonObject config = new JsonObject(vertx.fileSystem()
+                                            .readFileBlocking(args.length > 0 ? args[0] : "loadtest.json")
+                                            .toString());
+
+    deploy(vertx, GitHubStubVerticle.class.getName(), config.getJsonObject("stub")).compose(
+      stub -> deploy(vertx, MainApiVerticle.class.getName(), config.getJsonObject("service"))).compose(service -> {
+      Future<JsonObject> report = Future.future();
+      new OpenLoopDriver(vertx, config.getJsonObject("driver", new JsonObject())).run(report);
+      return report;
+    }).compose(report -> {
+      Future<JsonObject> stubStats = Future.future();
+      if (config.containsKey("stub")) {
+        JsonObject stubConfig = config.getJsonObject("stub");
+        vertx.createHttpClient().getNow(stubConfig.getInteger("port", 9090),
+                                        stubConfig.getString("host", "localhost"),
+                                        "/stats",
+                                        response -> response.bodyHandler(body -> stubStats.complete(
+                                          report.copy().put("stub", new JsonObject(body.toString())))));
+      } else {
+        stubStats.complete(report);
+      }
+      return stubStats;
+    }).setHandler(result -> {
+      int status;
+      if (result.succeeded()) {
+        System.out.println(result.result().encodePrettily());
+        status = checkLimits(result.result(), config.getJsonObject("slo", new JsonObject())) ? 0 : 1;
+      } else {
+        LOGGER.error("Load test failed", result.cause());
+        status = 2;
+      }
+      vertx.close(closed -> System.exit(status));
+    });
+  }
+
+  private static Future<String> deploy(Vertx vertx, String verticle, JsonObject config)
+  {
+    Future<String> deployment = Future.future();
+    if (config == null) {
+      deployment.complete();
+    } else {
+      vertx.deployVerticle(verticle, new DeploymentOptions().setConfig(config), deployment);
+    }
+    return deployment;
+  }
+
+  /**
+   * Checks the report against the limits, printing those exceeded.
+   */
+  private static boolean checkLimits(JsonObject report, JsonObject slo)
+  {
+    boolean met = true;
+    if (report.getDouble("errorRate") > slo.getDouble("maxErrorRate", 1.0)) {
+      System.out.println("Error rate " + report.getDouble("errorRate") + " exceeds " + slo.getDouble("maxErrorRate"));
+      met = false;
+    }
+    JsonObject latency = report.getJsonObject("latencyMillis");
+    if (latency.getDouble("p99") > slo.getDouble("p99Millis", Double.MAX_VALUE)) {
+      System.out.println("p99 latency " + latency.getDouble("p99") + "ms exceeds " + slo.getDouble("p99Millis") + "ms");
+      met = false;
+    }
+    if (latency.getDouble("p99.9") > slo.getDouble("p999Millis", Double.MAX_VALUE)) {
+      System.out.println("p99.9 latency " + latency.getDouble("p99.9") + "ms exceeds " + slo.getDouble("p999Millis") +
+                         "ms");
+      met = false;
+    }
+    return met;
+  }
+}
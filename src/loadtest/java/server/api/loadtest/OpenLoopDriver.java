@@ -0,0 +1,279 @@
+package server.api.loadtest;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Drives requests to /api/projects/findByLang at a fixed arrival rate, and reports their latency percentiles and
+ * errors.
+ * <p>
+ * The load is open loop : requests are sent on a schedule set by the arrival rate, whether or not the earlier ones
+ * have been answered, as the requests of independent users would be. Each latency is measured from the time the
+ * request was scheduled to be sent rather than from when it actually was, so that time spent queued behind slow
+ * requests, in the connection pool or the driver itself, is counted rather than hidden (coordinated omission). The
+ * requests cycle through the configured languages, and those sent during the warm up period are not reported.
+ * <p>
+ * Supported configuration (all optional) :
+ * <ul>
+ * <li>host : the host of the service (default localhost)</li>
+ * <li>port : the port of the service (default 8080)</li>
+ * <li>path : the path requested (default /api/projects/findByLang)</li>
+ * <li>languages : the languages requested in turn (default ["java"])</li>
+ * <li>rate : the number of requests sent per second (default 100)</li>
+ * <li>arrivals : constant for evenly spaced requests, or poisson for randomly spaced ones (default constant)</li>
+ * <li>warmupSeconds : time requests are sent for before they are reported (default 5)</li>
+ * <li>durationSeconds : time requests are sent and reported for (default 30)</li>
+ * <li>connections : the maximum number of connections to the service (default 100)</li>
+ * <li>timeoutMillis : time after which a request with no response data fails (default 30000)</li>
+ * <li>acceptGzip : whether the requests accept gzip encoded responses, which are not decompressed (default false)</li>
+ * <li>http2 : whether the requests are sent with HTTP/2 without TLS, over connections started with prior knowledge
+ * that the service supports it, rather than with HTTP/1.1 (default false)</li>
+ * </ul>
+ * The bytes of the response bodies are counted as they are received, before any decompression, so runs with and
+ * without acceptGzip compare the bandwidth used.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class OpenLoopDriver
+{
+  final static Logger LOGGER = LoggerFactory.getLogger(OpenLoopDriver.class);
+
+  private static final int HTTP2_WINDOW_BYTES = 4 * 1024 * 1024;
+
+  private final Vertx vertx;
+  private final String host;
+  private final int port;
+  private final String path;
+  private final List<String> languages;
+  private final double rate;
+  private final boolean poisson;
+  private final long warmupNanos;
+  private final long durationNanos;
+  private final int connections;
+  private final long timeoutMillis;
+  private final boolean acceptGzip;
+  private final boolean http2;
+
+  private final Random random = new Random();
+  private final LatencyRecorder latencies = new LatencyRecorder();
+  private final JsonObject statusCodes = new JsonObject();
+  private final JsonObject failures = new JsonObject();
+
+  private HttpClient client;
+  private Handler<AsyncResult<JsonObject>> reportHandler;
+  private long startNanos;
+  private long nextArrivalNanos;
+  private long timerId;
+  private boolean sending;
+  private int sent;
+  private int inFlight;
+  private long requests;
+  private long errors;
+  private long partialResults;
+  private long bodyBytes;
+
+  public OpenLoopDriver(Vertx vertx, JsonObject config)
+  {
+    this.vertx = vertx;
+    this.host = config.getString("host", "localhost");
+    this.port = config.getInteger("port", 8080);
+    this.path = config.getString("path", "/api/projects/findByLang");
+    this.languages = config.getJsonArray("languages", new JsonArray().add("java"))
+                           .stream()
+                           .map(String::valueOf)
+                           .collect(Collectors.toList());
+    this.rate = config.getDouble("rate", 100.0);
+    this.poisson = "poisson".equals(config.getString("arrivals", "constant"));
+    this.warmupNanos = TimeUnit.SECONDS.toNanos(config.getLong("warmupSeconds", 5L));
+    this.durationNanos = TimeUnit.SECONDS.toNanos(config.getLong("durationSeconds", 30L));
+    this.connections = config.getInteger("connections", 100);
+    this.timeoutMillis = config.getLong("timeoutMillis", 30000L);
+    this.acceptGzip = config.getBoolean("acceptGzip", false);
+    this.http2 = config.getBoolean("http2", false);
+  }
+
+  /**
+   * Runs the load, calling the handler back with the report once every request sent has completed.
+   */
+  public void run(Handler<AsyncResult<JsonObject>> handler)
+  {
+    // every request and timer is run on the same context, so the state of the run needs no synchronization
+    Context context = vertx.getOrCreateContext();
+    context.runOnContext(v -> {
+      reportHandler = handler;
+      HttpClientOptions options = new HttpClientOptions().setMaxPoolSize(connections).setKeepAlive(true);
+      if (http2) {
+        options.setProtocolVersion(HttpVersion.HTTP_2)
+               .setHttp2ClearTextUpgrade(false)
+               .setHttp2MaxPoolSize(connections)
+               .setHttp2ConnectionWindowSize(HTTP2_WINDOW_BYTES);
+        // the default 64KB window would stall each response of projects after its first 64KB until acknowledged
+        options.getInitialSettings().setInitialWindowSize(HTTP2_WINDOW_BYTES);
+      }
+      client = vertx.createHttpClient(options);
+      LOGGER.info("Sending {0} {1} requests per second to {2}:{3}{4} for {5}s after a {6}s warm up",
+                  rate,
+                  http2 ? "HTTP/2" : "HTTP/1.1",
+                  host,
+                  String.valueOf(port),
+                  path,
+                  TimeUnit.NANOSECONDS.toSeconds(durationNanos),
+                  TimeUnit.NANOSECONDS.toSeconds(warmupNanos));
+      startNanos = System.nanoTime();
+      nextArrivalNanos = startNanos;
+      sending = true;
+      timerId = vertx.setPeriodic(1, timer -> sendScheduledRequests());
+      sendScheduledRequests();
+    });
+  }
+
+  /**
+   * Sends all the requests scheduled up to now, catching up with any that the timer was late for.
+   */
+  private void sendScheduledRequests()
+  {
+    long now = System.nanoTime();
+    long endNanos = startNanos + warmupNanos + durationNanos;
+    while (nextArrivalNanos <= now && nextArrivalNanos < endNanos) {
+      send(nextArrivalNanos, nextArrivalNanos >= startNanos + warmupNanos);
+      nextArrivalNanos += nextInterArrivalNanos();
+    }
+    if (nextArrivalNanos >= endNanos) {
+      sending = false;
+      vertx.cancelTimer(timerId);
+      completeIfDone();
+    }
+  }
+
+  private long nextInterArrivalNanos()
+  {
+    double meanNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+    return (long)(poisson ? -Math.log(1 - random.nextDouble()) * meanNanos : meanNanos);
+  }
+
+  private void send(long scheduledNanos, boolean reported)
+  {
+    String language = languages.get(sent++ % languages.size());
+    inFlight++;
+    if (reported) {
+      requests++;
+    }
+    boolean[] completed = new boolean[1];
+    HttpClientRequest request = client.get(port, host, path + "?lang=" + language, response -> {
+      response.handler(data -> {
+        if (reported) {
+          bodyBytes += data.length();
+        }
+      });
+      response.exceptionHandler(e -> {
+        if (!completed[0]) {
+          completed[0] = true;
+          completeWithFailure(reported, e);
+        }
+      });
+      response.endHandler(end -> {
+        if (!completed[0]) {
+          completed[0] = true;
+          complete(scheduledNanos,
+                   reported,
+                   response.statusCode(),
+                   "true".equals(response.getHeader("X-Partial-Results")));
+        }
+      });
+    });
+    request.exceptionHandler(e -> {
+      if (!completed[0]) {
+        completed[0] = true;
+        completeWithFailure(reported, e);
+      }
+    });
+    if (acceptGzip) {
+      request.putHeader("Accept-Encoding", "gzip");
+    }
+    request.setTimeout(timeoutMillis).end();
+  }
+
+  private void complete(long scheduledNanos, boolean reported, int statusCode, boolean partial)
+  {
+    inFlight--;
+    if (reported) {
+      latencies.record(System.nanoTime() - scheduledNanos);
+      String status = String.valueOf(statusCode);
+      statusCodes.put(status, statusCodes.getLong(status, 0L) + 1);
+      if (statusCode >= 400) {
+        errors++;
+      }
+      if (partial) {
+        partialResults++;
+      }
+    }
+    completeIfDone();
+  }
+
+  private void completeWithFailure(boolean reported, Throwable cause)
+  {
+    inFlight--;
+    if (reported) {
+      String failure = cause instanceof TimeoutException ? "timeout" : cause.getClass().getSimpleName();
+      failures.put(failure, failures.getLong(failure, 0L) + 1);
+      errors++;
+    }
+    completeIfDone();
+  }
+
+  private void completeIfDone()
+  {
+    if (sending || inFlight > 0 || reportHandler == null) {
+      return;
+    }
+    client.close();
+    Handler<AsyncResult<JsonObject>> handler = reportHandler;
+    reportHandler = null;
+    handler.handle(Future.succeededFuture(getReport()));
+  }
+
+  /**
+   * The report of the requests sent after the warm up : the target and achieved request rates, the counts of each
+   * response status, of the requests that failed without one, of the errors (both of those and the responses with
+   * an error status) and of the partial results, the bytes of the response bodies as received, and the latencies of
+   * the responses in milliseconds.
+   */
+  private JsonObject getReport()
+  {
+    double seconds = durationNanos / (double)TimeUnit.SECONDS.toNanos(1);
+    int responses = latencies.getCount();
+    return new JsonObject().put("rate", rate)
+                           .put("arrivals", poisson ? "poisson" : "constant")
+                           .put("durationSeconds", seconds)
+                           .put("requests", requests)
+                           .put("throughput", Math.round(responses / seconds * 10) / 10.0)
+                           .put("statusCodes", statusCodes)
+                           .put("failures", failures)
+                           .put("errors", errors)
+                           .put("errorRate", requests == 0 ? 0.0 : Math.round(errors * 10000.0 / requests) / 10000.0)
+                           .put("partialResults", partialResults)
+                           .put("protocol", http2 ? "HTTP/2" : "HTTP/1.1")
+                           .put("acceptGzip", acceptGzip)
+                           .put("bodyBytes", bodyBytes)
+                           .put("bodyBytesPerResponse", responses == 0 ? 0 : bodyBytes / responses)
+                           .put("latencyMillis", latencies.toJson());
+  }
+}
@@ -1,5 +1,6 @@
 package server.api;
 
+import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.github.phiz71.vertx.swagger.router.OperationIdServiceIdResolver;
 import com.github.phiz71.vertx.swagger.router.SwaggerRouter;
@@ -7,20 +8,69 @@ import io.swagger.models.Swagger;
 import io.swagger.parser.SwaggerParser;
 import io.vertx.core.*;
 import io.vertx.core.file.FileSystem;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.HttpVersion;
 import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.net.JksOptions;
+import io.vertx.core.net.PemKeyCertOptions;
 import io.vertx.ext.web.Router;
+import io.vertx.ext.web.handler.BodyHandler;
+import server.api.metrics.PrometheusMetricsHandler;
+import server.api.metrics.ServiceMetrics;
+import server.api.verticle.CrawlerVerticle;
+import server.api.verticle.PrefetchVerticle;
+import server.api.verticle.ProjectsApiBatchHandler;
+import server.api.verticle.ProjectsApiDirectHandler;
+import server.api.verticle.ProjectsApiImpl;
+import server.api.verticle.ProjectsApiStreamHandler;
 
 import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
 
 /**
  * The Main Verticle, generated by Swagger.
+ * <p>
+ * When deployed, it deploys the configured number of ProjectsApiVerticle instances, and the configured number of
+ * instances of itself that each serve HTTP. Vert.x shares the listening socket between the HTTP instances and hands
+ * new connections to them in turn, and the event bus hands the service requests to the ProjectsApiVerticle instances
+ * in turn, so both are spread across the event loops. A single {@link PrefetchVerticle} is also deployed, to keep the
+ * most requested languages fresh, and optionally a single {@link CrawlerVerticle}.
+ * <p>
+ * Supported configuration (all optional) :
+ * <ul>
+ * <li>http.port : the port the HTTP server listens on (default 8080)</li>
+ * <li>http.host : the host the HTTP server binds to (default 0.0.0.0)</li>
+ * <li>http.instances : the number of HTTP server instances (default the number of available processors)</li>
+ * <li>the compression, TCP, idle timeout, TLS and HTTP/2 settings of the HTTP server, see
+ * {@link #createHttpServerOptions(JsonObject, boolean)}</li>
+ * <li>projectsApi.instances : the number of ProjectsApiVerticle instances (default the number of available
+ * processors)</li>
+ * <li>projectsApi.directDispatch : whether the HTTP server instances call the Projects service in-process rather than
+ * through the event bus (default false)</li>
+ * <li>projectsApi.batchParallelism : the number of languages of a findByLangs batch that are searched concurrently
+ * (default 4)</li>
+ * <li>metrics.enabled : whether the {@link ServiceMetrics} are served in the Prometheus format on /metrics (default
+ * true)</li>
+ * <li>prefetch.enabled : whether the most requested languages are prefetched (default true), see
+ * {@link PrefetchVerticle} for the other prefetch settings</li>
+ * <li>crawler.enabled : whether the crawler.languages are crawled beyond the 1000 projects the search returns (default
+ * false), see {@link CrawlerVerticle} for the other crawler settings</li>
+ * </ul>
  */
 public class MainApiVerticle extends AbstractVerticle
 {
   final static Logger LOGGER = LoggerFactory.getLogger(MainApiVerticle.class);
 
+  // marks the configuration of the instances deployed to serve HTTP
+  static final String HTTP_INSTANCE_KEY = "server.api.httpInstance";
+
+  // ample for the names of the most languages in a findByLangs batch
+  private static final long MAX_BATCH_BODY_BYTES = 64 * 1024;
+
   protected Router router;
 
   @Override
@@ -34,39 +84,181 @@ public class MainApiVerticle extends AbstractVerticle
   public void start(Future<Void> startFuture) throws Exception
   {
     Json.mapper.registerModule(new JavaTimeModule());
+    if (config().getBoolean(HTTP_INSTANCE_KEY, false)) {
+      startHttpServer(startFuture);
+    } else {
+      deployVerticles(startFuture);
+    }
+  }
+
+  private void startHttpServer(Future<Void> startFuture)
+  {
+    JsonObject httpConfig = config().getJsonObject("http", new JsonObject());
+    int port = httpConfig.getInteger("port", 8080);
+    String host = httpConfig.getString("host", "0.0.0.0");
+    boolean directDispatch = config().getJsonObject("projectsApi", new JsonObject())
+                                     .getBoolean("directDispatch", false);
+    boolean metricsEnabled = config().getJsonObject("metrics", new JsonObject()).getBoolean("enabled", true);
+    ServiceMetrics metrics = ServiceMetrics.getShared(vertx);
     FileSystem vertxFileSystem = vertx.fileSystem();
     vertxFileSystem.readFile("swagger.json", readFile -> {
       if (readFile.succeeded()) {
         Swagger swagger = new SwaggerParser().parse(readFile.result().toString(Charset.forName("utf-8")));
+        ProjectsApiImpl projectsApi = new ProjectsApiImpl(vertx, config());
+        if (httpConfig.getBoolean("compression", directDispatch)) {
+          // responses are compressed or not depending on Accept-Encoding, which caches need to know
+          router.route().handler(routingContext -> {
+            routingContext.response().putHeader("Vary", "Accept-Encoding");
+            routingContext.next();
+          });
+        }
+        if (metricsEnabled) {
+          router.get("/metrics").handler(new PrometheusMetricsHandler(metrics.getRegistry()));
+        }
+        router.get(swagger.getBasePath() + "/projects/findByLang").handler(routingContext -> {
+          Timer.Context request = metrics.timer(ServiceMetrics.HTTP_FIND_BY_LANG).time();
+          routingContext.addBodyEndHandler(end -> request.stop());
+          routingContext.next();
+        });
+        // the streaming mode of findByLang writes straight to the response, so is routed ahead of the event bus
+        router.get(swagger.getBasePath() + "/projects/findByLang")
+              .handler(new ProjectsApiStreamHandler(projectsApi));
+        if (directDispatch) {
+          router.get(swagger.getBasePath() + "/projects/findByLang")
+                .handler(new ProjectsApiDirectHandler(projectsApi, metrics));
+        }
+        // findByLangs streams the results of each language as they are found, so is always dispatched in-process
+        router.post(swagger.getBasePath() + "/projects/findByLangs")
+              .handler(BodyHandler.create().setBodyLimit(MAX_BATCH_BODY_BYTES))
+              .handler(routingContext -> {
+                Timer.Context request = metrics.timer(ServiceMetrics.HTTP_FIND_BY_LANGS).time();
+                routingContext.addBodyEndHandler(end -> request.stop());
+                routingContext.next();
+              })
+              .handler(new ProjectsApiBatchHandler(projectsApi));
         Router swaggerRouter = SwaggerRouter.swaggerRouter(router,
                                                            swagger,
                                                            vertx.eventBus(),
                                                            new OperationIdServiceIdResolver());
 
-        deployVerticles(startFuture);
-
-        vertx.createHttpServer()
+        vertx.createHttpServer(createHttpServerOptions(httpConfig, directDispatch))
              .requestHandler(swaggerRouter::accept)
-             .listen(8080);
-        LOGGER.info("HTTP server installed on localhost:8080");
-        startFuture.complete();
+             .listen(port, host, listen -> {
+               if (listen.succeeded()) {
+                 LOGGER.info("HTTP server installed on {0}:{1}", host, String.valueOf(port));
+                 startFuture.complete();
+               } else {
+                 startFuture.fail(listen.cause());
+               }
+             });
       } else {
         startFuture.fail(readFile.cause());
       }
     });
   }
 
+  /**
+   * Creates the HTTP server options from the given http configuration, which supports :
+   * <ul>
+   * <li>compression : whether responses are gzip or deflate compressed for the clients that accept it (default true
+   * with direct dispatch, as the projects are large and repetitive JSON arrays, and their gzip compressed JSON is kept
+   * with them and left as it is. Default false otherwise, as compressing each response sent through the event bus
+   * costs enough CPU to multiply the tail latency on a small box)</li>
+   * <li>compressionLevel : the compression level, from 1 for the fastest to 9 for the smallest (default 1, as the
+   * 115KB response of 1000 projects compresses to 11KB at level 1 and only to 9KB at level 6, for more of the
+   * CPU time spent on each response)</li>
+   * <li>tcpNoDelay : whether Nagle's algorithm is disabled, so small responses aren't delayed (default true)</li>
+   * <li>tcpFastOpen and tcpQuickAck : whether TCP fast open and quick acks are used (default false, as they are only
+   * supported by the native epoll transport)</li>
+   * <li>idleTimeoutSeconds : time after which a connection with no data read or written is closed (default 0, for
+   * never, as a search can take a while to find the first projects)</li>
+   * <li>tls : if given, the server only accepts TLS connections, using either the JKS key store at tls.keyStorePath
+   * with the password tls.keyStorePassword, or the PEM key at tls.keyPath and certificate at tls.certPath</li>
+   * <li>http2 : whether HTTP/2 is negotiated with ALPN over TLS (default false, as it requires ALPN support in the
+   * JVM)</li>
+   * <li>http2MaxConcurrentStreams : the number of concurrent requests a HTTP/2 client may make on a connection
+   * (default 100)</li>
+   * </ul>
+   * HTTP/2 without TLS (h2c) is always served alongside HTTP/1.1, both to clients upgrading to it and to those that
+   * know the server supports it.
+   */
+  protected static HttpServerOptions createHttpServerOptions(JsonObject httpConfig, boolean directDispatch)
+  {
+    HttpServerOptions options = new HttpServerOptions()
+      .setCompressionSupported(httpConfig.getBoolean("compression", directDispatch))
+      .setCompressionLevel(httpConfig.getInteger("compressionLevel", 1))
+      .setTcpNoDelay(httpConfig.getBoolean("tcpNoDelay", true))
+      .setTcpFastOpen(httpConfig.getBoolean("tcpFastOpen", false))
+      .setTcpQuickAck(httpConfig.getBoolean("tcpQuickAck", false))
+      .setIdleTimeout(httpConfig.getInteger("idleTimeoutSeconds", 0));
+    options.getInitialSettings().setMaxConcurrentStreams(httpConfig.getLong("http2MaxConcurrentStreams", 100L));
+    JsonObject tlsConfig = httpConfig.getJsonObject("tls");
+    if (tlsConfig != null) {
+      options.setSsl(true);
+      if (tlsConfig.containsKey("keyStorePath")) {
+        options.setKeyStoreOptions(new JksOptions().setPath(tlsConfig.getString("keyStorePath"))
+                                                   .setPassword(tlsConfig.getString("keyStorePassword")));
+      } else {
+        options.setPemKeyCertOptions(new PemKeyCertOptions().setKeyPath(tlsConfig.getString("keyPath"))
+                                                            .setCertPath(tlsConfig.getString("certPath")));
+      }
+      if (httpConfig.getBoolean("http2", false)) {
+        options.setUseAlpn(true)
+               .setAlpnVersions(Arrays.asList(HttpVersion.HTTP_2, HttpVersion.HTTP_1_1));
+      } else {
+        options.setAlpnVersions(Collections.singletonList(HttpVersion.HTTP_1_1));
+      }
+    }
+    return options;
+  }
+
   public void deployVerticles(Future<Void> startFuture)
   {
+    int processors = Runtime.getRuntime().availableProcessors();
+    int apiInstances = config().getJsonObject("projectsApi", new JsonObject()).getInteger("instances", processors);
+    int httpInstances = config().getJsonObject("http", new JsonObject()).getInteger("instances", processors);
 
-    vertx.deployVerticle("server.api.verticle.ProjectsApiVerticle", res -> {
+    Future<String> apiDeployment = Future.future();
+    vertx.deployVerticle("server.api.verticle.ProjectsApiVerticle",
+                         new DeploymentOptions().setConfig(config()).setInstances(apiInstances),
+                         apiDeployment);
+    apiDeployment.compose(apiDeploymentId -> {
+      LOGGER.info("ProjectsApiVerticle : Deployed {0} instances", apiInstances);
+      Future<String> prefetchDeployment = Future.future();
+      if (config().getJsonObject("prefetch", new JsonObject()).getBoolean("enabled", true)) {
+        vertx.deployVerticle(PrefetchVerticle.class.getName(),
+                             new DeploymentOptions().setConfig(config()),
+                             prefetchDeployment);
+      } else {
+        prefetchDeployment.complete();
+      }
+      return prefetchDeployment;
+    }).compose(prefetchDeploymentId -> {
+      Future<String> crawlerDeployment = Future.future();
+      if (config().getJsonObject("crawler", new JsonObject()).getBoolean("enabled", false)) {
+        vertx.deployVerticle(CrawlerVerticle.class.getName(),
+                             new DeploymentOptions().setConfig(config()),
+                             crawlerDeployment);
+      } else {
+        crawlerDeployment.complete();
+      }
+      return crawlerDeployment;
+    }).compose(crawlerDeploymentId -> {
+      Future<String> httpDeployment = Future.future();
+      // the instances serving HTTP are of the class deployed, which may extend this one with routes of its own
+      vertx.deployVerticle(getClass().getName(),
+                           new DeploymentOptions().setConfig(config().copy().put(HTTP_INSTANCE_KEY, true))
+                                                  .setInstances(httpInstances),
+                           httpDeployment);
+      return httpDeployment;
+    }).setHandler(res -> {
       if (res.succeeded()) {
-        LOGGER.info("ProjectsApiVerticle : Deployed");
+        LOGGER.info("MainApiVerticle : Deployed {0} HTTP server instances", httpInstances);
+        startFuture.complete();
       } else {
+        LOGGER.error("Deployment failed", res.cause());
         startFuture.fail(res.cause());
-        LOGGER.error("ProjectsApiVerticle : Deployment failed");
       }
     });
-
   }
-}
\ No newline at end of file
+}
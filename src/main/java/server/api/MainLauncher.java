@@ -0,0 +1,100 @@
+package server.api;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.JoinConfig;
+import io.vertx.core.Launcher;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.spi.cluster.ClusterManager;
+import io.vertx.ext.dropwizard.DropwizardMetricsOptions;
+import io.vertx.spi.cluster.hazelcast.HazelcastClusterManager;
+import server.api.metrics.ServiceMetrics;
+import server.api.verticle.ProjectsApiImpl;
+import server.api.verticle.RateLimitGovernor;
+
+/**
+ * Launcher of the service, applying the Vert.x options given in its configuration before Vert.x is started.
+ * <p>
+ * The configuration is given with the usual -conf command line option, either as a JSON file or inline JSON, and
+ * supports the following Vert.x options on top of the verticle configuration (all optional) :
+ * <ul>
+ * <li>eventLoopPoolSize : the number of event loop threads (default twice the number of available processors)</li>
+ * <li>workerPoolSize : the number of worker threads (default 20)</li>
+ * </ul>
+ * Unless metrics.enabled is false, the Vert.x metrics of the HTTP servers and clients, event bus and thread pools are
+ * also enabled, and reported to the registry of the {@link ServiceMetrics}.
+ * <p>
+ * When cluster.enabled is true, Vert.x is started clustered with Hazelcast, so that several instances of the service
+ * share their cached projects and GitHub rate limit, see {@link ProjectsApiImpl} and {@link RateLimitGovernor}. The
+ * cluster is set by (all optional) :
+ * <ul>
+ * <li>cluster.host : the address the event bus of this node listens on, and which the other nodes connect to
+ * (default localhost, so it must be set for nodes on different machines)</li>
+ * <li>cluster.port : the port the event bus of this node listens on (default 0, for any free port)</li>
+ * <li>cluster.members : the addresses, as host or host:port, of the Hazelcast members to join over TCP, e.g.
+ * ["127.0.0.1:5701", "127.0.0.1:5702"] for two JVMs on one machine (default none, for the multicast discovery of the
+ * default Hazelcast configuration, or that of a cluster.xml on the classpath)</li>
+ * </ul>
+ * The -cluster command line option also starts Vert.x clustered, with the default Hazelcast configuration.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class MainLauncher extends Launcher
+{
+  private JsonObject config = new JsonObject();
+
+  public static void main(String[] args)
+  {
+    new MainLauncher().dispatch(args);
+  }
+
+  @Override
+  public void afterConfigParsed(JsonObject config)
+  {
+    this.config = config;
+  }
+
+  @Override
+  public void beforeStartingVertx(VertxOptions options)
+  {
+    if (config.containsKey("eventLoopPoolSize")) {
+      options.setEventLoopPoolSize(config.getInteger("eventLoopPoolSize"));
+    }
+    if (config.containsKey("workerPoolSize")) {
+      options.setWorkerPoolSize(config.getInteger("workerPoolSize"));
+    }
+    if (config.getJsonObject("metrics", new JsonObject()).getBoolean("enabled", true)) {
+      options.setMetricsOptions(new DropwizardMetricsOptions().setEnabled(true)
+                                                              .setRegistryName(ServiceMetrics.REGISTRY_NAME));
+    }
+    JsonObject clusterConfig = config.getJsonObject("cluster", new JsonObject());
+    if (clusterConfig.getBoolean("enabled", false)) {
+      options.setClustered(true)
+             .setClusterHost(clusterConfig.getString("host", "localhost"))
+             .setClusterPort(clusterConfig.getInteger("port", 0))
+             .setClusterManager(createClusterManager(clusterConfig));
+    }
+  }
+
+  /**
+   * Creates the Hazelcast cluster manager for the given cluster configuration, joining the cluster.members over TCP if
+   * there are any.
+   */
+  public static ClusterManager createClusterManager(JsonObject clusterConfig)
+  {
+    HazelcastClusterManager clusterManager = new HazelcastClusterManager();
+    JsonArray members = clusterConfig.getJsonArray("members", new JsonArray());
+    if (!members.isEmpty()) {
+      Config hazelcastConfig = clusterManager.loadConfig();
+      JoinConfig join = hazelcastConfig.getNetworkConfig().getJoin();
+      join.getMulticastConfig().setEnabled(false);
+      // in place of the example member of the default configuration
+      join.getTcpIpConfig().setEnabled(true).clear();
+      members.forEach(member -> join.getTcpIpConfig().addMember(String.valueOf(member)));
+      clusterManager.setConfig(hazelcastConfig);
+    }
+    return clusterManager;
+  }
+}
@@ -0,0 +1,220 @@
+package server.api.cache;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Lock;
+import io.vertx.core.shareddata.Shareable;
+import server.api.model.ProjectInfo;
+import server.api.model.ProjectInfoList;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * The projects found for each language shared by the nodes of a cluster, on top of the {@link ProjectInfoCache} of each
+ * node, so that a language is only searched by one node at a time, and the projects it finds are served by all of
+ * them.
+ * <p>
+ * A search for a language is made holding a cluster wide lock on the language. Once it holds the lock, a node first
+ * looks the language up in a clustered map of the projects last found by any node, and if they are fresh, and go as
+ * far as the projects searched for, caches and serves them rather than searching GitHub. Otherwise it searches GitHub,
+ * and puts the projects it found in the clustered map before releasing the lock, so that the nodes waiting for the lock
+ * find them there. The projects are put in the clustered map in the compact encoding of the {@link ProjectInfoStore},
+ * for as long as they can be served.
+ * <p>
+ * A node that can't get the lock within the lock timeout, e.g. while a node holding it is unreachable, searches GitHub
+ * on its own rather than failing. When Vert.x isn't clustered, searches are made straight away.
+ * <p>
+ * Supported configuration, within the cache configuration (all optional) :
+ * <ul>
+ * <li>shareAcrossCluster : whether the projects are shared with the other nodes when Vert.x is clustered (default
+ * true)</li>
+ * <li>clusterLockTimeoutSeconds : the maximum time to wait for another node searching for the same language (default
+ * 60)</li>
+ * </ul>
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class ClusterProjectInfoCache implements Shareable
+{
+  final static Logger LOGGER = LoggerFactory.getLogger(ClusterProjectInfoCache.class);
+
+  private static final String SHARED_MAP_NAME = "server.api.cache";
+  private static final String SHARED_CACHE_KEY = "clusterProjectInfoCache";
+
+  private static final String CLUSTER_MAP_NAME = "server.api.cache.projects";
+  private static final String CLUSTER_LOCK_PREFIX = "server.api.cache.projects.";
+
+  private final Vertx vertx;
+  private final ProjectInfoCache cache;
+  private final boolean enabled;
+  private final long lockTimeoutMillis;
+
+  private long sharedHits;
+  private long sharedMisses;
+  private long shares;
+  private long lockTimeouts;
+  private long errors;
+
+  public ClusterProjectInfoCache(Vertx vertx, ProjectInfoCache cache, JsonObject config)
+  {
+    this.vertx = vertx;
+    this.cache = cache;
+    this.enabled = vertx.isClustered() && config.getBoolean("shareAcrossCluster", true);
+    this.lockTimeoutMillis = config.getLong("clusterLockTimeoutSeconds", 60L) * 1000;
+  }
+
+  /**
+   * Gets the cluster cache shared by all the verticles of the given Vert.x instance, on top of its shared
+   * {@link ProjectInfoCache}, creating them from the given cache configuration if they don't exist yet.
+   */
+  public static ClusterProjectInfoCache getShared(Vertx vertx, JsonObject config)
+  {
+    LocalMap<String, ClusterProjectInfoCache> map = vertx.sharedData().getLocalMap(SHARED_MAP_NAME);
+    // got ahead of the cluster cache, as the cache is in the same shared map
+    ProjectInfoCache cache = ProjectInfoCache.getShared(vertx, config);
+    return map.computeIfAbsent(SHARED_CACHE_KEY, key -> new ClusterProjectInfoCache(vertx, cache, config));
+  }
+
+  public boolean isEnabled()
+  {
+    return enabled;
+  }
+
+  /**
+   * Serves the first maxProjects projects of a normalized language from the projects last found by any node, or else
+   * makes the given search for them, unless another node of the cluster is already searching for the language, in
+   * which case it waits for that node to find them. The search is expected to put the projects it finds in the cache.
+   */
+  public void search(String language,
+                     int maxProjects,
+                     Handler<Future<List<ProjectInfo>>> search,
+                     Future<List<ProjectInfo>> future)
+  {
+    if (!enabled) {
+      search.handle(future);
+      return;
+    }
+    vertx.sharedData().getLockWithTimeout(CLUSTER_LOCK_PREFIX + language, lockTimeoutMillis, locked -> {
+      if (locked.failed()) {
+        LOGGER.warn("Searching for language {0} without the cluster lock : {1}", language, locked.cause().getMessage());
+        synchronized (this) {
+          lockTimeouts++;
+        }
+        search.handle(future);
+        return;
+      }
+      Lock lock = locked.result();
+      Future<List<ProjectInfo>> unlocking = Future.future();
+      unlocking.setHandler(result -> {
+        lock.release();
+        future.handle(result);
+      });
+      vertx.sharedData().<String, Buffer>getClusterWideMap(CLUSTER_MAP_NAME, map -> {
+        if (map.failed()) {
+          error(language, map.cause());
+          search.handle(unlocking);
+          return;
+        }
+        map.result().get(language, got -> {
+          if (got.failed()) {
+            error(language, got.cause());
+          }
+          ProjectInfoStore.Record shared = got.succeeded() && got.result() != null ? decode(got.result()) : null;
+          if (shared != null && covers(shared.getProjects(), maxProjects) &&
+              !cache.isStale(shared.getProjects(), shared.getFetchedAt())) {
+            LOGGER.info("Serving projects for language {0} found by the cluster", language);
+            synchronized (this) {
+              sharedHits++;
+            }
+            cache.put(language, shared.getProjects(), shared.getFetchedAt());
+            unlocking.complete(shared.getProjects());
+            return;
+          }
+          synchronized (this) {
+            sharedMisses++;
+          }
+          Future<List<ProjectInfo>> searched = Future.future();
+          search.handle(searched.setHandler(result -> {
+            if (result.failed()) {
+              unlocking.handle(result);
+              return;
+            }
+            share(map.result(), language, ProjectInfoList.of(result.result()), put -> unlocking.handle(result));
+          }));
+        });
+      });
+    });
+  }
+
+  /**
+   * Puts the projects found in the clustered map, as long as they are complete and were cached as found, rather than
+   * being projects last known served while GitHub couldn't be searched.
+   */
+  private void share(AsyncMap<String, Buffer> map,
+                     String language,
+                     ProjectInfoList projects,
+                     Handler<AsyncResult<Void>> handler)
+  {
+    ProjectInfoCache.Entry cached = cache.getLastKnown(language);
+    if (projects.isPartial() || cached == null || cached.getProjects() != projects) {
+      handler.handle(Future.succeededFuture());
+      return;
+    }
+    ByteBuffer record = ProjectInfoStore.encode(language, projects, cached.getFetchedAt());
+    record.position(ProjectInfoStore.RECORD_HEADER_BYTES);
+    byte[] body = new byte[record.remaining()];
+    record.get(body);
+    map.put(language, Buffer.buffer(body), cache.getMaxAgeMillis(), put -> {
+      if (put.failed()) {
+        error(language, put.cause());
+      } else {
+        synchronized (this) {
+          shares++;
+        }
+      }
+      handler.handle(put);
+    });
+  }
+
+  private ProjectInfoStore.Record decode(Buffer body)
+  {
+    try {
+      return ProjectInfoStore.decode(ByteBuffer.wrap(body.getBytes()));
+    } catch (RuntimeException e) {
+      LOGGER.warn("Ignoring invalid projects in the cluster cache : {0}", e.toString());
+      return null;
+    }
+  }
+
+  private static boolean covers(ProjectInfoList projects, int maxProjects)
+  {
+    return !projects.isTruncated() || projects.size() >= maxProjects;
+  }
+
+  private void error(String language, Throwable cause)
+  {
+    LOGGER.error("Error sharing projects for language {0} across the cluster", cause, language);
+    synchronized (this) {
+      errors++;
+    }
+  }
+
+  public synchronized JsonObject getStats()
+  {
+    return new JsonObject().put("sharedHits", sharedHits)
+                           .put("sharedMisses", sharedMisses)
+                           .put("shares", shares)
+                           .put("lockTimeouts", lockTimeouts)
+                           .put("errors", errors);
+  }
+}
@@ -0,0 +1,170 @@
+package server.api.cache;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import server.api.model.ProjectInfo;
+import server.api.model.ProjectInfoList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The projects of the languages crawled beyond the 1000 the search API returns, shared by all the verticles in the
+ * JVM.
+ * <p>
+ * The projects of a language being crawled are merged shard by shard into an index keyed by repository id, so that a
+ * repository found in more than one shard, e.g. as its stars changed during the crawl, is only kept once, in the
+ * position it was first found at. Once the crawl is complete, the projects are served as they were at its end until
+ * the next crawl of the language completes, or the projects updated since are merged into them. The projects are
+ * encoded and indexed before they are served, and held compactly by the shared {@link ProjectTable}. As that takes a
+ * while for large lists, crawls should be completed and updated off the event loop.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class CrawlIndex implements Shareable
+{
+  private static final String SHARED_MAP_NAME = "server.api.cache";
+  private static final String SHARED_INDEX_KEY = "crawlIndex";
+
+  // the projects of the crawls in progress, keyed by normalized language and then by id
+  private final Map<String, LinkedHashMap<Long, ProjectInfo>> crawling = new HashMap<>();
+  // the projects of the last crawl completed of each language
+  private final Map<String, ProjectInfoList> crawled = new HashMap<>();
+  private final ProjectTable projectTable;
+
+  CrawlIndex(ProjectTable projectTable)
+  {
+    this.projectTable = projectTable;
+  }
+
+  /**
+   * Gets the index shared by all the verticles of the given Vert.x instance, creating it if it doesn't exist yet.
+   */
+  public static CrawlIndex getShared(Vertx vertx)
+  {
+    LocalMap<String, CrawlIndex> map = vertx.sharedData().getLocalMap(SHARED_MAP_NAME);
+    // got ahead of the index, as the table is in the same shared map
+    ProjectTable projectTable = ProjectTable.getShared(vertx);
+    return map.computeIfAbsent(SHARED_INDEX_KEY, key -> new CrawlIndex(projectTable));
+  }
+
+  /**
+   * Starts a crawl of a normalized language, discarding the projects of any crawl of it in progress.
+   */
+  public synchronized void start(String language)
+  {
+    crawling.put(language, new LinkedHashMap<>());
+  }
+
+  /**
+   * Merges projects found by the crawl of a language in progress, replacing those already found with the same id in
+   * their position, and returns the number of projects not found before.
+   */
+  public synchronized int merge(String language, List<ProjectInfo> projects)
+  {
+    LinkedHashMap<Long, ProjectInfo> index = crawling.computeIfAbsent(language, key -> new LinkedHashMap<>());
+    int added = 0;
+    for (ProjectInfo project : projects) {
+      if (index.put(project.id, project) == null) {
+        added++;
+      }
+    }
+    return added;
+  }
+
+  /**
+   * The number of distinct projects found so far by the crawl of a language in progress.
+   */
+  public synchronized int size(String language)
+  {
+    Map<Long, ProjectInfo> index = crawling.get(language);
+    return index == null ? 0 : index.size();
+  }
+
+  /**
+   * Completes the crawl of a language in progress, so that its projects are served from now on, and returns them.
+   */
+  public ProjectInfoList complete(String language, boolean truncated, long crawledAt)
+  {
+    Map<Long, ProjectInfo> index;
+    synchronized (this) {
+      index = crawling.remove(language);
+    }
+    List<ProjectInfo> projects = index == null ? new ArrayList<>() : new ArrayList<>(index.values());
+    ProjectInfoList list = new ProjectInfoList(projects, false, truncated, Collections.emptyList(), crawledAt);
+    putCrawled(language, list);
+    return list;
+  }
+
+  /**
+   * Merges the projects of a crawled language updated since it was crawled, replacing those already served with the
+   * same id in their position and adding the others at the end, and returns the number of projects added or changed.
+   * The projects served are only replaced, and so encoded again, if any of them has been.
+   */
+  public int update(String language, List<ProjectInfo> updated, long updatedAt)
+  {
+    ProjectInfoList projects = getCrawled(language);
+    if (projects == null) {
+      return 0;
+    }
+    LinkedHashMap<Long, ProjectInfo> index = new LinkedHashMap<>();
+    projects.forEach(project -> index.put(project.id, project));
+    int changed = 0;
+    for (ProjectInfo project : updated) {
+      if (!project.equals(index.put(project.id, project))) {
+        changed++;
+      }
+    }
+    if (changed > 0) {
+      putCrawled(language, new ProjectInfoList(new ArrayList<>(index.values()),
+                                               false,
+                                               projects.isTruncated(),
+                                               Collections.emptyList(),
+                                               updatedAt));
+    }
+    return changed;
+  }
+
+  /**
+   * Serves the projects of a crawl completed earlier, e.g. before a restart.
+   */
+  public void putCrawled(String language, ProjectInfoList projects)
+  {
+    // encoded and indexed before they are compacted and served, rather than by the first callers served them, and
+    // outside of the lock, as it takes a while for large lists
+    projects.toJson();
+    projects.getIndex();
+    ProjectTable.CompactProjects compact = projectTable.compact(projects);
+    if (compact != null) {
+      projects.replaceProjects(compact);
+    }
+    synchronized (this) {
+      crawled.put(language, projects);
+    }
+  }
+
+  /**
+   * The projects of the last crawl completed of a normalized language, or null if it hasn't been crawled.
+   */
+  public synchronized ProjectInfoList getCrawled(String language)
+  {
+    return crawled.get(language);
+  }
+
+  public synchronized JsonObject getStats()
+  {
+    long crawledProjects = crawled.values().stream().mapToLong(ProjectInfoList::size).sum();
+    long crawlingProjects = crawling.values().stream().mapToLong(LinkedHashMap::size).sum();
+    return new JsonObject().put("crawledLanguages", crawled.size())
+                           .put("crawledProjects", crawledProjects)
+                           .put("crawlingLanguages", crawling.size())
+                           .put("crawlingProjects", crawlingProjects);
+  }
+}
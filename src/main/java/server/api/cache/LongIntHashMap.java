@@ -0,0 +1,126 @@
+package server.api.cache;
+
+/**
+ * A map of positive long keys to int values, held in two arrays with open addressing and linear probing, so that no
+ * objects are allocated for its entries.
+ * <p>
+ * It is kept at most half full, and removing a key shifts back the keys that follow it in its probe sequence rather
+ * than leaving a tombstone. It isn't thread safe.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+final class LongIntHashMap
+{
+  // keys are positive, so 0 marks an empty position
+  private static final long EMPTY = 0;
+
+  private long[] keys;
+  private int[] values;
+  private int mask;
+  private int size;
+
+  LongIntHashMap(int expectedSize)
+  {
+    int capacity = Integer.highestOneBit(Math.max(16, expectedSize) * 2 - 1) << 1;
+    keys = new long[capacity];
+    values = new int[capacity];
+    mask = capacity - 1;
+  }
+
+  int size()
+  {
+    return size;
+  }
+
+  /**
+   * The value of the key, or the given default value if it has none.
+   */
+  int get(long key, int defaultValue)
+  {
+    for (int i = index(key); ; i = (i + 1) & mask) {
+      if (keys[i] == key) {
+        return values[i];
+      }
+      if (keys[i] == EMPTY) {
+        return defaultValue;
+      }
+    }
+  }
+
+  void put(long key, int value)
+  {
+    if (key <= 0) {
+      throw new IllegalArgumentException("Keys must be positive : " + key);
+    }
+    int i = index(key);
+    while (keys[i] != EMPTY && keys[i] != key) {
+      i = (i + 1) & mask;
+    }
+    if (keys[i] == EMPTY) {
+      keys[i] = key;
+      size++;
+    }
+    values[i] = value;
+    if (size * 2 > keys.length) {
+      resize(keys.length * 2);
+    }
+  }
+
+  void remove(long key)
+  {
+    int i = index(key);
+    while (keys[i] != key) {
+      if (keys[i] == EMPTY) {
+        return;
+      }
+      i = (i + 1) & mask;
+    }
+    size--;
+    // shift back the keys that would no longer be found past the gap
+    int gap = i;
+    for (int j = (gap + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+      int home = index(keys[j]);
+      if (((j - home) & mask) >= ((j - gap) & mask)) {
+        keys[gap] = keys[j];
+        values[gap] = values[j];
+        gap = j;
+      }
+    }
+    keys[gap] = EMPTY;
+  }
+
+  /**
+   * The estimated heap used by the arrays of the map.
+   */
+  long estimateBytes()
+  {
+    return keys.length * (8L + 4L);
+  }
+
+  private int index(long key)
+  {
+    // spreads the sequential ids of GitHub repositories over the table
+    long hash = key * 0x9E3779B97F4A7C15L;
+    return (int)(hash ^ (hash >>> 32)) & mask;
+  }
+
+  private void resize(int capacity)
+  {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    keys = new long[capacity];
+    values = new int[capacity];
+    mask = capacity - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != EMPTY) {
+        int j = index(oldKeys[i]);
+        while (keys[j] != EMPTY) {
+          j = (j + 1) & mask;
+        }
+        keys[j] = oldKeys[i];
+        values[j] = oldValues[i];
+      }
+    }
+  }
+}
@@ -0,0 +1,392 @@
+package server.api.cache;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import server.api.model.ProjectInfo;
+import server.api.model.ProjectInfoList;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.LongSupplier;
+
+/**
+ * A cache of the projects found for each language, shared by all the verticles in the JVM.
+ * <p>
+ * Entries are fresh for a configurable time to live, after which they are still served for a configurable stale
+ * period while a single background refresh is made. The cache is bounded by both a number of entries and an estimate
+ * of the memory used by the cached projects, and evicts the least recently used entries first.
+ * <p>
+ * The projects are encoded to JSON, and optionally gzip compressed, as they are put in the cache, so that cache hits
+ * can be served without encoding them again. The encoded bytes are accounted for in the memory estimate. Once encoded,
+ * the projects are held compactly by a {@link ProjectTable}, unless told not to.
+ * <p>
+ * The cached projects can also be persisted to a {@link ProjectInfoStore}, so that they survive restarts : a language
+ * missing from the cache is then looked up in the store, and served from it with the time it was fetched, so that it is
+ * refreshed in the background if it is stale. Projects are appended to the store by a single worker thread.
+ * <p>
+ * Supported configuration (all optional) :
+ * <ul>
+ * <li>ttlSeconds : time an entry is fresh for (default 600)</li>
+ * <li>staleSeconds : time an expired entry is still served while it is refreshed (default 3600)</li>
+ * <li>maxEntries : maximum number of languages cached (default 100)</li>
+ * <li>maxBytes : maximum estimated size of the cached projects (default 64MB)</li>
+ * <li>precompress : whether to also gzip compress the encoded projects (default true)</li>
+ * <li>compact : whether to hold the cached projects in a compact project table (default true)</li>
+ * <li>store.path : the file the cached projects are persisted to (default none, so they are not persisted)</li>
+ * </ul>
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class ProjectInfoCache implements Shareable
+{
+  final static Logger LOGGER = LoggerFactory.getLogger(ProjectInfoCache.class);
+
+  private static final String SHARED_MAP_NAME = "server.api.cache";
+  private static final String SHARED_CACHE_KEY = "projectInfoCache";
+
+  // rough estimate of the heap used by a ProjectInfo and its fields, excluding the characters of its strings
+  private static final int PROJECT_OVERHEAD_BYTES = 120;
+
+  private final long ttlMillis;
+  private final long staleMillis;
+  private final int maxEntries;
+  private final long maxBytes;
+  private final boolean precompress;
+  private final LongSupplier clock;
+  private final ProjectInfoStore store;
+  private final Executor storeWriter;
+  private final ProjectTable projectTable;
+
+  // access ordered, so iteration starts at the least recently used entry
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long totalBytes;
+
+  private long hits;
+  private long staleHits;
+  private long misses;
+  private long evictions;
+  private long storeLoads;
+
+  public ProjectInfoCache(JsonObject config)
+  {
+    this(config, System::currentTimeMillis);
+  }
+
+  ProjectInfoCache(JsonObject config, LongSupplier clock)
+  {
+    this(config, clock, null, null);
+  }
+
+  /**
+   * A cache persisted to the given store, to which the projects are appended by the given executor.
+   */
+  public ProjectInfoCache(JsonObject config, ProjectInfoStore store, Executor storeWriter)
+  {
+    this(config, System::currentTimeMillis, store, storeWriter);
+  }
+
+  ProjectInfoCache(JsonObject config, LongSupplier clock, ProjectInfoStore store, Executor storeWriter)
+  {
+    this(config, clock, store, storeWriter, new ProjectTable());
+  }
+
+  /**
+   * A cache holding its projects in the given table, if they are to be compacted, and persisted to the given store if
+   * there is one.
+   */
+  public ProjectInfoCache(JsonObject config, ProjectTable projectTable, ProjectInfoStore store, Executor storeWriter)
+  {
+    this(config, System::currentTimeMillis, store, storeWriter, projectTable);
+  }
+
+  private ProjectInfoCache(JsonObject config,
+                           LongSupplier clock,
+                           ProjectInfoStore store,
+                           Executor storeWriter,
+                           ProjectTable projectTable)
+  {
+    this.ttlMillis = config.getLong("ttlSeconds", 600L) * 1000;
+    this.staleMillis = config.getLong("staleSeconds", 3600L) * 1000;
+    this.maxEntries = config.getInteger("maxEntries", 100);
+    this.maxBytes = config.getLong("maxBytes", 64L * 1024 * 1024);
+    this.precompress = config.getBoolean("precompress", true);
+    this.clock = clock;
+    this.store = store;
+    this.storeWriter = storeWriter;
+    this.projectTable = config.getBoolean("compact", true) ? projectTable : null;
+  }
+
+  /**
+   * Gets the cache shared by all the verticles of the given Vert.x instance, creating it from the given configuration
+   * if it doesn't exist yet.
+   */
+  public static ProjectInfoCache getShared(Vertx vertx, JsonObject config)
+  {
+    LocalMap<String, ProjectInfoCache> map = vertx.sharedData().getLocalMap(SHARED_MAP_NAME);
+    // got ahead of the cache, as the table is in the same shared map, which can't be updated while computing a value
+    ProjectTable projectTable = ProjectTable.getShared(vertx);
+    return map.computeIfAbsent(SHARED_CACHE_KEY, key -> {
+      String storePath = config.getJsonObject("store", new JsonObject()).getString("path");
+      if (storePath == null) {
+        return new ProjectInfoCache(config, projectTable, null, null);
+      }
+      try {
+        WorkerExecutor writer = vertx.createSharedWorkerExecutor("project-info-store", 1);
+        Executor storeWriter = task -> writer.executeBlocking(future -> {
+          task.run();
+          future.complete();
+        }, false, written -> {
+          if (written.failed()) {
+            LOGGER.error("Error writing to the project store", written.cause());
+          }
+        });
+        return new ProjectInfoCache(config, projectTable, new ProjectInfoStore(Paths.get(storePath)), storeWriter);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  /**
+   * Normalizes a language name to a cache key : GitHub language qualifiers are case insensitive.
+   */
+  public static String normalize(String language)
+  {
+    return language.trim().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Looks up the projects for a normalized language, returning null if there are none or they are too old to be
+   * served.
+   */
+  public Entry get(String key)
+  {
+    Entry entry = getOrLoad(key);
+    synchronized (this) {
+      long now = clock.getAsLong();
+      if (entry == null || now - entry.fetchedAt >= ttlMillis + staleMillis) {
+        misses++;
+        return null;
+      }
+      if (entry.isStale(now)) {
+        staleHits++;
+      } else {
+        hits++;
+      }
+      return entry;
+    }
+  }
+
+  /**
+   * Looks up the last projects known for a normalized language however old they are, for use when they can't be
+   * fetched again. Entries too old to be served by {@link #get(String)} are kept for this until they are evicted.
+   */
+  public Entry getLastKnown(String key)
+  {
+    return getOrLoad(key);
+  }
+
+  public void put(String key, ProjectInfoList projects)
+  {
+    put(key, projects, clock.getAsLong());
+  }
+
+  /**
+   * Caches the projects for a normalized language as fetched at the given time, e.g. by another node of a cluster.
+   */
+  public void put(String key, ProjectInfoList projects, long fetchedAt)
+  {
+    Entry entry = insert(key, projects, fetchedAt, true);
+    if (store != null) {
+      storeWriter.execute(() -> {
+        try {
+          store.append(key, projects, entry.fetchedAt);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    }
+  }
+
+  /**
+   * Gets the entry for a normalized language, loading it from the store if it isn't cached.
+   */
+  private Entry getOrLoad(String key)
+  {
+    synchronized (this) {
+      Entry entry = entries.get(key);
+      if (entry != null || store == null) {
+        return entry;
+      }
+    }
+    ProjectInfoStore.Record stored = store.load(key);
+    if (stored == null) {
+      return null;
+    }
+    synchronized (this) {
+      storeLoads++;
+    }
+    return insert(key, stored.getProjects(), stored.getFetchedAt(), false);
+  }
+
+  /**
+   * Caches the projects, replacing any entry for the language unless told not to, and returns the entry cached.
+   */
+  private Entry insert(String key, ProjectInfoList projects, long fetchedAt, boolean replace)
+  {
+    // encoded, indexed and compacted outside of the lock, as it takes a while for large lists
+    long bytes = projects.toJson().length();
+    projects.getIndex();
+    if (precompress) {
+      bytes += projects.toGzippedJson().length();
+    }
+    ProjectTable.CompactProjects compact = projectTable == null ? null : projectTable.compact(projects);
+    if (compact != null) {
+      projects.replaceProjects(compact);
+      bytes += compact.estimateBytes();
+    } else {
+      bytes += estimateBytes(projects);
+    }
+    synchronized (this) {
+      if (!replace && entries.containsKey(key)) {
+        return entries.get(key);
+      }
+      remove(key);
+      Entry entry = new Entry(projects, fetchedAt, bytes);
+      entries.put(key, entry);
+      totalBytes += entry.bytes;
+      evict();
+      return entry;
+    }
+  }
+
+  /**
+   * Claims the background refresh of a stale entry, returning false if the entry is gone or another caller is already
+   * refreshing it. The claim is released when the entry is replaced, or by {@link #refreshFailed(String)}.
+   */
+  public synchronized boolean tryStartRefresh(String key)
+  {
+    Entry entry = entries.get(key);
+    if (entry == null || entry.refreshing) {
+      return false;
+    }
+    entry.refreshing = true;
+    return true;
+  }
+
+  public synchronized void refreshFailed(String key)
+  {
+    Entry entry = entries.get(key);
+    if (entry != null) {
+      entry.refreshing = false;
+    }
+  }
+
+  public synchronized JsonObject getStats()
+  {
+    return new JsonObject().put("entries", entries.size())
+                           .put("bytes", totalBytes)
+                           .put("hits", hits)
+                           .put("staleHits", staleHits)
+                           .put("misses", misses)
+                           .put("evictions", evictions)
+                           .put("storeLoads", storeLoads);
+  }
+
+  private void remove(String key)
+  {
+    Entry removed = entries.remove(key);
+    if (removed != null) {
+      totalBytes -= removed.bytes;
+    }
+  }
+
+  private void evict()
+  {
+    Iterator<Map.Entry<String, Entry>> leastRecentlyUsed = entries.entrySet().iterator();
+    // always keep the most recent entry, even if it is bigger than the whole cache on its own
+    while ((entries.size() > maxEntries || totalBytes > maxBytes) && entries.size() > 1) {
+      Entry evicted = leastRecentlyUsed.next().getValue();
+      leastRecentlyUsed.remove();
+      totalBytes -= evicted.bytes;
+      evictions++;
+    }
+  }
+
+  /**
+   * Whether projects fetched at the given time would be stale by now. Partial results are always stale, so that they
+   * are replaced by complete ones as soon as possible.
+   */
+  boolean isStale(ProjectInfoList projects, long fetchedAt)
+  {
+    return projects.isPartial() || clock.getAsLong() - fetchedAt >= ttlMillis;
+  }
+
+  /**
+   * The time projects are served for after they are fetched, while they are fresh and then stale.
+   */
+  long getMaxAgeMillis()
+  {
+    return ttlMillis + staleMillis;
+  }
+
+  private static long estimateBytes(List<ProjectInfo> projects)
+  {
+    long bytes = 0;
+    for (ProjectInfo project : projects) {
+      bytes += PROJECT_OVERHEAD_BYTES + 2L * (project.name.length() + project.url.length() + project.owner.length());
+    }
+    return bytes;
+  }
+
+  public class Entry
+  {
+    private final ProjectInfoList projects;
+    private final long fetchedAt;
+    private final long bytes;
+    private boolean refreshing;
+
+    private Entry(ProjectInfoList projects, long fetchedAt, long bytes)
+    {
+      this.projects = projects;
+      this.fetchedAt = fetchedAt;
+      this.bytes = bytes;
+    }
+
+    public ProjectInfoList getProjects()
+    {
+      return projects;
+    }
+
+    public long getFetchedAt()
+    {
+      return fetchedAt;
+    }
+
+    /**
+     * Partial results are always stale, so that they are replaced by complete ones as soon as possible.
+     */
+    public boolean isStale(long now)
+    {
+      return projects.isPartial() || now - fetchedAt >= ttlMillis;
+    }
+
+    public boolean isStale()
+    {
+      return isStale(clock.getAsLong());
+    }
+  }
+}
@@ -0,0 +1,493 @@
+package server.api.cache;
+
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import server.api.model.ProjectInfo;
+import server.api.model.ProjectInfoList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * An append only file of the projects found for each language, from which the cache is warmed after a restart.
+ * <p>
+ * Each time projects are cached they are appended to the file as a record, along with the time they were fetched and
+ * the ETags of their pages. Opening the store only reads the headers of the records, to index the latest record of
+ * each language, and memory maps the file, so that the projects of a language are only decoded from it the first time
+ * they are needed. Superseded records are dropped by compacting the file once they take up more of it than the latest
+ * ones, and a record left incomplete by a crash is truncated when the store is opened.
+ * <p>
+ * The projects are encoded compactly : ids as variable length integers, strings as UTF-8 prefixed by their variable
+ * length, and urls left out when they are the usual https://github.com/{owner}/{name}, so a project takes about a third
+ * of its JSON size. Each record has a CRC32 checksum, checked when it is decoded.
+ * <p>
+ * Loads never wait for appends or compactions : the index and the mapping of the file are published together as an
+ * immutable snapshot once a record has been written, or the file compacted, which loads read without locking. Appends
+ * and compactions are synchronized with each other, and block on file I/O, so should be done off the event loop.
+ * <p>
+ * Rather than mapping the file again after each append, records appended since the file was last mapped are loaded
+ * from the buffers they were written from, and the file is only mapped again once they add up to a chunk of it. As a
+ * mapping can't exceed 2GB, nor can the file : a record that would take it beyond that is rejected, unless compacting
+ * the file first makes room for it.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class ProjectInfoStore implements Closeable
+{
+  final static Logger LOGGER = LoggerFactory.getLogger(ProjectInfoStore.class);
+
+  private static final int MAGIC = 0x47485053;
+  private static final byte VERSION = 1;
+  private static final int FILE_HEADER_BYTES = 5;
+  // the length of the body and its checksum
+  static final int RECORD_HEADER_BYTES = 8;
+  // compaction isn't worth it for less
+  private static final long MIN_COMPACTION_BYTES = 1024 * 1024;
+  // the bytes appended to the file before it is mapped again
+  private static final long REMAP_BYTES = 16 * 1024 * 1024;
+  // the most bytes a MappedByteBuffer can map
+  private static final long MAX_FILE_BYTES = Integer.MAX_VALUE;
+
+  private static final String GITHUB_URL = "https://github.com/";
+
+  private static final int PARTIAL = 1;
+  private static final int TRUNCATED = 2;
+
+  private static final int HAS_ID = 1;
+  private static final int HAS_NAME = 2;
+  private static final int HAS_OWNER = 4;
+  private static final int HAS_URL = 8;
+  private static final int GITHUB_URL_OF_OWNER_AND_NAME = 16;
+
+  private final Path path;
+  private final long remapBytes;
+  private final long maxFileBytes;
+  private FileChannel channel;
+  private volatile Snapshot snapshot;
+  private long liveBytes;
+
+  public ProjectInfoStore(Path path) throws IOException
+  {
+    this(path, REMAP_BYTES, MAX_FILE_BYTES);
+  }
+
+  ProjectInfoStore(Path path, long remapBytes, long maxFileBytes) throws IOException
+  {
+    this.path = path;
+    this.remapBytes = remapBytes;
+    this.maxFileBytes = Math.min(maxFileBytes, MAX_FILE_BYTES);
+    if (path.getParent() != null) {
+      Files.createDirectories(path.getParent());
+    }
+    open();
+    if (shouldCompact()) {
+      compact();
+    }
+    LOGGER.info("Opened project store {0} with {1} languages", path, snapshot.index.size());
+  }
+
+  /**
+   * The latest projects stored for a normalized language, or null if there are none or their record is corrupt.
+   */
+  public Record load(String language)
+  {
+    Snapshot current = snapshot;
+    Location location = current.index.get(language);
+    if (location == null) {
+      return null;
+    }
+    // the record either in the mapping of the file, or in the buffer it was appended from since
+    ByteBuffer records = location.appended == null ? current.mapped : location.appended;
+    int position = location.appended == null ? Math.toIntExact(location.offset) : RECORD_HEADER_BYTES;
+    int checksum = records.getInt(position - 4);
+    ByteBuffer body = records.duplicate();
+    body.limit(position + location.length);
+    body.position(position);
+    body = body.slice();
+    CRC32 crc = new CRC32();
+    crc.update(body.duplicate());
+    if ((int)crc.getValue() != checksum) {
+      LOGGER.warn("Ignoring corrupt record of language {0} in project store {1}", language, path);
+      return null;
+    }
+    return decode(body);
+  }
+
+  /**
+   * Appends the projects of a normalized language, fetched at the given time, which replace any stored before unless
+   * they were fetched earlier.
+   */
+  public synchronized void append(String language, ProjectInfoList projects, long fetchedAt) throws IOException
+  {
+    ByteBuffer record = encode(language, projects, fetchedAt);
+    if (channel.size() + record.limit() > maxFileBytes && channel.size() > FILE_HEADER_BYTES + liveBytes) {
+      compact();
+    }
+    long offset = channel.size();
+    if (offset + record.limit() > maxFileBytes) {
+      throw new IOException("Project store " + path + " of " + offset + " bytes can't grow beyond " + maxFileBytes +
+                            " bytes");
+    }
+    while (record.hasRemaining()) {
+      channel.write(record, offset + record.position());
+    }
+    record.rewind();
+    Location location = new Location(offset + RECORD_HEADER_BYTES,
+                                     record.limit() - RECORD_HEADER_BYTES,
+                                     fetchedAt,
+                                     record);
+    Map<String, Location> index = new HashMap<>(snapshot.index);
+    Location replaced = index.get(language);
+    if (replaced == null || replaced.fetchedAt <= fetchedAt) {
+      index.put(language, location);
+      liveBytes += location.recordBytes() - (replaced == null ? 0 : replaced.recordBytes());
+    }
+    long unmappedBytes = snapshot.unmappedBytes + record.limit();
+    if (unmappedBytes >= remapBytes) {
+      index.replaceAll((key, appended) -> appended.mapped());
+      snapshot = new Snapshot(index, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), 0);
+    } else {
+      snapshot = new Snapshot(index, snapshot.mapped, unmappedBytes);
+    }
+    if (shouldCompact()) {
+      compact();
+    }
+  }
+
+  public int size()
+  {
+    return snapshot.index.size();
+  }
+
+  public long getFileBytes()
+  {
+    Snapshot current = snapshot;
+    return current.mapped.capacity() + current.unmappedBytes;
+  }
+
+  /**
+   * Rewrites the file with only the latest record of each language.
+   */
+  synchronized void compact() throws IOException
+  {
+    Path compacted = path.resolveSibling(path.getFileName() + ".compacting");
+    Map<String, Location> compactedIndex = new HashMap<>();
+    try (FileChannel out = FileChannel.open(compacted,
+                                            StandardOpenOption.CREATE,
+                                            StandardOpenOption.WRITE,
+                                            StandardOpenOption.TRUNCATE_EXISTING)) {
+      writeFileHeader(out);
+      // the records are transferred to the position of the channel, which the header was written before
+      out.position(FILE_HEADER_BYTES);
+      long offset = FILE_HEADER_BYTES;
+      for (Map.Entry<String, Location> entry : snapshot.index.entrySet()) {
+        Location location = entry.getValue();
+        long recordOffset = location.offset - RECORD_HEADER_BYTES;
+        long copied = 0;
+        while (copied < location.recordBytes()) {
+          copied += channel.transferTo(recordOffset + copied, location.recordBytes() - copied, out);
+        }
+        compactedIndex.put(entry.getKey(),
+                           new Location(offset + RECORD_HEADER_BYTES, location.length, location.fetchedAt, null));
+        offset += location.recordBytes();
+      }
+      out.force(true);
+    }
+    long before = channel.size();
+    channel.close();
+    Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    // the records loaded from the previous mapping stay valid, as a mapping outlives the channel and file it was of
+    snapshot = new Snapshot(compactedIndex, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), 0);
+    LOGGER.info("Compacted project store {0} from {1} to {2} bytes",
+                path,
+                String.valueOf(before),
+                String.valueOf(channel.size()));
+  }
+
+  @Override
+  public synchronized void close() throws IOException
+  {
+    channel.force(true);
+    channel.close();
+  }
+
+  private void open() throws IOException
+  {
+    channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    if (channel.size() < FILE_HEADER_BYTES) {
+      channel.truncate(0);
+      writeFileHeader(channel);
+    }
+    if (channel.size() > MAX_FILE_BYTES) {
+      throw new IOException("Project store " + path + " is larger than the " + MAX_FILE_BYTES + " bytes it can map");
+    }
+    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    Map<String, Location> index = new HashMap<>();
+    if (mapped.getInt(0) != MAGIC || mapped.get(4) != VERSION) {
+      throw new IOException("Not a version " + VERSION + " project store : " + path);
+    }
+    // the file is no larger than a mapping, so its offsets are ints
+    int offset = FILE_HEADER_BYTES;
+    while (offset + RECORD_HEADER_BYTES <= mapped.capacity()) {
+      int length = mapped.getInt(offset);
+      if (length <= 0 || length > mapped.capacity() - offset - RECORD_HEADER_BYTES) {
+        break;
+      }
+      ByteBuffer body = mapped.duplicate();
+      body.limit(offset + RECORD_HEADER_BYTES + length);
+      body.position(offset + RECORD_HEADER_BYTES);
+      String language;
+      long fetchedAt;
+      try {
+        language = readString(body);
+        fetchedAt = body.getLong();
+      } catch (RuntimeException e) {
+        break;
+      }
+      Location location = new Location(offset + RECORD_HEADER_BYTES, length, fetchedAt, null);
+      Location replaced = index.get(language);
+      if (replaced == null || replaced.fetchedAt <= fetchedAt) {
+        index.put(language, location);
+        liveBytes += location.recordBytes() - (replaced == null ? 0 : replaced.recordBytes());
+      }
+      offset += location.recordBytes();
+    }
+    if (offset < mapped.capacity()) {
+      LOGGER.warn("Truncating incomplete record at {0} of project store {1}", String.valueOf(offset), path);
+      channel.truncate(offset);
+      mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    snapshot = new Snapshot(index, mapped, 0);
+  }
+
+  private boolean shouldCompact() throws IOException
+  {
+    long deadBytes = channel.size() - FILE_HEADER_BYTES - liveBytes;
+    return deadBytes > liveBytes && deadBytes >= MIN_COMPACTION_BYTES;
+  }
+
+  private static void writeFileHeader(FileChannel channel) throws IOException
+  {
+    ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(MAGIC).put(VERSION);
+    header.flip();
+    while (header.hasRemaining()) {
+      channel.write(header, header.position());
+    }
+  }
+
+  static ByteBuffer encode(String language, ProjectInfoList projects, long fetchedAt)
+  {
+    Encoder encoder = new Encoder(RECORD_HEADER_BYTES + 64 + projects.size() * 48);
+    encoder.buffer.position(RECORD_HEADER_BYTES);
+    encoder.writeString(language);
+    encoder.ensure(9);
+    encoder.buffer.putLong(fetchedAt)
+                  .put((byte)((projects.isPartial() ? PARTIAL : 0) | (projects.isTruncated() ? TRUNCATED : 0)));
+    encoder.writeVarLong(projects.getPageETags().size());
+    for (String eTag : projects.getPageETags()) {
+      encoder.writeString(eTag);
+    }
+    encoder.writeVarLong(projects.size());
+    for (ProjectInfo project : projects) {
+      boolean githubUrl = project.url != null && project.name != null && project.owner != null &&
+                          project.url.equals(GITHUB_URL + project.owner + "/" + project.name);
+      int flags = (project.id != null ? HAS_ID : 0) |
+                  (project.name != null ? HAS_NAME : 0) |
+                  (project.owner != null ? HAS_OWNER : 0) |
+                  (githubUrl ? GITHUB_URL_OF_OWNER_AND_NAME : project.url != null ? HAS_URL : 0);
+      encoder.ensure(1);
+      encoder.buffer.put((byte)flags);
+      if (project.id != null) {
+        encoder.writeVarLong(project.id);
+      }
+      if (project.name != null) {
+        encoder.writeString(project.name);
+      }
+      if (project.owner != null) {
+        encoder.writeString(project.owner);
+      }
+      if ((flags & HAS_URL) != 0) {
+        encoder.writeString(project.url);
+      }
+    }
+    ByteBuffer record = encoder.buffer;
+    record.flip();
+    ByteBuffer body = record.duplicate();
+    body.position(RECORD_HEADER_BYTES);
+    CRC32 crc = new CRC32();
+    crc.update(body);
+    record.putInt(0, record.limit() - RECORD_HEADER_BYTES).putInt(4, (int)crc.getValue());
+    return record;
+  }
+
+  static Record decode(ByteBuffer body)
+  {
+    readString(body);
+    long fetchedAt = body.getLong();
+    int listFlags = body.get();
+    boolean partial = (listFlags & PARTIAL) != 0;
+    boolean truncated = (listFlags & TRUNCATED) != 0;
+    int eTagCount = (int)readVarLong(body);
+    List<String> pageETags = new ArrayList<>(eTagCount);
+    for (int i = 0; i < eTagCount; i++) {
+      pageETags.add(readString(body));
+    }
+    int count = (int)readVarLong(body);
+    List<ProjectInfo> projects = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      int flags = body.get();
+      Long id = (flags & HAS_ID) != 0 ? readVarLong(body) : null;
+      String name = (flags & HAS_NAME) != 0 ? readString(body) : null;
+      String owner = (flags & HAS_OWNER) != 0 ? readString(body) : null;
+      String url = (flags & HAS_URL) != 0 ? readString(body)
+                   : (flags & GITHUB_URL_OF_OWNER_AND_NAME) != 0 ? GITHUB_URL + owner + "/" + name : null;
+      projects.add(new ProjectInfo(id, name, url, owner));
+    }
+    // the time the projects were last modified isn't stored, so is taken to be the time they were fetched
+    return new Record(new ProjectInfoList(projects, partial, truncated, pageETags, fetchedAt), fetchedAt);
+  }
+
+  private static long readVarLong(ByteBuffer buffer)
+  {
+    long value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = buffer.get();
+      value |= (long)(b & 0x7f) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+
+  private static String readString(ByteBuffer buffer)
+  {
+    byte[] bytes = new byte[(int)readVarLong(buffer)];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes to a heap buffer that grows as needed.
+   */
+  private static class Encoder
+  {
+    private ByteBuffer buffer;
+
+    private Encoder(int capacity)
+    {
+      buffer = ByteBuffer.allocate(capacity);
+    }
+
+    private void ensure(int bytes)
+    {
+      if (buffer.remaining() < bytes) {
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        buffer.flip();
+        buffer = grown.put(buffer);
+      }
+    }
+
+    private void writeVarLong(long value)
+    {
+      ensure(10);
+      while ((value & ~0x7fL) != 0) {
+        buffer.put((byte)((value & 0x7f) | 0x80));
+        value >>>= 7;
+      }
+      buffer.put((byte)value);
+    }
+
+    private void writeString(String value)
+    {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeVarLong(bytes.length);
+      ensure(bytes.length);
+      buffer.put(bytes);
+    }
+  }
+
+  /**
+   * The position of the body of a record in the file, and when its projects were fetched, along with the record if it
+   * was appended since the file was last mapped.
+   */
+  private static class Location
+  {
+    private final long offset;
+    private final int length;
+    private final long fetchedAt;
+    private final ByteBuffer appended;
+
+    private Location(long offset, int length, long fetchedAt, ByteBuffer appended)
+    {
+      this.offset = offset;
+      this.length = length;
+      this.fetchedAt = fetchedAt;
+      this.appended = appended;
+    }
+
+    private Location mapped()
+    {
+      return appended == null ? this : new Location(offset, length, fetchedAt, null);
+    }
+
+    private long recordBytes()
+    {
+      return RECORD_HEADER_BYTES + length;
+    }
+  }
+
+  /**
+   * The latest record of each language, and the file as last mapped, followed by the bytes appended since.
+   */
+  private static class Snapshot
+  {
+    private final Map<String, Location> index;
+    private final MappedByteBuffer mapped;
+    private final long unmappedBytes;
+
+    private Snapshot(Map<String, Location> index, MappedByteBuffer mapped, long unmappedBytes)
+    {
+      this.index = index;
+      this.mapped = mapped;
+      this.unmappedBytes = unmappedBytes;
+    }
+  }
+
+  public static class Record
+  {
+    private final ProjectInfoList projects;
+    private final long fetchedAt;
+
+    Record(ProjectInfoList projects, long fetchedAt)
+    {
+      this.projects = projects;
+      this.fetchedAt = fetchedAt;
+    }
+
+    public ProjectInfoList getProjects()
+    {
+      return projects;
+    }
+
+    public long getFetchedAt()
+    {
+      return fetchedAt;
+    }
+  }
+}
@@ -0,0 +1,377 @@
+package server.api.cache;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import server.api.model.ProjectInfo;
+
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A compact table of the projects held by the cache and the crawl index, shared by all the languages, so that the
+ * projects of tens of languages of 100000 projects each fit comfortably in the heap.
+ * <p>
+ * Rather than as a ProjectInfo object with a boxed id and three strings, each project is kept in a slot of a few
+ * parallel arrays : its id as a long, its owner as the index of the owner in a table of interned owners, and its name
+ * as the offset and length of its UTF-8 bytes in a single byte array. Its url is left out when it is the usual
+ * https://github.com/{owner}/{name}, and derived again when the project is read. Slots are found by id with an open
+ * addressing map of long ids to int slots, and the projects of a language are held as a {@link CompactProjects} list of
+ * the int slots of its projects. With the room left for the table to grow, and its share of the owners, a project
+ * takes about 120 bytes instead of about 330 bytes as a ProjectInfo, and a project shared by more than one list is only
+ * held once.
+ * <p>
+ * Slots are never changed once set, so that a list always has the projects it was compacted with, as its encodings
+ * and index were made from them : compacting a project found again with other values, e.g. after it was renamed, puts
+ * it in a new slot, which the id then maps to, and the lists holding the old slot keep the old values. The slots of
+ * the projects that are no longer held by any list, which is tracked with weak references to the lists, are freed by
+ * sweeping the table once its slots have doubled since the last sweep, which also compacts the names and owners.
+ * <p>
+ * Only projects with all of their values, and a positive id, can be compacted. Compacting and sweeping are
+ * synchronized, but reading the projects of a list isn't : the arrays they are read from are published together once
+ * the projects are written, and a sweep writes the names and owners it compacts to new arrays rather than over the
+ * ones being read.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class ProjectTable implements Shareable
+{
+  private static final String SHARED_MAP_NAME = "server.api.cache";
+  private static final String SHARED_TABLE_KEY = "projectTable";
+
+  private static final String GITHUB_URL = "https://github.com/";
+  private static final int INITIAL_SLOTS = 1024;
+  // sweeping isn't worth it for less
+  private static final int MIN_SWEEP_SLOTS = 16 * 1024;
+  // the id, owner, name offset and name length of a slot
+  private static final int SLOT_BYTES = 8 + 4 + 4 + 4;
+  // a slot and its entry in the id map kept at most half full, both with room to grow, and its index in a list
+  private static final int PROJECT_BYTES = 2 * (SLOT_BYTES + 2 * (8 + 4)) + 4;
+
+  private final LongIntHashMap slotsById = new LongIntHashMap(INITIAL_SLOTS);
+  private long[] ids = new long[INITIAL_SLOTS];
+  private int[] owners = new int[INITIAL_SLOTS];
+  private int[] nameOffsets = new int[INITIAL_SLOTS];
+  private int[] nameLengths = new int[INITIAL_SLOTS];
+  // the urls that aren't derived from the owner and name, keyed by slot
+  private final Map<Integer, String> urls = new ConcurrentHashMap<>();
+  private int slotCount;
+  private int[] freeSlots = new int[0];
+  private int freeSlotCount;
+
+  private byte[] names = new byte[INITIAL_SLOTS * 16];
+  private int namesLength;
+
+  private String[] ownerNames = new String[INITIAL_SLOTS];
+  private int ownerCount;
+  private final Map<String, Integer> ownerIndexes = new HashMap<>();
+
+  // the arrays above as last published, which the projects are read from
+  private volatile Columns columns = publish();
+
+  private final List<WeakReference<CompactProjects>> lists = new ArrayList<>();
+  private int projectsAtLastSweep;
+  private int listsAtLastSweep;
+  private long sweeps;
+
+  /**
+   * Gets the table shared by all the verticles of the given Vert.x instance, creating it if it doesn't exist yet.
+   */
+  public static ProjectTable getShared(Vertx vertx)
+  {
+    LocalMap<String, ProjectTable> map = vertx.sharedData().getLocalMap(SHARED_MAP_NAME);
+    return map.computeIfAbsent(SHARED_TABLE_KEY, key -> new ProjectTable());
+  }
+
+  /**
+   * The given projects held compactly by the table, in the same order, or null if any of them can't be compacted.
+   */
+  public synchronized CompactProjects compact(List<ProjectInfo> projects)
+  {
+    for (ProjectInfo project : projects) {
+      if (project.id == null || project.id <= 0 || project.name == null || project.owner == null ||
+          project.url == null) {
+        return null;
+      }
+    }
+    int[] slots = new int[projects.size()];
+    long listNameBytes = 0;
+    for (int i = 0; i < slots.length; i++) {
+      slots[i] = put(projects.get(i));
+      listNameBytes += nameLengths[slots[i]];
+    }
+    CompactProjects compact = new CompactProjects(this, slots, listNameBytes);
+    lists.add(new WeakReference<>(compact));
+    int projectCount = slotCount - freeSlotCount;
+    if (projectCount >= Math.max(MIN_SWEEP_SLOTS, 2 * projectsAtLastSweep) ||
+        lists.size() >= Math.max(64, 2 * listsAtLastSweep)) {
+      sweep();
+    }
+    columns = publish();
+    return compact;
+  }
+
+  private int put(ProjectInfo project)
+  {
+    int slot = slotsById.get(project.id, -1);
+    if (slot < 0 || !matches(slot, project)) {
+      slot = allocate();
+      ids[slot] = project.id;
+      slotsById.put(project.id, slot);
+      set(slot, project);
+    }
+    return slot;
+  }
+
+  private int allocate()
+  {
+    if (freeSlotCount > 0) {
+      return freeSlots[--freeSlotCount];
+    }
+    if (slotCount == ids.length) {
+      int capacity = ids.length * 2;
+      ids = Arrays.copyOf(ids, capacity);
+      owners = Arrays.copyOf(owners, capacity);
+      nameOffsets = Arrays.copyOf(nameOffsets, capacity);
+      nameLengths = Arrays.copyOf(nameLengths, capacity);
+    }
+    return slotCount++;
+  }
+
+  private void set(int slot, ProjectInfo project)
+  {
+    owners[slot] = internOwner(project.owner);
+    byte[] name = project.name.getBytes(StandardCharsets.UTF_8);
+    nameOffsets[slot] = appendName(name, 0, name.length);
+    nameLengths[slot] = name.length;
+    if (project.url.equals(deriveUrl(project.owner, project.name))) {
+      urls.remove(slot);
+    } else {
+      urls.put(slot, project.url);
+    }
+  }
+
+  private boolean matches(int slot, ProjectInfo project)
+  {
+    return ownerNames[owners[slot]].equals(project.owner) &&
+           getName(slot).equals(project.name) &&
+           getUrl(slot, project.owner, project.name).equals(project.url);
+  }
+
+  private int internOwner(String owner)
+  {
+    Integer index = ownerIndexes.get(owner);
+    if (index == null) {
+      if (ownerCount == ownerNames.length) {
+        ownerNames = Arrays.copyOf(ownerNames, ownerCount * 2);
+      }
+      index = ownerCount++;
+      ownerNames[index] = owner;
+      ownerIndexes.put(owner, index);
+    }
+    return index;
+  }
+
+  private int appendName(byte[] name, int offset, int length)
+  {
+    if (namesLength + length > names.length) {
+      names = Arrays.copyOf(names, Math.max(names.length * 2, namesLength + length));
+    }
+    System.arraycopy(name, offset, names, namesLength, length);
+    namesLength += length;
+    return namesLength - length;
+  }
+
+  private String getName(int slot)
+  {
+    return new String(names, nameOffsets[slot], nameLengths[slot], StandardCharsets.UTF_8);
+  }
+
+  private String getUrl(int slot, String owner, String name)
+  {
+    String url = urls.get(slot);
+    return url == null ? deriveUrl(owner, name) : url;
+  }
+
+  private static String deriveUrl(String owner, String name)
+  {
+    return GITHUB_URL + owner + "/" + name;
+  }
+
+  /**
+   * The project held in the given slot, by a list published after it was compacted.
+   */
+  ProjectInfo get(int slot)
+  {
+    Columns read = columns;
+    String owner = read.ownerNames[read.owners[slot]];
+    String name = new String(read.names, read.nameOffsets[slot], read.nameLengths[slot], StandardCharsets.UTF_8);
+    return new ProjectInfo(read.ids[slot], name, getUrl(slot, owner, name), owner);
+  }
+
+  private Columns publish()
+  {
+    return new Columns(ids, owners, nameOffsets, nameLengths, names, ownerNames);
+  }
+
+  /**
+   * Frees the slots of the projects no longer held by any list, and compacts the names and owners of the others.
+   */
+  synchronized void sweep()
+  {
+    List<CompactProjects> live = new ArrayList<>();
+    for (WeakReference<CompactProjects> reference : lists) {
+      CompactProjects list = reference.get();
+      if (list != null) {
+        live.add(list);
+      }
+    }
+    sweep(live);
+  }
+
+  /**
+   * Frees the slots of the projects not held by any of the given lists, which are taken to be the only lists still in
+   * use, and compacts the names and owners of the others.
+   */
+  synchronized void sweep(Collection<CompactProjects> live)
+  {
+    lists.clear();
+    long[] held = new long[(slotCount + 63) / 64];
+    for (CompactProjects list : live) {
+      lists.add(new WeakReference<>(list));
+      for (int slot : list.slots) {
+        held[slot >>> 6] |= 1L << slot;
+      }
+    }
+    // the names and owners being read are left as they are
+    byte[] oldNames = names;
+    int[] oldNameOffsets = nameOffsets;
+    int[] oldOwners = owners;
+    String[] oldOwnerNames = ownerNames;
+    names = new byte[Math.max(INITIAL_SLOTS * 16, namesLength)];
+    namesLength = 0;
+    nameOffsets = new int[oldNameOffsets.length];
+    owners = new int[oldOwners.length];
+    ownerNames = new String[Math.max(INITIAL_SLOTS, ownerCount)];
+    ownerCount = 0;
+    ownerIndexes.clear();
+    freeSlots = new int[slotCount];
+    freeSlotCount = 0;
+    for (int slot = 0; slot < slotCount; slot++) {
+      if ((held[slot >>> 6] & (1L << slot)) != 0) {
+        nameOffsets[slot] = appendName(oldNames, oldNameOffsets[slot], nameLengths[slot]);
+        owners[slot] = internOwner(oldOwnerNames[oldOwners[slot]]);
+        continue;
+      }
+      if (ids[slot] != 0) {
+        // the id may map to a newer slot of the project
+        if (slotsById.get(ids[slot], -1) == slot) {
+          slotsById.remove(ids[slot]);
+        }
+        ids[slot] = 0;
+        urls.remove(slot);
+      }
+      freeSlots[freeSlotCount++] = slot;
+    }
+    projectsAtLastSweep = slotCount - freeSlotCount;
+    listsAtLastSweep = lists.size();
+    sweeps++;
+    columns = publish();
+  }
+
+  /**
+   * The estimated heap used by the table.
+   */
+  public synchronized long estimateBytes()
+  {
+    long ownerBytes = ownerNames.length * 4L;
+    for (int i = 0; i < ownerCount; i++) {
+      ownerBytes += 100 + 2L * ownerNames[i].length();
+    }
+    return ids.length * (long)SLOT_BYTES + slotsById.estimateBytes() + names.length + freeSlots.length * 4L +
+           ownerBytes + urls.values().stream().mapToLong(url -> 100 + 2L * url.length()).sum();
+  }
+
+  public synchronized JsonObject getStats()
+  {
+    return new JsonObject().put("projects", slotCount - freeSlotCount)
+                           .put("owners", ownerCount)
+                           .put("otherUrls", urls.size())
+                           .put("nameBytes", namesLength)
+                           .put("lists", lists.size())
+                           .put("sweeps", sweeps)
+                           .put("bytes", estimateBytes());
+  }
+
+  /**
+   * The arrays of a table the projects are read from.
+   */
+  private static final class Columns
+  {
+    private final long[] ids;
+    private final int[] owners;
+    private final int[] nameOffsets;
+    private final int[] nameLengths;
+    private final byte[] names;
+    private final String[] ownerNames;
+
+    private Columns(long[] ids, int[] owners, int[] nameOffsets, int[] nameLengths, byte[] names, String[] ownerNames)
+    {
+      this.ids = ids;
+      this.owners = owners;
+      this.nameOffsets = nameOffsets;
+      this.nameLengths = nameLengths;
+      this.names = names;
+      this.ownerNames = ownerNames;
+    }
+  }
+
+  /**
+   * An unmodifiable list of projects held by a {@link ProjectTable}, as the slots of the projects in the table. Each
+   * project is read from the table, as a new ProjectInfo, whenever it is got from the list.
+   */
+  public static final class CompactProjects extends AbstractList<ProjectInfo> implements RandomAccess
+  {
+    private final ProjectTable table;
+    private final int[] slots;
+    private final long nameBytes;
+
+    private CompactProjects(ProjectTable table, int[] slots, long nameBytes)
+    {
+      this.table = table;
+      this.slots = slots;
+      this.nameBytes = nameBytes;
+    }
+
+    @Override
+    public ProjectInfo get(int index)
+    {
+      return table.get(slots[index]);
+    }
+
+    @Override
+    public int size()
+    {
+      return slots.length;
+    }
+
+    /**
+     * The estimated heap used by the projects of the list, were they only held by it.
+     */
+    public long estimateBytes()
+    {
+      return slots.length * (long)PROJECT_BYTES + 2 * nameBytes;
+    }
+  }
+}
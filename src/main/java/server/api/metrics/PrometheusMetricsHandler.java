@@ -0,0 +1,50 @@
+package server.api.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.dropwizard.DropwizardExports;
+import io.prometheus.client.exporter.common.TextFormat;
+import io.vertx.core.Handler;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.RoutingContext;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Route handler serving the metrics of a Dropwizard registry in the Prometheus text format.
+ * <p>
+ * Metric names have their dots replaced by underscores, and timers are exported as summaries of their 50th to 99.9th
+ * percentiles, in seconds.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class PrometheusMetricsHandler implements Handler<RoutingContext>
+{
+  final static Logger LOGGER = LoggerFactory.getLogger(PrometheusMetricsHandler.class);
+
+  private final CollectorRegistry collectorRegistry = new CollectorRegistry();
+
+  public PrometheusMetricsHandler(MetricRegistry registry)
+  {
+    collectorRegistry.register(new DropwizardExports(registry));
+  }
+
+  @Override
+  public void handle(RoutingContext routingContext)
+  {
+    StringWriter writer = new StringWriter();
+    try {
+      TextFormat.write004(writer, collectorRegistry.metricFamilySamples());
+    } catch (IOException e) {
+      LOGGER.error("Error writing the metrics", e);
+      routingContext.fail(e);
+      return;
+    }
+    routingContext.response()
+                  .putHeader("Content-Type", TextFormat.CONTENT_TYPE_004)
+                  .end(writer.toString());
+  }
+}
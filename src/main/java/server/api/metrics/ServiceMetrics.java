@@ -0,0 +1,122 @@
+package server.api.metrics;
+
+import com.codahale.metrics.CachedGauge;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The metrics of each stage of the service, shared by all the verticles in the JVM.
+ * <p>
+ * When the Vert.x metrics are enabled, as the {@link server.api.MainLauncher} does, they are kept in the same Dropwizard
+ * registry as the Vert.x metrics of the HTTP servers and clients, event bus and thread pools, and are otherwise kept in
+ * a registry of their own. The timers are :
+ * <ul>
+ * <li>github.search.page : the round trip of each request for a page of the GitHub search API</li>
+ * <li>github.search.page.decode : the decoding of the projects of each page</li>
+ * <li>github.rateLimit.wait : the time each request waited for the rate limit to allow it</li>
+ * <li>projects.search : the search of all the pages for a language</li>
+ * <li>projectsApi.findByLang.service : the time from a request reaching the service to it being replied to</li>
+ * <li>projectsApi.findByLang.encode : the encoding of each response</li>
+ * <li>http.findByLang : the time from a findByLang request reaching the HTTP server to its response being written,
+ * so the round trip through the event bus when requests are dispatched through it</li>
+ * <li>http.findByLangs : the time from a findByLangs request reaching the HTTP server to the results of all its
+ * languages being written</li>
+ * </ul>
+ * along with the github.search.page.errors meter of failed page requests, and gauges of the rate limit, circuit breaker
+ * and cache statistics.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class ServiceMetrics implements Shareable
+{
+  /**
+   * The name of the shared Dropwizard registry the Vert.x metrics are reported to.
+   */
+  public static final String REGISTRY_NAME = "github-rest-service";
+
+  public static final String GITHUB_PAGE = "github.search.page";
+  public static final String GITHUB_PAGE_ERRORS = "github.search.page.errors";
+  public static final String GITHUB_PAGE_NOT_MODIFIED = "github.search.page.notModified";
+  public static final String GITHUB_PAGE_DECODE = "github.search.page.decode";
+  public static final String GITHUB_RATE_LIMIT_WAIT = "github.rateLimit.wait";
+  public static final String PROJECTS_SEARCH = "projects.search";
+  public static final String FIND_BY_LANG_SERVICE = "projectsApi.findByLang.service";
+  public static final String FIND_BY_LANG_ENCODE = "projectsApi.findByLang.encode";
+  public static final String FIND_BY_LANG_NOT_MODIFIED = "projectsApi.findByLang.notModified";
+  public static final String HTTP_FIND_BY_LANG = "http.findByLang";
+  public static final String HTTP_FIND_BY_LANGS = "http.findByLangs";
+
+  private static final String SHARED_MAP_NAME = "server.api.metrics";
+  // longer than reading all the gauges takes, and shorter than the interval between reads
+  private static final long STATS_TIMEOUT_MILLIS = 1000;
+
+  private final MetricRegistry registry;
+
+  public ServiceMetrics(MetricRegistry registry)
+  {
+    this.registry = registry;
+  }
+
+  /**
+   * Gets the metrics shared by all the verticles of the given Vert.x instance, creating them if they don't exist yet.
+   */
+  public static ServiceMetrics getShared(Vertx vertx)
+  {
+    LocalMap<String, ServiceMetrics> map = vertx.sharedData().getLocalMap(SHARED_MAP_NAME);
+    return map.computeIfAbsent("metrics", key -> new ServiceMetrics(
+      vertx.isMetricsEnabled() ? SharedMetricRegistries.getOrCreate(REGISTRY_NAME) : new MetricRegistry()));
+  }
+
+  public MetricRegistry getRegistry()
+  {
+    return registry;
+  }
+
+  public Timer timer(String name)
+  {
+    return registry.timer(name);
+  }
+
+  public Meter meter(String name)
+  {
+    return registry.meter(name);
+  }
+
+  /**
+   * Registers a gauge for each numeric value of the given statistics, named by the prefix and the key of the value,
+   * unless one is already registered. The statistics are got once for all of the gauges each time the metrics are
+   * read, rather than once for each of them, as they may take a while.
+   */
+  public void registerGauges(String prefix, Supplier<JsonObject> stats)
+  {
+    CachedGauge<JsonObject> cached = new CachedGauge<JsonObject>(STATS_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+    {
+      @Override
+      protected JsonObject loadValue()
+      {
+        return stats.get();
+      }
+    };
+    stats.get().forEach(stat -> {
+      if (stat.getValue() instanceof Number) {
+        registry.gauge(prefix + "." + stat.getKey(), () -> () -> cached.getValue().getValue(stat.getKey()));
+      }
+    });
+  }
+
+  public <T> void registerGauge(String name, Gauge<T> gauge)
+  {
+    registry.gauge(name, () -> gauge);
+  }
+}
@@ -0,0 +1,57 @@
+package server.api.model;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The fields of a ProjectInfo, in the order they are serialized, which can be projected out of the projects returned.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public enum ProjectInfoField
+{
+  ID("id"),
+  NAME("name"),
+  URL("url"),
+  OWNER("owner");
+
+  public static final Set<ProjectInfoField> ALL = Collections.unmodifiableSet(EnumSet.allOf(ProjectInfoField.class));
+
+  private final String jsonName;
+
+  ProjectInfoField(String jsonName)
+  {
+    this.jsonName = jsonName;
+  }
+
+  public String getJsonName()
+  {
+    return jsonName;
+  }
+
+  /**
+   * Parses a comma separated list of JSON field names, e.g. "name,url".
+   *
+   * @throws IllegalArgumentException if any of them isn't the name of a field, or there are none
+   */
+  public static Set<ProjectInfoField> parse(String fields)
+  {
+    EnumSet<ProjectInfoField> parsed = EnumSet.noneOf(ProjectInfoField.class);
+    for (String name : fields.split(",")) {
+      parsed.add(ofJsonName(name.trim()));
+    }
+    return parsed;
+  }
+
+  private static ProjectInfoField ofJsonName(String jsonName)
+  {
+    for (ProjectInfoField field : values()) {
+      if (field.jsonName.equals(jsonName)) {
+        return field;
+      }
+    }
+    throw new IllegalArgumentException("Unknown project field : " + jsonName);
+  }
+}
@@ -0,0 +1,235 @@
+package server.api.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Indexes of the projects of a {@link ProjectInfoList}, to select the projects of an owner, or whose name starts with
+ * or contains a given string, in the order they were found or sorted by id or name, without going through all of them.
+ * <p>
+ * Projects are matched case insensitively, as GitHub owners and names are. The index maps each owner to the positions
+ * of its projects in the list, and keeps the positions of the projects sorted by name, so that the projects whose name
+ * starts with a prefix are found by a binary search, and sorted by id. The positions a selection starts from are those
+ * of the owner or of the prefix, whichever are fewer, or else of all the projects, and the other criteria are checked
+ * for each of them, so only a selection by name contents alone goes through all the projects.
+ * <p>
+ * It is built once for a list, when the list is cached or crawled rather than by the first selection from it, and is
+ * immutable.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public final class ProjectInfoIndex
+{
+  private static final int[] NO_POSITIONS = new int[0];
+
+  /**
+   * The order projects are selected in.
+   */
+  public enum Order
+  {
+    // the order they were found in
+    FOUND,
+    ID,
+    NAME
+  }
+
+  private final ProjectInfoList projects;
+  // the lower case names and owners of the projects, by position
+  private final String[] names;
+  private final String[] owners;
+  private final Map<String, int[]> positionsByOwner = new HashMap<>();
+  // the positions of the projects in name and id order, and the rank of each position in those orders
+  private final int[] namePositions;
+  private final int[] nameRanks;
+  private final int[] idPositions;
+  private final int[] idRanks;
+
+  ProjectInfoIndex(ProjectInfoList projects)
+  {
+    this.projects = projects;
+    int size = projects.size();
+    names = new String[size];
+    owners = new String[size];
+    Long[] ids = new Long[size];
+    // each owner's string is shared by all its projects
+    Map<String, String> ownerKeys = new HashMap<>();
+    Map<String, Integer> ownerCounts = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      ProjectInfo project = projects.get(i);
+      names[i] = toKey(project.name);
+      owners[i] = ownerKeys.computeIfAbsent(toKey(project.owner), owner -> owner);
+      ids[i] = project.id;
+      ownerCounts.merge(owners[i], 1, Integer::sum);
+    }
+    Map<String, Integer> ownerFills = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      int[] positions = positionsByOwner.computeIfAbsent(owners[i], owner -> new int[ownerCounts.get(owner)]);
+      positions[ownerFills.merge(owners[i], 1, Integer::sum) - 1] = i;
+    }
+    namePositions = sortPositions(size, Comparator.comparing((Integer position) -> names[position]));
+    nameRanks = ranks(namePositions);
+    idPositions = sortPositions(size, Comparator.comparing((Integer position) -> ids[position],
+                                                           Comparator.nullsLast(Comparator.naturalOrder())));
+    idRanks = ranks(idPositions);
+  }
+
+  private static String toKey(String value)
+  {
+    return value == null ? "" : value.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * The positions in the given order, ties kept in the order they were found in.
+   */
+  private static int[] sortPositions(int size, Comparator<Integer> order)
+  {
+    Integer[] positions = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      positions[i] = i;
+    }
+    Arrays.sort(positions, order);
+    int[] sorted = new int[size];
+    for (int i = 0; i < size; i++) {
+      sorted[i] = positions[i];
+    }
+    return sorted;
+  }
+
+  private static int[] ranks(int[] sortedPositions)
+  {
+    int[] ranks = new int[sortedPositions.length];
+    for (int rank = 0; rank < sortedPositions.length; rank++) {
+      ranks[sortedPositions[rank]] = rank;
+    }
+    return ranks;
+  }
+
+  /**
+   * The projects of the given owner, if any, whose name starts with the given prefix and contains the given string, if
+   * any, in the given order. The selection has the time the projects were last modified, but not the ETags of their
+   * pages, and is partial or truncated if they are.
+   */
+  public ProjectInfoList select(String owner, String namePrefix, String nameContains, Order order)
+  {
+    String ownerKey = owner == null ? null : toKey(owner);
+    String prefixKey = namePrefix == null ? null : toKey(namePrefix);
+    String containsKey = nameContains == null ? null : toKey(nameContains);
+
+    // starts from the fewest positions, noting which order they are in, or from all of them in the order found
+    int[] candidates = null;
+    int from = 0;
+    int to = names.length;
+    Order candidateOrder = Order.FOUND;
+    if (ownerKey != null) {
+      candidates = positionsByOwner.getOrDefault(ownerKey, NO_POSITIONS);
+      to = candidates.length;
+    }
+    if (prefixKey != null) {
+      int prefixFrom = firstNameFrom(prefixKey);
+      int prefixTo = firstNameFrom(prefixKey + Character.MAX_VALUE);
+      if (candidates == null || prefixTo - prefixFrom < to - from) {
+        candidates = namePositions;
+        from = prefixFrom;
+        to = prefixTo;
+        candidateOrder = Order.NAME;
+      }
+    }
+    if (candidates == null && order != Order.FOUND) {
+      candidates = order == Order.ID ? idPositions : namePositions;
+      candidateOrder = order;
+    }
+
+    int[] selected = new int[to - from];
+    int count = 0;
+    for (int i = from; i < to; i++) {
+      int position = candidates == null ? i : candidates[i];
+      if ((ownerKey == null || owners[position].equals(ownerKey)) &&
+          (prefixKey == null || names[position].startsWith(prefixKey)) &&
+          (containsKey == null || names[position].contains(containsKey))) {
+        selected[count++] = position;
+      }
+    }
+    selected = Arrays.copyOf(selected, count);
+    if (candidateOrder != order) {
+      sort(selected, order);
+    }
+    return new ProjectInfoList(new Selection(projects, selected),
+                               projects.isPartial(),
+                               projects.isTruncated(),
+                               Collections.emptyList(),
+                               projects.getLastModified());
+  }
+
+  /**
+   * The rank in name order of the first name that isn't before the given one.
+   */
+  private int firstNameFrom(String name)
+  {
+    int low = 0;
+    int high = namePositions.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (names[namePositions[middle]].compareTo(name) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Sorts the positions in the given order, through their ranks in it.
+   */
+  private void sort(int[] positions, Order order)
+  {
+    if (order == Order.FOUND) {
+      Arrays.sort(positions);
+      return;
+    }
+    int[] ranks = order == Order.ID ? idRanks : nameRanks;
+    int[] sorted = order == Order.ID ? idPositions : namePositions;
+    for (int i = 0; i < positions.length; i++) {
+      positions[i] = ranks[positions[i]];
+    }
+    Arrays.sort(positions);
+    for (int i = 0; i < positions.length; i++) {
+      positions[i] = sorted[positions[i]];
+    }
+  }
+
+  /**
+   * The projects of a list at the given positions.
+   */
+  private static final class Selection extends AbstractList<ProjectInfo> implements RandomAccess
+  {
+    private final List<ProjectInfo> projects;
+    private final int[] positions;
+
+    private Selection(List<ProjectInfo> projects, int[] positions)
+    {
+      this.projects = projects;
+      this.positions = positions;
+    }
+
+    @Override
+    public ProjectInfo get(int index)
+    {
+      return projects.get(positions[index]);
+    }
+
+    @Override
+    public int size()
+    {
+      return positions.length;
+    }
+  }
+}
@@ -0,0 +1,183 @@
+package server.api.model;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes projects as compact JSON straight to a Buffer, in the same form Jackson does (fields in declaration order,
+ * null fields left out) but without going through the object mapper or any intermediate String.
+ * <p>
+ * Projects can also be encoded with only some of their fields, leaving the others out as if they were null.
+ */
+public final class ProjectInfoJson
+{
+  // rough size of an encoded project, to size the buffers up front
+  private static final int PROJECT_SIZE_HINT = 128;
+
+  // uppercase, as Jackson writes them
+  private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+  private ProjectInfoJson()
+  {
+  }
+
+  /**
+   * Encodes the projects as a compact JSON array.
+   */
+  public static Buffer encode(List<ProjectInfo> projects)
+  {
+    return encode(projects, ProjectInfoField.ALL);
+  }
+
+  /**
+   * Encodes the given fields of the projects as a compact JSON array.
+   */
+  public static Buffer encode(List<ProjectInfo> projects, Set<ProjectInfoField> fields)
+  {
+    Buffer buffer = Buffer.buffer(2 + projects.size() * PROJECT_SIZE_HINT);
+    buffer.appendByte((byte)'[');
+    for (int i = 0; i < projects.size(); i++) {
+      if (i > 0) {
+        buffer.appendByte((byte)',');
+      }
+      append(buffer, projects.get(i), fields);
+    }
+    return buffer.appendByte((byte)']');
+  }
+
+  /**
+   * The given fields of the projects as a JsonArray of JsonObjects, with the fields in the same order, e.g. to be
+   * pretty printed.
+   */
+  public static JsonArray toJsonArray(List<ProjectInfo> projects, Set<ProjectInfoField> fields)
+  {
+    JsonArray array = new JsonArray();
+    for (ProjectInfo project : projects) {
+      JsonObject object = new JsonObject();
+      if (project.id != null && fields.contains(ProjectInfoField.ID)) {
+        object.put("id", project.id);
+      }
+      if (project.name != null && fields.contains(ProjectInfoField.NAME)) {
+        object.put("name", project.name);
+      }
+      if (project.url != null && fields.contains(ProjectInfoField.URL)) {
+        object.put("url", project.url);
+      }
+      if (project.owner != null && fields.contains(ProjectInfoField.OWNER)) {
+        object.put("owner", project.owner);
+      }
+      array.add(object);
+    }
+    return array;
+  }
+
+  /**
+   * Appends the project to the buffer as a compact JSON object.
+   */
+  public static Buffer append(Buffer buffer, ProjectInfo project)
+  {
+    return append(buffer, project, ProjectInfoField.ALL);
+  }
+
+  /**
+   * Appends the given fields of the project to the buffer as a compact JSON object.
+   */
+  public static Buffer append(Buffer buffer, ProjectInfo project, Set<ProjectInfoField> fields)
+  {
+    buffer.appendByte((byte)'{');
+    boolean first = true;
+    if (project.id != null && fields.contains(ProjectInfoField.ID)) {
+      appendName(buffer, "id", first).appendString(project.id.toString());
+      first = false;
+    }
+    if (project.name != null && fields.contains(ProjectInfoField.NAME)) {
+      appendString(appendName(buffer, "name", first), project.name);
+      first = false;
+    }
+    if (project.url != null && fields.contains(ProjectInfoField.URL)) {
+      appendString(appendName(buffer, "url", first), project.url);
+      first = false;
+    }
+    if (project.owner != null && fields.contains(ProjectInfoField.OWNER)) {
+      appendString(appendName(buffer, "owner", first), project.owner);
+    }
+    return buffer.appendByte((byte)'}');
+  }
+
+  private static Buffer appendName(Buffer buffer, String name, boolean first)
+  {
+    if (!first) {
+      buffer.appendByte((byte)',');
+    }
+    return appendString(buffer, name).appendByte((byte)':');
+  }
+
+  /**
+   * Appends the value as a quoted and escaped JSON string, encoded in UTF-8.
+   */
+  private static Buffer appendString(Buffer buffer, String value)
+  {
+    buffer.appendByte((byte)'"');
+    int length = value.length();
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        buffer.appendByte((byte)'\\').appendByte((byte)c);
+      } else if (c < 0x20) {
+        appendControlCharacter(buffer, c);
+      } else if (c < 0x80) {
+        buffer.appendByte((byte)c);
+      } else if (c < 0x800) {
+        buffer.appendByte((byte)(0xc0 | (c >> 6)))
+              .appendByte((byte)(0x80 | (c & 0x3f)));
+      } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+        buffer.appendByte((byte)(0xf0 | (codePoint >> 18)))
+              .appendByte((byte)(0x80 | ((codePoint >> 12) & 0x3f)))
+              .appendByte((byte)(0x80 | ((codePoint >> 6) & 0x3f)))
+              .appendByte((byte)(0x80 | (codePoint & 0x3f)));
+      } else if (Character.isSurrogate(c)) {
+        // an unpaired surrogate can't be encoded, so is replaced like String.getBytes does
+        buffer.appendByte((byte)'?');
+      } else {
+        buffer.appendByte((byte)(0xe0 | (c >> 12)))
+              .appendByte((byte)(0x80 | ((c >> 6) & 0x3f)))
+              .appendByte((byte)(0x80 | (c & 0x3f)));
+      }
+    }
+    return buffer.appendByte((byte)'"');
+  }
+
+  private static void appendControlCharacter(Buffer buffer, char c)
+  {
+    buffer.appendByte((byte)'\\');
+    switch (c) {
+      case '\n':
+        buffer.appendByte((byte)'n');
+        break;
+      case '\r':
+        buffer.appendByte((byte)'r');
+        break;
+      case '\t':
+        buffer.appendByte((byte)'t');
+        break;
+      case '\b':
+        buffer.appendByte((byte)'b');
+        break;
+      case '\f':
+        buffer.appendByte((byte)'f');
+        break;
+      default:
+        buffer.appendByte((byte)'u')
+              .appendByte((byte)'0')
+              .appendByte((byte)'0')
+              .appendByte(HEX_DIGITS[c >> 4])
+              .appendByte(HEX_DIGITS[c & 0xf]);
+    }
+  }
+}
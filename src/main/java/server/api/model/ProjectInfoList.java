@@ -0,0 +1,199 @@
+package server.api.model;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An unmodifiable list of the projects found for a language, which may only be part of them if the search was cut
+ * short by the GitHub rate limit, or truncated if only the first of them were searched for, or sliced from them. It is
+ * serialized as a plain JSON array.
+ * <p>
+ * It also keeps the ETags of the GitHub result pages the projects were found in, in page order, if they are known, and
+ * the time the projects were last modified, i.e. found to be different from the ones found before them.
+ * <p>
+ * The compact JSON encoding of the list, and its gzip compression, are made at most once and then kept with the list,
+ * so a cached list is served without being encoded again. The Buffers returned are shared, so must not be modified.
+ * The weak ETag of the list is derived from its JSON encoding, so lists of the same projects have the same ETag.
+ * The {@link ProjectInfoIndex} projects are selected from is likewise built at most once, and lists that are cached or
+ * crawled are indexed before they are served, so the first selection from them does not have to wait for it.
+ * <p>
+ * The projects of a list that is kept, e.g. cached, can be replaced by the same projects held more compactly, without
+ * changing the list or its encodings.
+ */
+public class ProjectInfoList extends AbstractList<ProjectInfo>
+{
+  private volatile List<ProjectInfo> projects;
+  private final boolean partial;
+  private final boolean truncated;
+  private final List<String> pageETags;
+  private final long lastModified;
+
+  private Buffer json;
+  private Buffer gzippedJson;
+  private String eTag;
+  private ProjectInfoIndex index;
+
+  public ProjectInfoList(List<ProjectInfo> projects, boolean partial)
+  {
+    this(projects, partial, Collections.emptyList());
+  }
+
+  public ProjectInfoList(List<ProjectInfo> projects, boolean partial, List<String> pageETags)
+  {
+    this(projects, partial, pageETags, System.currentTimeMillis());
+  }
+
+  public ProjectInfoList(List<ProjectInfo> projects, boolean partial, List<String> pageETags, long lastModified)
+  {
+    this(projects, partial, false, pageETags, lastModified);
+  }
+
+  public ProjectInfoList(List<ProjectInfo> projects,
+                         boolean partial,
+                         boolean truncated,
+                         List<String> pageETags,
+                         long lastModified)
+  {
+    this.projects = projects;
+    this.partial = partial;
+    this.truncated = truncated;
+    this.pageETags = pageETags;
+    this.lastModified = lastModified;
+  }
+
+  /**
+   * The given projects as a ProjectInfoList, wrapping them as complete results if they aren't one already.
+   */
+  public static ProjectInfoList of(List<ProjectInfo> projects)
+  {
+    return projects instanceof ProjectInfoList ? (ProjectInfoList)projects : new ProjectInfoList(projects, false);
+  }
+
+  @Override
+  public ProjectInfo get(int index)
+  {
+    return projects.get(index);
+  }
+
+  @Override
+  public int size()
+  {
+    return projects.size();
+  }
+
+  public boolean isPartial()
+  {
+    return partial;
+  }
+
+  /**
+   * Whether more projects may follow these ones, as they are only the first of the projects found for the language.
+   * Unlike partial projects, truncated ones are all the projects that were asked for.
+   */
+  public boolean isTruncated()
+  {
+    return truncated;
+  }
+
+  /**
+   * The given range of the projects, which is partial if it goes beyond partial projects and truncated if more
+   * projects follow it, or these projects if it covers all of them. The slice has the time these projects were last
+   * modified, but not the ETags of their pages.
+   */
+  public ProjectInfoList slice(int offset, int limit)
+  {
+    int end = (int)Math.min((long)offset + limit, Integer.MAX_VALUE);
+    if (offset == 0 && end >= projects.size()) {
+      return this;
+    }
+    int from = Math.min(offset, projects.size());
+    int to = Math.min(end, projects.size());
+    return new ProjectInfoList(projects.subList(from, to),
+                               partial && end > projects.size(),
+                               truncated || end < projects.size(),
+                               Collections.emptyList(),
+                               lastModified);
+  }
+
+  /**
+   * Replaces the projects of the list by the same projects held in another list, e.g. one that takes less memory.
+   */
+  public void replaceProjects(List<ProjectInfo> sameProjects)
+  {
+    if (sameProjects.size() != projects.size()) {
+      throw new IllegalArgumentException("Not the same projects : " + sameProjects.size() + " instead of " +
+                                         projects.size());
+    }
+    projects = sameProjects;
+  }
+
+  public List<String> getPageETags()
+  {
+    return pageETags;
+  }
+
+  public long getLastModified()
+  {
+    return lastModified;
+  }
+
+  /**
+   * A weak ETag of the projects, made of the length and CRC32 of their compact JSON encoding.
+   */
+  public synchronized String getETag()
+  {
+    if (eTag == null) {
+      CRC32 crc = new CRC32();
+      crc.update(toJson().getByteBuf().nioBuffer());
+      eTag = "W/\"" + Integer.toHexString(toJson().length()) + "-" + Long.toHexString(crc.getValue()) + "\"";
+    }
+    return eTag;
+  }
+
+  /**
+   * The index to select projects from the list by owner and name, and sort them.
+   */
+  public synchronized ProjectInfoIndex getIndex()
+  {
+    if (index == null) {
+      index = new ProjectInfoIndex(this);
+    }
+    return index;
+  }
+
+  /**
+   * The projects as a compact JSON array.
+   */
+  public synchronized Buffer toJson()
+  {
+    if (json == null) {
+      json = ProjectInfoJson.encode(projects);
+    }
+    return json;
+  }
+
+  /**
+   * The projects as a gzip compressed compact JSON array.
+   */
+  public synchronized Buffer toGzippedJson()
+  {
+    if (gzippedJson == null) {
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream(toJson().length() / 4);
+      try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+        gzip.write(toJson().getBytes());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      gzippedJson = Buffer.buffer(compressed.toByteArray());
+    }
+    return gzippedJson;
+  }
+}
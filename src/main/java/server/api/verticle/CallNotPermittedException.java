@@ -0,0 +1,17 @@
+package server.api.verticle;
+
+import java.io.IOException;
+
+/**
+ * Exception failing a GitHub call that was not made because the circuit breaker is open or its bulkhead is full.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class CallNotPermittedException extends IOException
+{
+  public CallNotPermittedException(String message)
+  {
+    super(message);
+  }
+}
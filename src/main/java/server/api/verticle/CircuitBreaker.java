@@ -0,0 +1,256 @@
+package server.api.verticle;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A circuit breaker with a bulkhead, protecting the service from a slow or failing GitHub, shared by all the
+ * verticles in the JVM.
+ * <p>
+ * The outcome of the last calls is recorded in a sliding window, and once it holds enough of them the circuit is
+ * opened if either the rate of failed calls or the rate of slow calls reaches its threshold. While open, calls are
+ * rejected straight away with a {@link CallNotPermittedException}. After a while the circuit becomes half open and
+ * lets a few trial calls through, closing again if they succeed, or opening again if they don't. Independently of the
+ * circuit state, the bulkhead rejects calls beyond a maximum number of concurrent calls.
+ * <p>
+ * Calls cut short by the rate limit are neither failures nor successes, as they say nothing about GitHub's health.
+ * Nor are calls that complete after the circuit changed state since they were let through, so that e.g. calls made
+ * while closed that complete once the circuit is half open are not taken for its trial calls.
+ * <p>
+ * Supported configuration (all optional) :
+ * <ul>
+ * <li>windowSize : number of calls recorded in the sliding window (default 20)</li>
+ * <li>minimumCalls : number of calls recorded before the rates are evaluated (default 5)</li>
+ * <li>failureRateThreshold : percentage of failed calls opening the circuit (default 50)</li>
+ * <li>slowCallRateThreshold : percentage of slow calls opening the circuit (default 80)</li>
+ * <li>slowCallDurationMillis : duration from which a call is slow (default 45000, allowing for rate limit waits)</li>
+ * <li>openSeconds : time the circuit stays open before becoming half open (default 30)</li>
+ * <li>halfOpenCalls : number of trial calls let through while half open (default 2)</li>
+ * <li>maxConcurrentCalls : the bulkhead limit of concurrent calls (default 50)</li>
+ * </ul>
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class CircuitBreaker implements Shareable
+{
+  final static Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+
+  private static final String SHARED_MAP_NAME = "server.api.circuitBreaker";
+
+  public enum State
+  {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final int minimumCalls;
+  private final int failureRateThreshold;
+  private final int slowCallRateThreshold;
+  private final long slowCallDurationMillis;
+  private final long openMillis;
+  private final int halfOpenCalls;
+  private final int maxConcurrentCalls;
+  private final LongSupplier clock;
+
+  // ring buffers of the outcomes of the last calls
+  private final boolean[] failedCalls;
+  private final boolean[] slowCalls;
+  private int recordedCalls;
+  private int nextCall;
+  private int failedCount;
+  private int slowCount;
+
+  private State state = State.CLOSED;
+  // incremented on each state change, so that calls completing in a later state than they started in are told apart
+  private long generation;
+  private long openedAt;
+  private int halfOpenCallsStarted;
+  private int concurrentCalls;
+  private long rejectedCount;
+
+  public CircuitBreaker(JsonObject config)
+  {
+    this(config, System::currentTimeMillis);
+  }
+
+  CircuitBreaker(JsonObject config, LongSupplier clock)
+  {
+    int windowSize = config.getInteger("windowSize", 20);
+    this.failedCalls = new boolean[windowSize];
+    this.slowCalls = new boolean[windowSize];
+    this.minimumCalls = Math.min(windowSize, config.getInteger("minimumCalls", 5));
+    this.failureRateThreshold = config.getInteger("failureRateThreshold", 50);
+    this.slowCallRateThreshold = config.getInteger("slowCallRateThreshold", 80);
+    this.slowCallDurationMillis = config.getLong("slowCallDurationMillis", 45000L);
+    this.openMillis = config.getLong("openSeconds", 30L) * 1000;
+    this.halfOpenCalls = config.getInteger("halfOpenCalls", 2);
+    this.maxConcurrentCalls = config.getInteger("maxConcurrentCalls", 50);
+    this.clock = clock;
+  }
+
+  /**
+   * Gets the circuit breaker with the given name shared by all the verticles of the given Vert.x instance, creating it
+   * from the given configuration if it doesn't exist yet.
+   */
+  public static CircuitBreaker getShared(Vertx vertx, String name, JsonObject config)
+  {
+    LocalMap<String, CircuitBreaker> map = vertx.sharedData().getLocalMap(SHARED_MAP_NAME);
+    return map.computeIfAbsent(name, key -> new CircuitBreaker(config));
+  }
+
+  /**
+   * Makes the call if the circuit and the bulkhead permit it, recording its outcome, or otherwise fails the handler
+   * with a CallNotPermittedException without making it.
+   */
+  public <T> void execute(Handler<Future<T>> call, Handler<AsyncResult<T>> handler)
+  {
+    long permission;
+    try {
+      permission = tryAcquirePermission();
+    } catch (CallNotPermittedException e) {
+      handler.handle(Future.failedFuture(e));
+      return;
+    }
+    long start = clock.getAsLong();
+    Future<T> future = Future.future();
+    future.setHandler(result -> {
+      if (result.failed() && result.cause() instanceof RateLimitExceededException) {
+        releasePermission(permission);
+      } else {
+        onCallCompleted(permission, result.failed(), clock.getAsLong() - start);
+      }
+      handler.handle(result);
+    });
+    try {
+      call.handle(future);
+    } catch (Exception e) {
+      future.tryFail(e);
+    }
+  }
+
+  public synchronized State getState()
+  {
+    updateState(clock.getAsLong());
+    return state;
+  }
+
+  public synchronized JsonObject getStats()
+  {
+    return new JsonObject().put("state", getState().name())
+                           .put("recordedCalls", recordedCalls)
+                           .put("failedCalls", failedCount)
+                           .put("slowCalls", slowCount)
+                           .put("concurrentCalls", concurrentCalls)
+                           .put("rejectedCalls", rejectedCount);
+  }
+
+  /**
+   * Returns the generation of the state the call is permitted in, or otherwise throws the reason it isn't.
+   */
+  private synchronized long tryAcquirePermission() throws CallNotPermittedException
+  {
+    updateState(clock.getAsLong());
+    String rejection = null;
+    if (state == State.OPEN) {
+      rejection = "GitHub circuit breaker is open";
+    } else if (state == State.HALF_OPEN && halfOpenCallsStarted >= halfOpenCalls) {
+      rejection = "GitHub circuit breaker is half open and its trial calls are in progress";
+    } else if (concurrentCalls >= maxConcurrentCalls) {
+      rejection = "GitHub bulkhead is full with " + concurrentCalls + " concurrent calls";
+    }
+    if (rejection != null) {
+      rejectedCount++;
+      throw new CallNotPermittedException(rejection);
+    }
+    if (state == State.HALF_OPEN) {
+      halfOpenCallsStarted++;
+    }
+    concurrentCalls++;
+    return generation;
+  }
+
+  private synchronized void releasePermission(long permission)
+  {
+    concurrentCalls--;
+    if (state == State.HALF_OPEN && permission == generation) {
+      // the trial call said nothing about GitHub's health, so let another one through
+      halfOpenCallsStarted--;
+    }
+  }
+
+  private synchronized void onCallCompleted(long permission, boolean failed, long durationMillis)
+  {
+    concurrentCalls--;
+    if (permission != generation) {
+      // the call started in an earlier state, so is neither a trial call nor part of the current window
+      return;
+    }
+    record(failed, durationMillis >= slowCallDurationMillis);
+    if (state == State.HALF_OPEN) {
+      if (failed) {
+        open();
+      } else if (recordedCalls >= halfOpenCalls) {
+        transitionTo(State.CLOSED);
+      }
+    } else if (state == State.CLOSED && recordedCalls >= minimumCalls &&
+               (failedCount * 100 >= failureRateThreshold * recordedCalls ||
+                slowCount * 100 >= slowCallRateThreshold * recordedCalls)) {
+      open();
+    }
+  }
+
+  private void record(boolean failed, boolean slow)
+  {
+    if (recordedCalls == failedCalls.length) {
+      failedCount -= failedCalls[nextCall] ? 1 : 0;
+      slowCount -= slowCalls[nextCall] ? 1 : 0;
+    } else {
+      recordedCalls++;
+    }
+    failedCalls[nextCall] = failed;
+    slowCalls[nextCall] = slow;
+    failedCount += failed ? 1 : 0;
+    slowCount += slow ? 1 : 0;
+    nextCall = (nextCall + 1) % failedCalls.length;
+  }
+
+  private void open()
+  {
+    openedAt = clock.getAsLong();
+    transitionTo(State.OPEN);
+  }
+
+  private void updateState(long now)
+  {
+    if (state == State.OPEN && now - openedAt >= openMillis) {
+      transitionTo(State.HALF_OPEN);
+    }
+  }
+
+  private void transitionTo(State newState)
+  {
+    LOGGER.warn("GitHub circuit breaker {0} -> {1} (failed calls {2}/{3}, slow calls {4}/{3})",
+                state,
+                newState,
+                failedCount,
+                recordedCalls,
+                slowCount);
+    state = newState;
+    generation++;
+    // each state starts with a clean window, so that the half open trials are judged on their own
+    recordedCalls = 0;
+    nextCall = 0;
+    failedCount = 0;
+    slowCount = 0;
+    halfOpenCallsStarted = 0;
+  }
+}
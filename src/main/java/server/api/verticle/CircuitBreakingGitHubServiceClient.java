@@ -0,0 +1,98 @@
+package server.api.verticle;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import server.api.model.ProjectInfo;
+import server.api.model.ProjectInfoList;
+
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Decorates a GitHubServiceClient with a circuit breaker and bulkhead, so that searches fail fast with a
+ * {@link CallNotPermittedException} while GitHub is slow or down.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class CircuitBreakingGitHubServiceClient implements GitHubServiceClient
+{
+  private final GitHubServiceClient delegate;
+  private final CircuitBreaker circuitBreaker;
+
+  public CircuitBreakingGitHubServiceClient(GitHubServiceClient delegate, CircuitBreaker circuitBreaker)
+  {
+    this.delegate = delegate;
+    this.circuitBreaker = circuitBreaker;
+  }
+
+  @Override
+  public void searchRepositories(String language, Handler<AsyncResult<List<JsonObject>>> handler)
+  {
+    circuitBreaker.execute(search -> delegate.searchRepositories(language, search), handler);
+  }
+
+  @Override
+  public void streamRepositories(String language, Handler<JsonObject> pageHandler, Handler<AsyncResult<Void>> endHandler)
+  {
+    circuitBreaker.<Void>execute(search -> delegate.streamRepositories(language, pageHandler, search), endHandler);
+  }
+
+  @Override
+  public void streamProjects(String language,
+                             Handler<List<ProjectInfo>> projectsHandler,
+                             Handler<AsyncResult<Void>> endHandler)
+  {
+    circuitBreaker.<Void>execute(search -> delegate.streamProjects(language, projectsHandler, search), endHandler);
+  }
+
+  @Override
+  public void streamProjects(String language,
+                             ProjectInfoList previous,
+                             Handler<List<ProjectInfo>> projectsHandler,
+                             Handler<AsyncResult<Void>> endHandler)
+  {
+    circuitBreaker.<Void>execute(search -> delegate.streamProjects(language, previous, projectsHandler, search),
+                                 endHandler);
+  }
+
+  @Override
+  public void streamProjects(String language,
+                             ProjectInfoList previous,
+                             int maxProjects,
+                             Handler<List<ProjectInfo>> projectsHandler,
+                             Handler<AsyncResult<Void>> endHandler)
+  {
+    circuitBreaker.<Void>execute(
+      search -> delegate.streamProjects(language, previous, maxProjects, projectsHandler, search),
+      endHandler);
+  }
+
+  @Override
+  public void streamProjectsMatching(String query,
+                                     IntPredicate totalCountFilter,
+                                     Handler<List<ProjectInfo>> projectsHandler,
+                                     Handler<AsyncResult<Void>> endHandler)
+  {
+    circuitBreaker.<Void>execute(
+      search -> delegate.streamProjectsMatching(query, totalCountFilter, projectsHandler, search),
+      endHandler);
+  }
+
+  @Override
+  public void streamProjectsUpdatedSince(String language,
+                                         long since,
+                                         Handler<List<ProjectInfo>> projectsHandler,
+                                         Handler<AsyncResult<Boolean>> endHandler)
+  {
+    circuitBreaker.<Boolean>execute(
+      search -> delegate.streamProjectsUpdatedSince(language, since, projectsHandler, search),
+      endHandler);
+  }
+
+  public CircuitBreaker getCircuitBreaker()
+  {
+    return circuitBreaker;
+  }
+}
@@ -0,0 +1,58 @@
+package server.api.verticle;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Support for conditional requests of /projects/findByLang : responses carry the weak ETag of the projects and the
+ * time they were last modified, and a request whose If-None-Match header matches the ETag of the projects is answered
+ * with a 304 Not Modified, without a body.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+final class ConditionalRequests
+{
+  static final String ETAG_HEADER = "ETag";
+  static final String LAST_MODIFIED_HEADER = "Last-Modified";
+  static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+
+  // the IMF-fixdate format of HTTP, with a two digit day of the month unlike RFC_1123_DATE_TIME
+  private static final DateTimeFormatter HTTP_DATE_FORMAT =
+    DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+  private ConditionalRequests()
+  {
+  }
+
+  /**
+   * Whether an If-None-Match header, which may be null, matches the given ETag using the weak comparison, i.e. whether
+   * the caller already has the projects.
+   */
+  static boolean isNotModified(String ifNoneMatch, String eTag)
+  {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    String opaqueTag = opaqueTag(eTag);
+    for (String candidate : ifNoneMatch.split(",")) {
+      candidate = candidate.trim();
+      if (candidate.equals("*") || opaqueTag(candidate).equals(opaqueTag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  static String formatHttpDate(long millis)
+  {
+    return HTTP_DATE_FORMAT.format(Instant.ofEpochMilli(millis));
+  }
+
+  private static String opaqueTag(String eTag)
+  {
+    return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+  }
+}
@@ -0,0 +1,59 @@
+package server.api.verticle;
+
+import java.util.Locale;
+
+/**
+ * Content negotiation of the responses of /projects/findByLang : the gzip compressed JSON kept with the cached projects
+ * is only sent to the clients whose Accept-Encoding header accepts gzip, taking the quality values of the codings into
+ * account as the HTTP server does when it compresses the other responses.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+final class ContentNegotiation
+{
+  static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+
+  private ContentNegotiation()
+  {
+  }
+
+  /**
+   * Whether an Accept-Encoding header, which may be null, accepts gzip, i.e. gives gzip (or x-gzip), or failing that
+   * the * wildcard, a quality value above 0. A coding without a quality value has a quality of 1, and one whose
+   * quality value can't be parsed is taken as not acceptable.
+   */
+  static boolean acceptsGzip(String acceptEncoding)
+  {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    double gzipQuality = -1;
+    double wildcardQuality = -1;
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parameters = coding.split(";");
+      String name = parameters[0].trim().toLowerCase(Locale.ROOT);
+      if (name.equals("gzip") || name.equals("x-gzip")) {
+        gzipQuality = Math.max(gzipQuality, quality(parameters));
+      } else if (name.equals("*")) {
+        wildcardQuality = Math.max(wildcardQuality, quality(parameters));
+      }
+    }
+    return (gzipQuality >= 0 ? gzipQuality : wildcardQuality) > 0;
+  }
+
+  private static double quality(String[] parameters)
+  {
+    for (int i = 1; i < parameters.length; i++) {
+      String parameter = parameters[i].trim();
+      if (parameter.length() > 1 && Character.toLowerCase(parameter.charAt(0)) == 'q' && parameter.charAt(1) == '=') {
+        try {
+          return Double.parseDouble(parameter.substring(2).trim());
+        } catch (NumberFormatException e) {
+          return 0;
+        }
+      }
+    }
+    return 1;
+  }
+}
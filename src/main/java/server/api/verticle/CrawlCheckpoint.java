@@ -0,0 +1,345 @@
+package server.api.verticle;
+
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import server.api.model.ProjectInfo;
+import server.api.model.ProjectInfoJson;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The checkpoints of the crawls of a language, from which a crawl interrupted by a restart is resumed, and the
+ * projects of the last crawl completed are served again.
+ * <p>
+ * A crawl is logged to the {language}.crawl file of the checkpoint directory as one JSON record per line : the shard
+ * of all the repositories it starts with, then each shard split in two, and each shard searched, with the projects
+ * found in it and the total count of its repositories. Replaying the records gives back the shards still to be
+ * searched and the projects found so far. Once the crawl is complete, an end record is added and the file is moved to
+ * {language}.crawled, which is replaced by each crawl completed. A record left incomplete by a crash is dropped when
+ * the crawl is resumed. The projects updated since a crawl completed are added to its {language}.crawled file as
+ * update records, which are replayed after it.
+ * <p>
+ * All the methods block on file I/O, so should be called off the event loop.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class CrawlCheckpoint implements Closeable
+{
+  final static Logger LOGGER = LoggerFactory.getLogger(CrawlCheckpoint.class);
+
+  private final String language;
+  private final Path crawlPath;
+  private final Path crawledPath;
+  private BufferedWriter writer;
+
+  public CrawlCheckpoint(Path directory, String language)
+  {
+    this.language = language;
+    String fileName;
+    try {
+      fileName = URLEncoder.encode(language, "UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+    this.crawlPath = directory.resolve(fileName + ".crawl");
+    this.crawledPath = directory.resolve(fileName + ".crawled");
+  }
+
+  /**
+   * The progress of the crawl in progress, or null if there is none, or its checkpoints can't be replayed.
+   */
+  public Progress loadInProgress() throws IOException
+  {
+    return replay(crawlPath);
+  }
+
+  /**
+   * The progress of the last crawl completed, with the updates since, or null if there is none. An incomplete update
+   * record is dropped, so that the next updates follow the ones replayed.
+   */
+  public synchronized Progress loadCrawled() throws IOException
+  {
+    Progress crawled = replay(crawledPath);
+    if (crawled == null || !crawled.isComplete()) {
+      return null;
+    }
+    if (crawled.validBytes < Files.size(crawledPath)) {
+      try (FileChannel channel = FileChannel.open(crawledPath, StandardOpenOption.WRITE)) {
+        channel.truncate(crawled.validBytes);
+      }
+    }
+    return crawled;
+  }
+
+  private Progress replay(Path path) throws IOException
+  {
+    if (!Files.exists(path)) {
+      return null;
+    }
+    byte[] bytes = Files.readAllBytes(path);
+    Progress progress = null;
+    int start = 0;
+    for (int end = indexOf(bytes, start); end >= 0; end = indexOf(bytes, start)) {
+      String line = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+      try {
+        JsonObject record = new JsonObject(line);
+        if (progress == null) {
+          progress = new Progress(SearchShard.fromJson(language, record.getJsonObject("start")), record.getLong("at"));
+        } else if (!progress.apply(language, record)) {
+          LOGGER.warn("Ignoring the checkpoints of {0}, as they don't follow the crawl", path);
+          return null;
+        }
+      } catch (DecodeException | IllegalArgumentException | NullPointerException | ClassCastException e) {
+        LOGGER.warn("Ignoring the checkpoints of {0} from an invalid record : {1}", path, e.getMessage());
+        break;
+      }
+      start = end + 1;
+      progress.validBytes = start;
+    }
+    return progress;
+  }
+
+  private static int indexOf(byte[] bytes, int from)
+  {
+    for (int i = from; i < bytes.length; i++) {
+      if (bytes[i] == '\n') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Starts logging a new crawl from the shard of all the repositories, discarding any crawl in progress.
+   */
+  public synchronized void start(SearchShard all, long startedAt) throws IOException
+  {
+    close();
+    Files.createDirectories(crawlPath.toAbsolutePath().getParent());
+    writer = Files.newBufferedWriter(crawlPath,
+                                     StandardCharsets.UTF_8,
+                                     StandardOpenOption.CREATE,
+                                     StandardOpenOption.TRUNCATE_EXISTING,
+                                     StandardOpenOption.WRITE);
+    write(new JsonObject().put("start", all.toJson()).put("at", startedAt).encode());
+  }
+
+  /**
+   * Resumes logging the crawl in progress, as loaded by {@link #loadInProgress()}, dropping any incomplete record.
+   */
+  public synchronized void resume(Progress progress) throws IOException
+  {
+    close();
+    try (FileChannel channel = FileChannel.open(crawlPath, StandardOpenOption.WRITE)) {
+      channel.truncate(progress.validBytes);
+    }
+    writer = Files.newBufferedWriter(crawlPath, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+  }
+
+  public synchronized void split(SearchShard shard, List<SearchShard> halves) throws IOException
+  {
+    JsonArray into = new JsonArray();
+    halves.forEach(half -> into.add(half.toJson()));
+    write(new JsonObject().put("split", shard.toJson()).put("into", into).encode());
+  }
+
+  public synchronized void searched(SearchShard shard, List<ProjectInfo> projects, int totalCount) throws IOException
+  {
+    // the projects are encoded as they are served rather than through a JsonArray
+    write("{\"searched\":" + shard.toJson().encode() + ",\"totalCount\":" + totalCount + ",\"projects\":" +
+          ProjectInfoJson.encode(projects).toString() + "}");
+  }
+
+  /**
+   * Ends the crawl in progress, which becomes the last crawl completed.
+   */
+  public synchronized void end(long endedAt, boolean truncated) throws IOException
+  {
+    write(new JsonObject().put("end", endedAt).put("truncated", truncated).encode());
+    close();
+    Files.move(crawlPath, crawledPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Adds the projects updated since the last crawl completed, searched from the given time, to its checkpoints.
+   */
+  public synchronized void updated(long since, List<ProjectInfo> projects) throws IOException
+  {
+    try (BufferedWriter updateWriter = Files.newBufferedWriter(crawledPath,
+                                                               StandardCharsets.UTF_8,
+                                                               StandardOpenOption.APPEND)) {
+      updateWriter.write("{\"updated\":" + since + ",\"projects\":" + ProjectInfoJson.encode(projects).toString() +
+                         "}");
+      updateWriter.write('\n');
+    }
+  }
+
+  private void write(String record) throws IOException
+  {
+    writer.write(record);
+    writer.write('\n');
+    writer.flush();
+  }
+
+  @Override
+  public synchronized void close() throws IOException
+  {
+    if (writer != null) {
+      writer.close();
+      writer = null;
+    }
+  }
+
+  /**
+   * The progress of a crawl, as replayed from its checkpoints.
+   */
+  public static class Progress
+  {
+    private final long startedAt;
+    private final Deque<SearchShard> pending = new ArrayDeque<>();
+    private final List<ProjectInfo> projects = new ArrayList<>();
+    private int searchedShards;
+    private int cappedShards;
+    private long endedAt;
+    private boolean truncated;
+    private long syncedAt;
+    private long validBytes;
+
+    private Progress(SearchShard all, long startedAt)
+    {
+      this.startedAt = startedAt;
+      this.syncedAt = startedAt;
+      pending.add(all);
+    }
+
+    /**
+     * Applies a record to the progress, returning false if it isn't about the shard being crawled, or is an update of
+     * a crawl that isn't complete.
+     */
+    private boolean apply(String language, JsonObject record)
+    {
+      if (record.containsKey("updated")) {
+        if (!isComplete()) {
+          return false;
+        }
+        syncedAt = record.getLong("updated");
+        addProjects(record.getJsonArray("projects"));
+        return true;
+      }
+      if (record.containsKey("end")) {
+        endedAt = record.getLong("end");
+        truncated = record.getBoolean("truncated", false);
+        return true;
+      }
+      boolean split = record.containsKey("split");
+      SearchShard shard = SearchShard.fromJson(language, record.getJsonObject(split ? "split" : "searched"));
+      if (!shard.equals(pending.peek())) {
+        return false;
+      }
+      pending.poll();
+      if (split) {
+        JsonArray into = record.getJsonArray("into");
+        // the first half is crawled first
+        for (int i = into.size() - 1; i >= 0; i--) {
+          pending.push(SearchShard.fromJson(language, into.getJsonObject(i)));
+        }
+        return true;
+      }
+      JsonArray found = record.getJsonArray("projects");
+      addProjects(found);
+      searchedShards++;
+      if (record.getInteger("totalCount") > found.size()) {
+        cappedShards++;
+      }
+      return true;
+    }
+
+    private void addProjects(JsonArray found)
+    {
+      for (int i = 0; i < found.size(); i++) {
+        JsonObject project = found.getJsonObject(i);
+        projects.add(new ProjectInfo(project.getLong("id"),
+                                     project.getString("name"),
+                                     project.getString("url"),
+                                     project.getString("owner")));
+      }
+    }
+
+    public long getStartedAt()
+    {
+      return startedAt;
+    }
+
+    /**
+     * The shards still to be searched, in the order they are crawled.
+     */
+    public Deque<SearchShard> getPending()
+    {
+      return pending;
+    }
+
+    /**
+     * The projects found so far, in the order they were found, including those found in more than one shard, followed
+     * by those updated since the crawl completed.
+     */
+    public List<ProjectInfo> getProjects()
+    {
+      return projects;
+    }
+
+    public int getSearchedShards()
+    {
+      return searchedShards;
+    }
+
+    /**
+     * The number of shards searched that had more repositories than the search returns, yet couldn't be split.
+     */
+    public int getCappedShards()
+    {
+      return cappedShards;
+    }
+
+    public boolean isComplete()
+    {
+      return endedAt > 0;
+    }
+
+    public long getEndedAt()
+    {
+      return endedAt;
+    }
+
+    public boolean isTruncated()
+    {
+      return truncated;
+    }
+
+    /**
+     * The time from which the projects updated since are still to be searched : the start of the crawl, or of the
+     * search of the last update replayed.
+     */
+    public long getSyncedAt()
+    {
+      return syncedAt;
+    }
+  }
+}
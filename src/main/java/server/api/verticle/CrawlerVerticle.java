@@ -0,0 +1,488 @@
+package server.api.verticle;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import server.api.cache.CrawlIndex;
+import server.api.cache.ProjectInfoCache;
+import server.api.metrics.ServiceMetrics;
+import server.api.model.ProjectInfo;
+import server.api.model.ProjectInfoList;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Crawls all the projects of the configured languages, beyond the first 1000 the search API returns, into the
+ * {@link CrawlIndex} the Projects service serves them from.
+ * <p>
+ * A language is crawled as disjoint {@link SearchShard}s of its repositories, starting with all of them. Each shard is
+ * searched in turn : if GitHub reports more repositories than it returns for it, it is split in two halves along the
+ * configured partition, which are crawled in its place, and otherwise its projects are merged into the index. A shard
+ * that can't be split any more, being a single day and star count, only contributes the repositories GitHub returns.
+ * The crawl is complete once all the shards have been searched, or the most projects kept for a language have been
+ * found, and each language is crawled again once the recrawl interval has passed since its last crawl completed.
+ * <p>
+ * In between, each crawled language is updated once the update interval has passed since it was last synced : its
+ * projects are searched most recently updated first, and the pages stop being requested as soon as they reach projects
+ * updated before the last sync, less an overlap for the lag of the search index. The projects updated are merged by
+ * id into those served, so that a language that hardly changes is kept fresh with a page or two rather than all its
+ * shards. If more projects were updated than the search returns, the language is crawled again instead. As search
+ * results don't tell the repositories deleted, or moved to another language, those are only dropped by the next crawl.
+ * <p>
+ * Crawls only use their share of the GitHub rate limit, as prefetches do : each page is only requested while the quota
+ * left in the current window, less the page, is more than the share of the quota kept for the callers, so the pages of
+ * a shard are spread over as many windows as it takes, and a shard is only searched once its first page can be. A
+ * shard whose search fails is searched again after the retry delay.
+ * <p>
+ * Given a checkpoint directory, each crawl is checkpointed to it shard by shard with a {@link CrawlCheckpoint}, so that
+ * a crawl interrupted by a restart is resumed where it was, and the projects of the last crawls completed, along with
+ * their updates, are served again as soon as the verticle is started.
+ * <p>
+ * It should be deployed as a single instance. Supported configuration, in the crawler object of the service
+ * configuration :
+ * <ul>
+ * <li>languages : the languages crawled (default none)</li>
+ * <li>partition : created or stars, the qualifier shards are preferably split along (default created)</li>
+ * <li>maxStars : the most stars of the repositories crawled (default 1000000)</li>
+ * <li>maxProjects : the most projects kept for a language (default 100000)</li>
+ * <li>recrawlSeconds : the time after which a language is crawled again (default 604800)</li>
+ * <li>updateSeconds : the time after which the projects of a crawled language updated since are searched (default
+ * 3600)</li>
+ * <li>budgetShare : the share of the rate limit quota of each window that crawls can use, from 0 to 1 (default
+ * 0.25)</li>
+ * <li>retrySeconds : the time after which a shard whose search failed is searched again (default 60)</li>
+ * <li>checkpointDirectory : the directory the crawls are checkpointed to (default none, so they are not)</li>
+ * </ul>
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class CrawlerVerticle extends AbstractVerticle
+{
+  final static Logger LOGGER = LoggerFactory.getLogger(CrawlerVerticle.class);
+
+  private static final int SEARCH_RESULTS_LIMIT = ProjectsQuery.MAX_PROJECTS;
+  private static final long TICK_MILLIS = 100;
+  // the time it may take for an updated repository to be found by the search API
+  private static final long UPDATE_OVERLAP_MILLIS = 10 * 60 * 1000;
+
+  private GitHubServiceClient gitHubServiceClient;
+  private RateLimitGovernor rateLimitGovernor;
+  private CrawlIndex crawlIndex;
+  private List<String> languages;
+  private SearchShard.Partition partition;
+  private int maxStars;
+  private int maxProjects;
+  private long recrawlMillis;
+  private long updateMillis;
+  private double budgetShare;
+  private long retryMillis;
+  private Path checkpointDirectory;
+
+  private final Map<String, Long> crawledAt = new HashMap<>();
+  private final Map<String, Long> syncedAt = new HashMap<>();
+  private final Map<String, Crawl> resumed = new HashMap<>();
+  private Crawl crawl;
+  private boolean busy;
+  private long retryAt;
+  private long searches;
+  private long splits;
+  private long cappedShards;
+  private long failures;
+  private long deferred;
+  private long crawls;
+  private long updates;
+  private long updatedProjects;
+  private long incompleteUpdates;
+
+  @Override
+  public void start(Future<Void> startFuture)
+  {
+    JsonObject crawlerConfig = config().getJsonObject("crawler", new JsonObject());
+    languages = new ArrayList<>();
+    crawlerConfig.getJsonArray("languages", new JsonArray()).forEach(language -> {
+      String normalized = ProjectInfoCache.normalize(String.valueOf(language));
+      if (!languages.contains(normalized)) {
+        languages.add(normalized);
+      }
+    });
+    partition = SearchShard.Partition.parse(crawlerConfig.getString("partition", "created"));
+    maxStars = crawlerConfig.getInteger("maxStars", 1000000);
+    maxProjects = Math.max(1, crawlerConfig.getInteger("maxProjects", 100000));
+    recrawlMillis = Math.max(1000, crawlerConfig.getLong("recrawlSeconds", 604800L) * 1000);
+    updateMillis = Math.max(1000, crawlerConfig.getLong("updateSeconds", 3600L) * 1000);
+    budgetShare = Math.max(0, Math.min(1, crawlerConfig.getDouble("budgetShare", 0.25)));
+    retryMillis = crawlerConfig.getLong("retrySeconds", 60L) * 1000;
+    String directory = crawlerConfig.getString("checkpointDirectory");
+    checkpointDirectory = directory == null ? null : Paths.get(directory);
+
+    JsonObject gitHubConfig = config().getJsonObject("github", new JsonObject());
+    gitHubServiceClient = new CircuitBreakingGitHubServiceClient(
+      new GitHubServiceClientImpl(vertx, gitHubConfig, budgetShare),
+      CircuitBreaker.getShared(vertx, "github", config().getJsonObject("circuitBreaker", new JsonObject())));
+    rateLimitGovernor = RateLimitGovernor.getShared(vertx, gitHubConfig.getJsonObject("rateLimit", new JsonObject()));
+    crawlIndex = CrawlIndex.getShared(vertx);
+    ServiceMetrics.getShared(vertx).registerGauges("crawler", this::getStats);
+
+    loadCheckpoints(loaded -> {
+      if (loaded.failed()) {
+        startFuture.fail(loaded.cause());
+        return;
+      }
+      vertx.setPeriodic(TICK_MILLIS, timerId -> crawlNext());
+      LOGGER.info("Crawling {0} languages by {1}", String.valueOf(languages.size()), partition);
+      startFuture.complete();
+    });
+  }
+
+  /**
+   * Serves the projects of the last crawls completed, and restores the crawls in progress, from their checkpoints.
+   */
+  private void loadCheckpoints(Handler<AsyncResult<Void>> handler)
+  {
+    if (checkpointDirectory == null) {
+      handler.handle(Future.succeededFuture());
+      return;
+    }
+    vertx.<Void>executeBlocking(load -> {
+      try {
+        for (String language : languages) {
+          CrawlCheckpoint checkpoint = new CrawlCheckpoint(checkpointDirectory, language);
+          CrawlCheckpoint.Progress crawled = checkpoint.loadCrawled();
+          if (crawled != null) {
+            crawlIndex.start(language);
+            crawlIndex.merge(language, crawled.getProjects());
+            crawlIndex.complete(language, crawled.isTruncated(), crawled.getEndedAt());
+            crawledAt.put(language, crawled.getEndedAt());
+            syncedAt.put(language, crawled.getSyncedAt());
+          }
+          CrawlCheckpoint.Progress inProgress = checkpoint.loadInProgress();
+          if (inProgress != null && !inProgress.isComplete() && !inProgress.getPending().isEmpty()) {
+            checkpoint.resume(inProgress);
+            crawlIndex.start(language);
+            crawlIndex.merge(language, inProgress.getProjects());
+            resumed.put(language,
+                        new Crawl(language, checkpoint, inProgress.getStartedAt(), inProgress.getPending()));
+            LOGGER.info("Resuming the crawl of language {0} with {1} projects found and {2} shards to search",
+                        language,
+                        String.valueOf(crawlIndex.size(language)),
+                        String.valueOf(inProgress.getPending().size()));
+          }
+        }
+        load.complete();
+      } catch (IOException e) {
+        load.fail(e);
+      }
+    }, handler);
+  }
+
+  private void crawlNext()
+  {
+    long now = System.currentTimeMillis();
+    if (busy || now < retryAt) {
+      return;
+    }
+    if (crawl == null) {
+      crawl = nextCrawl(now);
+      if (crawl == null) {
+        String language = nextUpdate(now);
+        if (language != null && rateLimitGovernor.isWithinBudget(1, budgetShare)) {
+          update(language, now);
+        } else if (language != null) {
+          deferred++;
+        }
+        return;
+      }
+      if (crawl.pending.isEmpty()) {
+        startCrawl(crawl, now);
+        return;
+      }
+    }
+    if (!rateLimitGovernor.isWithinBudget(1, budgetShare)) {
+      deferred++;
+      return;
+    }
+    search(crawl, crawl.pending.peek());
+  }
+
+  /**
+   * The crawl of the first language resumed, or else never crawled or due to be crawled again, or null if none is.
+   */
+  private Crawl nextCrawl(long now)
+  {
+    for (String language : languages) {
+      Crawl resumedCrawl = resumed.remove(language);
+      if (resumedCrawl != null) {
+        return resumedCrawl;
+      }
+    }
+    for (String language : languages) {
+      Long lastCrawledAt = crawledAt.get(language);
+      if (lastCrawledAt == null || now - lastCrawledAt >= recrawlMillis) {
+        CrawlCheckpoint checkpoint = checkpointDirectory == null ? null
+                                                                 : new CrawlCheckpoint(checkpointDirectory, language);
+        return new Crawl(language, checkpoint, now, new ArrayDeque<>());
+      }
+    }
+    return null;
+  }
+
+  /**
+   * The first crawled language due to be updated, or null if none is.
+   */
+  private String nextUpdate(long now)
+  {
+    for (String language : languages) {
+      Long lastSyncedAt = syncedAt.get(language);
+      if (lastSyncedAt != null && now - lastSyncedAt >= updateMillis) {
+        return language;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Merges the projects of the crawled language updated since it was last synced into those served, or if there were
+   * more of them than the search returns, has it crawled again.
+   */
+  private void update(String language, long now)
+  {
+    busy = true;
+    updates++;
+    List<ProjectInfo> updated = new ArrayList<>();
+    long since = syncedAt.get(language) - UPDATE_OVERLAP_MILLIS;
+    gitHubServiceClient.streamProjectsUpdatedSince(language, since, updated::addAll, end -> {
+      if (end.failed()) {
+        busy = false;
+        failures++;
+        retryAt = System.currentTimeMillis() + retryMillis;
+        LOGGER.warn("Update of language {0} failed, retrying in {1}s : {2}",
+                    language,
+                    String.valueOf(retryMillis / 1000),
+                    end.cause().getMessage());
+        return;
+      }
+      // off the event loop, as the projects served are encoded and indexed again if any of them changed
+      vertx.<Integer>executeBlocking(merge -> merge.complete(crawlIndex.update(language, updated, now)),
+                                     true,
+                                     merged -> synced(language, now, updated, end.result(), merged));
+    });
+  }
+
+  /**
+   * Carries on once the projects of the crawled language updated since it was last synced have been merged.
+   */
+  private void synced(String language,
+                      long now,
+                      List<ProjectInfo> updated,
+                      boolean complete,
+                      AsyncResult<Integer> merged)
+  {
+    if (merged.failed()) {
+      busy = false;
+      failures++;
+      retryAt = System.currentTimeMillis() + retryMillis;
+      LOGGER.error("Error merging the updates of language {0}", merged.cause(), language);
+      return;
+    }
+    int changed = merged.result();
+    updatedProjects += changed;
+    Runnable synced = () -> {
+      if (complete) {
+        syncedAt.put(language, now);
+      } else {
+        incompleteUpdates++;
+        crawledAt.put(language, 0L);
+        LOGGER.info("More projects of language {0} were updated than can be searched, crawling it again", language);
+      }
+      busy = false;
+    };
+    if (changed == 0) {
+      synced.run();
+      return;
+    }
+    LOGGER.info("Updated {0} projects of language {1}", String.valueOf(changed), language);
+    CrawlCheckpoint checkpoint = checkpointDirectory == null ? null
+                                                             : new CrawlCheckpoint(checkpointDirectory, language);
+    checkpoint(checkpoint, language, written -> written.updated(now, updated), synced);
+  }
+
+  private void startCrawl(Crawl crawl, long now)
+  {
+    LOGGER.info("Starting the crawl of language {0}", crawl.language);
+    SearchShard all = SearchShard.all(crawl.language, LocalDate.now(ZoneOffset.UTC), maxStars);
+    crawlIndex.start(crawl.language);
+    checkpoint(crawl.checkpoint,
+               crawl.language,
+               checkpoint -> checkpoint.start(all, now),
+               () -> crawl.pending.push(all));
+  }
+
+  /**
+   * Searches the shard, splitting it if it has more repositories than are returned, and if not merging its projects
+   * into the index.
+   */
+  private void search(Crawl crawl, SearchShard shard)
+  {
+    busy = true;
+    searches++;
+    List<ProjectInfo> found = new ArrayList<>();
+    int[] totalCount = {0};
+    gitHubServiceClient.streamProjectsMatching(shard.getQuery(), total -> {
+      totalCount[0] = total;
+      return total <= SEARCH_RESULTS_LIMIT || !shard.canSplit();
+    }, found::addAll, end -> {
+      if (end.failed()) {
+        busy = false;
+        failures++;
+        retryAt = System.currentTimeMillis() + retryMillis;
+        LOGGER.warn("Search of shard {0} failed, retrying in {1}s : {2}",
+                    shard,
+                    String.valueOf(retryMillis / 1000),
+                    end.cause().getMessage());
+        return;
+      }
+      if (totalCount[0] > SEARCH_RESULTS_LIMIT && shard.canSplit()) {
+        List<SearchShard> halves = shard.split(partition);
+        splits++;
+        checkpoint(crawl.checkpoint, crawl.language, checkpoint -> checkpoint.split(shard, halves), () -> {
+          crawl.pending.poll();
+          for (int i = halves.size() - 1; i >= 0; i--) {
+            crawl.pending.push(halves.get(i));
+          }
+          busy = false;
+        });
+        return;
+      }
+      if (totalCount[0] > found.size()) {
+        cappedShards++;
+        LOGGER.warn("Shard {0} has {1} repositories, of which only {2} are returned",
+                    shard,
+                    String.valueOf(totalCount[0]),
+                    String.valueOf(found.size()));
+      }
+      checkpoint(crawl.checkpoint,
+                 crawl.language,
+                 checkpoint -> checkpoint.searched(shard, found, totalCount[0]), () -> {
+        crawl.pending.poll();
+        crawlIndex.merge(crawl.language, found);
+        int size = crawlIndex.size(crawl.language);
+        if (size >= maxProjects || crawl.pending.isEmpty()) {
+          endCrawl(crawl, size >= maxProjects);
+        } else {
+          busy = false;
+        }
+      });
+    });
+  }
+
+  private void endCrawl(Crawl crawl, boolean truncated)
+  {
+    long now = System.currentTimeMillis();
+    busy = true;
+    // off the event loop, as the projects are encoded and indexed before they are served
+    Handler<Future<ProjectInfoList>> complete = completing -> {
+      completing.complete(crawlIndex.complete(crawl.language, truncated, now));
+    };
+    vertx.executeBlocking(complete, true, completed -> {
+      if (completed.failed()) {
+        LOGGER.error("Error completing the crawl of language {0}", completed.cause(), crawl.language);
+        this.crawl = null;
+        busy = false;
+        return;
+      }
+      crawls++;
+      crawledAt.put(crawl.language, now);
+      // the repositories updated while the crawl was in progress may have been found before they were
+      syncedAt.put(crawl.language, crawl.startedAt);
+      LOGGER.info("Crawled {0} projects of language {1}", String.valueOf(completed.result().size()), crawl.language);
+      checkpoint(crawl.checkpoint, crawl.language, checkpoint -> checkpoint.end(now, truncated), () -> {
+        this.crawl = null;
+        busy = false;
+      });
+    });
+  }
+
+  /**
+   * Writes a checkpoint of the language off the event loop, if it is checkpointed, and then carries on with the crawl.
+   * A checkpoint that fails to be written is logged, and the crawl carries on regardless.
+   */
+  private void checkpoint(CrawlCheckpoint checkpoint, String language, CheckpointWrite write, Runnable then)
+  {
+    if (checkpoint == null) {
+      then.run();
+      return;
+    }
+    busy = true;
+    vertx.<Void>executeBlocking(future -> {
+      try {
+        write.apply(checkpoint);
+        future.complete();
+      } catch (IOException e) {
+        future.fail(new UncheckedIOException(e));
+      }
+    }, true, written -> {
+      if (written.failed()) {
+        LOGGER.error("Error checkpointing the crawl of language {0}", written.cause(), language);
+      }
+      busy = false;
+      then.run();
+    });
+  }
+
+  @FunctionalInterface
+  private interface CheckpointWrite
+  {
+    void apply(CrawlCheckpoint checkpoint) throws IOException;
+  }
+
+  public JsonObject getStats()
+  {
+    return new JsonObject().put("crawls", crawls)
+                           .put("searches", searches)
+                           .put("splits", splits)
+                           .put("cappedShards", cappedShards)
+                           .put("failures", failures)
+                           .put("deferred", deferred)
+                           .put("updates", updates)
+                           .put("updatedProjects", updatedProjects)
+                           .put("incompleteUpdates", incompleteUpdates)
+                           .put("pendingShards", crawl == null ? 0 : crawl.pending.size())
+                           .mergeIn(crawlIndex.getStats());
+  }
+
+  /**
+   * A crawl of a language, with the shards still to be searched, in the order they are crawled.
+   */
+  private static class Crawl
+  {
+    private final String language;
+    private final CrawlCheckpoint checkpoint;
+    private final long startedAt;
+    private final Deque<SearchShard> pending;
+
+    private Crawl(String language, CrawlCheckpoint checkpoint, long startedAt, Deque<SearchShard> pending)
+    {
+      this.language = language;
+      this.checkpoint = checkpoint;
+      this.startedAt = startedAt;
+      this.pending = pending;
+    }
+  }
+}
@@ -1,18 +1,114 @@
 package server.api.verticle;
 
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.json.JsonObject;
+import server.api.model.ProjectInfo;
+import server.api.model.ProjectInfoList;
 
-import java.io.IOException;
 import java.util.List;
+import java.util.function.IntPredicate;
 
 /**
  * API to a client that can query the GitHub repository search API.
+ * <p>
+ * Implementations are non-blocking : the handler is called back once all the result pages have been retrieved, or
+ * as soon as any page request fails.
  *
  * @author Nathan
  * Created : 21/02/2018
  */
-@FunctionalInterface
 public interface GitHubServiceClient
 {
-  List<JsonObject> searchRepositories(String language) throws IOException;
+  void searchRepositories(String language, Handler<AsyncResult<List<JsonObject>>> handler);
+
+  /**
+   * Streams the result pages in page order to the page handler, then calls the end handler once they have all been
+   * handled or as soon as any page request fails. The default implementation waits for all the pages to be
+   * retrieved before streaming them.
+   */
+  default void streamRepositories(String language,
+                                  Handler<JsonObject> pageHandler,
+                                  Handler<AsyncResult<Void>> endHandler)
+  {
+    searchRepositories(language, pages -> {
+      if (pages.succeeded()) {
+        pages.result().forEach(pageHandler::handle);
+      }
+      endHandler.handle(pages.mapEmpty());
+    });
+  }
+
+  /**
+   * Streams the projects of the result pages in page order to the projects handler, then calls the end handler once
+   * they have all been handled, or as soon as any page request fails or any page can't be decoded, in which case it
+   * fails with a {@link JSONProcessingException}. The default implementation decodes the projects from the pages
+   * streamed by {@link #streamRepositories(String, Handler, Handler)}.
+   */
+  default void streamProjects(String language,
+                              Handler<List<ProjectInfo>> projectsHandler,
+                              Handler<AsyncResult<Void>> endHandler)
+  {
+    boolean[] failed = {false};
+    streamRepositories(language, page -> {
+      if (failed[0]) {
+        return;
+      }
+      List<ProjectInfo> projects;
+      try {
+        projects = ProjectInfoPageDecoder.decode(page);
+      } catch (JSONProcessingException e) {
+        failed[0] = true;
+        endHandler.handle(Future.failedFuture(e));
+        return;
+      }
+      projectsHandler.handle(projects);
+    }, end -> {
+      if (!failed[0]) {
+        endHandler.handle(end);
+      }
+    });
+  }
+
+  /**
+   * Streams the projects as {@link #streamProjects(String, Handler, Handler)} does, given the previous projects found
+   * for the language (or null), whose pages can be revalidated with their ETags rather than retrieved again.
+   */
+  void streamProjects(String language,
+                      ProjectInfoList previous,
+                      Handler<List<ProjectInfo>> projectsHandler,
+                      Handler<AsyncResult<Void>> endHandler);
+
+  /**
+   * Streams the projects as {@link #streamProjects(String, ProjectInfoList, Handler, Handler)} does, but only retrieves
+   * as many pages as are needed for the given number of first projects, so may stream fewer than all of them.
+   */
+  void streamProjects(String language,
+                      ProjectInfoList previous,
+                      int maxProjects,
+                      Handler<List<ProjectInfo>> projectsHandler,
+                      Handler<AsyncResult<Void>> endHandler);
+
+  /**
+   * Streams the projects of all the result pages of a search query, e.g. "language:java stars:10..20", in page order to
+   * the projects handler, as streamProjects does for a language. The total number of repositories GitHub reports as
+   * matching the query, of which it only ever returns the first 1000, is tested once the first page has been
+   * retrieved : if it doesn't pass, no projects are streamed and no more pages are retrieved.
+   */
+  void streamProjectsMatching(String query,
+                              IntPredicate totalCountFilter,
+                              Handler<List<ProjectInfo>> projectsHandler,
+                              Handler<AsyncResult<Void>> endHandler);
+
+  /**
+   * Streams the projects of a language updated since the given time, most recently updated first, to the projects
+   * handler, requesting no more pages once a page reaches projects updated before then. The end handler is called with
+   * true if all the projects updated since then have been streamed, or false if there were more of them than the
+   * search returns.
+   */
+  void streamProjectsUpdatedSince(String language,
+                                  long since,
+                                  Handler<List<ProjectInfo>> projectsHandler,
+                                  Handler<AsyncResult<Boolean>> endHandler);
 }
@@ -1,22 +1,42 @@
 package server.api.verticle;
 
+import com.codahale.metrics.Timer;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpVersion;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
-import org.apache.commons.io.IOUtils;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
 import org.apache.commons.lang3.tuple.Pair;
 import org.jetbrains.annotations.NotNull;
+import server.api.metrics.ServiceMetrics;
+import server.api.model.ProjectInfo;
+import server.api.model.ProjectInfoList;
 
-import javax.net.ssl.HttpsURLConnection;
 import java.io.IOException;
-import java.net.URL;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * Implementation of the GitHubServiceClient interface that uses core java to access the repository search API.
+ * Implementation of the GitHubServiceClient interface that uses the Vert.x WebClient to access the repository search
+ * API without blocking, on the event loop of the context that created it.
  *
  * @author Nathan
  * Created : 21/02/2018
@@ -25,65 +45,645 @@ public class GitHubServiceClientImpl implements GitHubServiceClient
 {
   final static Logger LOGGER = LoggerFactory.getLogger(GitHubServiceClientImpl.class);
 
+  // the search API only ever returns the first 1000 results, so at most 10 pages of 100
+  static final int MAX_PAGES = 10;
+  static final int PER_PAGE = 100;
+
+  private final WebClient webClient;
+  private final String baseUrl;
+  private final RateLimitGovernor rateLimitGovernor;
+  // the share of the rate limit quota the requests are budgeted to, or null if they are made for callers
+  private final Double budgetShare;
+  private final int pageParallelism;
+  private final long readTimeoutMillis;
+  private final ServiceMetrics metrics;
+
+  public GitHubServiceClientImpl(Vertx vertx)
+  {
+    this(vertx, new JsonObject());
+  }
+
+  /**
+   * A client configured with the WebClient settings of {@link #createWebClientOptions(JsonObject)}, and :
+   * <ul>
+   * <li>baseUrl : the URL the search API is requested from, e.g. a stub of it (default https://api.github.com)</li>
+   * <li>pageParallelism : maximum number of pages of a search requested concurrently (default 10)</li>
+   * <li>rateLimit : the settings of the {@link RateLimitGovernor} shared by all the clients in the JVM</li>
+   * </ul>
+   */
+  public GitHubServiceClientImpl(Vertx vertx, JsonObject config)
+  {
+    this(vertx, config, null);
+  }
+
+  /**
+   * A client for searches made in the background, each page of which is requested within the given share of the rate
+   * limit quota of a window, waiting for the following windows rather than failing once the share is used up.
+   */
+  public GitHubServiceClientImpl(Vertx vertx, JsonObject config, Double budgetShare)
+  {
+    this.budgetShare = budgetShare;
+    webClient = WebClient.create(vertx, createWebClientOptions(config));
+    baseUrl = config.getString("baseUrl", "https://api.github.com");
+    rateLimitGovernor = RateLimitGovernor.getShared(vertx, config.getJsonObject("rateLimit", new JsonObject()));
+    pageParallelism = Math.max(1, config.getInteger("pageParallelism", MAX_PAGES));
+    readTimeoutMillis = config.getLong("readTimeoutMillis", 10000L);
+    metrics = ServiceMetrics.getShared(vertx);
+    metrics.registerGauges("github.rateLimit", rateLimitGovernor::getStats);
+  }
+
+  /**
+   * Creates the WebClient options from the given configuration, which supports :
+   * <ul>
+   * <li>maxPoolSize : maximum number of pooled connections per host (default 10)</li>
+   * <li>keepAlive : whether connections are kept alive and reused (default true)</li>
+   * <li>http2 : whether to negotiate HTTP/2 using ALPN (default false, as it requires ALPN support in the JVM)</li>
+   * <li>userAgent : the User-Agent header sent to GitHub, which requires one (default github-rest-service)</li>
+   * <li>connectTimeoutMillis : time allowed to connect to GitHub (default 5000)</li>
+   * <li>idleTimeoutSeconds : time after which an idle pooled connection is closed (default 60)</li>
+   * </ul>
+   * The readTimeoutMillis setting (default 10000) also fails any request for which no data is received in that time.
+   */
+  protected static WebClientOptions createWebClientOptions(JsonObject config)
+  {
+    WebClientOptions options = new WebClientOptions()
+      .setMaxPoolSize(config.getInteger("maxPoolSize", 10))
+      .setKeepAlive(config.getBoolean("keepAlive", true))
+      .setTryUseCompression(true)
+      .setConnectTimeout(config.getInteger("connectTimeoutMillis", 5000))
+      .setIdleTimeout(config.getInteger("idleTimeoutSeconds", 60))
+      .setUserAgent(config.getString("userAgent", "github-rest-service"));
+    if (config.getBoolean("http2", false)) {
+      options.setProtocolVersion(HttpVersion.HTTP_2)
+             .setUseAlpn(true)
+             .setHttp2MaxPoolSize(config.getInteger("maxPoolSize", 10));
+    }
+    return options;
+  }
+
   @Override
-  public List<JsonObject> searchRepositories(String language) throws IOException
+  public void searchRepositories(String language, Handler<AsyncResult<List<JsonObject>>> handler)
   {
-    // todo : circuit breaker, caching
     List<JsonObject> result = new ArrayList<>();
-    String uri = getRepositorySearchURI(language);
-    int pageCount = 0;
-    // we need to limit to a maximum of 10 pages, as there is a rate limit set for the search API of 10 requests per minute
-    while (uri != null && pageCount < 10) {
-      Pair<JsonObject, String> pageResultsAndNextPage = queryRepositorySearchAPI(uri);
-      result.add(pageResultsAndNextPage.getLeft());
-      uri = pageResultsAndNextPage.getRight();
-      pageCount++;
+    streamRepositories(language, result::add, end -> handler.handle(end.map(result)));
+  }
+
+  @Override
+  public void streamRepositories(String language, Handler<JsonObject> pageHandler, Handler<AsyncResult<Void>> endHandler)
+  {
+    streamPages(language, PER_PAGE, MAX_PAGES, null, HttpResponse::bodyAsJsonObject, pageHandler, endHandler);
+  }
+
+  @Override
+  public void streamProjects(String language,
+                             Handler<List<ProjectInfo>> projectsHandler,
+                             Handler<AsyncResult<Void>> endHandler)
+  {
+    streamProjects(language, null, projectsHandler, endHandler);
+  }
+
+  @Override
+  public void streamProjects(String language,
+                             ProjectInfoList previous,
+                             Handler<List<ProjectInfo>> projectsHandler,
+                             Handler<AsyncResult<Void>> endHandler)
+  {
+    streamProjects(language, previous, MAX_PAGES * PER_PAGE, projectsHandler, endHandler);
+  }
+
+  /**
+   * Decodes the projects straight from the bytes of each page, see {@link ProjectInfoPageDecoder}, handing them over as
+   * a ProjectInfoList with the ETag of the page, if it has one. Only as many pages are retrieved as maxProjects needs,
+   * and if they all fit in one page its per_page parameter is tuned down to their number.
+   */
+  @Override
+  public void streamProjects(String language,
+                             ProjectInfoList previous,
+                             int maxProjects,
+                             Handler<List<ProjectInfo>> projectsHandler,
+                             Handler<AsyncResult<Void>> endHandler)
+  {
+    int perPage = Math.max(1, Math.min(PER_PAGE, maxProjects));
+    int maxPages = Math.max(1, Math.min(MAX_PAGES, (maxProjects + perPage - 1) / perPage));
+    streamPages(language,
+                perPage,
+                maxPages,
+                previous == null ? null : new PreviousProjectPages(previous),
+                GitHubServiceClientImpl::decodeProjectPage,
+                projectsHandler,
+                endHandler);
+  }
+
+  /**
+   * Streams the projects of the pages of the query, handing the first page over only once the total count it reports
+   * has passed the filter.
+   */
+  @Override
+  public void streamProjectsMatching(String query,
+                                     IntPredicate totalCountFilter,
+                                     Handler<List<ProjectInfo>> projectsHandler,
+                                     Handler<AsyncResult<Void>> endHandler)
+  {
+    int[] totalCount = {-1};
+    streamPages(getQuerySearchURI(query),
+                MAX_PAGES,
+                null,
+                response -> {
+                  if (totalCount[0] < 0) {
+                    totalCount[0] = ProjectInfoPageDecoder.decodeTotalCount(response.body());
+                  }
+                  return decodeProjectPage(response);
+                },
+                firstPage -> totalCountFilter.test(totalCount[0]),
+                projectsHandler,
+                endHandler);
+  }
+
+  /**
+   * Follows the next page links of the search sorted by update one page at a time, as the pages after the one reaching
+   * the given time aren't needed.
+   */
+  @Override
+  public void streamProjectsUpdatedSince(String language,
+                                         long since,
+                                         Handler<List<ProjectInfo>> projectsHandler,
+                                         Handler<AsyncResult<Boolean>> endHandler)
+  {
+    followUpdatedPages(getUpdatedSearchURI(language), 1, since, projectsHandler, endHandler);
+  }
+
+  private void followUpdatedPages(String uri,
+                                  int page,
+                                  long since,
+                                  Handler<List<ProjectInfo>> projectsHandler,
+                                  Handler<AsyncResult<Boolean>> endHandler)
+  {
+    queryRepositorySearchAPI(uri,
+                             page,
+                             null,
+                             response -> ProjectInfoPageDecoder.decodeUpdated(response.body()),
+                             pageResultsAndLinks -> {
+      if (pageResultsAndLinks.failed()) {
+        endHandler.handle(Future.failedFuture(pageResultsAndLinks.cause()));
+        return;
+      }
+      ProjectInfoPageDecoder.UpdatedProjects updated = pageResultsAndLinks.result().getLeft();
+      List<ProjectInfo> projects = updated.getUpdatedSince(since);
+      if (!projects.isEmpty()) {
+        projectsHandler.handle(projects);
+      }
+      String next = pageResultsAndLinks.result().getRight().get("next");
+      if (updated.reaches(since) || next == null && page < MAX_PAGES) {
+        endHandler.handle(Future.succeededFuture(true));
+      } else if (page >= MAX_PAGES) {
+        // the search returns no more pages, although there may be more projects updated since then
+        endHandler.handle(Future.succeededFuture(false));
+      } else {
+        followUpdatedPages(next, page + 1, since, projectsHandler, endHandler);
+      }
+    });
+  }
+
+  private static ProjectInfoList decodeProjectPage(HttpResponse<Buffer> response)
+  {
+    String eTag = response.getHeader("ETag");
+    return new ProjectInfoList(ProjectInfoPageDecoder.decode(response.body()),
+                               false,
+                               eTag == null ? Collections.emptyList() : Collections.singletonList(eTag));
+  }
+
+  /**
+   * Streams the first maxPages result pages of perPage results, as decoded by the page decoder or taken from the
+   * previous pages if they are not modified, in page order to the page handler.
+   */
+  private <T> void streamPages(String language,
+                               int perPage,
+                               int maxPages,
+                               PreviousPages<T> previous,
+                               Function<HttpResponse<Buffer>, T> pageDecoder,
+                               Handler<T> pageHandler,
+                               Handler<AsyncResult<Void>> endHandler)
+  {
+    streamPages(getRepositorySearchURI(language, perPage),
+                maxPages,
+                previous,
+                pageDecoder,
+                firstPage -> true,
+                pageHandler,
+                endHandler);
+  }
+
+  /**
+   * Streams the first maxPages result pages from the given first page, unless the first page doesn't pass the filter,
+   * in which case the search ends there without any page being streamed.
+   */
+  private <T> void streamPages(String firstPageURI,
+                               int maxPages,
+                               PreviousPages<T> previous,
+                               Function<HttpResponse<Buffer>, T> pageDecoder,
+                               Predicate<T> firstPageFilter,
+                               Handler<T> pageHandler,
+                               Handler<AsyncResult<Void>> endHandler)
+  {
+    queryRepositorySearchAPI(firstPageURI, 1, previous, pageDecoder, firstPage -> {
+      if (firstPage.failed()) {
+        endHandler.handle(Future.failedFuture(firstPage.cause()));
+        return;
+      }
+      if (!firstPageFilter.test(firstPage.result().getLeft())) {
+        endHandler.handle(Future.succeededFuture());
+        return;
+      }
+      pageHandler.handle(firstPage.result().getLeft());
+      Map<String, String> links = firstPage.result().getRight();
+      int lastPage = Math.min(extractPageNumber(links.get("last")), maxPages);
+      if (lastPage > 1) {
+        streamPagesConcurrently(links.get("last"),
+                                lastPage,
+                                previous,
+                                pageDecoder,
+                                pageHandler,
+                                endHandler);
+      } else {
+        // without a last page link, fall back to following the next page links
+        followNextPages(links.get("next"), 1, maxPages, previous, pageDecoder, pageHandler, endHandler);
+      }
+    });
+  }
+
+  private <T> void followNextPages(String uri,
+                                   int pageCount,
+                                   int maxPages,
+                                   PreviousPages<T> previous,
+                                   Function<HttpResponse<Buffer>, T> pageDecoder,
+                                   Handler<T> pageHandler,
+                                   Handler<AsyncResult<Void>> endHandler)
+  {
+    if (uri == null || pageCount >= maxPages) {
+      endHandler.handle(Future.succeededFuture());
+      return;
+    }
+    queryRepositorySearchAPI(uri, pageCount + 1, previous, pageDecoder, pageResultsAndLinks -> {
+      if (pageResultsAndLinks.failed()) {
+        endHandler.handle(Future.failedFuture(pageResultsAndLinks.cause()));
+        return;
+      }
+      pageHandler.handle(pageResultsAndLinks.result().getLeft());
+      followNextPages(pageResultsAndLinks.result().getRight().get("next"),
+                      pageCount + 1,
+                      maxPages,
+                      previous,
+                      pageDecoder,
+                      pageHandler,
+                      endHandler);
+    });
+  }
+
+  /**
+   * Retrieves pages 2 to lastPage concurrently, at most pageParallelism at a time, passing them on to the page handler
+   * in page order as soon as all the pages before them have been.
+   */
+  private <T> void streamPagesConcurrently(String lastPageURI,
+                                           int lastPage,
+                                           PreviousPages<T> previous,
+                                           Function<HttpResponse<Buffer>, T> pageDecoder,
+                                           Handler<T> pageHandler,
+                                           Handler<AsyncResult<Void>> endHandler)
+  {
+    ConcurrentPageSearch<T> search =
+      new ConcurrentPageSearch<>(lastPageURI, lastPage, previous, pageDecoder, pageHandler, endHandler);
+    for (int i = 0; i < Math.min(pageParallelism, lastPage - 1); i++) {
+      search.queryNextPage();
+    }
+  }
+
+  /**
+   * The state of a concurrent search of pages, only ever accessed from the event loop of the client.
+   */
+  private class ConcurrentPageSearch<T>
+  {
+    private final String lastPageURI;
+    private final int lastPage;
+    private final PreviousPages<T> previous;
+    private final Function<HttpResponse<Buffer>, T> pageDecoder;
+    private final Handler<T> pageHandler;
+    private final Handler<AsyncResult<Void>> endHandler;
+    // pages retrieved out of order, waiting for the pages before them
+    private final List<T> pages;
+    private int nextPage = 2;
+    private int nextPageToHandle = 2;
+    private boolean failed;
+
+    private ConcurrentPageSearch(String lastPageURI,
+                                 int lastPage,
+                                 PreviousPages<T> previous,
+                                 Function<HttpResponse<Buffer>, T> pageDecoder,
+                                 Handler<T> pageHandler,
+                                 Handler<AsyncResult<Void>> endHandler)
+    {
+      this.lastPageURI = lastPageURI;
+      this.lastPage = lastPage;
+      this.previous = previous;
+      this.pageDecoder = pageDecoder;
+      this.pageHandler = pageHandler;
+      this.endHandler = endHandler;
+      this.pages = new ArrayList<>(Collections.nCopies(lastPage + 1, null));
+    }
+
+    private void queryNextPage()
+    {
+      int page = nextPage++;
+      queryRepositorySearchAPI(withPageNumber(lastPageURI, page), page, previous, pageDecoder, pageResultsAndLinks -> {
+        if (failed) {
+          return;
+        }
+        if (pageResultsAndLinks.failed()) {
+          failed = true;
+          endHandler.handle(Future.failedFuture(pageResultsAndLinks.cause()));
+          return;
+        }
+        pages.set(page, pageResultsAndLinks.result().getLeft());
+        while (nextPageToHandle <= lastPage && pages.get(nextPageToHandle) != null) {
+          pageHandler.handle(pages.get(nextPageToHandle));
+          pages.set(nextPageToHandle++, null);
+        }
+        if (nextPageToHandle > lastPage) {
+          endHandler.handle(Future.succeededFuture());
+        } else if (nextPage <= lastPage) {
+          queryNextPage();
+        }
+      });
     }
-    return result;
   }
 
   @NotNull
   protected String getRepositorySearchURI(String language)
   {
-    return "https://api.github.com/search/repositories?per_page=100&q=language:" + language;
+    return baseUrl + "/search/repositories?per_page=" + PER_PAGE + "&q=language:" + language;
   }
 
-  @NotNull
-  private Pair<JsonObject, String> queryRepositorySearchAPI(String uri) throws IOException
+  /**
+   * The search URI for a search query, which may qualify the language with other qualifiers.
+   */
+  protected String getQuerySearchURI(String query)
   {
-    LOGGER.info("Querying GitHub API {0}", uri);
-    URL url = new URL(uri);
-    HttpsURLConnection conn = (HttpsURLConnection)url.openConnection();
     try {
-      conn.setRequestMethod("GET");
-      conn.setRequestProperty("Accept", "application/json");
+      return baseUrl + "/search/repositories?per_page=" + PER_PAGE + "&q=" + URLEncoder.encode(query, "UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * The search URI of the projects of the language, most recently updated first.
+   */
+  protected String getUpdatedSearchURI(String language)
+  {
+    return getQuerySearchURI(SearchShard.languageQualifier(language)) + "&sort=updated&order=desc";
+  }
+
+  /**
+   * The search URI for the language with the given number of results per page.
+   */
+  protected String getRepositorySearchURI(String language, int perPage)
+  {
+    return withPerPage(getRepositorySearchURI(language), perPage);
+  }
+
+  /**
+   * The pages of the previous search for a language, which are revalidated with their ETags.
+   */
+  private interface PreviousPages<T>
+  {
+    /**
+     * The ETag of the given page number, or null if the page isn't known.
+     */
+    String getETag(int page);
+
+    /**
+     * The given page number, as it was when it had the given ETag.
+     */
+    T getPage(int page, String eTag);
 
-      if (conn.getResponseCode() != 200) {
-        String errorStreamContent = conn.getErrorStream() != null ? IOUtils.toString(conn.getErrorStream()) : "";
+    /**
+     * The number of the last page, or 0 if it isn't known.
+     */
+    int getLastPage();
+  }
+
+  /**
+   * The pages of the previous projects found for a language, sliced from them by the number of projects per page.
+   */
+  private static class PreviousProjectPages implements PreviousPages<List<ProjectInfo>>
+  {
+    private final ProjectInfoList projects;
+    private final List<String> eTags;
+
+    private PreviousProjectPages(ProjectInfoList projects)
+    {
+      this.projects = projects;
+      int pageCount = projects.getPageETags().size();
+      // every page but the last is full, unless the projects were found with another number per page
+      boolean sliceable = projects.size() > (pageCount - 1) * PER_PAGE && projects.size() <= pageCount * PER_PAGE;
+      this.eTags = sliceable ? projects.getPageETags() : Collections.emptyList();
+    }
+
+    @Override
+    public String getETag(int page)
+    {
+      return page <= eTags.size() ? eTags.get(page - 1) : null;
+    }
+
+    @Override
+    public List<ProjectInfo> getPage(int page, String eTag)
+    {
+      return new ProjectInfoList(projects.subList((page - 1) * PER_PAGE, Math.min(projects.size(), page * PER_PAGE)),
+                                 false,
+                                 Collections.singletonList(eTag));
+    }
+
+    @Override
+    public int getLastPage()
+    {
+      return projects.isPartial() || projects.isTruncated() ? 0 : eTags.size();
+    }
+  }
+
+  /**
+   * Queries the page once a permit of the {@link RateLimitGovernor} has been acquired, timing the wait for it. A query
+   * the rate limit doesn't allow fails with a {@link RateLimitExceededException}.
+   */
+  private <T> void queryRepositorySearchAPI(String uri,
+                                            int page,
+                                            PreviousPages<T> previous,
+                                            Function<HttpResponse<Buffer>, T> pageDecoder,
+                                            Handler<AsyncResult<Pair<T, Map<String, String>>>> handler)
+  {
+    Timer.Context rateLimitWait = metrics.timer(ServiceMetrics.GITHUB_RATE_LIMIT_WAIT).time();
+    Handler<AsyncResult<Void>> permitHandler = permit -> {
+      rateLimitWait.stop();
+      if (permit.failed()) {
+        LOGGER.warn("Query of GitHub Page URI {0} not made : {1}", uri, permit.cause().getMessage());
+        handler.handle(Future.failedFuture(permit.cause()));
+        return;
+      }
+      sendRepositorySearchRequest(uri, page, previous, pageDecoder, handler);
+    };
+    if (budgetShare == null) {
+      rateLimitGovernor.acquire(permitHandler);
+    } else {
+      rateLimitGovernor.acquire(budgetShare, permitHandler);
+    }
+  }
+
+  /**
+   * Requests the page, with If-None-Match if the previous pages have its ETag, in which case a 304 response is taken
+   * from them rather than decoded again, and its permit released as GitHub doesn't count it against the rate limit.
+   */
+  private <T> void sendRepositorySearchRequest(String uri,
+                                               int page,
+                                               PreviousPages<T> previous,
+                                               Function<HttpResponse<Buffer>, T> pageDecoder,
+                                               Handler<AsyncResult<Pair<T, Map<String, String>>>> handler)
+  {
+    LOGGER.info("Querying GitHub API {0}", uri);
+    String eTag = previous == null ? null : previous.getETag(page);
+    HttpRequest<Buffer> request = webClient.getAbs(uri)
+                                           .putHeader("Accept", "application/json")
+                                           .timeout(readTimeoutMillis);
+    if (eTag != null) {
+      request.putHeader("If-None-Match", eTag);
+    }
+    Timer.Context pageRequest = metrics.timer(ServiceMetrics.GITHUB_PAGE).time();
+    request.send(response -> {
+      pageRequest.stop();
+      if (response.failed()) {
+        metrics.meter(ServiceMetrics.GITHUB_PAGE_ERRORS).mark();
+        LOGGER.error("Query of GitHub Page URI {0} failed : {1}", uri, response.cause().getMessage());
+        handler.handle(Future.failedFuture(response.cause()));
+        return;
+      }
+      HttpResponse<Buffer> httpResponse = response.result();
+      boolean notModified = eTag != null && httpResponse.statusCode() == 304;
+      if (notModified) {
+        // not counted against the rate limit by GitHub
+        rateLimitGovernor.release();
+      }
+      rateLimitGovernor.update(httpResponse.headers());
+      if (notModified) {
+        metrics.meter(ServiceMetrics.GITHUB_PAGE_NOT_MODIFIED).mark();
+        Map<String, String> links = extractLinks(httpResponse.getHeader("Link"));
+        if (links.isEmpty()) {
+          links = previousPageLinks(uri, page, previous.getLastPage());
+        }
+        handler.handle(Future.succeededFuture(Pair.of(previous.getPage(page, eTag), links)));
+        return;
+      }
+      if (httpResponse.statusCode() != 200) {
+        metrics.meter(ServiceMetrics.GITHUB_PAGE_ERRORS).mark();
+      }
+      if (httpResponse.statusCode() == 403 && "0".equals(httpResponse.getHeader("X-RateLimit-Remaining"))) {
+        LOGGER.warn("Query of GitHub Page URI {0} was rate limited", uri);
+        handler.handle(Future.failedFuture(new RateLimitExceededException(
+          rateLimitGovernor.getStats().getLong("resetAt"))));
+        return;
+      }
+      if (httpResponse.statusCode() != 200) {
         LOGGER.error("Query of GitHub Page URI {0} failed with HTTP error code {1}, error stream content : {2}",
                      uri,
-                     conn.getResponseCode(),
-                     errorStreamContent);
-        throw new IOException("Failed : HTTP error code : " + conn.getResponseCode());
+                     httpResponse.statusCode(),
+                     httpResponse.bodyAsString());
+        handler.handle(Future.failedFuture(new IOException("Failed : HTTP error code : " +
+                                                           httpResponse.statusCode())));
+        return;
       }
-      String json = IOUtils.toString(conn.getInputStream());
-      String nextPageURI = extractNextPageURIFromLinks(conn.getHeaderField("Link"));
-      return Pair.of(new JsonObject(json), nextPageURI);
-    } finally {
-      conn.disconnect();
-    }
+      try {
+        Map<String, String> links = extractLinks(httpResponse.getHeader("Link"));
+        Timer.Context decode = metrics.timer(ServiceMetrics.GITHUB_PAGE_DECODE).time();
+        T decoded = pageDecoder.apply(httpResponse);
+        decode.stop();
+        handler.handle(Future.succeededFuture(Pair.of(decoded, links)));
+      } catch (Exception e) {
+        handler.handle(Future.failedFuture(e));
+      }
+    });
   }
 
-  private static final Pattern NEXT_PAGE_PATTERN = Pattern.compile(".*<(.*)>;\\s*rel=\"next\".*");
+  private static final Pattern LINK_PATTERN = Pattern.compile("<([^>]*)>;\\s*rel=\"([^\"]*)\"");
+  private static final Pattern PAGE_PARAMETER_PATTERN = Pattern.compile("([?&])page=(\\d+)");
+  private static final Pattern PER_PAGE_PARAMETER_PATTERN = Pattern.compile("([?&])per_page=(\\d+)");
 
-  protected static String extractNextPageURIFromLinks(String linksContent)
+  /**
+   * Parses a Link header into a map of the link URIs keyed by their relation, i.e. first, prev, next and last.
+   */
+  protected static Map<String, String> extractLinks(String linksContent)
   {
+    Map<String, String> links = new HashMap<>();
     if (linksContent != null) {
-      Matcher matcher = NEXT_PAGE_PATTERN.matcher(linksContent);
-      if (matcher.matches() && matcher.groupCount() > 0) {
-        return matcher.group(1);
+      Matcher matcher = LINK_PATTERN.matcher(linksContent);
+      while (matcher.find()) {
+        links.put(matcher.group(2), matcher.group(1));
       }
     }
-    return null;
+    return links;
+  }
+
+  protected static String extractNextPageURIFromLinks(String linksContent)
+  {
+    return extractLinks(linksContent).get("next");
+  }
+
+  /**
+   * Extracts the page number of a page URI, or 0 if there is none.
+   */
+  protected static int extractPageNumber(String pageURI)
+  {
+    if (pageURI != null) {
+      Matcher matcher = PAGE_PARAMETER_PATTERN.matcher(pageURI);
+      if (matcher.find()) {
+        return Integer.parseInt(matcher.group(2));
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * The URI of the given page number of the same search as the given page URI.
+   */
+  protected static String withPageNumber(String pageURI, int page)
+  {
+    Matcher matcher = PAGE_PARAMETER_PATTERN.matcher(pageURI);
+    if (!matcher.find()) {
+      return pageURI + (pageURI.contains("?") ? "&" : "?") + "page=" + page;
+    }
+    return matcher.replaceFirst("$1page=" + page);
+  }
+
+  /**
+   * The given page URI with the given number of results per page.
+   */
+  protected static String withPerPage(String pageURI, int perPage)
+  {
+    Matcher matcher = PER_PAGE_PARAMETER_PATTERN.matcher(pageURI);
+    if (!matcher.find()) {
+      return pageURI + (pageURI.contains("?") ? "&" : "?") + "per_page=" + perPage;
+    }
+    return matcher.replaceFirst("$1per_page=" + perPage);
+  }
+
+  /**
+   * The links of a page that wasn't modified, if its 304 response has none, made from the last page of the previous
+   * search. If the previous search was cut short its last page isn't known, so only the next page is linked.
+   */
+  private static Map<String, String> previousPageLinks(String pageURI, int page, int lastPage)
+  {
+    Map<String, String> links = new HashMap<>();
+    if (lastPage == 0) {
+      links.put("next", withPageNumber(pageURI, page + 1));
+    } else if (page < lastPage) {
+      links.put("next", withPageNumber(pageURI, page + 1));
+      links.put("last", withPageNumber(pageURI, lastPage));
+    }
+    return links;
   }
 }
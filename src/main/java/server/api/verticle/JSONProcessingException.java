@@ -0,0 +1,16 @@
+package server.api.verticle;
+
+/**
+ * Exception thrown when a GitHub API response can't be processed, because it is not valid JSON or lacks a value the
+ * service needs.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class JSONProcessingException extends RuntimeException
+{
+  public JSONProcessingException(String message)
+  {
+    super(message);
+  }
+}
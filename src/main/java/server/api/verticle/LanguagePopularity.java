@@ -0,0 +1,161 @@
+package server.api.verticle;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Tracks how often each language is requested, shared by all the verticles in the JVM, so that the most popular ones
+ * can be prefetched.
+ * <p>
+ * Each language has a counter of its requests that decays exponentially with the configured half life, so that the
+ * languages requested most recently and most often come first. Rather than decaying every counter as time passes, each
+ * request is weighted by how long after a fixed landmark time it was made, which orders the counters the same way,
+ * and the counters are rescaled to a new landmark before the weights grow too large. Only the configured number of
+ * languages is tracked : once there are more, the least popular quarter of them are forgotten. Languages whose decayed
+ * requests fall below the configured minimum are not ranked, and are forgotten once the counters are rescaled, so that
+ * languages no longer requested stop being prefetched.
+ * <p>
+ * Supported configuration (all optional) :
+ * <ul>
+ * <li>halfLifeSeconds : the time over which the weight of a request halves (default 600)</li>
+ * <li>maxLanguages : the maximum number of languages tracked (default 1000)</li>
+ * <li>minDecayedRequests : the decayed requests below which a language is not ranked (default 0.5, i.e. a single
+ * request ranks a language for one half life)</li>
+ * </ul>
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class LanguagePopularity implements Shareable
+{
+  private static final String SHARED_MAP_NAME = "server.api.languagePopularity";
+
+  // the weight beyond which the counters are rescaled, well within the precision of a double
+  private static final double MAX_WEIGHT = 1e12;
+
+  private final double halfLifeMillis;
+  private final int maxLanguages;
+  private final double minDecayedRequests;
+  private final LongSupplier clock;
+
+  private final Map<String, double[]> counters = new HashMap<>();
+  private long landmark;
+  private long requests;
+
+  public LanguagePopularity(JsonObject config)
+  {
+    this(config, System::currentTimeMillis);
+  }
+
+  LanguagePopularity(JsonObject config, LongSupplier clock)
+  {
+    this.halfLifeMillis = Math.max(1, config.getLong("halfLifeSeconds", 600L) * 1000);
+    this.maxLanguages = Math.max(1, config.getInteger("maxLanguages", 1000));
+    this.minDecayedRequests = config.getDouble("minDecayedRequests", 0.5);
+    this.clock = clock;
+    this.landmark = clock.getAsLong();
+  }
+
+  /**
+   * Gets the instance shared by all the verticles of the given Vert.x instance, creating it from the given
+   * configuration if it doesn't exist yet.
+   */
+  public static LanguagePopularity getShared(Vertx vertx, JsonObject config)
+  {
+    LocalMap<String, LanguagePopularity> map = vertx.sharedData().getLocalMap(SHARED_MAP_NAME);
+    return map.computeIfAbsent("languages", key -> new LanguagePopularity(config));
+  }
+
+  /**
+   * Records a request for a normalized language.
+   */
+  public synchronized void record(String language)
+  {
+    double weight = weight(clock.getAsLong());
+    if (weight > MAX_WEIGHT) {
+      rescale();
+      weight = 1;
+    }
+    double[] counter = counters.get(language);
+    if (counter == null) {
+      if (counters.size() >= maxLanguages) {
+        forgetLeastPopular();
+      }
+      counters.put(language, new double[]{weight});
+    } else {
+      counter[0] += weight;
+    }
+    requests++;
+  }
+
+  /**
+   * The given number of most popular languages with at least the minimum decayed requests, most popular first.
+   */
+  public synchronized List<String> top(int count)
+  {
+    double minCounter = minDecayedRequests * weight(clock.getAsLong());
+    List<Map.Entry<String, double[]>> byPopularity = new ArrayList<>(counters.size());
+    for (Map.Entry<String, double[]> counter : counters.entrySet()) {
+      if (counter.getValue()[0] >= minCounter) {
+        byPopularity.add(counter);
+      }
+    }
+    byPopularity.sort((a, b) -> Double.compare(b.getValue()[0], a.getValue()[0]));
+    List<String> top = new ArrayList<>(Math.min(count, byPopularity.size()));
+    for (int i = 0; i < count && i < byPopularity.size(); i++) {
+      top.add(byPopularity.get(i).getKey());
+    }
+    return top;
+  }
+
+  /**
+   * The decayed number of requests for a normalized language, i.e. the sum of the requests each weighted by half to
+   * the power of their age in half lives, or 0 if it isn't tracked.
+   */
+  public synchronized double getDecayedRequests(String language)
+  {
+    double[] counter = counters.get(language);
+    return counter == null ? 0 : counter[0] / weight(clock.getAsLong());
+  }
+
+  public synchronized JsonObject getStats()
+  {
+    return new JsonObject().put("tracked", counters.size())
+                           .put("requests", requests);
+  }
+
+  private double weight(long now)
+  {
+    return Math.pow(2, (now - landmark) / halfLifeMillis);
+  }
+
+  /**
+   * Moves the landmark to now, dividing the counters by the weight of a request made now, and forgets the languages
+   * below the minimum decayed requests.
+   */
+  private void rescale()
+  {
+    long now = clock.getAsLong();
+    double weight = weight(now);
+    counters.values().forEach(counter -> counter[0] /= weight);
+    counters.values().removeIf(counter -> counter[0] < minDecayedRequests);
+    landmark = now;
+  }
+
+  private void forgetLeastPopular()
+  {
+    List<Map.Entry<String, double[]>> byPopularity = new ArrayList<>(counters.entrySet());
+    byPopularity.sort((a, b) -> Double.compare(a.getValue()[0], b.getValue()[0]));
+    for (int i = 0; i < Math.max(1, maxLanguages / 4); i++) {
+      counters.remove(byPopularity.get(i).getKey());
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package server.api.verticle;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Supplier;
+
+/**
+ * Writes the chunks of a streamed response in order, at the pace the client reads them : while the write queue of the
+ * response is full, the chunks still to be written are held back unencoded, as the results they are encoded from are
+ * held anyway, and they are only encoded and written once the queue drains. A slow client thereby only has the write
+ * queue buffered for it, rather than every result found before it has read them.
+ * <p>
+ * The end of the response is held back until the chunks before it have been written. Once the response is closed, the
+ * chunks held back are dropped. It must be used from the context of the response.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+class PacedResponseWriter
+{
+  private final HttpServerResponse response;
+  private final Deque<Supplier<Buffer>> pending = new ArrayDeque<>();
+  private Runnable end;
+
+  PacedResponseWriter(HttpServerResponse response)
+  {
+    this.response = response;
+  }
+
+  /**
+   * Writes the chunk the given supplier encodes, once the chunks before it have been written and the write queue
+   * isn't full.
+   */
+  void write(Supplier<Buffer> chunk)
+  {
+    pending.add(chunk);
+    flush();
+  }
+
+  /**
+   * Ends the response with the given action once all the chunks have been written.
+   */
+  void end(Runnable end)
+  {
+    this.end = end;
+    flush();
+  }
+
+  /**
+   * The number of chunks held back while the write queue is full.
+   */
+  int getPending()
+  {
+    return pending.size();
+  }
+
+  private void flush()
+  {
+    while (!pending.isEmpty()) {
+      if (response.closed()) {
+        pending.clear();
+        return;
+      }
+      if (response.writeQueueFull()) {
+        response.drainHandler(drained -> flush());
+        return;
+      }
+      response.write(pending.poll().get());
+    }
+    if (end != null) {
+      Runnable ending = end;
+      end = null;
+      ending.run();
+    }
+  }
+}
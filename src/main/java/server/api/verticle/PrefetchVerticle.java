@@ -0,0 +1,127 @@
+package server.api.verticle;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import server.api.cache.ProjectInfoCache;
+import server.api.metrics.ServiceMetrics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Refreshes the projects of the most requested languages ahead of their callers, so that the first caller after they
+ * expire doesn't have to wait for all their pages to be retrieved.
+ * <p>
+ * The languages are ranked by the {@link LanguagePopularity} the Projects service records its requests in. The
+ * refresh interval is divided into one slot per top language, and at each slot the most popular language whose
+ * projects are missing, partial, truncated or due to go stale before the next interval is prefetched, unless a
+ * prefetch is still in flight. Refreshes are thereby spread across the interval, rather than made in a burst at its
+ * start. A language whose prefetch failed isn't prefetched again until the next interval.
+ * <p>
+ * Prefetches only use their share of the GitHub rate limit : each page is only requested while the quota left in the
+ * current window, less the page, is more than the share of the quota kept for the callers, so the pages of a language
+ * are spread over as many windows as it takes, and a language is only prefetched once its first page can be. A caller
+ * joining the search of a language being prefetched waits for its pages along with the prefetch.
+ * <p>
+ * It should be deployed as a single instance, and shares the cache, rate limit and searches of the Projects service.
+ * Supported configuration (all optional), in the prefetch object of the service configuration :
+ * <ul>
+ * <li>topN : the number of most requested languages kept fresh (default 20)</li>
+ * <li>intervalSeconds : the interval over which each of them is refreshed at most once (default 60)</li>
+ * <li>budgetShare : the share of the rate limit quota of each window that prefetches can use, from 0 to 1 (default
+ * 0.5)</li>
+ * </ul>
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class PrefetchVerticle extends AbstractVerticle
+{
+  final static Logger LOGGER = LoggerFactory.getLogger(PrefetchVerticle.class);
+
+  private ProjectsApiImpl projectsApi;
+  private RateLimitGovernor rateLimitGovernor;
+  private int topN;
+  private long intervalMillis;
+  private double budgetShare;
+
+  private boolean prefetching;
+  private final Map<String, Long> failedAt = new HashMap<>();
+  private long prefetches;
+  private long failures;
+  private long deferred;
+
+  @Override
+  public void start() throws Exception
+  {
+    JsonObject prefetchConfig = config().getJsonObject("prefetch", new JsonObject());
+    topN = Math.max(1, prefetchConfig.getInteger("topN", 20));
+    intervalMillis = Math.max(1000, prefetchConfig.getLong("intervalSeconds", 60L) * 1000);
+    budgetShare = Math.max(0, Math.min(1, prefetchConfig.getDouble("budgetShare", 0.5)));
+    projectsApi = new ProjectsApiImpl(vertx, config());
+    JsonObject gitHubConfig = config().getJsonObject("github", new JsonObject());
+    projectsApi.setGitHubServiceClient(new CircuitBreakingGitHubServiceClient(
+      new GitHubServiceClientImpl(vertx, gitHubConfig, budgetShare),
+      CircuitBreaker.getShared(vertx, "github", config().getJsonObject("circuitBreaker", new JsonObject()))));
+    rateLimitGovernor = RateLimitGovernor.getShared(vertx, gitHubConfig.getJsonObject("rateLimit", new JsonObject()));
+    ServiceMetrics.getShared(vertx).registerGauges("prefetch", this::getStats);
+    vertx.setPeriodic(Math.max(1, intervalMillis / topN), timerId -> prefetchNext());
+    LOGGER.info("Prefetching the top {0} languages every {1}s",
+                String.valueOf(topN),
+                String.valueOf(intervalMillis / 1000));
+  }
+
+  private void prefetchNext()
+  {
+    if (prefetching) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    ProjectInfoCache cache = projectsApi.getProjectInfoCache();
+    for (String language : projectsApi.getLanguagePopularity().top(topN)) {
+      Long failed = failedAt.get(language);
+      if (failed != null && now - failed < intervalMillis) {
+        continue;
+      }
+      ProjectInfoCache.Entry entry = cache.getLastKnown(language);
+      // due if it would go stale before its next turn, or only its first projects are known
+      if (entry != null && !entry.getProjects().isTruncated() && !entry.isStale(now + intervalMillis)) {
+        continue;
+      }
+      if (!rateLimitGovernor.isWithinBudget(1, budgetShare)) {
+        deferred++;
+        return;
+      }
+      prefetch(language);
+      return;
+    }
+  }
+
+  private void prefetch(String language)
+  {
+    LOGGER.info("Prefetching projects for language {0}", language);
+    prefetching = true;
+    projectsApi.prefetchProjectsByLanguage(language, result -> {
+      prefetching = false;
+      if (result.succeeded()) {
+        prefetches++;
+        failedAt.remove(language);
+      } else {
+        failures++;
+        failedAt.put(language, System.currentTimeMillis());
+        LOGGER.warn("Prefetch of projects for language {0} failed : {1}", language, result.cause().getMessage());
+      }
+    });
+  }
+
+  public JsonObject getStats()
+  {
+    return new JsonObject().put("prefetches", prefetches)
+                           .put("failures", failures)
+                           .put("deferred", deferred)
+                           .put("trackedLanguages",
+                                projectsApi.getLanguagePopularity().getStats().getInteger("tracked"));
+  }
+}
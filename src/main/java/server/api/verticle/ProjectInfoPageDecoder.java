@@ -0,0 +1,293 @@
+package server.api.verticle;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.netty.buffer.ByteBufInputStream;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import server.api.model.ProjectInfo;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes the projects of a GitHub repository search result page, failing with a {@link JSONProcessingException} if
+ * the page lacks the items, or an item lacks its id, name, html_url or owner login.
+ * <p>
+ * Pages are normally decoded straight from the response bytes with a streaming parser, which only keeps the four
+ * values needed from each item and skips over everything else, rather than building a tree of all the ~100 values of
+ * each of the items first. Pages already parsed as a JsonObject can also be decoded, with the same validation.
+ * <p>
+ * Pages of a search sorted by update can also be decoded along with the updated_at time of each item, which then
+ * fails if an item lacks it.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public final class ProjectInfoPageDecoder
+{
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  // the search API returns at most 100 items per page
+  private static final int PAGE_SIZE_HINT = 100;
+
+  private ProjectInfoPageDecoder()
+  {
+  }
+
+  /**
+   * Decodes the projects of the page with a streaming parser.
+   */
+  public static List<ProjectInfo> decode(Buffer page)
+  {
+    return decode(page, null);
+  }
+
+  /**
+   * Decodes the projects of the page with a streaming parser, along with the time each of them was last updated.
+   */
+  public static UpdatedProjects decodeUpdated(Buffer page)
+  {
+    List<Long> updatedAts = new ArrayList<>(PAGE_SIZE_HINT);
+    return new UpdatedProjects(decode(page, updatedAts), updatedAts);
+  }
+
+  private static List<ProjectInfo> decode(Buffer page, List<Long> updatedAts)
+  {
+    try (JsonParser parser = JSON_FACTORY.createParser(new ByteBufInputStream(page.getByteBuf()))) {
+      expect(parser.nextToken(), JsonToken.START_OBJECT, "page");
+      List<ProjectInfo> projects = null;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        JsonToken value = parser.nextToken();
+        if ("items".equals(field)) {
+          projects = value == JsonToken.VALUE_NULL ? null : decodeItems(parser, value, updatedAts);
+        } else {
+          parser.skipChildren();
+        }
+      }
+      return requireNonNull(projects, "items");
+    } catch (IOException e) {
+      throw new JSONProcessingException("Invalid JSON : " + e.getMessage());
+    }
+  }
+
+  /**
+   * Decodes the total number of repositories matching the search of the page, which GitHub reports however many of
+   * them it returns. As it comes first in GitHub pages, the rest of the page is rarely parsed.
+   */
+  public static int decodeTotalCount(Buffer page)
+  {
+    try (JsonParser parser = JSON_FACTORY.createParser(new ByteBufInputStream(page.getByteBuf()))) {
+      expect(parser.nextToken(), JsonToken.START_OBJECT, "page");
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        JsonToken value = parser.nextToken();
+        if ("total_count".equals(field)) {
+          return requireNonNull(value == JsonToken.VALUE_NULL ? null : longValue(parser, value, "total_count"),
+                                "total_count").intValue();
+        }
+        parser.skipChildren();
+      }
+      throw new JSONProcessingException("No Value for key total_count");
+    } catch (IOException e) {
+      throw new JSONProcessingException("Invalid JSON : " + e.getMessage());
+    }
+  }
+
+  /**
+   * Decodes the items, adding the time each of them was updated to the given list unless it is null.
+   */
+  private static List<ProjectInfo> decodeItems(JsonParser parser, JsonToken token, List<Long> updatedAts)
+    throws IOException
+  {
+    expect(token, JsonToken.START_ARRAY, "items");
+    List<ProjectInfo> projects = new ArrayList<>(PAGE_SIZE_HINT);
+    long[] updatedAt = updatedAts == null ? null : new long[1];
+    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+      expect(token, JsonToken.START_OBJECT, "items");
+      projects.add(decodeItem(parser, updatedAt));
+      if (updatedAts != null) {
+        updatedAts.add(updatedAt[0]);
+      }
+    }
+    return projects;
+  }
+
+  private static ProjectInfo decodeItem(JsonParser parser, long[] updatedAt) throws IOException
+  {
+    Long id = null;
+    String name = null;
+    String htmlUrl = null;
+    boolean hasOwner = false;
+    String login = null;
+    String updated = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken value = parser.nextToken();
+      switch (field) {
+        case "id":
+          id = value == JsonToken.VALUE_NULL ? null : longValue(parser, value, "id");
+          break;
+        case "name":
+          name = stringValue(parser, value, "name");
+          break;
+        case "html_url":
+          htmlUrl = stringValue(parser, value, "html_url");
+          break;
+        case "owner":
+          hasOwner = value != JsonToken.VALUE_NULL;
+          login = hasOwner ? decodeOwnerLogin(parser, value) : null;
+          break;
+        case "updated_at":
+          updated = updatedAt == null ? null : stringValue(parser, value, "updated_at");
+          break;
+        default:
+          parser.skipChildren();
+      }
+    }
+    requireNonNull(id, "id");
+    requireNonNull(name, "name");
+    requireNonNull(htmlUrl, "html_url");
+    if (!hasOwner) {
+      throw new JSONProcessingException("No Value for key owner");
+    }
+    if (updatedAt != null) {
+      try {
+        updatedAt[0] = Instant.parse(requireNonNull(updated, "updated_at")).toEpochMilli();
+      } catch (DateTimeParseException e) {
+        throw invalidType("updated_at");
+      }
+    }
+    return new ProjectInfo(id, name, htmlUrl, requireNonNull(login, "login"));
+  }
+
+  private static String decodeOwnerLogin(JsonParser parser, JsonToken token) throws IOException
+  {
+    expect(token, JsonToken.START_OBJECT, "owner");
+    String login = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken value = parser.nextToken();
+      if ("login".equals(field)) {
+        login = stringValue(parser, value, "login");
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return login;
+  }
+
+  private static Long longValue(JsonParser parser, JsonToken token, String key) throws IOException
+  {
+    if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT) {
+      throw invalidType(key);
+    }
+    return parser.getLongValue();
+  }
+
+  private static String stringValue(JsonParser parser, JsonToken token, String key) throws IOException
+  {
+    if (token == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    if (token != JsonToken.VALUE_STRING) {
+      throw invalidType(key);
+    }
+    return parser.getText();
+  }
+
+  private static void expect(JsonToken token, JsonToken expected, String key)
+  {
+    if (token != expected) {
+      throw invalidType(key);
+    }
+  }
+
+  /**
+   * Decodes the projects of a page already parsed as a JsonObject.
+   */
+  public static List<ProjectInfo> decode(JsonObject page)
+  {
+    try {
+      JsonArray items = requireNonNull(page.getJsonArray("items"), "items");
+      List<ProjectInfo> projects = new ArrayList<>(items.size());
+      for (Object item : items) {
+        projects.add(decodeItem((JsonObject)item));
+      }
+      return projects;
+    } catch (ClassCastException e) {
+      throw new JSONProcessingException("Invalid JSON : " + e.getMessage());
+    }
+  }
+
+  public static ProjectInfo decodeItem(JsonObject item)
+  {
+    Long id = requireNonNull(item.getLong("id"), "id");
+    String name = requireNonNull(item.getString("name"), "name");
+    String html_url = requireNonNull(item.getString("html_url"), "html_url");
+    JsonObject owner = requireNonNull(item.getJsonObject("owner"), "owner");
+    String login = requireNonNull(owner.getString("login"), "login");
+    return new ProjectInfo(id, name, html_url, login);
+  }
+
+  private static <T> T requireNonNull(T value, String key)
+  {
+    if (value == null) {
+      throw new JSONProcessingException("No Value for key " + key);
+    }
+    return value;
+  }
+
+  private static JSONProcessingException invalidType(String key)
+  {
+    return new JSONProcessingException("Invalid type of value for key " + key);
+  }
+
+  /**
+   * The projects of a page of a search sorted by update, with the time each of them was last updated.
+   */
+  public static final class UpdatedProjects
+  {
+    private final List<ProjectInfo> projects;
+    private final List<Long> updatedAts;
+
+    private UpdatedProjects(List<ProjectInfo> projects, List<Long> updatedAts)
+    {
+      this.projects = projects;
+      this.updatedAts = updatedAts;
+    }
+
+    public List<ProjectInfo> getProjects()
+    {
+      return projects;
+    }
+
+    /**
+     * The projects updated at or after the given time, in page order.
+     */
+    public List<ProjectInfo> getUpdatedSince(long since)
+    {
+      List<ProjectInfo> updated = new ArrayList<>(projects.size());
+      for (int i = 0; i < projects.size(); i++) {
+        if (updatedAts.get(i) >= since) {
+          updated.add(projects.get(i));
+        }
+      }
+      return updated;
+    }
+
+    /**
+     * Whether any of the projects was last updated before the given time.
+     */
+    public boolean reaches(long since)
+    {
+      return updatedAts.stream().anyMatch(updatedAt -> updatedAt < since);
+    }
+  }
+}
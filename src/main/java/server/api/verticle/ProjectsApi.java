@@ -4,6 +4,7 @@ import server.api.model.ProjectInfo;
 
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
+import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.List;
 
@@ -13,5 +14,20 @@ import java.util.List;
 public interface ProjectsApi  {
     //findProjectsByLanguage
     void findProjectsByLanguage(String lang, Handler<AsyncResult<List<ProjectInfo>>> handler);
+
+    //findProjectsByLanguage : only the range of the projects asked for by the query, fetching no more pages than needed
+    void findProjectsByLanguage(String lang, ProjectsQuery query, Handler<AsyncResult<List<ProjectInfo>>> handler);
+
+    //streamProjectsByLanguage : the projects are passed to the projects handler in batches as they are found
+    void streamProjectsByLanguage(String lang,
+                                  Handler<List<ProjectInfo>> projectsHandler,
+                                  Handler<AsyncResult<Void>> endHandler);
+
+    //findProjectsByLanguages : the range of the projects of each distinct language is passed to the result handler,
+    //keyed by the normalized language, as soon as they are found
+    void findProjectsByLanguages(List<String> langs,
+                                 ProjectsQuery query,
+                                 Handler<Pair<String, AsyncResult<List<ProjectInfo>>>> resultHandler,
+                                 Handler<AsyncResult<Void>> endHandler);
     
 }
@@ -0,0 +1,180 @@
+package server.api.verticle;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.RoutingContext;
+import server.api.MainApiException;
+import server.api.model.ProjectInfo;
+import server.api.model.ProjectInfoJson;
+import server.api.model.ProjectInfoList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Route handler for /projects/findByLangs, which finds the projects of a batch of languages posted as a JSON array of
+ * their names, and streams the result of each language to a chunked response as soon as it is found, cached languages
+ * first.
+ * <p>
+ * Each result is a JSON object with the normalized language as lang, and either its projects, with partial set if
+ * they are partial results, or the error status and message if they couldn't be found. Accepting
+ * application/x-ndjson gives one result per line, and otherwise a JSON array of them. The limit, offset and fields
+ * parameters apply to the projects of each language.
+ * <p>
+ * Like streaming, the results are written straight to the response as they are found, so the Projects service is
+ * called in-process rather than through the event bus. Each result is only encoded once the client has read those
+ * before it, with a {@link PacedResponseWriter}.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class ProjectsApiBatchHandler implements Handler<RoutingContext>
+{
+  final static Logger LOGGER = LoggerFactory.getLogger(ProjectsApiBatchHandler.class);
+
+  private final ProjectsApi service;
+
+  public ProjectsApiBatchHandler(ProjectsApi service)
+  {
+    this.service = service;
+  }
+
+  @Override
+  public void handle(RoutingContext routingContext)
+  {
+    HttpServerRequest request = routingContext.request();
+    HttpServerResponse response = routingContext.response();
+    ProjectsQuery query;
+    List<String> languages;
+    try {
+      query = ProjectsQuery.parse(request.getParam("offset"),
+                                  request.getParam("limit"),
+                                  null,
+                                  request.getParam("fields"));
+      languages = parseLanguages(routingContext.getBodyAsString());
+    } catch (ProjectsApiException e) {
+      fail(response, e);
+      return;
+    }
+    String accept = request.getHeader("Accept");
+    boolean ndjson = accept != null && accept.contains(ProjectsApiStreamHandler.NDJSON_CONTENT_TYPE);
+    String contentType = ndjson ? ProjectsApiStreamHandler.NDJSON_CONTENT_TYPE : "application/json";
+    boolean[] started = {false};
+    PacedResponseWriter writer = new PacedResponseWriter(response);
+    service.findProjectsByLanguages(languages, query, result -> {
+      if (response.closed()) {
+        return;
+      }
+      writer.write(() -> {
+        if (!started[0]) {
+          response.setChunked(true)
+                  .putHeader("Content-Type", contentType);
+        }
+        Buffer chunk = Buffer.buffer();
+        if (!ndjson) {
+          chunk.appendString(started[0] ? "," : "[");
+        }
+        appendResult(chunk, result.getLeft(), result.getRight(), query);
+        if (ndjson) {
+          chunk.appendString("\n");
+        }
+        started[0] = true;
+        return chunk;
+      });
+    }, end -> writer.end(() -> {
+      if (response.closed()) {
+        return;
+      }
+      if (end.failed()) {
+        fail(response, end.cause());
+      } else if (!started[0]) {
+        response.putHeader("Content-Type", contentType)
+                .end(ndjson ? "" : "[]");
+      } else {
+        response.end(ndjson ? "" : "]");
+      }
+    }));
+  }
+
+  /**
+   * Parses the request body, which must be a JSON array of language names.
+   */
+  private static List<String> parseLanguages(String body) throws ProjectsApiException
+  {
+    if (body == null) {
+      throw ProjectsApiException.INVALID_LANGUAGES_EXCEPTION;
+    }
+    JsonArray array;
+    try {
+      array = new JsonArray(body);
+    } catch (DecodeException e) {
+      throw ProjectsApiException.INVALID_LANGUAGES_EXCEPTION;
+    }
+    List<String> languages = new ArrayList<>(array.size());
+    for (Object language : array) {
+      if (!(language instanceof String)) {
+        throw ProjectsApiException.INVALID_LANGUAGES_EXCEPTION;
+      }
+      languages.add((String)language);
+    }
+    return languages;
+  }
+
+  private static void appendResult(Buffer chunk,
+                                   String language,
+                                   AsyncResult<List<ProjectInfo>> result,
+                                   ProjectsQuery query)
+  {
+    chunk.appendString("{\"lang\":").appendString(Json.encode(language));
+    if (result.succeeded()) {
+      ProjectInfoList projects = ProjectInfoList.of(result.result());
+      chunk.appendString(",\"projects\":")
+           .appendBuffer(query.hasAllFields() ? projects.toJson()
+                                              : ProjectInfoJson.encode(projects, query.getFields()));
+      if (projects.isPartial()) {
+        chunk.appendString(",\"partial\":true");
+      }
+    } else {
+      MainApiException error = result.cause() instanceof MainApiException ? (MainApiException)result.cause()
+                                                                          : MainApiException.INTERNAL_SERVER_ERROR;
+      if (error == MainApiException.INTERNAL_SERVER_ERROR) {
+        LOGGER.error("Unexpected error in findProjectsByLanguages for language " + language, result.cause());
+      }
+      chunk.appendString(",\"error\":{\"status\":")
+           .appendString(String.valueOf(error.getStatusCode()))
+           .appendString(",\"message\":")
+           .appendString(Json.encode(error.getStatusMessage()))
+           .appendString("}");
+    }
+    chunk.appendString("}");
+  }
+
+  private static void fail(HttpServerResponse response, Throwable cause)
+  {
+    if (response.headWritten()) {
+      // too late to report the error with a status code, so truncate the response instead
+      LOGGER.error("Batch response failed after it started : {0}", cause.getMessage());
+      response.close();
+      return;
+    }
+    int code = MainApiException.INTERNAL_SERVER_ERROR.getStatusCode();
+    String statusMessage = MainApiException.INTERNAL_SERVER_ERROR.getStatusMessage();
+    if (cause instanceof MainApiException) {
+      code = ((MainApiException)cause).getStatusCode();
+      statusMessage = ((MainApiException)cause).getStatusMessage();
+    } else {
+      LOGGER.error("Unexpected error in findProjectsByLanguages", cause);
+    }
+    response.setStatusCode(code)
+            .setStatusMessage(statusMessage)
+            .end();
+  }
+}
@@ -0,0 +1,125 @@
+package server.api.verticle;
+
+import com.codahale.metrics.Timer;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.Json;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.RoutingContext;
+import server.api.MainApiException;
+import server.api.metrics.ServiceMetrics;
+import server.api.model.ProjectInfoJson;
+import server.api.model.ProjectInfoList;
+
+/**
+ * Route handler for the direct dispatch mode of /projects/findByLang, which calls the Projects service in-process
+ * rather than through the event bus.
+ * <p>
+ * The event bus path sends the request parameters as a JsonObject to a ProjectsApiVerticle, which encodes the projects
+ * to a String reply that is copied back to the router. Here the projects are handed over by reference, and the JSON
+ * encoding kept with them is written as is, gzip compressed if the client accepts it. The responses are otherwise the
+ * same, including the status codes, headers, conditional requests, ranges and fields, but the requests are served by
+ * the HTTP server instance rather than spread across the ProjectsApiVerticle instances, so this mode is only suited to
+ * a single JVM.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class ProjectsApiDirectHandler implements Handler<RoutingContext>
+{
+  final static Logger LOGGER = LoggerFactory.getLogger(ProjectsApiDirectHandler.class);
+
+  private final ProjectsApi service;
+  private final ServiceMetrics metrics;
+
+  public ProjectsApiDirectHandler(ProjectsApi service, ServiceMetrics metrics)
+  {
+    this.service = service;
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void handle(RoutingContext routingContext)
+  {
+    HttpServerResponse response = routingContext.response();
+    HttpServerRequest request = routingContext.request();
+    ProjectsQuery query;
+    try {
+      query = ProjectsQuery.parse(request.getParam("offset"),
+                                  request.getParam("limit"),
+                                  request.getParam("cursor"),
+                                  request.getParam("fields"),
+                                  request.getParam("owner"),
+                                  request.getParam("namePrefix"),
+                                  request.getParam("nameContains"),
+                                  request.getParam("sort"));
+    } catch (ProjectsApiException e) {
+      response.setStatusCode(e.getStatusCode())
+              .setStatusMessage(e.getStatusMessage())
+              .end();
+      return;
+    }
+    boolean pretty = "true".equals(request.getParam("pretty"));
+    boolean gzip = !pretty && ContentNegotiation.acceptsGzip(
+      request.getHeader(ContentNegotiation.ACCEPT_ENCODING_HEADER));
+    Timer.Context serviceTime = metrics.timer(ServiceMetrics.FIND_BY_LANG_SERVICE).time();
+    service.findProjectsByLanguage(request.getParam("lang"), query, result -> {
+      serviceTime.stop();
+      if (response.closed()) {
+        return;
+      }
+      if (result.succeeded()) {
+        ProjectInfoList projects = ProjectInfoList.of(result.result());
+        response.putHeader(ConditionalRequests.ETAG_HEADER, projects.getETag())
+                .putHeader(ConditionalRequests.LAST_MODIFIED_HEADER,
+                           ConditionalRequests.formatHttpDate(projects.getLastModified()));
+        String ifNoneMatch = request.getHeader(ConditionalRequests.IF_NONE_MATCH_HEADER);
+        if (ConditionalRequests.isNotModified(ifNoneMatch, projects.getETag())) {
+          metrics.meter(ServiceMetrics.FIND_BY_LANG_NOT_MODIFIED).mark();
+          response.setStatusCode(304).end();
+          return;
+        }
+        if (projects.isPartial()) {
+          response.putHeader(ProjectsApiVerticle.PARTIAL_RESULTS_HEADER, "true");
+        }
+        String nextCursor = query.nextCursor(projects);
+        if (nextCursor != null) {
+          response.putHeader(ProjectsApiVerticle.NEXT_CURSOR_HEADER, nextCursor);
+        }
+        response.putHeader("Content-Type", "application/json")
+                .putHeader("Vary", ContentNegotiation.ACCEPT_ENCODING_HEADER);
+        Buffer body;
+        Timer.Context encode = metrics.timer(ServiceMetrics.FIND_BY_LANG_ENCODE).time();
+        if (!query.hasAllFields()) {
+          // only the projects with all their fields have a JSON encoding kept with them
+          body = pretty ? Buffer.buffer(ProjectInfoJson.toJsonArray(projects, query.getFields()).encodePrettily())
+                        : ProjectInfoJson.encode(projects, query.getFields());
+        } else if (pretty) {
+          body = Buffer.buffer(Json.encodePrettily(projects));
+        } else if (gzip) {
+          response.putHeader("Content-Encoding", "gzip");
+          body = projects.toGzippedJson();
+        } else {
+          body = projects.toJson();
+        }
+        encode.stop();
+        response.end(body);
+        return;
+      }
+      int code = MainApiException.INTERNAL_SERVER_ERROR.getStatusCode();
+      String statusMessage = MainApiException.INTERNAL_SERVER_ERROR.getStatusMessage();
+      if (result.cause() instanceof MainApiException) {
+        code = ((MainApiException)result.cause()).getStatusCode();
+        statusMessage = ((MainApiException)result.cause()).getStatusMessage();
+      } else {
+        LOGGER.error("Unexpected error in findProjectsByLanguage", result.cause());
+      }
+      response.setStatusCode(code)
+              .setStatusMessage(statusMessage)
+              .end();
+    });
+  }
+}
@@ -13,5 +13,21 @@ public final class ProjectsApiException extends MainApiException {
 
   public static final ProjectsApiException INVALID_LANGUAGE_EXCEPTION = new ProjectsApiException(400, "Invalid language value");
 
+  public static final ProjectsApiException INVALID_LANGUAGES_EXCEPTION = new ProjectsApiException(400, "Invalid languages value");
+
+  public static final ProjectsApiException INVALID_LIMIT_EXCEPTION = new ProjectsApiException(400, "Invalid limit value");
+
+  public static final ProjectsApiException INVALID_OFFSET_EXCEPTION = new ProjectsApiException(400, "Invalid offset value");
+
+  public static final ProjectsApiException INVALID_CURSOR_EXCEPTION = new ProjectsApiException(400, "Invalid cursor value");
+
+  public static final ProjectsApiException INVALID_FIELDS_EXCEPTION = new ProjectsApiException(400, "Invalid fields value");
+
+  public static final ProjectsApiException INVALID_SORT_EXCEPTION = new ProjectsApiException(400, "Invalid sort value");
+
+  public static final ProjectsApiException RATE_LIMITED_EXCEPTION = new ProjectsApiException(503, "GitHub rate limit exceeded");
+
+  public static final ProjectsApiException UNAVAILABLE_EXCEPTION = new ProjectsApiException(503, "GitHub service unavailable");
+
 
 }
\ No newline at end of file
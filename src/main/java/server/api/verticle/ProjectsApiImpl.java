@@ -1,19 +1,35 @@
 package server.api.verticle;
 
+import com.codahale.metrics.Timer;
 import io.vertx.core.*;
-import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import server.api.cache.ClusterProjectInfoCache;
+import server.api.cache.CrawlIndex;
+import server.api.cache.ProjectInfoCache;
+import server.api.cache.ProjectTable;
+import server.api.metrics.ServiceMetrics;
 import server.api.model.ProjectInfo;
+import server.api.model.ProjectInfoList;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
  * Implementation of the ProjectsApi service interface.
+ * <p>
+ * When Vert.x is clustered, the searches of all the nodes go through the {@link ClusterProjectInfoCache}, so that each
+ * language is only searched by one node at a time, and the projects it finds are served by the others.
  *
  * @author Nathan
  * Created : 21/02/2018
@@ -21,48 +37,428 @@ import java.util.stream.Stream;
 public class ProjectsApiImpl implements ProjectsApi
 {
   final static Logger LOGGER = LoggerFactory.getLogger(ProjectsApiImpl.class);
+
+  // the most languages in a batch
+  static final int MAX_BATCH_LANGUAGES = 100;
+
   private final Vertx vertx;
 
-  private GitHubServiceClient _gitHubServiceClient = new GitHubServiceClientImpl();
+  private GitHubServiceClient _gitHubServiceClient;
+  private final ProjectInfoCache _projectInfoCache;
+  private final ClusterProjectInfoCache _clusterProjectInfoCache;
+  private final CrawlIndex _crawlIndex;
+  private final SingleFlight<List<ProjectInfo>> _projectSearches;
+  private final ServiceMetrics _metrics;
+  private final LanguagePopularity _languagePopularity;
+  private final int _batchParallelism;
 
   public ProjectsApiImpl(Vertx vertx)
+  {
+    this(vertx, new JsonObject());
+  }
+
+  public ProjectsApiImpl(Vertx vertx, JsonObject config)
   {
     this.vertx = vertx;
+    CircuitBreaker circuitBreaker =
+      CircuitBreaker.getShared(vertx, "github", config.getJsonObject("circuitBreaker", new JsonObject()));
+    _gitHubServiceClient = new CircuitBreakingGitHubServiceClient(
+      new GitHubServiceClientImpl(vertx, config.getJsonObject("github", new JsonObject())),
+      circuitBreaker);
+    _projectInfoCache = ProjectInfoCache.getShared(vertx, config.getJsonObject("cache", new JsonObject()));
+    _clusterProjectInfoCache =
+      ClusterProjectInfoCache.getShared(vertx, config.getJsonObject("cache", new JsonObject()));
+    _crawlIndex = CrawlIndex.getShared(vertx);
+    _projectSearches = SingleFlight.getShared(vertx, "projectSearches");
+    _languagePopularity = LanguagePopularity.getShared(vertx, config.getJsonObject("prefetch", new JsonObject()));
+    _batchParallelism =
+      Math.max(1, config.getJsonObject("projectsApi", new JsonObject()).getInteger("batchParallelism", 4));
+    _metrics = ServiceMetrics.getShared(vertx);
+    _metrics.registerGauges("github.circuitBreaker", circuitBreaker::getStats);
+    // the ordinal of the state, i.e. 0 when closed, 1 when open and 2 when half open
+    _metrics.registerGauge("github.circuitBreaker.state", () -> circuitBreaker.getState().ordinal());
+    _metrics.registerGauges("cache", _projectInfoCache::getStats);
+    _metrics.registerGauges("projectTable", ProjectTable.getShared(vertx)::getStats);
+    if (_clusterProjectInfoCache.isEnabled()) {
+      _metrics.registerGauges("cache.cluster", _clusterProjectInfoCache::getStats);
+    }
+    _metrics.registerGauge("projects.search.inFlight", _projectSearches::getInFlightCount);
   }
 
   @Override
   public void findProjectsByLanguage(String lang, Handler<AsyncResult<List<ProjectInfo>>> handler)
+  {
+    findProjectsByLanguage(lang, ProjectsQuery.ALL, handler);
+  }
+
+  @Override
+  public void findProjectsByLanguage(String lang, ProjectsQuery query, Handler<AsyncResult<List<ProjectInfo>>> handler)
   {
     LOGGER.info("Handling request for projects for language {0}...", lang);
     /*
-     We need to call executeBlocking here as this is a long blocking operation, and we want to release the calling
-     event loop thread to be able to be reused to service other requests. The handler will be called back in the calling
-     event loop thread however.
+     The GitHub client is non-blocking, so there is no need to hand this off to a worker thread : the calling event loop
+     thread is released while the pages are retrieved, and the handler will be called back on it.
     */
-    vertx.executeBlocking((Future<List<ProjectInfo>> future) -> findProjectsByLanguage(lang, future), handler);
+    findProjectsByLanguage(lang, query, Future.<List<ProjectInfo>>future().setHandler(handler));
   }
 
   public void findProjectsByLanguage(String lang, Future<List<ProjectInfo>> future)
   {
-    if (StringUtils.isEmpty(lang)) {
+    findProjectsByLanguage(lang, ProjectsQuery.ALL, future);
+  }
+
+  /**
+   * Serves the range of the projects of a crawled language from the {@link CrawlIndex}, or else from the cache if they
+   * are cached as far as its end, or else fetches the pages of the projects up to its end, or all of them if the range
+   * has no limit. The projects of a range that is filtered or sorted are selected from the indexes kept with all the
+   * projects, so once they are crawled or cached it is served without searching GitHub.
+   */
+  public void findProjectsByLanguage(String lang, ProjectsQuery query, Future<List<ProjectInfo>> future)
+  {
+    if (StringUtils.isBlank(lang)) {
       future.fail(ProjectsApiException.INVALID_LANGUAGE_EXCEPTION);
       return;
     }
-    List<JsonObject> pageDatas;
-    try {
-      pageDatas = _gitHubServiceClient.searchRepositories(lang);
-    } catch (Exception e) {
-      LOGGER.error("Error invoking GitHub API : {0}", e, e.getMessage());
-      future.fail(new ProjectsApiException(500, "Error invoking GitHub API"));
+    String language = ProjectInfoCache.normalize(lang);
+    _languagePopularity.record(language);
+    ProjectInfoList crawled = _crawlIndex.getCrawled(language);
+    if (crawled != null) {
+      future.complete(query.slice(crawled));
+      return;
+    }
+    ProjectInfoCache.Entry cached = _projectInfoCache.get(language);
+    if (cached == null || !covers(cached.getProjects(), query)) {
+      fetchProjectsByLanguage(language, query, future);
+      return;
+    }
+    future.complete(query.slice(cached.getProjects()));
+    refreshIfStale(language, cached);
+  }
+
+  /**
+   * Serves the crawled and cached languages straight away, in order and once each, and searches the others at most
+   * batchParallelism at a time, passing the projects of each language on to the result handler as soon as they are
+   * found. Once a search is cut short by the GitHub rate limit, the remaining languages aren't searched : their last
+   * known projects are served however old they are, or they fail with a 503.
+   */
+  @Override
+  public void findProjectsByLanguages(List<String> langs,
+                                      ProjectsQuery query,
+                                      Handler<Pair<String, AsyncResult<List<ProjectInfo>>>> resultHandler,
+                                      Handler<AsyncResult<Void>> endHandler)
+  {
+    LOGGER.info("Handling batch request for projects for {0} languages...", String.valueOf(langs.size()));
+    if (langs.size() > MAX_BATCH_LANGUAGES || langs.stream().anyMatch(StringUtils::isBlank)) {
+      endHandler.handle(Future.failedFuture(ProjectsApiException.INVALID_LANGUAGES_EXCEPTION));
+      return;
+    }
+    Set<String> languages = new LinkedHashSet<>();
+    langs.forEach(lang -> languages.add(ProjectInfoCache.normalize(lang)));
+    Deque<String> uncached = new ArrayDeque<>();
+    for (String language : languages) {
+      _languagePopularity.record(language);
+      ProjectInfoList crawled = _crawlIndex.getCrawled(language);
+      if (crawled != null) {
+        resultHandler.handle(Pair.of(language, Future.succeededFuture(query.slice(crawled))));
+        continue;
+      }
+      ProjectInfoCache.Entry cached = _projectInfoCache.get(language);
+      if (cached == null || !covers(cached.getProjects(), query)) {
+        uncached.add(language);
+        continue;
+      }
+      resultHandler.handle(Pair.of(language, Future.succeededFuture(query.slice(cached.getProjects()))));
+      refreshIfStale(language, cached);
+    }
+    new BatchSearch(uncached, query, resultHandler, endHandler).start();
+  }
+
+  /**
+   * The searches of the languages of a batch that aren't cached, only ever accessed from the event loop of the caller.
+   */
+  private class BatchSearch
+  {
+    private final Deque<String> pending;
+    private final ProjectsQuery query;
+    private final Handler<Pair<String, AsyncResult<List<ProjectInfo>>>> resultHandler;
+    private final Handler<AsyncResult<Void>> endHandler;
+    private int inFlight;
+    private boolean rateLimited;
+
+    private BatchSearch(Deque<String> pending,
+                        ProjectsQuery query,
+                        Handler<Pair<String, AsyncResult<List<ProjectInfo>>>> resultHandler,
+                        Handler<AsyncResult<Void>> endHandler)
+    {
+      this.pending = pending;
+      this.query = query;
+      this.resultHandler = resultHandler;
+      this.endHandler = endHandler;
+    }
+
+    private void start()
+    {
+      if (pending.isEmpty()) {
+        endHandler.handle(Future.succeededFuture());
+        return;
+      }
+      // searches completing straight away start the next ones themselves
+      for (int i = 0; i < _batchParallelism && !pending.isEmpty(); i++) {
+        searchNext();
+      }
+    }
+
+    private void searchNext()
+    {
+      String language = pending.poll();
+      if (rateLimited) {
+        ProjectInfoList lastKnown = lastKnownProjects(language);
+        resultHandler.handle(Pair.of(language, lastKnown != null ? Future.succeededFuture(query.slice(lastKnown))
+                                                                 : Future.failedFuture(
+                                                                   ProjectsApiException.RATE_LIMITED_EXCEPTION)));
+        next();
+        return;
+      }
+      inFlight++;
+      Future<List<ProjectInfo>> search = Future.future();
+      fetchProjectsByLanguage(language, query, search.setHandler(result -> {
+        inFlight--;
+        if (result.succeeded() ? ((ProjectInfoList)result.result()).isPartial()
+                               : result.cause() == ProjectsApiException.RATE_LIMITED_EXCEPTION) {
+          rateLimited = true;
+        }
+        resultHandler.handle(Pair.of(language, result));
+        next();
+      }));
+    }
+
+    private void next()
+    {
+      if (!pending.isEmpty()) {
+        searchNext();
+      } else if (inFlight == 0) {
+        endHandler.handle(Future.succeededFuture());
+      }
+    }
+  }
+
+  /**
+   * Whether the projects go as far as the projects needed for the range, i.e. unless they are truncated before it.
+   */
+  private static boolean covers(ProjectInfoList projects, ProjectsQuery query)
+  {
+    return !projects.isTruncated() || query.getProjectsNeeded() <= projects.size();
+  }
+
+  @Override
+  public void streamProjectsByLanguage(String lang,
+                                       Handler<List<ProjectInfo>> projectsHandler,
+                                       Handler<AsyncResult<Void>> endHandler)
+  {
+    LOGGER.info("Handling streaming request for projects for language {0}...", lang);
+    if (StringUtils.isBlank(lang)) {
+      endHandler.handle(Future.failedFuture(ProjectsApiException.INVALID_LANGUAGE_EXCEPTION));
+      return;
+    }
+    String language = ProjectInfoCache.normalize(lang);
+    _languagePopularity.record(language);
+    ProjectInfoList crawled = _crawlIndex.getCrawled(language);
+    if (crawled != null) {
+      projectsHandler.handle(crawled);
+      endHandler.handle(Future.succeededFuture());
       return;
     }
-    try {
-      List<ProjectInfo> result = createAllProjectInfos(pageDatas);
-      future.complete(result);
-    } catch (Exception e) {
-      LOGGER.error("Error parsing GitHub API Response : {0}", e, e.getMessage());
-      future.fail(new ProjectsApiException(500, "Error parsing GitHub API Response"));
+    ProjectInfoCache.Entry cached = _projectInfoCache.get(language);
+    if (cached != null && !cached.getProjects().isTruncated()) {
+      projectsHandler.handle(cached.getProjects());
+      endHandler.handle(Future.succeededFuture());
+      refreshIfStale(language, cached);
+      return;
+    }
+    // only the caller making the search streams the projects, any concurrent callers get them all once it is done
+    boolean[] streaming = {false};
+    _projectSearches.execute(language, search -> {
+      _clusterProjectInfoCache.search(language, ProjectsQuery.MAX_PROJECTS, clusterSearch -> {
+        streaming[0] = true;
+        searchProjectsByLanguage(language,
+                                 lastKnownProjects(language),
+                                 ProjectsQuery.MAX_PROJECTS,
+                                 projectsHandler,
+                                 clusterSearch);
+      }, search);
+    }, result -> {
+      if (result.succeeded() && !streaming[0]) {
+        projectsHandler.handle(result.result());
+      }
+      endHandler.handle(result.mapEmpty());
+    });
+  }
+
+  /**
+   * Fetches the projects for a language ahead of any caller asking for them, revalidating the last ones known, or joins
+   * the search for them already in flight. Unlike the calls of callers, it isn't counted as a request for the language.
+   */
+  public void prefetchProjectsByLanguage(String lang, Handler<AsyncResult<List<ProjectInfo>>> handler)
+  {
+    String language = ProjectInfoCache.normalize(lang);
+    Future<List<ProjectInfo>> prefetch = Future.future();
+    fetchProjectsByLanguage(language,
+                            lastKnownProjects(language),
+                            ProjectsQuery.MAX_PROJECTS,
+                            prefetch.setHandler(handler));
+  }
+
+  /**
+   * Stale while revalidate : the stale projects have been served, and only one caller refreshes them, as far as they
+   * went if they were truncated.
+   */
+  private void refreshIfStale(String language, ProjectInfoCache.Entry cached)
+  {
+    if (cached.isStale() && _projectInfoCache.tryStartRefresh(language)) {
+      LOGGER.info("Refreshing stale projects for language {0} in the background", language);
+      Future<List<ProjectInfo>> refresh = Future.future();
+      ProjectInfoList stale = cached.getProjects();
+      int maxProjects = stale.isTruncated() ? stale.size() : ProjectsQuery.MAX_PROJECTS;
+      fetchProjectsByLanguage(language, stale, maxProjects, refresh.setHandler(refreshed -> {
+        if (refreshed.failed()) {
+          _projectInfoCache.refreshFailed(language);
+        }
+      }));
+    }
+  }
+
+  /**
+   * The last projects known for a language however old they are, whose pages are revalidated rather than retrieved
+   * again, or null if there are none.
+   */
+  private ProjectInfoList lastKnownProjects(String language)
+  {
+    ProjectInfoCache.Entry lastKnown = _projectInfoCache.getLastKnown(language);
+    return lastKnown == null ? null : lastKnown.getProjects();
+  }
+
+  /**
+   * Fetches the projects from GitHub as far as the end of the range, or all of them if it has no limit or they are
+   * filtered or sorted, and then slices the range from them.
+   */
+  private void fetchProjectsByLanguage(String language, ProjectsQuery query, Future<List<ProjectInfo>> future)
+  {
+    Future<List<ProjectInfo>> fetch = Future.future();
+    fetchProjectsByLanguage(language,
+                            lastKnownProjects(language),
+                            Math.min(ProjectsQuery.MAX_PROJECTS, query.getProjectsNeeded()),
+                            fetch.setHandler(fetched -> future.handle(
+                              fetched.map(projects -> query.slice(ProjectInfoList.of(projects))))));
+  }
+
+  /**
+   * Fetches the first maxProjects projects from GitHub, sharing a single search between all the concurrent callers for
+   * the same projects of a language, and between the nodes of the cluster if Vert.x is clustered.
+   */
+  private void fetchProjectsByLanguage(String language,
+                                       ProjectInfoList previous,
+                                       int maxProjects,
+                                       Future<List<ProjectInfo>> future)
+  {
+    String key = maxProjects >= ProjectsQuery.MAX_PROJECTS ? language : language + "?limit=" + maxProjects;
+    _projectSearches.execute(key, search -> {
+      _clusterProjectInfoCache.search(language, maxProjects, clusterSearch -> {
+        searchProjectsByLanguage(language, previous, maxProjects, projects -> {}, clusterSearch);
+      }, search);
+    }, future);
+  }
+
+  /**
+   * Searches the projects page by page, passing the projects of each page on to the projects handler as soon as it is
+   * retrieved. If the GitHub rate limit cuts the search short after some pages have been retrieved, the projects found
+   * so far are returned as partial results. If fewer than all the projects are searched for, those found are returned
+   * as truncated results, unless there are fewer of them than searched for.
+   * <p>
+   * The pages of the previous projects are revalidated with their ETags, and if none of them has changed the previous
+   * projects are cached again as they are, keeping their encoding and the time they were last modified.
+   */
+  private void searchProjectsByLanguage(String language,
+                                        ProjectInfoList previous,
+                                        int maxProjects,
+                                        Handler<List<ProjectInfo>> projectsHandler,
+                                        Future<List<ProjectInfo>> future)
+  {
+    List<ProjectInfo> result = new ArrayList<>();
+    // the ETags of the pages retrieved so far, as long as they all have one
+    List<String> pageETags = new ArrayList<>();
+    int[] pageCount = {0};
+    Timer.Context search = _metrics.timer(ServiceMetrics.PROJECTS_SEARCH).time();
+    _gitHubServiceClient.streamProjects(language, previous, maxProjects, projects -> {
+      if (future.isComplete()) {
+        return;
+      }
+      if (projects instanceof ProjectInfoList && pageETags.size() == pageCount[0]) {
+        pageETags.addAll(((ProjectInfoList)projects).getPageETags());
+      }
+      pageCount[0]++;
+      result.addAll(projects);
+      projectsHandler.handle(projects);
+    }, end -> {
+      search.stop();
+      if (future.isComplete()) {
+        return;
+      }
+      boolean rateLimited = end.failed() && end.cause() instanceof RateLimitExceededException;
+      if (rateLimited && result.isEmpty()) {
+        LOGGER.warn("GitHub rate limit exceeded searching for language {0}", language);
+        future.fail(ProjectsApiException.RATE_LIMITED_EXCEPTION);
+        return;
+      }
+      if (end.failed() && end.cause() instanceof JSONProcessingException) {
+        LOGGER.error("Error parsing GitHub API Response : {0}", end.cause(), end.cause().getMessage());
+        future.fail(new ProjectsApiException(500, "Error parsing GitHub API Response"));
+        return;
+      }
+      if (end.failed() && end.cause() instanceof CallNotPermittedException) {
+        serveLastKnownProjects(language, end.cause(), future);
+        return;
+      }
+      if (end.failed() && !rateLimited) {
+        LOGGER.error("Error invoking GitHub API : {0}", end.cause(), end.cause().getMessage());
+        future.fail(new ProjectsApiException(500, "Error invoking GitHub API"));
+        return;
+      }
+      if (rateLimited) {
+        LOGGER.warn("GitHub rate limit exceeded searching for language {0}, returning {1} partial results",
+                    language,
+                    result.size());
+      }
+      boolean truncated = !rateLimited && maxProjects < ProjectsQuery.MAX_PROJECTS && result.size() >= maxProjects;
+      ProjectInfoList projects =
+        new ProjectInfoList(result, rateLimited, truncated, pageETags, System.currentTimeMillis());
+      if (previous != null && !previous.isPartial() && !rateLimited && !pageETags.isEmpty() &&
+          pageETags.size() == pageCount[0] && pageETags.equals(previous.getPageETags()) &&
+          previous.isTruncated() == truncated) {
+        LOGGER.info("Projects for language {0} not modified", language);
+        projects = previous;
+      }
+      _projectInfoCache.put(language, projects);
+      future.complete(projects);
+    });
+  }
+
+  /**
+   * While GitHub calls are not permitted by the circuit breaker, serves the last projects known for the language
+   * however old they are, or fails fast if there are none.
+   */
+  private void serveLastKnownProjects(String language, Throwable cause, Future<List<ProjectInfo>> future)
+  {
+    ProjectInfoCache.Entry lastKnown = _projectInfoCache.getLastKnown(language);
+    if (lastKnown == null) {
+      LOGGER.warn("GitHub call not permitted for language {0} : {1}", language, cause.getMessage());
+      future.fail(ProjectsApiException.UNAVAILABLE_EXCEPTION);
+      return;
     }
+    LOGGER.warn("GitHub call not permitted for language {0}, serving projects fetched at {1} : {2}",
+                language,
+                new Date(lastKnown.getFetchedAt()),
+                cause.getMessage());
+    future.complete(lastKnown.getProjects());
   }
 
   protected static List<ProjectInfo> createAllProjectInfos(List<JsonObject> pageDatas)
@@ -74,28 +470,22 @@ public class ProjectsApiImpl implements ProjectsApi
 
   protected static Stream<ProjectInfo> createProjectInfos(JsonObject pageData)
   {
-    JsonArray items = requireNonNull(pageData.getJsonArray("items"), "items");
-    return items.stream()
-                .map(JsonObject.class::cast)
-                .map(ProjectsApiImpl::createProjectInfo);
+    return ProjectInfoPageDecoder.decode(pageData).stream();
   }
 
   protected static ProjectInfo createProjectInfo(JsonObject projectEntry)
   {
-    Long id = requireNonNull(projectEntry.getLong("id"), "id");
-    String name = requireNonNull(projectEntry.getString("name"), "name");
-    String html_url = requireNonNull(projectEntry.getString("html_url"), "html_url");
-    JsonObject owner = requireNonNull(projectEntry.getJsonObject("owner"), "owner");
-    String login = requireNonNull(owner.getString("login"), "login");
-    return new ProjectInfo(id, name, html_url, login);
+    return ProjectInfoPageDecoder.decodeItem(projectEntry);
   }
 
-  private static <T> T requireNonNull(T value, String key)
+  public ProjectInfoCache getProjectInfoCache()
   {
-    if (value == null) {
-      throw new JSONProcessingException("No Value for key " + key);
-    }
-    return value;
+    return _projectInfoCache;
+  }
+
+  public LanguagePopularity getLanguagePopularity()
+  {
+    return _languagePopularity;
   }
 
   /**
@@ -105,12 +495,4 @@ public class ProjectsApiImpl implements ProjectsApi
   {
     _gitHubServiceClient = gitHubServiceClient;
   }
-
-  private static class JSONProcessingException extends RuntimeException
-  {
-    public JSONProcessingException(String message)
-    {
-      super(message);
-    }
-  }
 }
@@ -0,0 +1,158 @@
+package server.api.verticle;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.RoutingContext;
+import server.api.MainApiException;
+import server.api.model.ProjectInfo;
+import server.api.model.ProjectInfoField;
+import server.api.model.ProjectInfoJson;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Route handler for the streaming mode of /projects/findByLang, which writes the projects to a chunked response as
+ * soon as each page of them has been found, rather than once they all have.
+ * <p>
+ * Streaming is requested either with the stream=true query parameter, giving a JSON array, or by accepting
+ * application/x-ndjson, giving one JSON project per line. Any other request is passed on to the next handler. The
+ * fields parameter applies to the streamed projects, but all of them are streamed whatever the range asked for. The
+ * pages are only encoded once the client has read those before, with a {@link PacedResponseWriter}.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class ProjectsApiStreamHandler implements Handler<RoutingContext>
+{
+  final static Logger LOGGER = LoggerFactory.getLogger(ProjectsApiStreamHandler.class);
+
+  static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+
+  private final ProjectsApi service;
+
+  public ProjectsApiStreamHandler(ProjectsApi service)
+  {
+    this.service = service;
+  }
+
+  @Override
+  public void handle(RoutingContext routingContext)
+  {
+    String accept = routingContext.request().getHeader("Accept");
+    boolean ndjson = accept != null && accept.contains(NDJSON_CONTENT_TYPE);
+    if (!ndjson && !"true".equals(routingContext.request().getParam("stream"))) {
+      routingContext.next();
+      return;
+    }
+    HttpServerResponse response = routingContext.response();
+    Set<ProjectInfoField> fields;
+    try {
+      fields = ProjectsQuery.parse(null, null, null, routingContext.request().getParam("fields")).getFields();
+    } catch (ProjectsApiException e) {
+      response.setStatusCode(e.getStatusCode())
+              .setStatusMessage(e.getStatusMessage())
+              .end();
+      return;
+    }
+    response.setChunked(true)
+            .putHeader("Content-Type", ndjson ? NDJSON_CONTENT_TYPE : "application/json");
+    StreamWriter writer = new StreamWriter(response, ndjson, fields);
+    service.streamProjectsByLanguage(routingContext.request().getParam("lang"), writer::write, end -> {
+      if (end.succeeded()) {
+        writer.end();
+      } else {
+        writer.fail(end.cause());
+      }
+    });
+  }
+
+  private static class StreamWriter
+  {
+    private final HttpServerResponse response;
+    private final boolean ndjson;
+    private final Set<ProjectInfoField> fields;
+    private final PacedResponseWriter writer;
+    private boolean started;
+
+    private StreamWriter(HttpServerResponse response, boolean ndjson, Set<ProjectInfoField> fields)
+    {
+      this.response = response;
+      this.ndjson = ndjson;
+      this.fields = fields;
+      this.writer = new PacedResponseWriter(response);
+    }
+
+    private void write(List<ProjectInfo> projects)
+    {
+      if (projects.isEmpty() || response.closed()) {
+        return;
+      }
+      writer.write(() -> {
+        Buffer chunk = Buffer.buffer(projects.size() * 128);
+        for (ProjectInfo project : projects) {
+          if (!ndjson) {
+            chunk.appendString(started ? "," : "[");
+          }
+          ProjectInfoJson.append(chunk, project, fields);
+          if (ndjson) {
+            chunk.appendString("\n");
+          }
+          started = true;
+        }
+        return chunk;
+      });
+    }
+
+    private void end()
+    {
+      writer.end(this::ended);
+    }
+
+    private void ended()
+    {
+      if (response.closed()) {
+        return;
+      }
+      if (ndjson) {
+        response.end();
+      } else {
+        response.end(started ? "]" : "[]");
+      }
+    }
+
+    private void fail(Throwable cause)
+    {
+      writer.end(() -> failed(cause));
+    }
+
+    private void failed(Throwable cause)
+    {
+      if (response.closed()) {
+        return;
+      }
+      if (response.headWritten()) {
+        // too late to report the error with a status code, so truncate the response instead
+        LOGGER.error("Streaming response failed after it started : {0}", cause.getMessage());
+        response.close();
+        return;
+      }
+      int code = MainApiException.INTERNAL_SERVER_ERROR.getStatusCode();
+      String statusMessage = MainApiException.INTERNAL_SERVER_ERROR.getStatusMessage();
+      if (cause instanceof MainApiException) {
+        code = ((MainApiException)cause).getStatusCode();
+        statusMessage = ((MainApiException)cause).getStatusMessage();
+      } else {
+        LOGGER.error("Unexpected error in streamProjectsByLanguage", cause);
+      }
+      response.headers().remove("Content-Type");
+      response.setChunked(false)
+              .setStatusCode(code)
+              .setStatusMessage(statusMessage)
+              .end();
+    }
+  }
+}
@@ -1,22 +1,35 @@
 package server.api.verticle;
 
+import com.codahale.metrics.Timer;
 import io.vertx.core.*;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.json.Json;
-import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
 
 import server.api.MainApiException;
+import server.api.metrics.ServiceMetrics;
+import server.api.model.ProjectInfoJson;
+import server.api.model.ProjectInfoList;
 
 public class ProjectsApiVerticle extends AbstractVerticle {
     final static Logger LOGGER = LoggerFactory.getLogger(ProjectsApiVerticle.class); 
     
     final static String FINDPROJECTSBYLANGUAGE_SERVICE_ID = "findProjectsByLanguage";
+
+    final static String PARTIAL_RESULTS_HEADER = "X-Partial-Results";
+
+    final static String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    // the reply header the router sets the HTTP response status code from
+    final static String CUSTOM_STATUS_CODE_HEADER = "CUSTOM_STATUS_CODE";
     
     ProjectsApi service;
 
+    ServiceMetrics metrics;
+
     public ProjectsApiVerticle() {
     }
 
@@ -25,7 +38,8 @@ public class ProjectsApiVerticle extends AbstractVerticle {
   {
     super.init(vertx, context);
     try {
-      service = new ProjectsApiImpl(vertx);
+      service = new ProjectsApiImpl(vertx, config());
+      metrics = ServiceMetrics.getShared(vertx);
     } catch (Exception e) {
       logUnexpectedError("ProjectsApiVerticle constructor", e);
       throw new RuntimeException(e);
@@ -36,16 +50,70 @@ public class ProjectsApiVerticle extends AbstractVerticle {
     public void start() throws Exception {
         
         //Consumer for findProjectsByLanguage
-        vertx.eventBus().<JsonObject> consumer(FINDPROJECTSBYLANGUAGE_SERVICE_ID).handler(message -> {
+        // local to the node even when Vert.x is clustered : the nodes share the projects they find through the cluster
+        // cache rather than each request making an extra hop to another node, and the router's JsonObject messages
+        // can't be decoded by another node with the Jackson version the service is built with
+        vertx.eventBus().<JsonObject> localConsumer(FINDPROJECTSBYLANGUAGE_SERVICE_ID).handler(message -> {
+            Timer.Context serviceTime = metrics.timer(ServiceMetrics.FIND_BY_LANG_SERVICE).time();
             try {
                 String lang = message.body().getString("lang");
-                service.findProjectsByLanguage(lang, result -> {
-                    if (result.succeeded())
-                        message.reply(new JsonArray(Json.encode(result.result())).encodePrettily());
-                    else {
+                boolean pretty = "true".equals(String.valueOf(message.body().getValue("pretty")));
+                ProjectsQuery query;
+                try {
+                    query = ProjectsQuery.parse(getString(message.body(), "offset"),
+                                                getString(message.body(), "limit"),
+                                                getString(message.body(), "cursor"),
+                                                getString(message.body(), "fields"),
+                                                getString(message.body(), "owner"),
+                                                getString(message.body(), "namePrefix"),
+                                                getString(message.body(), "nameContains"),
+                                                getString(message.body(), "sort"));
+                } catch (ProjectsApiException e) {
+                    manageError(message, e, "findProjectsByLanguage");
+                    serviceTime.stop();
+                    return;
+                }
+                // the router copies the request headers to the message headers
+                String ifNoneMatch = message.headers().get(ConditionalRequests.IF_NONE_MATCH_HEADER);
+                service.findProjectsByLanguage(lang, query, result -> {
+                    if (result.succeeded()) {
+                        ProjectInfoList projects = ProjectInfoList.of(result.result());
+                        // the router copies the reply headers to the HTTP response
+                        DeliveryOptions options = new DeliveryOptions()
+                            .addHeader(ConditionalRequests.ETAG_HEADER, projects.getETag())
+                            .addHeader(ConditionalRequests.LAST_MODIFIED_HEADER,
+                                       ConditionalRequests.formatHttpDate(projects.getLastModified()));
+                        if (ConditionalRequests.isNotModified(ifNoneMatch, projects.getETag())) {
+                            metrics.meter(ServiceMetrics.FIND_BY_LANG_NOT_MODIFIED).mark();
+                            options.addHeader(CUSTOM_STATUS_CODE_HEADER, "304");
+                            message.reply(null, options);
+                            serviceTime.stop();
+                            return;
+                        }
+                        if (projects.isPartial()) {
+                            options.addHeader(PARTIAL_RESULTS_HEADER, "true");
+                        }
+                        String nextCursor = query.nextCursor(projects);
+                        if (nextCursor != null) {
+                            options.addHeader(NEXT_CURSOR_HEADER, nextCursor);
+                        }
+                        // the router only copies String replies to the HTTP response
+                        String reply;
+                        Timer.Context encode = metrics.timer(ServiceMetrics.FIND_BY_LANG_ENCODE).time();
+                        if (!query.hasAllFields()) {
+                            reply = pretty
+                                ? ProjectInfoJson.toJsonArray(projects, query.getFields()).encodePrettily()
+                                : ProjectInfoJson.encode(projects, query.getFields()).toString();
+                        } else {
+                            reply = pretty ? Json.encodePrettily(projects) : projects.toJson().toString();
+                        }
+                        encode.stop();
+                        message.reply(reply, options);
+                    } else {
                         Throwable cause = result.cause();
                         manageError(message, cause, "findProjectsByLanguage");
                     }
+                    serviceTime.stop();
                 });
             } catch (Exception e) {
                 logUnexpectedError("findProjectsByLanguage", e);
@@ -55,6 +123,12 @@ public class ProjectsApiVerticle extends AbstractVerticle {
       LOGGER.info("Projects API installed on path /api/projects/findByLang");
     }
     
+    // the router puts the query parameters in the message body as Strings, or as their default value
+    private static String getString(JsonObject body, String name) {
+        Object value = body.getValue(name);
+        return value == null ? null : String.valueOf(value);
+    }
+
     private void manageError(Message<JsonObject> message, Throwable cause, String serviceName) {
         int code = MainApiException.INTERNAL_SERVER_ERROR.getStatusCode();
         String statusMessage = MainApiException.INTERNAL_SERVER_ERROR.getStatusMessage();
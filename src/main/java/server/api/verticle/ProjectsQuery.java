@@ -0,0 +1,231 @@
+package server.api.verticle;
+
+import org.apache.commons.lang3.StringUtils;
+import server.api.model.ProjectInfoField;
+import server.api.model.ProjectInfoIndex;
+import server.api.model.ProjectInfoList;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Set;
+
+/**
+ * The range and fields of the projects of a language asked for by a caller of /projects/findByLang.
+ * <p>
+ * The projects can also be filtered by owner, name prefix and name contents, and sorted by id or name, in which case
+ * the range is taken from the projects selected, by the {@link ProjectInfoIndex} of all the projects found.
+ * <p>
+ * The range starts at an offset, or at the position encoded in an opaque cursor returned with the previous range, and
+ * has at most limit projects, or all the projects after the offset if there is no limit. The search API only ever
+ * returns the first 1000 projects, but crawled languages can have many more, up to the largest limit and offset.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public final class ProjectsQuery
+{
+  // the most projects the search API returns for a language
+  public static final int MAX_PROJECTS = GitHubServiceClientImpl.MAX_PAGES * GitHubServiceClientImpl.PER_PAGE;
+  public static final int MAX_POSITION = 1000000;
+
+  private static final String CURSOR_PREFIX = "offset:";
+
+  public static final ProjectsQuery ALL = new ProjectsQuery(0, null, ProjectInfoField.ALL);
+
+  private final int offset;
+  private final Integer limit;
+  private final Set<ProjectInfoField> fields;
+  private final String owner;
+  private final String namePrefix;
+  private final String nameContains;
+  private final ProjectInfoIndex.Order order;
+
+  public ProjectsQuery(int offset, Integer limit, Set<ProjectInfoField> fields)
+  {
+    this(offset, limit, fields, null, null, null, ProjectInfoIndex.Order.FOUND);
+  }
+
+  /**
+   * A range of the projects selected by the given filters, any of which may be null, in the given order.
+   */
+  public ProjectsQuery(int offset,
+                       Integer limit,
+                       Set<ProjectInfoField> fields,
+                       String owner,
+                       String namePrefix,
+                       String nameContains,
+                       ProjectInfoIndex.Order order)
+  {
+    this.offset = offset;
+    this.limit = limit;
+    this.fields = fields;
+    this.owner = owner;
+    this.namePrefix = namePrefix;
+    this.nameContains = nameContains;
+    this.order = order;
+  }
+
+  /**
+   * Parses the query parameters, any of which may be null. A cursor takes precedence over an offset.
+   */
+  public static ProjectsQuery parse(String offset, String limit, String cursor, String fields)
+    throws ProjectsApiException
+  {
+    return parse(offset, limit, cursor, fields, null, null, null, null);
+  }
+
+  /**
+   * Parses the query parameters, including the filters and sort order, any of which may be null. Blank filters are
+   * ignored, and the projects are sorted by "id" or "name", or else kept in the order they were found in.
+   */
+  public static ProjectsQuery parse(String offset,
+                                    String limit,
+                                    String cursor,
+                                    String fields,
+                                    String owner,
+                                    String namePrefix,
+                                    String nameContains,
+                                    String sort)
+    throws ProjectsApiException
+  {
+    int start = cursor != null ? decodeCursor(cursor)
+                               : offset != null ? parseInt(offset, 0, ProjectsApiException.INVALID_OFFSET_EXCEPTION)
+                                                : 0;
+    Integer count = limit == null ? null : parseInt(limit, 1, ProjectsApiException.INVALID_LIMIT_EXCEPTION);
+    Set<ProjectInfoField> projected;
+    try {
+      projected = fields == null ? ProjectInfoField.ALL : ProjectInfoField.parse(fields);
+    } catch (IllegalArgumentException e) {
+      throw ProjectsApiException.INVALID_FIELDS_EXCEPTION;
+    }
+    ProjectInfoIndex.Order order;
+    if (sort == null || sort.trim().isEmpty()) {
+      order = ProjectInfoIndex.Order.FOUND;
+    } else if ("id".equals(sort.trim())) {
+      order = ProjectInfoIndex.Order.ID;
+    } else if ("name".equals(sort.trim())) {
+      order = ProjectInfoIndex.Order.NAME;
+    } else {
+      throw ProjectsApiException.INVALID_SORT_EXCEPTION;
+    }
+    return new ProjectsQuery(start,
+                             count,
+                             projected,
+                             StringUtils.trimToNull(owner),
+                             StringUtils.trimToNull(namePrefix),
+                             StringUtils.trimToNull(nameContains),
+                             order);
+  }
+
+  private static int parseInt(String value, int min, ProjectsApiException invalid) throws ProjectsApiException
+  {
+    try {
+      int parsed = Integer.parseInt(value.trim());
+      if (parsed < min || parsed > MAX_POSITION) {
+        throw invalid;
+      }
+      return parsed;
+    } catch (NumberFormatException e) {
+      throw invalid;
+    }
+  }
+
+  private static int decodeCursor(String cursor) throws ProjectsApiException
+  {
+    String decoded;
+    try {
+      decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw ProjectsApiException.INVALID_CURSOR_EXCEPTION;
+    }
+    if (!decoded.startsWith(CURSOR_PREFIX)) {
+      throw ProjectsApiException.INVALID_CURSOR_EXCEPTION;
+    }
+    return parseInt(decoded.substring(CURSOR_PREFIX.length()), 0, ProjectsApiException.INVALID_CURSOR_EXCEPTION);
+  }
+
+  static String encodeCursor(int offset)
+  {
+    return Base64.getUrlEncoder()
+                 .withoutPadding()
+                 .encodeToString((CURSOR_PREFIX + offset).getBytes(StandardCharsets.UTF_8));
+  }
+
+  public int getOffset()
+  {
+    return offset;
+  }
+
+  /**
+   * The most projects in the range, or null if it has all the projects after the offset.
+   */
+  public Integer getLimit()
+  {
+    return limit;
+  }
+
+  public Set<ProjectInfoField> getFields()
+  {
+    return fields;
+  }
+
+  /**
+   * Whether the projects are filtered or sorted before the range is taken from them.
+   */
+  public boolean isSelective()
+  {
+    return owner != null || namePrefix != null || nameContains != null || order != ProjectInfoIndex.Order.FOUND;
+  }
+
+  /**
+   * The number of the first projects found for a language the range is taken from : as far as its end, unless the
+   * projects are filtered or sorted, in which case all of them are needed.
+   */
+  public int getProjectsNeeded()
+  {
+    return isSelective() ? Integer.MAX_VALUE : getEnd();
+  }
+
+  /**
+   * The position after the end of the range, or {@link Integer#MAX_VALUE} if it has no limit.
+   */
+  public int getEnd()
+  {
+    return limit == null ? Integer.MAX_VALUE : offset + limit;
+  }
+
+  /**
+   * Whether the range has all the projects, as they were found.
+   */
+  public boolean isAll()
+  {
+    return offset == 0 && limit == null && !isSelective();
+  }
+
+  public boolean hasAllFields()
+  {
+    return fields.containsAll(ProjectInfoField.ALL);
+  }
+
+  /**
+   * The range of the given projects, or of those selected from them if they are filtered or sorted.
+   */
+  public ProjectInfoList slice(ProjectInfoList projects)
+  {
+    if (isAll()) {
+      return projects;
+    }
+    ProjectInfoList selected = isSelective()
+                               ? projects.getIndex().select(owner, namePrefix, nameContains, order)
+                               : projects;
+    return selected.slice(offset, getEnd() - offset);
+  }
+
+  /**
+   * The cursor of the range following the given range of projects, or null if no projects follow it.
+   */
+  public String nextCursor(ProjectInfoList range)
+  {
+    return range.isTruncated() ? encodeCursor(offset + range.size()) : null;
+  }
+}
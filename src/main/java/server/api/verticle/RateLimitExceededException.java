@@ -0,0 +1,25 @@
+package server.api.verticle;
+
+import java.io.IOException;
+
+/**
+ * Exception failing a GitHub request that could not be made within the rate limit.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class RateLimitExceededException extends IOException
+{
+  private final long resetAt;
+
+  public RateLimitExceededException(long resetAt)
+  {
+    super("GitHub rate limit exceeded until " + resetAt);
+    this.resetAt = resetAt;
+  }
+
+  public long getResetAt()
+  {
+    return resetAt;
+  }
+}
@@ -0,0 +1,352 @@
+package server.api.verticle;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Schedules the requests made to the GitHub search API against its rate limit, shared by all the verticles in the JVM.
+ * <p>
+ * The quota is a bucket of requests that is refilled at the end of each rate limit window. It starts from the configured
+ * limit, and then tracks the real quota from the X-RateLimit-Limit, X-RateLimit-Remaining and X-RateLimit-Reset headers
+ * of the GitHub responses. Requests are granted immediately while there is quota left, and are otherwise queued until
+ * the window is reset, unless they would have to wait for longer than the configured maximum, in which case they are
+ * failed straight away with a {@link RateLimitExceededException}. A permit that turns out not to have been counted by
+ * GitHub, as for a conditional request answered with a 304, can be released back to the quota.
+ * <p>
+ * Requests made in the background, such as crawls and prefetches, can instead be budgeted to a share of the quota of
+ * each window : they are only granted while the quota left, less the request, is more than the rest of the quota kept
+ * for the callers, after any queued caller request, and otherwise wait for as many windows as it takes rather than
+ * being failed, so that the pages of a long search are spread across windows.
+ * <p>
+ * When Vert.x is clustered, the quota is shared by the governors of all the nodes, as they all make their requests with
+ * the same GitHub credentials : each governor publishes the permits it grants and releases, and the rate limit headers
+ * it sees, on the event bus, and applies those published by the others to its own quota. The sharing is only eventually
+ * consistent, as permits granted by two nodes at the same time can overdraw the quota by a few requests, which GitHub
+ * then rejects as rate limited.
+ * <p>
+ * Supported configuration (all optional) :
+ * <ul>
+ * <li>requestsPerWindow : the quota of requests for each window before any response headers are seen (default 10)</li>
+ * <li>windowSeconds : the length of a rate limit window (default 60)</li>
+ * <li>maxWaitSeconds : the maximum time a request can be queued for (default 30)</li>
+ * <li>shareAcrossCluster : whether the quota is shared with the other nodes when Vert.x is clustered (default
+ * true)</li>
+ * </ul>
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class RateLimitGovernor implements Shareable
+{
+  final static Logger LOGGER = LoggerFactory.getLogger(RateLimitGovernor.class);
+
+  private static final String SHARED_MAP_NAME = "server.api.rateLimitGovernor";
+
+  // the event bus address the governors of a cluster publish their use of the quota to
+  static final String CLUSTER_ADDRESS = "server.api.rateLimitGovernor.search";
+
+  private final Vertx vertx;
+  private final long windowMillis;
+  private final long maxWaitMillis;
+  // tells the events published by this governor apart from those of the other nodes
+  private final String nodeId = UUID.randomUUID().toString();
+  private final boolean shared;
+
+  private int limit;
+  private int remaining;
+  private long resetAt;
+  private final Deque<Waiter> waiters = new ArrayDeque<>();
+  private final Deque<Waiter> budgetedWaiters = new ArrayDeque<>();
+  private boolean drainScheduled;
+  private long shedCount;
+  private long clusterAcquiredCount;
+
+  public RateLimitGovernor(Vertx vertx, JsonObject config)
+  {
+    this.vertx = vertx;
+    this.windowMillis = config.getLong("windowSeconds", 60L) * 1000;
+    this.maxWaitMillis = config.getLong("maxWaitSeconds", 30L) * 1000;
+    this.limit = config.getInteger("requestsPerWindow", 10);
+    this.remaining = limit;
+    this.resetAt = System.currentTimeMillis() + windowMillis;
+    this.shared = vertx.isClustered() && config.getBoolean("shareAcrossCluster", true);
+    if (shared) {
+      vertx.eventBus().<String>consumer(CLUSTER_ADDRESS, message -> {
+        JsonObject event = new JsonObject(message.body());
+        if (!nodeId.equals(event.getString("node"))) {
+          apply(event);
+        }
+      });
+    }
+  }
+
+  /**
+   * Gets the governor shared by all the verticles of the given Vert.x instance, creating it from the given
+   * configuration if it doesn't exist yet.
+   */
+  public static RateLimitGovernor getShared(Vertx vertx, JsonObject config)
+  {
+    LocalMap<String, RateLimitGovernor> map = vertx.sharedData().getLocalMap(SHARED_MAP_NAME);
+    return map.computeIfAbsent("search", key -> new RateLimitGovernor(vertx, config));
+  }
+
+  /**
+   * Acquires a permit to make one request, calling the handler back on the caller's context once it is granted, or
+   * failing it with a RateLimitExceededException if it can't be granted within the maximum wait.
+   */
+  public void acquire(Handler<AsyncResult<Void>> handler)
+  {
+    long now = System.currentTimeMillis();
+    RateLimitExceededException shed = null;
+    synchronized (this) {
+      resetIfWindowEnded(now);
+      if (remaining > 0 && waiters.isEmpty()) {
+        remaining--;
+      } else if (expectedGrantTime() - now > maxWaitMillis) {
+        shedCount++;
+        shed = new RateLimitExceededException(resetAt);
+      } else {
+        waiters.add(new Waiter(Vertx.currentContext(), handler, 1));
+        scheduleDrain(now);
+        return;
+      }
+    }
+    // the handler is called once the lock shared by all the event loops is released
+    if (shed != null) {
+      handler.handle(Future.failedFuture(shed));
+      return;
+    }
+    publish(new JsonObject().put("acquired", 1));
+    handler.handle(Future.succeededFuture());
+  }
+
+  /**
+   * Acquires a permit to make one request within the given share of the quota of each window, from 0 to 1, calling the
+   * handler back on the caller's context once it is granted, which may be several windows later.
+   */
+  public void acquire(double budgetShare, Handler<AsyncResult<Void>> handler)
+  {
+    long now = System.currentTimeMillis();
+    synchronized (this) {
+      resetIfWindowEnded(now);
+      if (waiters.isEmpty() && budgetedWaiters.isEmpty() && hasBudget(remaining, 1, budgetShare)) {
+        remaining--;
+      } else {
+        budgetedWaiters.add(new Waiter(Vertx.currentContext(), handler, budgetShare));
+        scheduleDrain(now);
+        return;
+      }
+    }
+    publish(new JsonObject().put("acquired", 1));
+    handler.handle(Future.succeededFuture());
+  }
+
+  /**
+   * Whether the given number of requests can be made now without using more than the given share of the quota of the
+   * current window, from 0 to 1.
+   */
+  public synchronized boolean isWithinBudget(int requests, double budgetShare)
+  {
+    // the quota is refilled once the window has ended, even if no request has been made since
+    int available = System.currentTimeMillis() >= resetAt ? limit : remaining;
+    return hasBudget(available, requests, budgetShare);
+  }
+
+  private boolean hasBudget(int available, int requests, double budgetShare)
+  {
+    return available - requests >= limit * (1 - budgetShare);
+  }
+
+  /**
+   * Returns a permit to the quota, for a request that GitHub didn't count against it, granting it to the first queued
+   * request if there is one.
+   */
+  public void release()
+  {
+    synchronized (this) {
+      if (remaining >= limit) {
+        return;
+      }
+      remaining++;
+    }
+    publish(new JsonObject().put("released", 1));
+    if (hasWaiters()) {
+      drain();
+    }
+  }
+
+  /**
+   * Updates the quota from the X-RateLimit headers of a GitHub response, if it has them.
+   */
+  public void update(MultiMap headers)
+  {
+    String limitHeader = headers.get("X-RateLimit-Limit");
+    String remainingHeader = headers.get("X-RateLimit-Remaining");
+    String resetHeader = headers.get("X-RateLimit-Reset");
+    if (limitHeader == null || remainingHeader == null || resetHeader == null) {
+      return;
+    }
+    int headerLimit;
+    int headerRemaining;
+    long headerResetAt;
+    try {
+      headerLimit = Integer.parseInt(limitHeader);
+      headerRemaining = Integer.parseInt(remainingHeader);
+      headerResetAt = Long.parseLong(resetHeader) * 1000;
+    } catch (NumberFormatException e) {
+      LOGGER.warn("Ignoring invalid rate limit headers : {0}", e.getMessage());
+      return;
+    }
+    update(headerLimit, headerRemaining, headerResetAt);
+    publish(new JsonObject().put("limit", headerLimit).put("remaining", headerRemaining).put("resetAt", headerResetAt));
+  }
+
+  synchronized void update(int headerLimit, int headerRemaining, long headerResetAt)
+  {
+    limit = headerLimit;
+    if (headerResetAt > resetAt) {
+      // a new window has started since we last knew
+      remaining = headerRemaining;
+      resetAt = headerResetAt;
+    } else {
+      // our own count also accounts for the requests granted but not yet seen by GitHub
+      remaining = Math.min(remaining, headerRemaining);
+    }
+  }
+
+  public synchronized JsonObject getStats()
+  {
+    return new JsonObject().put("limit", limit)
+                           .put("remaining", remaining)
+                           .put("resetAt", resetAt)
+                           .put("queued", waiters.size())
+                           .put("budgetQueued", budgetedWaiters.size())
+                           .put("shed", shedCount)
+                           .put("clusterAcquired", clusterAcquiredCount);
+  }
+
+  private synchronized boolean hasWaiters()
+  {
+    return !waiters.isEmpty() || !budgetedWaiters.isEmpty();
+  }
+
+  private void publish(JsonObject event)
+  {
+    if (shared) {
+      // as a String, as the JsonObject codec decodes with a newer Jackson than the one the service is built with
+      vertx.eventBus().publish(CLUSTER_ADDRESS, event.put("node", nodeId).encode());
+    }
+  }
+
+  /**
+   * Applies the use of the quota published by another node. A permit released by another node isn't granted to the
+   * queued requests straight away, as that node grants it to its own first.
+   */
+  synchronized void apply(JsonObject event)
+  {
+    resetIfWindowEnded(System.currentTimeMillis());
+    if (event.containsKey("acquired")) {
+      int acquired = event.getInteger("acquired");
+      remaining = Math.max(0, remaining - acquired);
+      clusterAcquiredCount += acquired;
+    } else if (event.containsKey("released")) {
+      remaining = Math.min(limit, remaining + event.getInteger("released"));
+    } else {
+      update(event.getInteger("limit"), event.getInteger("remaining"), event.getLong("resetAt"));
+    }
+  }
+
+  private void resetIfWindowEnded(long now)
+  {
+    if (now >= resetAt) {
+      remaining = limit;
+      resetAt = now + windowMillis;
+    }
+  }
+
+  /**
+   * The time at which a request queued now would be granted, assuming each window has the same limit.
+   */
+  private long expectedGrantTime()
+  {
+    if (limit <= 0) {
+      return Long.MAX_VALUE;
+    }
+    int windowsToWait = Math.max(0, waiters.size() - remaining) / limit;
+    return resetAt + windowsToWait * windowMillis;
+  }
+
+  private void scheduleDrain(long now)
+  {
+    if (!drainScheduled) {
+      drainScheduled = true;
+      vertx.setTimer(Math.max(1, resetAt - now), timerId -> drain());
+    }
+  }
+
+  private void drain()
+  {
+    List<Waiter> granted = new ArrayList<>();
+    long now = System.currentTimeMillis();
+    synchronized (this) {
+      drainScheduled = false;
+      resetIfWindowEnded(now);
+      while (remaining > 0 && !waiters.isEmpty()) {
+        remaining--;
+        granted.add(waiters.poll());
+      }
+      // the budgeted requests once the callers' requests have been granted, each within its own share
+      for (Iterator<Waiter> iterator = budgetedWaiters.iterator(); iterator.hasNext(); ) {
+        Waiter waiter = iterator.next();
+        if (waiters.isEmpty() && hasBudget(remaining, 1, waiter.budgetShare)) {
+          remaining--;
+          iterator.remove();
+          granted.add(waiter);
+        }
+      }
+      if (!waiters.isEmpty() || !budgetedWaiters.isEmpty()) {
+        scheduleDrain(now);
+      }
+    }
+    if (!granted.isEmpty()) {
+      publish(new JsonObject().put("acquired", granted.size()));
+    }
+    for (Waiter waiter : granted) {
+      if (waiter.context == null) {
+        waiter.handler.handle(Future.succeededFuture());
+      } else {
+        waiter.context.runOnContext(v -> waiter.handler.handle(Future.succeededFuture()));
+      }
+    }
+  }
+
+  private static class Waiter
+  {
+    private final Context context;
+    private final Handler<AsyncResult<Void>> handler;
+    private final double budgetShare;
+
+    private Waiter(Context context, Handler<AsyncResult<Void>> handler, double budgetShare)
+    {
+      this.context = context;
+      this.handler = handler;
+      this.budgetShare = budgetShare;
+    }
+  }
+}
@@ -0,0 +1,170 @@
+package server.api.verticle;
+
+import io.vertx.core.json.JsonObject;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A shard of the repositories of a language : those created within a range of dates and with a range of stars, both
+ * inclusive, which are searched for with the created and stars qualifiers.
+ * <p>
+ * The search API only ever returns the first 1000 repositories matching a query, so a language with more of them is
+ * crawled as disjoint shards, split in halves until each of them has at most 1000 repositories. A shard is split along
+ * its preferred partition as long as its range can be, and then along the other one, so that a single day or star
+ * count with too many repositories can still be split.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public final class SearchShard
+{
+  /**
+   * The qualifier the shards of a crawl are preferably split along.
+   */
+  public enum Partition
+  {
+    CREATED,
+    STARS;
+
+    /**
+     * Parses the name of a partition, case insensitively.
+     *
+     * @throws IllegalArgumentException if it isn't the name of a partition
+     */
+    public static Partition parse(String name)
+    {
+      return valueOf(name.trim().toUpperCase());
+    }
+  }
+
+  // the oldest repositories on GitHub were created ahead of its launch in 2008
+  public static final LocalDate FIRST_CREATED = LocalDate.of(2007, 10, 1);
+
+  private final String language;
+  private final LocalDate createdFrom;
+  private final LocalDate createdTo;
+  private final int starsFrom;
+  private final int starsTo;
+
+  public SearchShard(String language, LocalDate createdFrom, LocalDate createdTo, int starsFrom, int starsTo)
+  {
+    this.language = language;
+    this.createdFrom = createdFrom;
+    this.createdTo = createdTo;
+    this.starsFrom = starsFrom;
+    this.starsTo = starsTo;
+  }
+
+  /**
+   * The shard of all the repositories of a language created up to the given date, with at most maxStars stars.
+   */
+  public static SearchShard all(String language, LocalDate createdTo, int maxStars)
+  {
+    return new SearchShard(language, FIRST_CREATED, createdTo, 0, maxStars);
+  }
+
+  public String getLanguage()
+  {
+    return language;
+  }
+
+  /**
+   * The search query of the shard, e.g. "language:java created:2007-10-01..2026-10-17 stars:0..1000000".
+   */
+  public String getQuery()
+  {
+    return languageQualifier(language) + " created:" + createdFrom + ".." + createdTo + " stars:" + starsFrom + ".." +
+           starsTo;
+  }
+
+  /**
+   * The language qualifier of a search query, e.g. language:java, quoting the languages with a space in their name.
+   */
+  public static String languageQualifier(String language)
+  {
+    return "language:" + (language.contains(" ") ? "\"" + language + "\"" : language);
+  }
+
+  public boolean canSplit()
+  {
+    return createdFrom.isBefore(createdTo) || starsFrom < starsTo;
+  }
+
+  /**
+   * Splits the shard in two halves, in the order they are crawled, or returns no shards if it can't be split. The
+   * most starred half is crawled first, so that the most starred repositories are found first, and the earliest
+   * created half is crawled first, so that the repositories are found in the order they were created.
+   */
+  public List<SearchShard> split(Partition partition)
+  {
+    boolean byStars = partition == Partition.STARS ? starsFrom < starsTo : !createdFrom.isBefore(createdTo);
+    if (byStars && starsFrom < starsTo) {
+      int middle = starsFrom + (starsTo - starsFrom) / 2;
+      return Arrays.asList(new SearchShard(language, createdFrom, createdTo, middle + 1, starsTo),
+                           new SearchShard(language, createdFrom, createdTo, starsFrom, middle));
+    }
+    if (createdFrom.isBefore(createdTo)) {
+      LocalDate middle = LocalDate.ofEpochDay(createdFrom.toEpochDay() +
+                                              (createdTo.toEpochDay() - createdFrom.toEpochDay()) / 2);
+      return Arrays.asList(new SearchShard(language, createdFrom, middle, starsFrom, starsTo),
+                           new SearchShard(language, middle.plusDays(1), createdTo, starsFrom, starsTo));
+    }
+    return Collections.emptyList();
+  }
+
+  public JsonObject toJson()
+  {
+    return new JsonObject().put("created", createdFrom + ".." + createdTo)
+                           .put("stars", starsFrom + ".." + starsTo);
+  }
+
+  /**
+   * Decodes a shard of the given language from its JSON form.
+   *
+   * @throws IllegalArgumentException if it isn't a valid shard
+   */
+  public static SearchShard fromJson(String language, JsonObject json)
+  {
+    try {
+      String[] created = json.getString("created").split("\\.\\.");
+      String[] stars = json.getString("stars").split("\\.\\.");
+      return new SearchShard(language,
+                             LocalDate.parse(created[0]),
+                             LocalDate.parse(created[1]),
+                             Integer.parseInt(stars[0]),
+                             Integer.parseInt(stars[1]));
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Invalid shard : " + json.encode(), e);
+    }
+  }
+
+  @Override
+  public boolean equals(Object o)
+  {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof SearchShard)) {
+      return false;
+    }
+    SearchShard other = (SearchShard)o;
+    return starsFrom == other.starsFrom && starsTo == other.starsTo && language.equals(other.language) &&
+           createdFrom.equals(other.createdFrom) && createdTo.equals(other.createdTo);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return Objects.hash(language, createdFrom, createdTo, starsFrom, starsTo);
+  }
+
+  @Override
+  public String toString()
+  {
+    return getQuery();
+  }
+}
@@ -0,0 +1,98 @@
+package server.api.verticle;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deduplicates concurrent asynchronous calls sharing the same key, shared by all the verticles in the JVM.
+ * <p>
+ * The first caller for a key makes the call, and any caller arriving while it is still in flight waits for its result
+ * (or failure) instead of making its own. Each waiter is called back on the Vert.x context it made its request from.
+ *
+ * @author Nathan
+ * Created : 17/10/2026
+ */
+public class SingleFlight<T> implements Shareable
+{
+  private static final String SHARED_MAP_NAME = "server.api.singleFlight";
+
+  private final Map<String, List<Waiter<T>>> inFlight = new HashMap<>();
+
+  /**
+   * Gets the instance with the given name shared by all the verticles of the given Vert.x instance.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> SingleFlight<T> getShared(Vertx vertx, String name)
+  {
+    LocalMap<String, SingleFlight<?>> map = vertx.sharedData().getLocalMap(SHARED_MAP_NAME);
+    return (SingleFlight<T>)map.computeIfAbsent(name, key -> new SingleFlight<T>());
+  }
+
+  /**
+   * Makes the call for the given key unless one is already in flight, and calls back the handler with its result.
+   */
+  public void execute(String key, Handler<Future<T>> call, Handler<AsyncResult<T>> handler)
+  {
+    Waiter<T> waiter = new Waiter<>(Vertx.currentContext(), handler);
+    synchronized (this) {
+      List<Waiter<T>> waiters = inFlight.get(key);
+      if (waiters != null) {
+        waiters.add(waiter);
+        return;
+      }
+      waiters = new ArrayList<>();
+      waiters.add(waiter);
+      inFlight.put(key, waiters);
+    }
+    Future<T> future = Future.future();
+    future.setHandler(result -> complete(key, result));
+    try {
+      call.handle(future);
+    } catch (Exception e) {
+      future.tryFail(e);
+    }
+  }
+
+  public synchronized int getInFlightCount()
+  {
+    return inFlight.size();
+  }
+
+  private void complete(String key, AsyncResult<T> result)
+  {
+    List<Waiter<T>> waiters;
+    synchronized (this) {
+      waiters = inFlight.remove(key);
+    }
+    Context current = Vertx.currentContext();
+    for (Waiter<T> waiter : waiters) {
+      if (waiter.context == null || waiter.context == current) {
+        waiter.handler.handle(result);
+      } else {
+        waiter.context.runOnContext(v -> waiter.handler.handle(result));
+      }
+    }
+  }
+
+  private static class Waiter<T>
+  {
+    private final Context context;
+    private final Handler<AsyncResult<T>> handler;
+
+    private Waiter(Context context, Handler<AsyncResult<T>> handler)
+    {
+      this.context = context;
+      this.handler = handler;
+    }
+  }
+}
@@ -0,0 +1,347 @@
+package server.api;
+
+import io.vertx.core.Context;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import server.api.cache.ProjectInfoCache;
+import server.api.model.ProjectInfo;
+import server.api.model.ProjectInfoList;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+@RunWith(VertxUnitRunner.class)
+public class MainApiVerticleTest
+{
+  private Vertx vertx = Vertx.vertx();
+
+  @After
+  public void tearDown(TestContext context)
+  {
+    vertx.close(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void testDeploysConfiguredInstances(TestContext context) throws Exception
+  {
+    int port = freePort();
+    JsonObject config = new JsonObject().put("http", new JsonObject().put("port", port)
+                                                                     .put("host", "localhost")
+                                                                     .put("instances", 3))
+                                        .put("projectsApi", new JsonObject().put("instances", 2));
+    vertx.deployVerticle(ServedByApiVerticle.class.getName(),
+                         new DeploymentOptions().setConfig(config),
+                         context.asyncAssertSuccess(id -> {
+                           // the main deployment, plus the ProjectsApiVerticle, prefetch and HTTP server deployments
+                           context.assertEquals(4, vertx.deploymentIDs().size());
+                           // a new connection for each request, so that each instance serves some of them
+                           HttpClient client = vertx.createHttpClient(new HttpClientOptions().setKeepAlive(false));
+                           Set<String> servedBy = new HashSet<>();
+                           Async async = context.async(6);
+                           for (int i = 0; i < 6; i++) {
+                             client.getNow(port, "localhost", "/api/projects/findByLang?lang=", response -> {
+                               context.assertEquals(400, response.statusCode());
+                               servedBy.add(response.getHeader(ServedByApiVerticle.SERVED_BY));
+                               if (async.count() == 1) {
+                                 // the instances serve on event loops of their own
+                                 context.assertTrue(servedBy.size() > 1, servedBy.toString());
+                               }
+                               async.countDown();
+                             });
+                           }
+                         }));
+  }
+
+  /**
+   * Tells which event loop thread served each request.
+   */
+  public static class ServedByApiVerticle extends MainApiVerticle
+  {
+    static final String SERVED_BY = "X-Served-By";
+
+    @Override
+    public void init(Vertx vertx, Context context)
+    {
+      super.init(vertx, context);
+      router.route().handler(routingContext -> {
+        routingContext.response().putHeader(SERVED_BY, Thread.currentThread().getName());
+        routingContext.next();
+      });
+    }
+  }
+
+  @Test
+  public void testDirectDispatchServesSameResponse(TestContext context) throws Exception
+  {
+    int[] ports = deployEventBusAndDirect(context);
+    HttpClient client = vertx.createHttpClient();
+    Async async = context.async(2);
+    for (String query : new String[]{"lang=Java", "lang=Java&pretty=true"}) {
+      client.getNow(ports[0], "localhost", "/api/projects/findByLang?" + query, eventBusResponse -> {
+        eventBusResponse.bodyHandler(eventBusBody -> {
+          client.getNow(ports[1], "localhost", "/api/projects/findByLang?" + query, directResponse -> {
+            context.assertEquals(200, directResponse.statusCode());
+            context.assertEquals(eventBusResponse.statusCode(), directResponse.statusCode());
+            directResponse.bodyHandler(directBody -> {
+              context.assertEquals(eventBusBody.toString(), directBody.toString());
+              context.assertEquals(2, new JsonArray(directBody.toString()).size());
+              // compact unless pretty printing is asked for
+              context.assertEquals(query.contains("pretty"), directBody.toString().contains("\n"));
+              async.countDown();
+            });
+          });
+        });
+      });
+    }
+  }
+
+  @Test
+  public void testDirectDispatchServesGzippedResponse(TestContext context) throws Exception
+  {
+    int[] ports = deployEventBusAndDirect(context);
+    Async async = context.async();
+    vertx.createHttpClient()
+         .get(ports[1], "localhost", "/api/projects/findByLang?lang=Java", response -> {
+           context.assertEquals("gzip", response.getHeader("Content-Encoding"));
+           response.bodyHandler(body -> {
+             try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body.getBytes()))) {
+               byte[] json = new byte[4096];
+               int length = in.read(json);
+               context.assertEquals(2, new JsonArray(new String(json, 0, length, "UTF-8")).size());
+             } catch (IOException e) {
+               context.fail(e);
+             }
+             async.complete();
+           });
+         })
+         .putHeader("Accept-Encoding", "gzip")
+         .end();
+  }
+
+  @Test
+  public void testDirectDispatchHonoursRefusedGzip(TestContext context) throws Exception
+  {
+    int[] ports = deployEventBusAndDirect(context);
+    Async async = context.async();
+    vertx.createHttpClient()
+         .get(ports[1], "localhost", "/api/projects/findByLang?lang=Java", response -> {
+           context.assertNull(response.getHeader("Content-Encoding"));
+           response.bodyHandler(body -> {
+             context.assertEquals(2, new JsonArray(body.toString()).size());
+             async.complete();
+           });
+         })
+         .putHeader("Accept-Encoding", "gzip;q=0, identity")
+         .end();
+  }
+
+  @Test
+  public void testCompressesResponses(TestContext context) throws Exception
+  {
+    int[] ports = deployEventBusAndDirect(context);
+    Async async = context.async();
+    // pretty printed responses have no compressed JSON kept for them, so are compressed by the HTTP server
+    vertx.createHttpClient()
+         .get(ports[1], "localhost", "/api/projects/findByLang?lang=Java&pretty=true", response -> {
+           context.assertEquals("gzip", response.getHeader("Content-Encoding"));
+           context.assertEquals("Accept-Encoding", response.getHeader("Vary"));
+           response.bodyHandler(body -> {
+             try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body.getBytes()))) {
+               byte[] json = new byte[4096];
+               int length = in.read(json);
+               context.assertEquals(2, new JsonArray(new String(json, 0, length, "UTF-8")).size());
+             } catch (IOException e) {
+               context.fail(e);
+             }
+             async.complete();
+           });
+         })
+         .putHeader("Accept-Encoding", "gzip")
+         .end();
+  }
+
+  @Test
+  public void testEventBusDispatchUncompressedByDefault(TestContext context) throws Exception
+  {
+    int[] ports = deployEventBusAndDirect(context);
+    Async async = context.async();
+    vertx.createHttpClient()
+         .get(ports[0], "localhost", "/api/projects/findByLang?lang=Java", response -> {
+           context.assertNull(response.getHeader("Content-Encoding"));
+           context.assertNull(response.getHeader("Vary"));
+           response.bodyHandler(body -> {
+             context.assertEquals(2, new JsonArray(body.toString()).size());
+             async.complete();
+           });
+         })
+         .putHeader("Accept-Encoding", "gzip")
+         .end();
+  }
+
+  @Test
+  public void testServesHttp2WithoutTls(TestContext context) throws Exception
+  {
+    int[] ports = deployEventBusAndDirect(context);
+    Async async = context.async(2);
+    // a client which knows the server supports h2c, and one upgrading to it
+    for (boolean upgrade : new boolean[]{false, true}) {
+      vertx.createHttpClient(new HttpClientOptions().setProtocolVersion(HttpVersion.HTTP_2)
+                                                    .setHttp2ClearTextUpgrade(upgrade))
+           .getNow(ports[0], "localhost", "/api/projects/findByLang?lang=Java", response -> {
+             context.assertEquals(HttpVersion.HTTP_2, response.version());
+             context.assertEquals(200, response.statusCode());
+             response.bodyHandler(body -> {
+               context.assertEquals(2, new JsonArray(body.toString()).size());
+               async.countDown();
+             });
+           });
+    }
+  }
+
+  @Test
+  public void testConditionalRequests(TestContext context) throws Exception
+  {
+    int[] ports = deployEventBusAndDirect(context);
+    HttpClient client = vertx.createHttpClient();
+    Async async = context.async(2);
+    for (int port : ports) {
+      client.getNow(port, "localhost", "/api/projects/findByLang?lang=Java", response -> {
+        String eTag = response.getHeader("ETag");
+        context.assertTrue(eTag.startsWith("W/\""), eTag);
+        context.assertTrue(response.getHeader("Last-Modified").endsWith(" GMT"));
+        response.endHandler(end -> client.get(port, "localhost", "/api/projects/findByLang?lang=Java", notModified -> {
+          context.assertEquals(304, notModified.statusCode());
+          context.assertEquals(eTag, notModified.getHeader("ETag"));
+          notModified.bodyHandler(body -> {
+            context.assertEquals(0, body.length());
+            async.countDown();
+          });
+        }).putHeader("If-None-Match", "\"other\", " + eTag).end());
+      });
+    }
+  }
+
+  @Test
+  public void testRangesAndFields(TestContext context) throws Exception
+  {
+    int[] ports = deployEventBusAndDirect(context);
+    HttpClient client = vertx.createHttpClient();
+    Async async = context.async(2);
+    String uri = "/api/projects/findByLang?lang=Java&limit=1&fields=name";
+    for (int port : ports) {
+      client.getNow(port, "localhost", uri, first -> first.bodyHandler(firstBody -> {
+        context.assertEquals("[{\"name\":\"a\"}]", firstBody.toString());
+        String cursor = first.getHeader("X-Next-Cursor");
+        context.assertNotNull(cursor);
+        client.getNow(port, "localhost", uri + "&cursor=" + cursor, second -> second.bodyHandler(secondBody -> {
+          context.assertEquals("[{\"name\":\"b\"}]", secondBody.toString());
+          context.assertNull(second.getHeader("X-Next-Cursor"));
+          client.getNow(port, "localhost", "/api/projects/findByLang?lang=Java&limit=0", invalid -> {
+            context.assertEquals(400, invalid.statusCode());
+            async.countDown();
+          });
+        }));
+      }));
+    }
+  }
+
+  @Test
+  public void testFindByLangsBatch(TestContext context) throws Exception
+  {
+    int[] ports = deployEventBusAndDirect(context);
+    HttpClient client = vertx.createHttpClient();
+    Async async = context.async();
+    String uri = "/api/projects/findByLangs?fields=id";
+    client.post(ports[0], "localhost", uri, response -> {
+      context.assertEquals(200, response.statusCode());
+      context.assertEquals("application/x-ndjson", response.getHeader("Content-Type"));
+      response.bodyHandler(body -> {
+        // java is only found once, however it is spelled
+        context.assertEquals("{\"lang\":\"java\",\"projects\":[{\"id\":1},{\"id\":2}]}\n", body.toString());
+        client.post(ports[0], "localhost", uri, invalid -> {
+          context.assertEquals(400, invalid.statusCode());
+          async.complete();
+        }).end("{\"lang\":\"java\"}");
+      });
+    }).putHeader("Accept", "application/x-ndjson").end("[\"java\", \"Java\"]");
+  }
+
+  @Test
+  public void testServesMetrics(TestContext context) throws Exception
+  {
+    int[] ports = deployEventBusAndDirect(context);
+    HttpClient client = vertx.createHttpClient();
+    Async async = context.async();
+    client.getNow(ports[0], "localhost", "/api/projects/findByLang?lang=Java", projectsResponse -> {
+      context.assertEquals(200, projectsResponse.statusCode());
+      projectsResponse.endHandler(end -> client.getNow(ports[0], "localhost", "/metrics", response -> {
+        context.assertEquals(200, response.statusCode());
+        context.assertTrue(response.getHeader("Content-Type").startsWith("text/plain"));
+        response.bodyHandler(body -> {
+          String metrics = body.toString();
+          context.assertTrue(metrics.contains("http_findByLang_count 1.0"), metrics);
+          context.assertTrue(metrics.contains("projectsApi_findByLang_service_count 1.0"), metrics);
+          context.assertTrue(metrics.contains("projectsApi_findByLang_encode{quantile=\"0.99\",}"), metrics);
+          context.assertTrue(metrics.contains("cache_hits 1.0"), metrics);
+          context.assertTrue(metrics.contains("github_rateLimit_remaining "), metrics);
+          context.assertTrue(metrics.contains("github_circuitBreaker_state 0.0"), metrics);
+          async.complete();
+        });
+      }));
+    });
+  }
+
+  /**
+   * Deploys the service with a cached result for Java, on one port through the event bus and on another with direct
+   * dispatch, returning both ports.
+   */
+  private int[] deployEventBusAndDirect(TestContext context) throws IOException
+  {
+    ProjectInfoCache.getShared(vertx, new JsonObject())
+                    .put("java", new ProjectInfoList(Arrays.asList(new ProjectInfo(1L, "a", "https://github.com/o/a", "o"),
+                                                                   new ProjectInfo(2L, "b", "https://github.com/o/b", "o")),
+                                                     false));
+    int[] ports = new int[]{freePort(), freePort()};
+    Async deployed = context.async(2);
+    vertx.deployVerticle(MainApiVerticle.class.getName(),
+                         new DeploymentOptions().setConfig(singleInstanceConfig(ports[0], false)),
+                         context.asyncAssertSuccess(id -> deployed.countDown()));
+    vertx.deployVerticle(MainApiVerticle.class.getName(),
+                         new DeploymentOptions().setConfig(singleInstanceConfig(ports[1], true)),
+                         context.asyncAssertSuccess(id -> deployed.countDown()));
+    deployed.awaitSuccess(10000);
+    return ports;
+  }
+
+  private static JsonObject singleInstanceConfig(int port, boolean directDispatch)
+  {
+    return new JsonObject().put("http", new JsonObject().put("port", port)
+                                                        .put("host", "localhost")
+                                                        .put("instances", 1))
+                           .put("projectsApi", new JsonObject().put("instances", 1)
+                                                               .put("directDispatch", directDispatch));
+  }
+
+  private static int freePort() throws IOException
+  {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+}
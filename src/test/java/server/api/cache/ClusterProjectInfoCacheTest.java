@@ -0,0 +1,129 @@
+package server.api.cache;
+
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import server.api.MainLauncher;
+import server.api.model.ProjectInfo;
+import server.api.verticle.ProjectsApiImpl;
+import server.api.verticle.RateLimitGovernor;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(VertxUnitRunner.class)
+public class ClusterProjectInfoCacheTest
+{
+  private static Vertx node1;
+  private static Vertx node2;
+  private static HttpServer stubServer;
+  private static final AtomicInteger stubRequests = new AtomicInteger();
+
+  @BeforeClass
+  public static void setUp(TestContext context)
+  {
+    // two nodes of a cluster in the same JVM, which find each other over TCP, started once as joining takes a while
+    JsonObject clusterConfig = new JsonObject().put("members", new JsonArray().add("127.0.0.1"));
+    Async started = context.async(2);
+    Vertx.clusteredVertx(new VertxOptions().setClusterManager(MainLauncher.createClusterManager(clusterConfig)),
+                         context.asyncAssertSuccess(vertx -> {
+      node1 = vertx;
+      // stub of the GitHub search API, serving a single page of two projects for any language after a while
+      stubServer = node1.createHttpServer().requestHandler(request -> {
+        stubRequests.incrementAndGet();
+        JsonArray items = new JsonArray();
+        for (int id = 1; id <= 2; id++) {
+          items.add(new JsonObject().put("id", id)
+                                    .put("name", "project" + id)
+                                    .put("html_url", "https://github.com/owner/project" + id)
+                                    .put("owner", new JsonObject().put("login", "owner")));
+        }
+        node1.setTimer(200, timerId -> request.response().end(new JsonObject().put("items", items).encode()));
+      }).listen(0, context.asyncAssertSuccess(server -> started.countDown()));
+    }));
+    Vertx.clusteredVertx(new VertxOptions().setClusterManager(MainLauncher.createClusterManager(clusterConfig)),
+                         context.asyncAssertSuccess(vertx -> {
+      node2 = vertx;
+      started.countDown();
+    }));
+    started.awaitSuccess(60000);
+  }
+
+  @AfterClass
+  public static void tearDown(TestContext context)
+  {
+    node1.close(context.asyncAssertSuccess());
+    node2.close(context.asyncAssertSuccess());
+  }
+
+  private static JsonObject config()
+  {
+    return new JsonObject().put("github", new JsonObject().put("baseUrl", "http://localhost:" + stubServer.actualPort())
+                                                          .put("rateLimit", new JsonObject()
+                                                            .put("requestsPerWindow", 100)));
+  }
+
+  @Test
+  public void testLanguageSearchedByOneNode(TestContext context)
+  {
+    ProjectsApiImpl api1 = new ProjectsApiImpl(node1, config());
+    ProjectsApiImpl api2 = new ProjectsApiImpl(node2, config());
+    Future<List<ProjectInfo>> found1 = Future.future();
+    Future<List<ProjectInfo>> found2 = Future.future();
+    node1.runOnContext(v -> api1.findProjectsByLanguage("Java", found1.completer()));
+    node2.runOnContext(v -> api2.findProjectsByLanguage("java", found2.completer()));
+    Async async = context.async();
+    CompositeFuture.all(found1, found2).setHandler(context.asyncAssertSuccess(found -> {
+      context.assertEquals(2, found1.result().size());
+      context.assertEquals(found1.result(), found2.result());
+      // a single page searched, by whichever node got the lock first
+      context.assertEquals(1, stubRequests.get());
+      JsonObject stats1 = ClusterProjectInfoCache.getShared(node1, new JsonObject()).getStats();
+      JsonObject stats2 = ClusterProjectInfoCache.getShared(node2, new JsonObject()).getStats();
+      context.assertEquals(1L, stats1.getLong("sharedHits") + stats2.getLong("sharedHits"));
+      context.assertEquals(1L, stats1.getLong("shares") + stats2.getLong("shares"));
+      // and cached by both nodes
+      context.assertNotNull(ProjectInfoCache.getShared(node1, new JsonObject()).get("java"));
+      context.assertNotNull(ProjectInfoCache.getShared(node2, new JsonObject()).get("java"));
+      async.complete();
+    }));
+  }
+
+  @Test
+  public void testRateLimitQuotaSharedByNodes(TestContext context)
+  {
+    JsonObject rateLimitConfig = new JsonObject().put("requestsPerWindow", 100);
+    RateLimitGovernor governor1 = RateLimitGovernor.getShared(node1, rateLimitConfig);
+    RateLimitGovernor governor2 = RateLimitGovernor.getShared(node2, rateLimitConfig);
+    Async async = context.async();
+    // once the governors have subscribed to each other's events across the cluster
+    node1.setTimer(1000, delayId -> {
+      int remaining = governor2.getStats().getInteger("remaining");
+      long clusterAcquired = governor2.getStats().getLong("clusterAcquired");
+      for (int i = 0; i < 3; i++) {
+        governor1.acquire(context.asyncAssertSuccess());
+      }
+      node2.setPeriodic(100, timerId -> {
+        if (governor2.getStats().getLong("clusterAcquired") < clusterAcquired + 3) {
+          return;
+        }
+        node2.cancelTimer(timerId);
+        context.assertEquals(remaining - 3, governor2.getStats().getInteger("remaining"));
+        context.assertEquals(governor1.getStats().getInteger("remaining"),
+                             governor2.getStats().getInteger("remaining"));
+        async.complete();
+      });
+    });
+  }
+}
@@ -0,0 +1,42 @@
+package server.api.cache;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class LongIntHashMapTest
+{
+  @Test
+  public void testMatchesHashMap() throws Exception
+  {
+    LongIntHashMap map = new LongIntHashMap(16);
+    Map<Long, Integer> expected = new HashMap<>();
+    Random random = new Random(42);
+    for (int i = 0; i < 100000; i++) {
+      // a small range of keys, so that they collide and are removed often
+      long key = 1 + random.nextInt(5000);
+      if (random.nextInt(3) == 0) {
+        map.remove(key);
+        expected.remove(key);
+      } else {
+        map.put(key, i);
+        expected.put(key, i);
+      }
+    }
+    assertThat(map.size(), is(expected.size()));
+    for (long key = 1; key <= 5000; key++) {
+      assertThat(map.get(key, -1), is(expected.getOrDefault(key, -1)));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testKeysArePositive() throws Exception
+  {
+    new LongIntHashMap(16).put(0, 1);
+  }
+}
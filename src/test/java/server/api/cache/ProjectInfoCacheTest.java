@@ -0,0 +1,143 @@
+package server.api.cache;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import server.api.model.ProjectInfo;
+import server.api.model.ProjectInfoList;
+
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ProjectInfoCacheTest
+{
+  private static final ProjectInfoList PROJECTS = new ProjectInfoList(
+    Collections.singletonList(new ProjectInfo(3081286L, "Tetris", "https://github.com/dtrupenn/Tetris", "dtrupenn")),
+    false);
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private long now = 0;
+
+  private ProjectInfoCache createCache(JsonObject config)
+  {
+    return new ProjectInfoCache(config, () -> now);
+  }
+
+  @Test
+  public void testNormalize() throws Exception
+  {
+    assertThat(ProjectInfoCache.normalize(" Java "), is("java"));
+  }
+
+  @Test
+  public void testFreshStaleAndExpired() throws Exception
+  {
+    ProjectInfoCache cache = createCache(new JsonObject().put("ttlSeconds", 10).put("staleSeconds", 20));
+    assertThat(cache.get("java"), is(nullValue()));
+    cache.put("java", PROJECTS);
+
+    now = 9_999;
+    ProjectInfoCache.Entry entry = cache.get("java");
+    assertThat(entry.getProjects(), is(PROJECTS));
+    assertThat(entry.isStale(), is(false));
+
+    now = 10_000;
+    assertThat(cache.get("java").isStale(), is(true));
+
+    now = 30_000;
+    assertThat(cache.get("java"), is(nullValue()));
+    assertThat(cache.getLastKnown("java").getProjects(), is(PROJECTS));
+
+    JsonObject stats = cache.getStats();
+    assertThat(stats.getLong("hits"), is(1L));
+    assertThat(stats.getLong("staleHits"), is(1L));
+    assertThat(stats.getLong("misses"), is(2L));
+    assertThat(stats.getInteger("entries"), is(1));
+  }
+
+  @Test
+  public void testPartialAlwaysStale() throws Exception
+  {
+    ProjectInfoCache cache = createCache(new JsonObject());
+    cache.put("java", new ProjectInfoList(PROJECTS, true));
+    assertThat(cache.get("java").isStale(), is(true));
+  }
+
+  @Test
+  public void testSingleRefresh() throws Exception
+  {
+    ProjectInfoCache cache = createCache(new JsonObject());
+    assertThat(cache.tryStartRefresh("java"), is(false));
+    cache.put("java", PROJECTS);
+    assertThat(cache.tryStartRefresh("java"), is(true));
+    assertThat(cache.tryStartRefresh("java"), is(false));
+    cache.refreshFailed("java");
+    assertThat(cache.tryStartRefresh("java"), is(true));
+    cache.put("java", PROJECTS);
+    assertThat(cache.tryStartRefresh("java"), is(true));
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEvictedByEntries() throws Exception
+  {
+    ProjectInfoCache cache = createCache(new JsonObject().put("maxEntries", 2));
+    cache.put("java", PROJECTS);
+    cache.put("rust", PROJECTS);
+    cache.get("java");
+    cache.put("go", PROJECTS);
+    assertThat(cache.get("rust"), is(nullValue()));
+    assertThat(cache.get("java"), is(notNullValue()));
+    assertThat(cache.get("go"), is(notNullValue()));
+    assertThat(cache.getStats().getLong("evictions"), is(1L));
+  }
+
+  @Test
+  public void testEvictedByBytes() throws Exception
+  {
+    ProjectInfoCache cache = createCache(new JsonObject().put("maxBytes", 300));
+    cache.put("java", PROJECTS);
+    cache.put("rust", PROJECTS);
+    assertThat(cache.get("java"), is(nullValue()));
+    assertThat(cache.get("rust"), is(notNullValue()));
+    assertThat(cache.getStats().getInteger("entries"), is(1));
+  }
+
+  @Test
+  public void testWarmedFromStore() throws Exception
+  {
+    Path path = folder.getRoot().toPath().resolve("projects.store");
+    JsonObject config = new JsonObject().put("ttlSeconds", 10).put("staleSeconds", 20).put("maxEntries", 1);
+    try (ProjectInfoStore store = new ProjectInfoStore(path)) {
+      ProjectInfoCache cache = new ProjectInfoCache(config, () -> now, store, Runnable::run);
+      cache.put("java", PROJECTS);
+      now = 5_000;
+      cache.put("rust", PROJECTS);
+      // evicted from memory, but loaded back from the store
+      assertThat(cache.get("java").getFetchedAt(), is(0L));
+      assertThat(cache.getStats().getLong("storeLoads"), is(1L));
+    }
+
+    // after a restart, the projects are served with the time they were fetched
+    now = 12_000;
+    try (ProjectInfoStore store = new ProjectInfoStore(path)) {
+      ProjectInfoCache cache = new ProjectInfoCache(config, () -> now, store, Runnable::run);
+      ProjectInfoCache.Entry java = cache.get("java");
+      assertThat(java.getProjects(), is(PROJECTS));
+      assertThat(java.isStale(), is(true));
+      assertThat(cache.get("rust").isStale(), is(false));
+      assertThat(cache.get("go"), is(nullValue()));
+
+      now = 40_000;
+      assertThat(cache.get("java"), is(nullValue()));
+      assertThat(cache.getLastKnown("java").getProjects(), is(PROJECTS));
+    }
+  }
+}
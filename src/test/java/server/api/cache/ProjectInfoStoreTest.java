@@ -0,0 +1,203 @@
+package server.api.cache;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import server.api.model.ProjectInfo;
+import server.api.model.ProjectInfoList;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ProjectInfoStoreTest
+{
+  private static final ProjectInfoList PROJECTS = new ProjectInfoList(
+    Arrays.asList(new ProjectInfo(3081286L, "Tetris", "https://github.com/dtrupenn/Tetris", "dtrupenn"),
+                  new ProjectInfo(21663285L, "chapel", "https://chapel-lang.org", "chapel-lang"),
+                  new ProjectInfo(null, "Ünïcödé ☃", null, "owner")),
+    true,
+    Arrays.asList("\"etag1\"", "W/\"etag2\""));
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testAppendAndLoad() throws Exception
+  {
+    try (ProjectInfoStore store = new ProjectInfoStore(folder.getRoot().toPath().resolve("projects.store"))) {
+      assertThat(store.load("java"), is(nullValue()));
+      store.append("java", PROJECTS, 1234L);
+      ProjectInfoStore.Record record = store.load("java");
+      assertThat(record.getFetchedAt(), is(1234L));
+      assertThat(record.getProjects(), is(PROJECTS));
+      assertThat(record.getProjects().isPartial(), is(true));
+      assertThat(record.getProjects().getPageETags(), is(PROJECTS.getPageETags()));
+    }
+  }
+
+  @Test
+  public void testLoadDoesNotWaitForWrites() throws Exception
+  {
+    try (ProjectInfoStore store = new ProjectInfoStore(folder.getRoot().toPath().resolve("projects.store"))) {
+      store.append("java", PROJECTS, 1234L);
+      // held by appends and compactions while they write the file
+      synchronized (store) {
+        CompletableFuture<ProjectInfoStore.Record> loaded = CompletableFuture.supplyAsync(() -> store.load("java"));
+        assertThat(loaded.get(5, TimeUnit.SECONDS).getProjects(), is(PROJECTS));
+      }
+    }
+  }
+
+  @Test
+  public void testReopenKeepsLatestRecords() throws Exception
+  {
+    Path path = folder.getRoot().toPath().resolve("projects.store");
+    ProjectInfoList rust = new ProjectInfoList(PROJECTS.subList(0, 1), false);
+    try (ProjectInfoStore store = new ProjectInfoStore(path)) {
+      store.append("java", PROJECTS, 1000L);
+      store.append("rust", rust, 1000L);
+      store.append("java", rust, 2000L);
+      // fetched before the stored ones, so ignored
+      store.append("rust", PROJECTS, 500L);
+    }
+    try (ProjectInfoStore store = new ProjectInfoStore(path)) {
+      assertThat(store.size(), is(2));
+      assertThat(store.load("java").getFetchedAt(), is(2000L));
+      assertThat(store.load("java").getProjects(), is(rust));
+      assertThat(store.load("rust").getProjects(), is(rust));
+      assertThat(store.load("rust").getProjects().isPartial(), is(false));
+    }
+  }
+
+  @Test
+  public void testTruncatesIncompleteRecord() throws Exception
+  {
+    Path path = folder.getRoot().toPath().resolve("projects.store");
+    long complete;
+    try (ProjectInfoStore store = new ProjectInfoStore(path)) {
+      store.append("java", PROJECTS, 1000L);
+      complete = store.getFileBytes();
+      store.append("rust", PROJECTS, 1000L);
+    }
+    try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+      file.setLength(file.length() - 10);
+    }
+    try (ProjectInfoStore store = new ProjectInfoStore(path)) {
+      assertThat(store.getFileBytes(), is(complete));
+      assertThat(store.load("java").getProjects(), is(PROJECTS));
+      assertThat(store.load("rust"), is(nullValue()));
+      store.append("rust", PROJECTS, 1000L);
+      assertThat(store.load("rust").getProjects(), is(PROJECTS));
+    }
+  }
+
+  @Test
+  public void testIgnoresCorruptRecord() throws Exception
+  {
+    Path path = folder.getRoot().toPath().resolve("projects.store");
+    try (ProjectInfoStore store = new ProjectInfoStore(path)) {
+      store.append("java", PROJECTS, 1000L);
+    }
+    try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+      file.seek(file.length() - 3);
+      file.write('x');
+    }
+    try (ProjectInfoStore store = new ProjectInfoStore(path)) {
+      assertThat(store.load("java"), is(nullValue()));
+    }
+  }
+
+  @Test
+  public void testCompactsSupersededRecords() throws Exception
+  {
+    List<ProjectInfo> projects = new ArrayList<>();
+    for (long id = 0; id < 1000; id++) {
+      projects.add(new ProjectInfo(id, "project" + id, "https://github.com/owner/project" + id, "owner"));
+    }
+    ProjectInfoList java = new ProjectInfoList(projects, false);
+    try (ProjectInfoStore store = new ProjectInfoStore(folder.getRoot().toPath().resolve("projects.store"))) {
+      store.append("rust", PROJECTS, 0L);
+      store.append("java", java, 0L);
+      long recordBytes = store.getFileBytes();
+      // the url of owner and name is left out, so a project takes about a third of its JSON
+      assertTrue(recordBytes < java.toJson().length() / 3);
+      for (long fetchedAt = 1; fetchedAt < 200; fetchedAt++) {
+        store.append("java", java, fetchedAt);
+      }
+      assertTrue(store.getFileBytes() <= 2 * recordBytes + 1024 * 1024);
+      assertThat(store.load("java").getFetchedAt(), is(199L));
+      assertThat(store.load("java").getProjects(), is(java));
+      assertThat(store.load("rust").getProjects(), is(PROJECTS));
+
+      store.compact();
+      assertThat(store.getFileBytes(), is(recordBytes));
+      assertThat(store.load("java").getProjects(), is(java));
+    }
+  }
+
+  @Test
+  public void testLoadsRecordsAppendedSinceMapped() throws Exception
+  {
+    Path path = folder.getRoot().toPath().resolve("projects.store");
+    // mapped again every few records
+    try (ProjectInfoStore store = new ProjectInfoStore(path, 512, Long.MAX_VALUE)) {
+      for (int i = 0; i < 20; i++) {
+        store.append("language" + i, PROJECTS, i);
+        assertThat(store.load("language" + i).getProjects(), is(PROJECTS));
+        assertThat(store.getFileBytes(), is(Files.size(path)));
+      }
+      for (int i = 0; i < 20; i++) {
+        assertThat(store.load("language" + i).getFetchedAt(), is((long)i));
+      }
+    }
+  }
+
+  @Test
+  public void testRejectsRecordsBeyondMaxFileBytes() throws Exception
+  {
+    try (ProjectInfoStore store = new ProjectInfoStore(folder.getRoot().toPath().resolve("projects.store"),
+                                                       1024 * 1024,
+                                                       1024)) {
+      // superseded records are compacted to make room for more
+      for (long fetchedAt = 0; fetchedAt < 100; fetchedAt++) {
+        store.append("java", PROJECTS, fetchedAt);
+      }
+      assertThat(store.load("java").getFetchedAt(), is(99L));
+      // but the latest ones aren't
+      int stored = 0;
+      try {
+        for (; stored < 100; stored++) {
+          store.append("language" + stored, PROJECTS, 0L);
+        }
+        fail();
+      } catch (IOException e) {
+        assertTrue(store.getFileBytes() <= 1024);
+      }
+      assertThat(store.size(), is(stored + 1));
+      assertThat(store.load("language0").getProjects(), is(PROJECTS));
+    }
+  }
+
+  @Test
+  public void testEmptyProjects() throws Exception
+  {
+    try (ProjectInfoStore store = new ProjectInfoStore(folder.getRoot().toPath().resolve("dir/projects.store"))) {
+      store.append("cobol", new ProjectInfoList(Collections.emptyList(), false), 1000L);
+      assertThat(store.load("cobol").getProjects().size(), is(0));
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package server.api.cache;
+
+import org.junit.Test;
+import server.api.model.ProjectInfo;
+import server.api.model.ProjectInfoIndex;
+import server.api.model.ProjectInfoList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ProjectTableTest
+{
+  private static final ProjectInfo TETRIS =
+    new ProjectInfo(3081286L, "Tetris", "https://github.com/dtrupenn/Tetris", "dtrupenn");
+  private static final ProjectInfo TETROS =
+    new ProjectInfo(68911683L, "tetros", "https://github.com/daniel-e/tetros", "daniel-e");
+  private static final ProjectInfo MOVED =
+    new ProjectInfo(5L, "ünïcode", "https://example.com/moved", "dtrupenn");
+
+  @Test
+  public void testCompactsProjects() throws Exception
+  {
+    ProjectTable table = new ProjectTable();
+    List<ProjectInfo> projects = Arrays.asList(TETRIS, TETROS, MOVED);
+    ProjectTable.CompactProjects compact = table.compact(projects);
+    assertThat(compact, is(projects));
+    // projects held by more than one list are only held once, and owners are interned
+    assertThat(table.compact(Arrays.asList(TETROS, TETRIS)), is(Arrays.asList(TETROS, TETRIS)));
+    assertThat(table.getStats().getInteger("projects"), is(3));
+    assertThat(table.getStats().getInteger("owners"), is(2));
+    // only the url that isn't derived from the owner and name is kept
+    assertThat(table.getStats().getInteger("otherUrls"), is(1));
+  }
+
+  @Test
+  public void testProjectsWithoutAllValuesNotCompacted() throws Exception
+  {
+    ProjectTable table = new ProjectTable();
+    assertThat(table.compact(Arrays.asList(TETRIS, new ProjectInfo(1L, "name", null, null))), is(nullValue()));
+    assertThat(table.compact(Collections.singletonList(new ProjectInfo(null, "name", null, null))), is(nullValue()));
+    assertThat(table.compact(Collections.singletonList(new ProjectInfo(0L, "a", "b", "c"))), is(nullValue()));
+  }
+
+  @Test
+  public void testProjectsFoundAgainInNewSlot() throws Exception
+  {
+    ProjectTable table = new ProjectTable();
+    ProjectTable.CompactProjects java = table.compact(Arrays.asList(TETRIS, TETROS));
+    ProjectInfo renamed = new ProjectInfo(TETRIS.id, "Tetris2", "https://github.com/dtrupenn/Tetris2", "dtrupenn");
+    ProjectTable.CompactProjects crawled = table.compact(Collections.singletonList(renamed));
+    assertThat(crawled.get(0), is(renamed));
+    // the list compacted before keeps the project it was compacted with
+    assertThat(java.get(0), is(TETRIS));
+    assertThat(table.getStats().getInteger("projects"), is(3));
+    // and the renamed project is found by its id once the old one is freed
+    table.sweep(Collections.singletonList(crawled));
+    assertThat(table.getStats().getInteger("projects"), is(1));
+    assertThat(table.getStats().getInteger("lists"), is(1));
+    assertThat(table.compact(Collections.singletonList(renamed)), is(Collections.singletonList(renamed)));
+    assertThat(table.getStats().getInteger("projects"), is(1));
+  }
+
+  @Test
+  public void testRenamedProjectKeepsListsConsistent() throws Exception
+  {
+    ProjectTable table = new ProjectTable();
+    ProjectInfoList java = new ProjectInfoList(new ArrayList<>(Arrays.asList(TETRIS, TETROS)), false);
+    ProjectInfoList rust = new ProjectInfoList(new ArrayList<>(Collections.singletonList(TETRIS)), false);
+    java.replaceProjects(table.compact(java));
+    rust.replaceProjects(table.compact(rust));
+    String json = java.toJson().toString();
+    String eTag = java.getETag();
+
+    ProjectInfo renamed = new ProjectInfo(TETRIS.id, "Tetris2", "https://github.com/dtrupenn/Tetris2", "dtrupenn");
+    ProjectInfoList crawled = new ProjectInfoList(new ArrayList<>(Collections.singletonList(renamed)), false);
+    crawled.replaceProjects(table.compact(crawled));
+    assertThat(crawled, is(Collections.singletonList(renamed)));
+
+    // the lists holding the project before it was renamed, their encodings, ranges and indexes all agree
+    assertThat(java, is(Arrays.asList(TETRIS, TETROS)));
+    assertThat(java.toJson().toString(), is(json));
+    assertThat(java.getETag(), is(eTag));
+    assertThat(java.slice(0, 1), is(Collections.singletonList(TETRIS)));
+    assertThat(java.getIndex().select(null, "tetris", null, ProjectInfoIndex.Order.FOUND),
+               is(Collections.singletonList(TETRIS)));
+    assertThat(rust, is(Collections.singletonList(TETRIS)));
+  }
+
+  @Test
+  public void testSweepFreesProjectsNoLongerHeld() throws Exception
+  {
+    ProjectTable table = new ProjectTable();
+    ProjectTable.CompactProjects held = table.compact(Arrays.asList(TETRIS, MOVED));
+    List<ProjectInfo> others = new ArrayList<>();
+    for (long id = 100; id < 200; id++) {
+      others.add(new ProjectInfo(id, "project" + id, "https://github.com/owner" + id + "/project" + id, "owner" + id));
+    }
+    table.compact(others);
+    assertThat(table.getStats().getInteger("projects"), is(102));
+    table.sweep(Collections.singletonList(held));
+    assertThat(table.getStats().getInteger("projects"), is(2));
+    assertThat(table.getStats().getInteger("owners"), is(1));
+    assertThat(held, is(Arrays.asList(TETRIS, MOVED)));
+    // the freed slots are reused
+    assertThat(table.compact(Collections.singletonList(TETROS)), is(Collections.singletonList(TETROS)));
+    assertThat(held, is(Arrays.asList(TETRIS, MOVED)));
+  }
+
+  @Test
+  public void testCompactedListKeepsEncoding() throws Exception
+  {
+    ProjectInfoList projects = new ProjectInfoList(new ArrayList<>(Arrays.asList(TETRIS, TETROS)), false);
+    String json = projects.toJson().toString();
+    projects.replaceProjects(new ProjectTable().compact(projects));
+    assertThat(projects, is(Arrays.asList(TETRIS, TETROS)));
+    assertThat(projects.toJson().toString(), is(json));
+    assertThat(projects.slice(1, 1), is(Collections.singletonList(TETROS)));
+  }
+
+  @Test
+  public void testReadsDoNotWaitForCompaction() throws Exception
+  {
+    ProjectTable table = new ProjectTable();
+    ProjectTable.CompactProjects java = table.compact(Arrays.asList(TETRIS, TETROS));
+    // held by compactions and sweeps while they write the table
+    synchronized (table) {
+      CompletableFuture<ProjectInfo> read = CompletableFuture.supplyAsync(() -> java.get(1));
+      assertThat(read.get(5, TimeUnit.SECONDS), is(TETROS));
+    }
+    // a sweep compacts the names and owners of the projects still held into new arrays, which they are then read from
+    table.compact(Collections.singletonList(MOVED));
+    table.sweep(Collections.singletonList(java));
+    assertThat(java, is(Arrays.asList(TETRIS, TETROS)));
+  }
+}
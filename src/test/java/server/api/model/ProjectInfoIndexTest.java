@@ -0,0 +1,81 @@
+package server.api.model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class ProjectInfoIndexTest
+{
+  private static final List<ProjectInfo> PROJECTS =
+    Arrays.asList(new ProjectInfo(5L, "vertx-web", "https://github.com/vert-x3/vertx-web", "vert-x3"),
+                  new ProjectInfo(2L, "Tetris", "https://github.com/dtrupenn/Tetris", "dtrupenn"),
+                  new ProjectInfo(4L, "vertx-core", "https://github.com/eclipse/vertx-core", "eclipse"),
+                  new ProjectInfo(null, "no id", null, "o"),
+                  new ProjectInfo(1L, "Vertx-Examples", "https://github.com/Vert-x3/Vertx-Examples", "Vert-x3"),
+                  new ProjectInfo(3L, "web-starter", "https://github.com/vert-x3/web-starter", "vert-x3"));
+
+  private static final ProjectInfoList LIST = new ProjectInfoList(PROJECTS, true);
+
+  private static List<String> names(ProjectInfoList projects)
+  {
+    return projects.stream().map(project -> project.name).collect(Collectors.toList());
+  }
+
+  @Test
+  public void testIndexIsKept() throws Exception
+  {
+    assertThat(LIST.getIndex(), is(sameInstance(LIST.getIndex())));
+  }
+
+  @Test
+  public void testSelectByOwner() throws Exception
+  {
+    ProjectInfoIndex index = LIST.getIndex();
+    assertThat(names(index.select("VERT-X3", null, null, ProjectInfoIndex.Order.FOUND)),
+               is(Arrays.asList("vertx-web", "Vertx-Examples", "web-starter")));
+    assertThat(index.select("nobody", null, null, ProjectInfoIndex.Order.FOUND).isEmpty(), is(true));
+  }
+
+  @Test
+  public void testSelectByName() throws Exception
+  {
+    ProjectInfoIndex index = LIST.getIndex();
+    assertThat(names(index.select(null, "VERTX-", null, ProjectInfoIndex.Order.FOUND)),
+               is(Arrays.asList("vertx-web", "vertx-core", "Vertx-Examples")));
+    assertThat(names(index.select(null, null, "WEB", ProjectInfoIndex.Order.FOUND)),
+               is(Arrays.asList("vertx-web", "web-starter")));
+    assertThat(index.select(null, "zz", null, ProjectInfoIndex.Order.FOUND).isEmpty(), is(true));
+  }
+
+  @Test
+  public void testSort() throws Exception
+  {
+    ProjectInfoIndex index = LIST.getIndex();
+    assertThat(names(index.select(null, null, null, ProjectInfoIndex.Order.ID)),
+               is(Arrays.asList("Vertx-Examples", "Tetris", "web-starter", "vertx-core", "vertx-web", "no id")));
+    assertThat(names(index.select(null, null, null, ProjectInfoIndex.Order.NAME)),
+               is(Arrays.asList("no id", "Tetris", "vertx-core", "Vertx-Examples", "vertx-web", "web-starter")));
+  }
+
+  @Test
+  public void testSelectAndSort() throws Exception
+  {
+    ProjectInfoIndex index = LIST.getIndex();
+    assertThat(names(index.select("vert-x3", "vertx", null, ProjectInfoIndex.Order.ID)),
+               is(Arrays.asList("Vertx-Examples", "vertx-web")));
+    assertThat(names(index.select("vert-x3", null, "e", ProjectInfoIndex.Order.NAME)),
+               is(Arrays.asList("Vertx-Examples", "vertx-web", "web-starter")));
+    assertThat(names(index.select(null, "vertx", "o", ProjectInfoIndex.Order.FOUND)),
+               is(Arrays.asList("vertx-core")));
+
+    ProjectInfoList selected = index.select("eclipse", null, null, ProjectInfoIndex.Order.FOUND);
+    assertThat(selected.isPartial(), is(true));
+    assertThat(selected.getLastModified(), is(LIST.getLastModified()));
+  }
+}
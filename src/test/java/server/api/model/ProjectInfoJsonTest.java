@@ -0,0 +1,104 @@
+package server.api.model;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.Json;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class ProjectInfoJsonTest
+{
+  private static final List<ProjectInfo> PROJECTS =
+    Arrays.asList(new ProjectInfo(3081286L, "Tetris", "https://github.com/dtrupenn/Tetris", "dtrupenn"),
+                  new ProjectInfo(1L, "quote\"back\\slash/", "https://github.com/o/q", "tab\tnew\nline\u0001"),
+                  new ProjectInfo(2L, "café 漢字 🚀", "https://github.com/o/u", "o"),
+                  new ProjectInfo(null, "no id", null, "o"));
+
+  @Test
+  public void testEncodeMatchesJackson() throws Exception
+  {
+    assertThat(ProjectInfoJson.encode(PROJECTS).toString(), is(Json.encode(PROJECTS)));
+  }
+
+  @Test
+  public void testEncodeEscapesControlCharactersAsJackson() throws Exception
+  {
+    List<ProjectInfo> projects = Arrays.asList(new ProjectInfo(1L, "unit\u001fseparator\u001b", null, "o"));
+    assertThat(ProjectInfoJson.encode(projects).toString(), is(Json.encode(projects)));
+    assertThat(ProjectInfoJson.encode(projects).toString().contains("unit\\u001Fseparator\\u001B"), is(true));
+  }
+
+  @Test
+  public void testEncodeFields() throws Exception
+  {
+    Set<ProjectInfoField> fields = ProjectInfoField.parse("owner, id");
+    assertThat(ProjectInfoJson.encode(PROJECTS.subList(0, 1), fields).toString(),
+               is("[{\"id\":3081286,\"owner\":\"dtrupenn\"}]"));
+    assertThat(ProjectInfoJson.toJsonArray(PROJECTS, fields).encode(),
+               is(ProjectInfoJson.encode(PROJECTS, fields).toString()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownFieldRejected() throws Exception
+  {
+    ProjectInfoField.parse("name,stars");
+  }
+
+  @Test
+  public void testSlice() throws Exception
+  {
+    ProjectInfoList projects = new ProjectInfoList(PROJECTS, true);
+    assertThat(projects.slice(0, 10), is(sameInstance(projects)));
+
+    ProjectInfoList first = projects.slice(0, 2);
+    assertThat(first, is(PROJECTS.subList(0, 2)));
+    assertThat(first.isTruncated(), is(true));
+    assertThat(first.isPartial(), is(false));
+
+    ProjectInfoList last = projects.slice(2, 10);
+    assertThat(last, is(PROJECTS.subList(2, 4)));
+    assertThat(last.isTruncated(), is(false));
+    assertThat(last.isPartial(), is(true));
+    assertThat(projects.slice(10, 2).isEmpty(), is(true));
+  }
+
+  @Test
+  public void testEncodeEmpty() throws Exception
+  {
+    assertThat(ProjectInfoJson.encode(Arrays.asList()).toString(), is("[]"));
+  }
+
+  @Test
+  public void testEncodingsAreKept() throws Exception
+  {
+    ProjectInfoList projects = new ProjectInfoList(PROJECTS, false);
+    Buffer json = projects.toJson();
+    assertThat(projects.toJson(), is(sameInstance(json)));
+    assertThat(json.toString(), is(Json.encode(PROJECTS)));
+
+    Buffer gzipped = projects.toGzippedJson();
+    assertThat(projects.toGzippedJson(), is(sameInstance(gzipped)));
+    assertThat(gunzip(gzipped).toString(), is(json.toString()));
+  }
+
+  private static Buffer gunzip(Buffer gzipped) throws Exception
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getBytes()))) {
+      byte[] chunk = new byte[4096];
+      for (int read; (read = in.read(chunk)) > 0; ) {
+        out.write(chunk, 0, read);
+      }
+    }
+    return Buffer.buffer(out.toByteArray());
+  }
+}
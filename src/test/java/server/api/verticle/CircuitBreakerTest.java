@@ -0,0 +1,133 @@
+package server.api.verticle;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class CircuitBreakerTest
+{
+  private long now = 0;
+
+  private CircuitBreaker createCircuitBreaker(JsonObject config)
+  {
+    return new CircuitBreaker(config.put("minimumCalls", 4).put("openSeconds", 10), () -> now);
+  }
+
+  private Future<String> call(CircuitBreaker circuitBreaker, boolean fail, long durationMillis)
+  {
+    Future<String> result = Future.future();
+    circuitBreaker.execute(future -> {
+      now += durationMillis;
+      if (fail) {
+        future.fail(new IOException("Failed : HTTP error code : 500"));
+      } else {
+        future.complete("ok");
+      }
+    }, result);
+    return result;
+  }
+
+  @Test
+  public void testOpensOnFailureRate() throws Exception
+  {
+    CircuitBreaker circuitBreaker = createCircuitBreaker(new JsonObject());
+    call(circuitBreaker, false, 10);
+    call(circuitBreaker, true, 10);
+    call(circuitBreaker, false, 10);
+    assertThat(circuitBreaker.getState(), is(CircuitBreaker.State.CLOSED));
+    call(circuitBreaker, true, 10);
+    assertThat(circuitBreaker.getState(), is(CircuitBreaker.State.OPEN));
+
+    Future<String> rejected = call(circuitBreaker, false, 10);
+    assertThat(rejected.failed(), is(true));
+    assertThat(rejected.cause(), is(instanceOf(CallNotPermittedException.class)));
+    assertThat(circuitBreaker.getStats().getLong("rejectedCalls"), is(1L));
+  }
+
+  @Test
+  public void testOpensOnSlowCallRate() throws Exception
+  {
+    CircuitBreaker circuitBreaker = createCircuitBreaker(new JsonObject().put("slowCallDurationMillis", 1000));
+    for (int i = 0; i < 4; i++) {
+      assertThat(call(circuitBreaker, false, 1000).succeeded(), is(true));
+    }
+    assertThat(circuitBreaker.getState(), is(CircuitBreaker.State.OPEN));
+  }
+
+  @Test
+  public void testHalfOpenTrialsCloseOrReopen() throws Exception
+  {
+    CircuitBreaker circuitBreaker = createCircuitBreaker(new JsonObject());
+    for (int i = 0; i < 4; i++) {
+      call(circuitBreaker, true, 10);
+    }
+    now += 10_000;
+    assertThat(circuitBreaker.getState(), is(CircuitBreaker.State.HALF_OPEN));
+    call(circuitBreaker, true, 10);
+    assertThat(circuitBreaker.getState(), is(CircuitBreaker.State.OPEN));
+
+    now += 10_000;
+    call(circuitBreaker, false, 10);
+    assertThat(circuitBreaker.getState(), is(CircuitBreaker.State.HALF_OPEN));
+    call(circuitBreaker, false, 10);
+    assertThat(circuitBreaker.getState(), is(CircuitBreaker.State.CLOSED));
+  }
+
+  @Test
+  public void testRateLimitedCallsNotRecorded() throws Exception
+  {
+    CircuitBreaker circuitBreaker = createCircuitBreaker(new JsonObject());
+    for (int i = 0; i < 4; i++) {
+      circuitBreaker.execute(future -> future.fail(new RateLimitExceededException(0)), result -> {});
+    }
+    assertThat(circuitBreaker.getState(), is(CircuitBreaker.State.CLOSED));
+    assertThat(circuitBreaker.getStats().getInteger("recordedCalls"), is(0));
+  }
+
+  @Test
+  public void testBulkheadLimitsConcurrentCalls() throws Exception
+  {
+    CircuitBreaker circuitBreaker = createCircuitBreaker(new JsonObject().put("maxConcurrentCalls", 1));
+    Future<String>[] inFlight = new Future[1];
+    circuitBreaker.<String>execute(future -> inFlight[0] = future, result -> {});
+    Future<String> rejected = call(circuitBreaker, false, 10);
+    assertThat(rejected.cause(), is(instanceOf(CallNotPermittedException.class)));
+    inFlight[0].complete("ok");
+    assertThat(call(circuitBreaker, false, 10).succeeded(), is(true));
+  }
+
+  @Test
+  public void testCallsFromEarlierStatesAreNotTrials() throws Exception
+  {
+    CircuitBreaker circuitBreaker = createCircuitBreaker(new JsonObject());
+    Future<String>[] inFlight = new Future[2];
+    circuitBreaker.<String>execute(future -> inFlight[0] = future, result -> {});
+    circuitBreaker.<String>execute(future -> inFlight[1] = future, result -> {});
+    for (int i = 0; i < 4; i++) {
+      call(circuitBreaker, true, 10);
+    }
+    now += 10_000;
+    assertThat(circuitBreaker.getState(), is(CircuitBreaker.State.HALF_OPEN));
+
+    // the calls made while closed neither close the circuit nor free trial calls
+    inFlight[0].complete("ok");
+    inFlight[1].fail(new RateLimitExceededException(0));
+    assertThat(circuitBreaker.getState(), is(CircuitBreaker.State.HALF_OPEN));
+    assertThat(circuitBreaker.getStats().getInteger("recordedCalls"), is(0));
+    assertThat(circuitBreaker.getStats().getInteger("concurrentCalls"), is(0));
+
+    Future<String>[] trials = new Future[2];
+    circuitBreaker.<String>execute(future -> trials[0] = future, result -> {});
+    circuitBreaker.<String>execute(future -> trials[1] = future, result -> {});
+    assertThat(call(circuitBreaker, false, 10).cause(), is(instanceOf(CallNotPermittedException.class)));
+    trials[0].complete("ok");
+    trials[1].complete("ok");
+    assertThat(circuitBreaker.getState(), is(CircuitBreaker.State.CLOSED));
+  }
+}
@@ -0,0 +1,33 @@
+package server.api.verticle;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ContentNegotiationTest
+{
+  @Test
+  public void testAcceptsGzip()
+  {
+    assertThat(ContentNegotiation.acceptsGzip("gzip"), is(true));
+    assertThat(ContentNegotiation.acceptsGzip("gzip, deflate, br"), is(true));
+    assertThat(ContentNegotiation.acceptsGzip("GZIP;q=0.5"), is(true));
+    assertThat(ContentNegotiation.acceptsGzip("x-gzip"), is(true));
+    assertThat(ContentNegotiation.acceptsGzip("identity, *;q=0.1"), is(true));
+  }
+
+  @Test
+  public void testRefusesGzip()
+  {
+    assertThat(ContentNegotiation.acceptsGzip(null), is(false));
+    assertThat(ContentNegotiation.acceptsGzip("identity"), is(false));
+    assertThat(ContentNegotiation.acceptsGzip("deflate, br"), is(false));
+    assertThat(ContentNegotiation.acceptsGzip("gzip;q=0"), is(false));
+    assertThat(ContentNegotiation.acceptsGzip("deflate, gzip ; q=0.000"), is(false));
+    assertThat(ContentNegotiation.acceptsGzip("*;q=0"), is(false));
+    // gzip refused explicitly, whatever the wildcard accepts
+    assertThat(ContentNegotiation.acceptsGzip("gzip;q=0, *"), is(false));
+    assertThat(ContentNegotiation.acceptsGzip("gzip;q=high"), is(false));
+  }
+}
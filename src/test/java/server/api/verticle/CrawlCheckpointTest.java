@@ -0,0 +1,107 @@
+package server.api.verticle;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import server.api.model.ProjectInfo;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class CrawlCheckpointTest
+{
+  private static final SearchShard ALL = SearchShard.all("c++", LocalDate.of(2026, 10, 17), 100);
+  private static final ProjectInfo PROJECT_1 = new ProjectInfo(1L, "a", "https://github.com/o/a", "o");
+  private static final ProjectInfo PROJECT_2 = new ProjectInfo(2L, "b", "https://github.com/o/b", "o");
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testResumesCrawlInProgress() throws Exception
+  {
+    Path directory = folder.getRoot().toPath();
+    List<SearchShard> halves = ALL.split(SearchShard.Partition.CREATED);
+    try (CrawlCheckpoint checkpoint = new CrawlCheckpoint(directory, "c++")) {
+      assertThat(checkpoint.loadInProgress(), is(nullValue()));
+      checkpoint.start(ALL, 1000L);
+      checkpoint.split(ALL, halves);
+      checkpoint.searched(halves.get(0), Arrays.asList(PROJECT_1, PROJECT_2), 3);
+    }
+    // a record cut short by a crash
+    Path crawl = directory.resolve("c%2B%2B.crawl");
+    Files.write(crawl, "{\"searched\":{\"cre".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+    CrawlCheckpoint checkpoint = new CrawlCheckpoint(directory, "c++");
+    CrawlCheckpoint.Progress progress = checkpoint.loadInProgress();
+    assertThat(progress.getStartedAt(), is(1000L));
+    assertThat(new ArrayList<>(progress.getPending()), is(Collections.singletonList(halves.get(1))));
+    assertThat(progress.getProjects(), is(Arrays.asList(PROJECT_1, PROJECT_2)));
+    assertThat(progress.getSearchedShards(), is(1));
+    assertThat(progress.getCappedShards(), is(1));
+    assertThat(progress.isComplete(), is(false));
+
+    checkpoint.resume(progress);
+    checkpoint.searched(halves.get(1), Collections.emptyList(), 0);
+    checkpoint.end(2000L, false);
+    assertThat(Files.exists(crawl), is(false));
+    assertThat(checkpoint.loadInProgress(), is(nullValue()));
+    CrawlCheckpoint.Progress crawled = checkpoint.loadCrawled();
+    assertThat(crawled.getEndedAt(), is(2000L));
+    assertThat(crawled.getPending().isEmpty(), is(true));
+    assertThat(crawled.getProjects(), is(Arrays.asList(PROJECT_1, PROJECT_2)));
+  }
+
+  @Test
+  public void testReplaysUpdatesOfCrawl() throws Exception
+  {
+    Path directory = folder.getRoot().toPath();
+    ProjectInfo renamed = new ProjectInfo(1L, "renamed", "https://github.com/o/renamed", "o");
+    try (CrawlCheckpoint checkpoint = new CrawlCheckpoint(directory, "java")) {
+      checkpoint.start(ALL, 1000L);
+      checkpoint.searched(ALL, Arrays.asList(PROJECT_1, PROJECT_2), 2);
+      checkpoint.end(2000L, false);
+      checkpoint.updated(3000L, Collections.singletonList(renamed));
+    }
+    // an update cut short by a crash
+    Path crawled = directory.resolve("java.crawled");
+    Files.write(crawled, "{\"updated\":4000,\"proj".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+    CrawlCheckpoint checkpoint = new CrawlCheckpoint(directory, "java");
+    CrawlCheckpoint.Progress progress = checkpoint.loadCrawled();
+    assertThat(progress.getEndedAt(), is(2000L));
+    assertThat(progress.getSyncedAt(), is(3000L));
+    assertThat(progress.getProjects(), is(Arrays.asList(PROJECT_1, PROJECT_2, renamed)));
+
+    // the next update follows the ones replayed
+    checkpoint.updated(5000L, Collections.singletonList(PROJECT_1));
+    progress = checkpoint.loadCrawled();
+    assertThat(progress.getSyncedAt(), is(5000L));
+    assertThat(progress.getProjects(), is(Arrays.asList(PROJECT_1, PROJECT_2, renamed, PROJECT_1)));
+  }
+
+  @Test
+  public void testIgnoresCheckpointsNotFollowingCrawl() throws Exception
+  {
+    Path directory = folder.getRoot().toPath();
+    try (CrawlCheckpoint checkpoint = new CrawlCheckpoint(directory, "java")) {
+      checkpoint.start(ALL, 1000L);
+      // the second half searched ahead of the first
+      List<SearchShard> halves = ALL.split(SearchShard.Partition.CREATED);
+      checkpoint.split(ALL, halves);
+      checkpoint.searched(halves.get(1), Collections.singletonList(PROJECT_1), 1);
+    }
+    assertThat(new CrawlCheckpoint(directory, "java").loadInProgress(), is(nullValue()));
+  }
+}
@@ -0,0 +1,284 @@
+package server.api.verticle;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import server.api.cache.CrawlIndex;
+import server.api.model.ProjectInfoField;
+import server.api.model.ProjectInfoList;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+@RunWith(VertxUnitRunner.class)
+public class CrawlerVerticleTest
+{
+  private static final int REPOSITORIES = 2500;
+  private static final LocalDate FIRST_CREATED = LocalDate.of(2008, 1, 1);
+  private static final Pattern CREATED_PATTERN = Pattern.compile("created:(\\S+)\\.\\.(\\S+)");
+  private static final Pattern STARS_PATTERN = Pattern.compile("stars:(\\d+)\\.\\.(\\d+)");
+  private static final long LAST_UPDATED = Instant.parse("2020-01-01T00:00:00Z").toEpochMilli();
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Vertx vertx;
+  private HttpServer stubServer;
+  private final List<Repository> repositories = new ArrayList<>();
+  private int stubRequests;
+  private int updateRequests;
+
+  @Before
+  public void setUp(TestContext context)
+  {
+    vertx = Vertx.vertx();
+    for (int i = 0; i < REPOSITORIES; i++) {
+      repositories.add(new Repository(i + 1, FIRST_CREATED.plusDays(i), i % 50, "project" + (i + 1), LAST_UPDATED));
+    }
+    // stub of the GitHub search API, with a repository created each day, which only returns the first 1000 results
+    stubServer = vertx.createHttpServer().requestHandler(this::search).listen(0, context.asyncAssertSuccess());
+  }
+
+  @After
+  public void tearDown(TestContext context)
+  {
+    vertx.close(context.asyncAssertSuccess());
+  }
+
+  private synchronized void search(HttpServerRequest request)
+  {
+    stubRequests++;
+    String query = request.getParam("q");
+    Matcher created = CREATED_PATTERN.matcher(query);
+    Matcher stars = STARS_PATTERN.matcher(query);
+    List<Repository> matching;
+    if ("updated".equals(request.getParam("sort")) && "desc".equals(request.getParam("order"))) {
+      updateRequests++;
+      matching = repositories.stream()
+                             .sorted(Comparator.comparingLong((Repository repository) -> repository.updatedAt)
+                                               .reversed())
+                             .collect(Collectors.toList());
+    } else if (created.find() && stars.find()) {
+      LocalDate createdFrom = LocalDate.parse(created.group(1));
+      LocalDate createdTo = LocalDate.parse(created.group(2));
+      int starsFrom = Integer.parseInt(stars.group(1));
+      int starsTo = Integer.parseInt(stars.group(2));
+      matching = repositories.stream().filter(repository -> {
+        return !repository.created.isBefore(createdFrom) && !repository.created.isAfter(createdTo) &&
+               repository.stars >= starsFrom && repository.stars <= starsTo;
+      }).collect(Collectors.toList());
+    } else {
+      request.response().setStatusCode(422).end();
+      return;
+    }
+
+    int perPage = Integer.parseInt(request.getParam("per_page"));
+    int page = request.getParam("page") == null ? 1 : Integer.parseInt(request.getParam("page"));
+    int returned = Math.min(matching.size(), 1000);
+    int lastPage = Math.max(1, (returned + perPage - 1) / perPage);
+    JsonArray items = new JsonArray();
+    for (int i = (page - 1) * perPage; i < Math.min(returned, page * perPage); i++) {
+      Repository repository = matching.get(i);
+      items.add(new JsonObject().put("id", repository.id)
+                                .put("name", repository.name)
+                                .put("html_url", "https://github.com/owner/" + repository.name)
+                                .put("owner", new JsonObject().put("login", "owner"))
+                                .put("updated_at", Instant.ofEpochMilli(repository.updatedAt).toString()));
+    }
+    if (lastPage > 1) {
+      String uri = request.absoluteURI().replaceAll("&page=\\d+", "");
+      String links = "<" + uri + "&page=" + lastPage + ">; rel=\"last\"";
+      if (page < lastPage) {
+        links = "<" + uri + "&page=" + (page + 1) + ">; rel=\"next\", " + links;
+      }
+      request.response().putHeader("Link", links);
+    }
+    request.response().end(new JsonObject().put("total_count", matching.size()).put("items", items).encode());
+  }
+
+  private synchronized void update(Repository repository)
+  {
+    repositories.removeIf(previous -> previous.id == repository.id);
+    repositories.add(repository);
+  }
+
+  private JsonObject config()
+  {
+    return new JsonObject().put("github", new JsonObject().put("baseUrl", "http://localhost:" + stubServer.actualPort())
+                                                          .put("rateLimit", new JsonObject()
+                                                            .put("requestsPerWindow", 1000)))
+                           .put("crawler", new JsonObject().put("languages", new JsonArray().add("Java"))
+                                                           .put("budgetShare", 1.0)
+                                                           .put("updateSeconds", 1)
+                                                           .put("checkpointDirectory",
+                                                                folder.getRoot().getAbsolutePath()));
+  }
+
+  @Test
+  public void testCrawlsBeyondSearchResultsLimit(TestContext context)
+  {
+    CrawlIndex crawlIndex = CrawlIndex.getShared(vertx);
+    CrawlerVerticle crawler = new CrawlerVerticle();
+    Async async = context.async();
+    vertx.deployVerticle(crawler, new DeploymentOptions().setConfig(config()), context.asyncAssertSuccess(id -> {
+      vertx.setPeriodic(100, timerId -> {
+        ProjectInfoList crawled = crawlIndex.getCrawled("java");
+        // the crawler runs on an event loop of its own
+        if (crawled == null || crawler.getStats().getLong("crawls") == 0) {
+          return;
+        }
+        vertx.cancelTimer(timerId);
+        context.assertEquals(REPOSITORIES, crawled.size());
+        context.assertFalse(crawled.isTruncated());
+        context.assertEquals(1L, crawler.getStats().getLong("crawls"));
+        context.assertTrue(crawler.getStats().getLong("splits") > 0);
+        context.assertEquals(0L, crawler.getStats().getLong("cappedShards"));
+
+        // served past the first 1000 projects, in the order they were created
+        new ProjectsApiImpl(vertx).findProjectsByLanguage("java",
+                                                          new ProjectsQuery(2000, 100, ProjectInfoField.ALL),
+                                                          context.asyncAssertSuccess(projects -> {
+          context.assertEquals(100, projects.size());
+          context.assertEquals(2001L, projects.get(0).getId());
+          context.assertEquals(2100L, projects.get(99).getId());
+          assertServedAfterRestart(context, async);
+        }));
+      });
+    }));
+  }
+
+  /**
+   * A crawler started again with the same checkpoints serves the projects crawled without crawling them again.
+   */
+  private void assertServedAfterRestart(TestContext context, Async async)
+  {
+    int crawlRequests = stubRequests - updateRequests;
+    Vertx restarted = Vertx.vertx();
+    restarted.deployVerticle(new CrawlerVerticle(),
+                             new DeploymentOptions().setConfig(config()),
+                             context.asyncAssertSuccess(id -> {
+      ProjectInfoList crawled = CrawlIndex.getShared(restarted).getCrawled("java");
+      context.assertEquals(REPOSITORIES, crawled.size());
+      context.assertEquals(1L, crawled.get(0).getId());
+      restarted.setTimer(500, timerId -> {
+        // only the updates since the crawl are searched
+        context.assertEquals(crawlRequests, stubRequests - updateRequests);
+        restarted.close(context.asyncAssertSuccess(closed -> async.complete()));
+      });
+    }));
+  }
+
+  @Test
+  public void testUpdatesCrawledLanguage(TestContext context)
+  {
+    CrawlIndex crawlIndex = CrawlIndex.getShared(vertx);
+    CrawlerVerticle crawler = new CrawlerVerticle();
+    Async async = context.async();
+    vertx.deployVerticle(crawler, new DeploymentOptions().setConfig(config()), context.asyncAssertSuccess(id -> {
+      int[] crawlRequests = {-1};
+      vertx.setPeriodic(100, timerId -> {
+        ProjectInfoList crawled = crawlIndex.getCrawled("java");
+        if (crawled == null) {
+          return;
+        }
+        if (crawlRequests[0] < 0) {
+          crawlRequests[0] = stubRequests - updateRequests;
+          long now = System.currentTimeMillis();
+          update(new Repository(1, FIRST_CREATED, 0, "renamed", now));
+          update(new Repository(REPOSITORIES + 1, LocalDate.now(), 0, "created", now));
+          return;
+        }
+        if (crawled.size() <= REPOSITORIES || crawler.getStats().getLong("updatedProjects") < 2) {
+          return;
+        }
+        vertx.cancelTimer(timerId);
+        // the project updated is replaced in its position, and the project created added at the end
+        context.assertEquals(REPOSITORIES + 1, crawled.size());
+        context.assertEquals("renamed", crawled.get(0).getName());
+        context.assertEquals((long)REPOSITORIES + 1, crawled.get(REPOSITORIES).getId());
+        context.assertEquals(2L, crawler.getStats().getLong("updatedProjects"));
+        context.assertEquals(0L, crawler.getStats().getLong("incompleteUpdates"));
+        // with a single page for each update, and no shards searched again
+        context.assertTrue(updateRequests <= crawler.getStats().getLong("updates"));
+        context.assertEquals(crawlRequests[0], stubRequests - updateRequests);
+
+        // the updates are replayed along with the crawl after a restart
+        Vertx restarted = Vertx.vertx();
+        restarted.deployVerticle(new CrawlerVerticle(),
+                                 new DeploymentOptions().setConfig(config()),
+                                 context.asyncAssertSuccess(restartedId -> {
+          ProjectInfoList replayed = CrawlIndex.getShared(restarted).getCrawled("java");
+          context.assertEquals(REPOSITORIES + 1, replayed.size());
+          context.assertEquals("renamed", replayed.get(0).getName());
+          restarted.close(context.asyncAssertSuccess(closed -> async.complete()));
+        }));
+      });
+    }));
+  }
+
+  @Test
+  public void testCrawlSpreadOverWindowsAtDefaultQuota(TestContext context)
+  {
+    // the default quota of 10 requests a window and the default crawler share of it, in windows of a second
+    JsonObject config = config();
+    config.getJsonObject("github").put("rateLimit", new JsonObject().put("windowSeconds", 1));
+    config.getJsonObject("crawler").put("maxProjects", 300);
+    config.getJsonObject("crawler").remove("budgetShare");
+    config.getJsonObject("crawler").remove("checkpointDirectory");
+    CrawlerVerticle crawler = new CrawlerVerticle();
+    Async async = context.async();
+    long start = System.currentTimeMillis();
+    vertx.deployVerticle(crawler, new DeploymentOptions().setConfig(config), context.asyncAssertSuccess(id -> {
+      vertx.setPeriodic(100, timerId -> {
+        if (crawler.getStats().getLong("crawls") == 0) {
+          return;
+        }
+        vertx.cancelTimer(timerId);
+        // the shards split, and then the 7 pages of the shard that ends the crawl
+        context.assertTrue(CrawlIndex.getShared(vertx).getCrawled("java").size() >= 300);
+        context.assertTrue(stubRequests >= 9);
+        // at most 2 pages a window, as 7.5 of the 10 requests are kept for the callers
+        long windows = (System.currentTimeMillis() - start) / 1000 + 1;
+        context.assertTrue(stubRequests <= 2 * windows);
+        context.assertEquals(0L, crawler.getStats().getLong("failures"));
+        async.complete();
+      });
+    }));
+  }
+
+  private static class Repository
+  {
+    private final long id;
+    private final LocalDate created;
+    private final int stars;
+    private final String name;
+    private final long updatedAt;
+
+    private Repository(long id, LocalDate created, int stars, String name, long updatedAt)
+    {
+      this.id = id;
+      this.created = created;
+      this.stars = stars;
+      this.name = name;
+      this.updatedAt = updatedAt;
+    }
+  }
+}
@@ -1,12 +1,112 @@
 package server.api.verticle;
 
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import server.api.model.ProjectInfo;
+import server.api.model.ProjectInfoList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 
+@RunWith(VertxUnitRunner.class)
 public class GitHubServiceClientImplTest
 {
+  private Vertx vertx;
+  private HttpServer stubServer;
+  private int stubPageCount;
+  private boolean stubLastLink;
+  private int stubInFlight;
+  private int stubMaxInFlight;
+  private int stubItemsPerPage;
+  private int stubNotModified;
+  private List<String> stubRequests = new ArrayList<>();
+
+  @Before
+  public void setUp(TestContext context)
+  {
+    vertx = Vertx.vertx();
+    stubPageCount = 3;
+    stubLastLink = true;
+    stubItemsPerPage = 1;
+    // stub of the GitHub search API, serving stubPageCount pages of stubItemsPerPage items after a short delay with
+    // rel="next" and rel="last" links and an ETag, or a 304 without links if they match If-None-Match, or a 404 for
+    // any other path
+    stubServer = vertx.createHttpServer().requestHandler(request -> {
+      if (!request.path().equals("/search/repositories")) {
+        request.response().setStatusCode(404).end("{\"message\":\"Not Found\"}");
+        return;
+      }
+      int page = Integer.parseInt(request.params().get("page") == null ? "1" : request.params().get("page"));
+      stubRequests.add("per_page=" + request.getParam("per_page") + "&page=" + page);
+      String eTag = "\"page" + page + "\"";
+      if (eTag.equals(request.getHeader("If-None-Match"))) {
+        stubNotModified++;
+        request.response().setStatusCode(304).putHeader("ETag", eTag).end();
+        return;
+      }
+      request.response().putHeader("ETag", eTag);
+      if (page < stubPageCount) {
+        String links = "<" + stubURI("/search/repositories", page + 1) + ">; rel=\"next\"";
+        if (stubLastLink) {
+          links += ", <" + stubURI("/search/repositories", stubPageCount) + ">; rel=\"last\"";
+        }
+        request.response().putHeader("Link", links);
+      }
+      stubMaxInFlight = Math.max(stubMaxInFlight, ++stubInFlight);
+      vertx.setTimer(20, timer -> {
+        stubInFlight--;
+        JsonArray items = new JsonArray();
+        for (int i = 0; i < stubItemsPerPage; i++) {
+          int id = (page - 1) * stubItemsPerPage + i + 1;
+          items.add(new JsonObject().put("id", id)
+                                    .put("name", "project" + id)
+                                    .put("html_url", "https://github.com/owner/project" + id)
+                                    .put("owner", new JsonObject().put("login", "owner")));
+        }
+        request.response().end(new JsonObject().put("items", items).encode());
+      });
+    }).listen(0, context.asyncAssertSuccess());
+  }
+
+  @After
+  public void tearDown(TestContext context)
+  {
+    vertx.close(context.asyncAssertSuccess());
+  }
+
+  private String stubURI(String path, int page)
+  {
+    return "http://localhost:" + stubServer.actualPort() + path + "?per_page=100&page=" + page;
+  }
+
+  private GitHubServiceClientImpl createStubClient(String path)
+  {
+    return new GitHubServiceClientImpl(vertx)
+    {
+      @NotNull
+      @Override
+      protected String getRepositorySearchURI(String language)
+      {
+        return stubURI(path, 1);
+      }
+    };
+  }
+
   @Test
   public void testExtractNextPageURIFromLinks() throws Exception
   {
@@ -14,4 +114,169 @@ public class GitHubServiceClientImplTest
       "<https://api.github.com/resource?page=1>; rel=\"prev\", <https://api.github.com/resource?page=2>; rel=\"next\", <https://api.github.com/resource?page=5>; rel=\"last\"");
     assertThat(uri, is("https://api.github.com/resource?page=2"));
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testExtractLinks() throws Exception
+  {
+    Map<String, String> links = GitHubServiceClientImpl.extractLinks(
+      "<https://api.github.com/resource?page=1>; rel=\"prev\", <https://api.github.com/resource?page=2>; rel=\"next\", <https://api.github.com/resource?page=5>; rel=\"last\", <https://api.github.com/resource?page=1>; rel=\"first\"");
+    assertThat(links.size(), is(4));
+    assertThat(links.get("prev"), is("https://api.github.com/resource?page=1"));
+    assertThat(links.get("first"), is("https://api.github.com/resource?page=1"));
+    assertThat(links.get("last"), is("https://api.github.com/resource?page=5"));
+    assertThat(GitHubServiceClientImpl.extractLinks(null).isEmpty(), is(true));
+  }
+
+  @Test
+  public void testPageNumbers() throws Exception
+  {
+    String uri = "https://api.github.com/search/repositories?per_page=100&q=language%3Ajava&page=34";
+    assertThat(GitHubServiceClientImpl.extractPageNumber(uri), is(34));
+    assertThat(GitHubServiceClientImpl.withPageNumber(uri, 2),
+               is("https://api.github.com/search/repositories?per_page=100&q=language%3Ajava&page=2"));
+    assertThat(GitHubServiceClientImpl.extractPageNumber("https://api.github.com/search/repositories"), is(0));
+    assertThat(GitHubServiceClientImpl.withPageNumber("https://api.github.com/search/repositories?q=language:c", 2),
+               is("https://api.github.com/search/repositories?q=language:c&page=2"));
+    assertThat(GitHubServiceClientImpl.withPerPage(uri, 20),
+               is("https://api.github.com/search/repositories?per_page=20&q=language%3Ajava&page=34"));
+    assertThat(GitHubServiceClientImpl.withPerPage("https://api.github.com/search/repositories?q=language:c", 5),
+               is("https://api.github.com/search/repositories?q=language:c&per_page=5"));
+  }
+
+  @Test
+  public void testSearchRepositoriesFetchesPagesConcurrently(TestContext context)
+  {
+    stubPageCount = 7;
+    createStubClient("/search/repositories").searchRepositories("java", context.asyncAssertSuccess(pages -> {
+      context.assertEquals(7, pages.size());
+      for (int i = 0; i < pages.size(); i++) {
+        context.assertEquals(i + 1L, pages.get(i).getJsonArray("items").getJsonObject(0).getLong("id"));
+      }
+      context.assertEquals(6, stubMaxInFlight);
+    }));
+  }
+
+  @Test
+  public void testStreamProjectsDecodesPagesInOrder(TestContext context)
+  {
+    stubPageCount = 4;
+    List<ProjectInfo> projects = new ArrayList<>();
+    createStubClient("/search/repositories").streamProjects("java", projects::addAll, context.asyncAssertSuccess(end -> {
+      context.assertEquals(4, projects.size());
+      for (int i = 0; i < projects.size(); i++) {
+        int page = i + 1;
+        context.assertEquals(new ProjectInfo((long)page, "project" + page, "https://github.com/owner/project" + page, "owner"),
+                             projects.get(i));
+      }
+    }));
+  }
+
+  @Test
+  public void testStreamProjectsRevalidatesPreviousPages(TestContext context)
+  {
+    stubPageCount = 3;
+    stubItemsPerPage = 100;
+    GitHubServiceClientImpl client = createStubClient("/search/repositories");
+    List<ProjectInfo> projects = new ArrayList<>();
+    List<String> pageETags = new ArrayList<>();
+    Async async = context.async();
+    client.streamProjects("java", null, page -> {
+      projects.addAll(page);
+      pageETags.addAll(((ProjectInfoList)page).getPageETags());
+    }, context.asyncAssertSuccess(end -> {
+      ProjectInfoList previous = new ProjectInfoList(new ArrayList<>(projects), false, new ArrayList<>(pageETags));
+      context.assertEquals(Arrays.asList("\"page1\"", "\"page2\"", "\"page3\""), pageETags);
+      int remaining = RateLimitGovernor.getShared(vertx, new JsonObject()).getStats().getInteger("remaining");
+      List<ProjectInfo> revalidated = new ArrayList<>();
+      client.streamProjects("java", previous, revalidated::addAll, context.asyncAssertSuccess(revalidatedEnd -> {
+        // the 304s have no links, so the pages are found from the previous projects
+        context.assertEquals(3, stubNotModified);
+        context.assertEquals(previous, revalidated);
+        // and aren't counted against the rate limit
+        context.assertEquals(remaining,
+                             RateLimitGovernor.getShared(vertx, new JsonObject()).getStats().getInteger("remaining"));
+        async.complete();
+      }));
+    }));
+  }
+
+  @Test
+  public void testStreamProjectsRetrievesOnlyPagesNeeded(TestContext context)
+  {
+    stubPageCount = 5;
+    GitHubServiceClientImpl client = createStubClient("/search/repositories");
+    List<ProjectInfo> projects = new ArrayList<>();
+    Async async = context.async();
+    // the first 20 projects fit in one page of 20
+    client.streamProjects("java", null, 20, projects::addAll, context.asyncAssertSuccess(end -> {
+      context.assertEquals(Arrays.asList("per_page=20&page=1"), stubRequests);
+      stubRequests.clear();
+      // but the first 150 take two pages of 100
+      client.streamProjects("java", null, 150, projects::addAll, context.asyncAssertSuccess(secondEnd -> {
+        context.assertEquals(Arrays.asList("per_page=100&page=1", "per_page=100&page=2"), stubRequests);
+        async.complete();
+      }));
+    }));
+  }
+
+  @Test
+  public void testSearchRepositoriesUsesBaseUrl(TestContext context)
+  {
+    JsonObject config = new JsonObject().put("baseUrl", "http://localhost:" + stubServer.actualPort());
+    new GitHubServiceClientImpl(vertx, config).searchRepositories("java", context.asyncAssertSuccess(pages -> {
+      context.assertEquals(3, pages.size());
+    }));
+  }
+
+  @Test
+  public void testSearchRepositoriesBoundsParallelism(TestContext context)
+  {
+    stubPageCount = 7;
+    new GitHubServiceClientImpl(vertx, new JsonObject().put("pageParallelism", 2))
+    {
+      @NotNull
+      @Override
+      protected String getRepositorySearchURI(String language)
+      {
+        return stubURI("/search/repositories", 1);
+      }
+    }.searchRepositories("java", context.asyncAssertSuccess(pages -> {
+      context.assertEquals(7, pages.size());
+      context.assertEquals(7L, pages.get(6).getJsonArray("items").getJsonObject(0).getLong("id"));
+      context.assertEquals(2, stubMaxInFlight);
+    }));
+  }
+
+  @Test
+  public void testSearchRepositoriesFollowsNextPages(TestContext context)
+  {
+    stubLastLink = false;
+    createStubClient("/search/repositories").searchRepositories("java", context.asyncAssertSuccess(pages -> {
+      context.assertEquals(3, pages.size());
+      for (int i = 0; i < pages.size(); i++) {
+        context.assertEquals(i + 1L, pages.get(i).getJsonArray("items").getJsonObject(0).getLong("id"));
+      }
+      context.assertEquals(1, stubMaxInFlight);
+    }));
+  }
+
+  @Test
+  public void testSearchRepositoriesLimitsPages(TestContext context)
+  {
+    stubPageCount = 50;
+    createStubClient("/search/repositories").searchRepositories("java", context.asyncAssertSuccess(pages -> {
+      context.assertEquals(10, pages.size());
+    }));
+  }
+
+  @Test
+  public void testSearchRepositoriesFailsOnHttpError(TestContext context)
+  {
+    Async async = context.async();
+    createStubClient("/sarch/repositories").searchRepositories("java", result -> {
+      context.assertTrue(result.failed());
+      context.assertEquals("Failed : HTTP error code : 404", result.cause().getMessage());
+      async.complete();
+    });
+  }
+}
@@ -0,0 +1,82 @@
+package server.api.verticle;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+public class LanguagePopularityTest
+{
+  private long now = 1000000L;
+
+  @Test
+  public void testRanksByDecayedRequests()
+  {
+    LanguagePopularity popularity = new LanguagePopularity(new JsonObject().put("halfLifeSeconds", 60), () -> now);
+    for (int i = 0; i < 4; i++) {
+      popularity.record("java");
+    }
+    popularity.record("go");
+    assertThat(popularity.top(1), is(Arrays.asList("java")));
+    assertEquals(4.0, popularity.getDecayedRequests("java"), 1e-9);
+
+    // two half lives later, java's requests count for a quarter of go's new ones
+    now += 120000;
+    popularity.record("go");
+    popularity.record("go");
+    assertEquals(1.0, popularity.getDecayedRequests("java"), 1e-9);
+    assertEquals(2.25, popularity.getDecayedRequests("go"), 1e-9);
+    assertThat(popularity.top(5), is(Arrays.asList("go", "java")));
+  }
+
+  @Test
+  public void testRescalesLongRunningCounters()
+  {
+    LanguagePopularity popularity = new LanguagePopularity(new JsonObject().put("halfLifeSeconds", 1), () -> now);
+    popularity.record("java");
+    popularity.record("java");
+    // far more half lives than a double could weigh without rescaling
+    now += 2000000;
+    popularity.record("go");
+    assertThat(popularity.top(2), is(Arrays.asList("go")));
+    assertEquals(1.0, popularity.getDecayedRequests("go"), 1e-9);
+    // java's requests decayed to nothing, so it was forgotten
+    assertThat(popularity.getStats().getInteger("tracked"), is(1));
+  }
+
+  @Test
+  public void testLanguagesNoLongerRequestedNotRanked()
+  {
+    LanguagePopularity popularity = new LanguagePopularity(new JsonObject().put("halfLifeSeconds", 60), () -> now);
+    popularity.record("java");
+    popularity.record("java");
+    popularity.record("go");
+    assertThat(popularity.top(5), is(Arrays.asList("java", "go")));
+
+    // two half lives later, go's request counts for less than the minimum, and java's for just enough
+    now += 120000;
+    assertThat(popularity.top(5), is(Arrays.asList("java")));
+    now += 60000;
+    assertThat(popularity.top(5), is(Arrays.<String>asList()));
+    assertThat(popularity.getStats().getInteger("tracked"), is(2));
+  }
+
+  @Test
+  public void testForgetsLeastPopularLanguages()
+  {
+    LanguagePopularity popularity = new LanguagePopularity(new JsonObject().put("maxLanguages", 4), () -> now);
+    for (String language : new String[]{"java", "go", "rust", "c"}) {
+      popularity.record(language);
+      popularity.record(language);
+    }
+    popularity.record("java");
+    popularity.record("cobol");
+    assertThat(popularity.getStats().getInteger("tracked"), is(4));
+    assertThat(popularity.top(1), is(Arrays.asList("java")));
+    assertThat(popularity.getDecayedRequests("cobol"), is(1.0));
+  }
+}
@@ -0,0 +1,73 @@
+package server.api.verticle;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServer;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(VertxUnitRunner.class)
+public class PacedResponseWriterTest
+{
+  private static final int CHUNKS = 100;
+  private static final int CHUNK_BYTES = 64 * 1024;
+
+  private Vertx vertx;
+
+  @Before
+  public void setUp()
+  {
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void tearDown(TestContext context)
+  {
+    vertx.close(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void testChunksHeldBackWhileClientDoesNotRead(TestContext context)
+  {
+    AtomicInteger encoded = new AtomicInteger();
+    PacedResponseWriter[] writer = new PacedResponseWriter[1];
+    Async listening = context.async();
+    HttpServer server = vertx.createHttpServer().requestHandler(request -> {
+      request.response().setChunked(true);
+      writer[0] = new PacedResponseWriter(request.response());
+      for (int i = 0; i < CHUNKS; i++) {
+        writer[0].write(() -> {
+          encoded.incrementAndGet();
+          return Buffer.buffer(new byte[CHUNK_BYTES]);
+        });
+      }
+      writer[0].end(() -> request.response().end());
+    }).listen(0, context.asyncAssertSuccess(listened -> listening.complete()));
+    listening.awaitSuccess(5000);
+
+    Async async = context.async();
+    vertx.createHttpClient().getNow(server.actualPort(), "localhost", "/", response -> {
+      // a client that doesn't read the response for a while
+      response.pause();
+      long[] received = {0};
+      response.handler(chunk -> received[0] += chunk.length());
+      vertx.setTimer(500, timerId -> {
+        context.assertTrue(encoded.get() < CHUNKS);
+        context.assertTrue(writer[0].getPending() > 0);
+        response.endHandler(ended -> {
+          context.assertEquals((long)CHUNKS * CHUNK_BYTES, received[0]);
+          context.assertEquals(CHUNKS, encoded.get());
+          async.complete();
+        });
+        response.resume();
+      });
+    });
+  }
+}
@@ -0,0 +1,145 @@
+package server.api.verticle;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import server.api.cache.ProjectInfoCache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(VertxUnitRunner.class)
+public class PrefetchVerticleTest
+{
+  private Vertx vertx;
+  private HttpServer stubServer;
+  private List<String> stubQueries = new ArrayList<>();
+  private int stubPages = 1;
+
+  @Before
+  public void setUp(TestContext context)
+  {
+    vertx = Vertx.vertx();
+    // stub of the GitHub search API, serving stubPages pages of one project each for any language
+    stubServer = vertx.createHttpServer().requestHandler(request -> {
+      stubQueries.add(request.getParam("q"));
+      int page = request.getParam("page") == null ? 1 : Integer.parseInt(request.getParam("page"));
+      JsonObject item = new JsonObject().put("id", page)
+                                        .put("name", "project" + page)
+                                        .put("html_url", "https://github.com/owner/project" + page)
+                                        .put("owner", new JsonObject().put("login", "owner"));
+      if (stubPages > 1) {
+        String uri = request.absoluteURI().replaceAll("&page=\\d+", "");
+        String links = "<" + uri + "&page=" + stubPages + ">; rel=\"last\"";
+        if (page < stubPages) {
+          links = "<" + uri + "&page=" + (page + 1) + ">; rel=\"next\", " + links;
+        }
+        request.response().putHeader("Link", links);
+      }
+      request.response().end(new JsonObject().put("items", new JsonArray().add(item)).encode());
+    }).listen(0, context.asyncAssertSuccess());
+  }
+
+  @After
+  public void tearDown(TestContext context)
+  {
+    vertx.close(context.asyncAssertSuccess());
+  }
+
+  private JsonObject config(int requestsPerWindow)
+  {
+    return new JsonObject().put("github", new JsonObject().put("baseUrl", "http://localhost:" + stubServer.actualPort())
+                                                          .put("rateLimit", new JsonObject()
+                                                            .put("requestsPerWindow", requestsPerWindow)))
+                           .put("prefetch", new JsonObject().put("topN", 2).put("intervalSeconds", 1));
+  }
+
+  @Test
+  public void testPrefetchesMostRequestedLanguages(TestContext context)
+  {
+    LanguagePopularity popularity = LanguagePopularity.getShared(vertx, new JsonObject());
+    for (String language : new String[]{"java", "java", "java", "go", "go", "cobol"}) {
+      popularity.record(language);
+    }
+    ProjectInfoCache cache = ProjectInfoCache.getShared(vertx, new JsonObject());
+    PrefetchVerticle prefetch = new PrefetchVerticle();
+    Async async = context.async();
+    vertx.deployVerticle(prefetch, new DeploymentOptions().setConfig(config(100)), context.asyncAssertSuccess(id -> {
+      vertx.setPeriodic(100, timerId -> {
+        if (cache.getLastKnown("java") != null && cache.getLastKnown("go") != null) {
+          vertx.cancelTimer(timerId);
+          // java first, as it is the most requested, and then go, but not cobol which isn't in the top 2
+          context.assertEquals("language:java", stubQueries.get(0));
+          context.assertEquals("language:go", stubQueries.get(1));
+          context.assertEquals(2, stubQueries.size());
+          context.assertEquals(2L, prefetch.getStats().getLong("prefetches"));
+          // prefetches aren't counted as requests
+          context.assertEquals(6L, popularity.getStats().getLong("requests"));
+          async.complete();
+        }
+      });
+    }));
+  }
+
+  @Test
+  public void testPrefetchPagesSpreadWithinBudget(TestContext context)
+  {
+    // a language of 10 pages, with the default quota of 10 requests a window and prefetch share of half of it, in
+    // windows of a second
+    stubPages = 10;
+    LanguagePopularity.getShared(vertx, new JsonObject()).record("java");
+    ProjectInfoCache cache = ProjectInfoCache.getShared(vertx, new JsonObject());
+    JsonObject config = config(10);
+    config.getJsonObject("github").getJsonObject("rateLimit").put("windowSeconds", 1);
+    PrefetchVerticle prefetch = new PrefetchVerticle();
+    Async async = context.async();
+    long start = System.currentTimeMillis();
+    vertx.deployVerticle(prefetch, new DeploymentOptions().setConfig(config), context.asyncAssertSuccess(id -> {
+      vertx.setPeriodic(100, timerId -> {
+        if (cache.getLastKnown("java") == null) {
+          return;
+        }
+        vertx.cancelTimer(timerId);
+        context.assertEquals(10, cache.getLastKnown("java").getProjects().size());
+        context.assertFalse(cache.getLastKnown("java").getProjects().isPartial());
+        // at most 5 pages a window, the other half of the quota being kept for the callers
+        context.assertTrue(System.currentTimeMillis() - start >= 1000);
+        long windows = (System.currentTimeMillis() - start) / 1000 + 1;
+        context.assertTrue(stubQueries.size() <= 5 * windows);
+        context.assertEquals(1L, prefetch.getStats().getLong("prefetches"));
+        async.complete();
+      });
+    }));
+  }
+
+  @Test
+  public void testPrefetchDeferredWhileQuotaKeptForCallers(TestContext context)
+  {
+    LanguagePopularity.getShared(vertx, new JsonObject()).record("java");
+    JsonObject config = config(10);
+    RateLimitGovernor governor = RateLimitGovernor.getShared(vertx, config.getJsonObject("github")
+                                                                          .getJsonObject("rateLimit"));
+    // the callers have used half of the quota of the window
+    for (int i = 0; i < 5; i++) {
+      governor.acquire(context.asyncAssertSuccess());
+    }
+    PrefetchVerticle prefetch = new PrefetchVerticle();
+    Async async = context.async();
+    vertx.deployVerticle(prefetch, new DeploymentOptions().setConfig(config), context.asyncAssertSuccess(id -> {
+      vertx.setTimer(1500, timerId -> {
+        context.assertTrue(stubQueries.isEmpty());
+        context.assertTrue(prefetch.getStats().getLong("deferred") > 0);
+        async.complete();
+      });
+    }));
+  }
+}
@@ -0,0 +1,145 @@
+package server.api.verticle;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+import server.api.model.ProjectInfo;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static server.api.verticle.ProjectsApiImplTest.TEST_PAGE_JSON;
+import static server.api.verticle.ProjectsApiImplTest.TEST_PAGE_JSON_2;
+
+public class ProjectInfoPageDecoderTest
+{
+  @Test
+  public void testStreamingDecodeMatchesTreeDecode() throws Exception
+  {
+    for (String page : new String[]{TEST_PAGE_JSON, TEST_PAGE_JSON_2}) {
+      List<ProjectInfo> projects = ProjectInfoPageDecoder.decode(Buffer.buffer(page));
+      assertThat(projects, is(ProjectInfoPageDecoder.decode(new JsonObject(page))));
+    }
+    List<ProjectInfo> projects = ProjectInfoPageDecoder.decode(Buffer.buffer(TEST_PAGE_JSON));
+    assertThat(projects.size(), is(1));
+    assertThat(projects.get(0), is(new ProjectInfo(3081286L, "Tetris", "https://github.com/dtrupenn/Tetris", "dtrupenn")));
+  }
+
+  @Test
+  public void testStreamingDecodeSkipsOtherValues() throws Exception
+  {
+    String page = "{\"total_count\":2,\"items\":[{\"owner\":{\"id\":{\"nested\":[1,{\"login\":\"no\"}]},\"login\":\"o\"}," +
+                  "\"topics\":[\"a\",[\"b\"]],\"id\":7,\"license\":null,\"name\":\"n\",\"html_url\":\"u\"}]," +
+                  "\"incomplete_results\":false}";
+    assertThat(ProjectInfoPageDecoder.decode(Buffer.buffer(page)).get(0), is(new ProjectInfo(7L, "n", "u", "o")));
+  }
+
+  @Test
+  public void testMissingValuesFail() throws Exception
+  {
+    assertDecodeFails("{\"total_count\":0}", "No Value for key items");
+    assertDecodeFails("{\"items\":null}", "No Value for key items");
+    assertDecodeFails("{\"items\":[{\"name\":\"n\",\"html_url\":\"u\",\"owner\":{\"login\":\"o\"}}]}",
+                      "No Value for key id");
+    assertDecodeFails("{\"items\":[{\"id\":1,\"name\":null,\"html_url\":\"u\",\"owner\":{\"login\":\"o\"}}]}",
+                      "No Value for key name");
+    assertDecodeFails("{\"items\":[{\"id\":1,\"name\":\"n\",\"owner\":{\"login\":\"o\"}}]}",
+                      "No Value for key html_url");
+    assertDecodeFails("{\"items\":[{\"id\":1,\"name\":\"n\",\"html_url\":\"u\"}]}", "No Value for key owner");
+    assertDecodeFails("{\"items\":[{\"id\":1,\"name\":\"n\",\"html_url\":\"u\",\"owner\":{}}]}",
+                      "No Value for key login");
+  }
+
+  @Test
+  public void testInvalidValuesFail() throws Exception
+  {
+    assertDecodeFails("{\"items\":{}}", null);
+    assertDecodeFails("{\"items\":[1]}", null);
+    assertDecodeFails("{\"items\":[{\"id\":\"1\",\"name\":\"n\",\"html_url\":\"u\",\"owner\":{\"login\":\"o\"}}]}", null);
+    assertDecodeFails("{\"items\":[{\"id\":1,\"name\":2,\"html_url\":\"u\",\"owner\":{\"login\":\"o\"}}]}", null);
+  }
+
+  @Test(expected = JSONProcessingException.class)
+  public void testMalformedJSONFails() throws Exception
+  {
+    ProjectInfoPageDecoder.decode(Buffer.buffer("{\"items\":[{\"id\":1,"));
+  }
+
+  @Test
+  public void testDecodeUpdated() throws Exception
+  {
+    ProjectInfoPageDecoder.UpdatedProjects updated =
+      ProjectInfoPageDecoder.decodeUpdated(Buffer.buffer(TEST_PAGE_JSON));
+    assertThat(updated.getProjects(), is(ProjectInfoPageDecoder.decode(Buffer.buffer(TEST_PAGE_JSON))));
+
+    String page = "{\"items\":[" + updatedItem(1, "2018-02-21T00:48:49Z") + "," +
+                  updatedItem(2, "2018-02-20T00:00:00Z") + "," + updatedItem(3, "2013-01-05T17:58:47Z") + "]}";
+    updated = ProjectInfoPageDecoder.decodeUpdated(Buffer.buffer(page));
+    long since = Instant.parse("2018-02-20T00:00:00Z").toEpochMilli();
+    assertThat(updated.getUpdatedSince(since).size(), is(2));
+    assertThat(updated.getUpdatedSince(since).get(1).getId(), is(2L));
+    assertThat(updated.reaches(since), is(true));
+    assertThat(updated.reaches(Instant.parse("2013-01-05T17:58:47Z").toEpochMilli()), is(false));
+
+    for (String invalidUpdatedAt : new String[]{"null", "20180221", "\"yesterday\""}) {
+      String invalidPage = "{\"items\":[" + updatedItem(1, "x").replace("\"x\"", invalidUpdatedAt) + "]}";
+      try {
+        ProjectInfoPageDecoder.decodeUpdated(Buffer.buffer(invalidPage));
+        fail("Decoding an item without a valid updated_at should fail");
+      } catch (JSONProcessingException e) {
+        assertThat(e.getMessage().endsWith("updated_at"), is(true));
+      }
+    }
+  }
+
+  private static String updatedItem(long id, String updatedAt)
+  {
+    return new JsonObject().put("id", id)
+                           .put("name", "project" + id)
+                           .put("html_url", "https://github.com/owner/project" + id)
+                           .put("owner", new JsonObject().put("login", "owner"))
+                           .put("updated_at", updatedAt)
+                           .encode();
+  }
+
+  @Test
+  public void testDecodeTotalCount() throws Exception
+  {
+    assertThat(ProjectInfoPageDecoder.decodeTotalCount(Buffer.buffer(TEST_PAGE_JSON)),
+               is(new JsonObject(TEST_PAGE_JSON).getInteger("total_count")));
+    String page = "{\"incomplete_results\":false,\"items\":[{\"total_count\":1}],\"total_count\":12345}";
+    assertThat(ProjectInfoPageDecoder.decodeTotalCount(Buffer.buffer(page)), is(12345));
+    try {
+      ProjectInfoPageDecoder.decodeTotalCount(Buffer.buffer("{\"items\":[]}"));
+      fail("Decoding a page without a total count should fail");
+    } catch (JSONProcessingException e) {
+      assertThat(e.getMessage(), is("No Value for key total_count"));
+    }
+  }
+
+  /**
+   * Both decoders must reject the page, with the given message if any.
+   */
+  private static void assertDecodeFails(String page, String message)
+  {
+    try {
+      ProjectInfoPageDecoder.decode(Buffer.buffer(page));
+      fail("Streaming decode of " + page + " should have failed");
+    } catch (JSONProcessingException e) {
+      if (message != null) {
+        assertThat(e.getMessage(), is(message));
+      }
+    }
+    try {
+      ProjectInfoPageDecoder.decode(new JsonObject(page));
+      fail("Tree decode of " + page + " should have failed");
+    } catch (JSONProcessingException e) {
+      if (message != null) {
+        assertThat(e.getMessage(), is(message));
+      }
+    }
+  }
+}
@@ -1,23 +1,37 @@
 package server.api.verticle;
 
+import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Test;
+import org.junit.runner.RunWith;
 import server.api.model.ProjectInfo;
+import server.api.model.ProjectInfoField;
+import server.api.model.ProjectInfoList;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.IntPredicate;
 import java.util.stream.Stream;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+@RunWith(VertxUnitRunner.class)
 public class ProjectsApiImplTest
 {
-  private ProjectsApiImpl projectsApi = new ProjectsApiImpl(Vertx.vertx());
+  private Vertx vertx = Vertx.vertx();
+  private ProjectsApiImpl projectsApi = new ProjectsApiImpl(vertx);
 
   @Test
   public void testInvalidLanguageFails() throws Exception
@@ -72,17 +86,37 @@ public class ProjectsApiImplTest
   }
 
   @Test
-  public void testGitHubServiceFailHandled() throws Exception
+  public void testGitHubServiceFailHandled(TestContext context) throws Exception
   {
-    // incorrect url
-    projectsApi.setGitHubServiceClient(new GitHubServiceClientImpl() {
-      @NotNull
-      @Override
-      protected String getRepositorySearchURI(String language)
-      {
-        return "https://api.github.com/sarch/repositories?per_page=100&q=language:" + language;
-      }
-    });
+    // local stub of api.github.com that doesn't know the requested path
+    Async async = context.async();
+    vertx.createHttpServer()
+         .requestHandler(request -> request.response().setStatusCode(404).end())
+         .listen(0, context.asyncAssertSuccess(stubServer -> {
+           // incorrect url
+           projectsApi.setGitHubServiceClient(new GitHubServiceClientImpl(vertx) {
+             @NotNull
+             @Override
+             protected String getRepositorySearchURI(String language)
+             {
+               return "http://localhost:" + stubServer.actualPort() + "/sarch/repositories?per_page=100&q=language:" +
+                      language;
+             }
+           });
+           projectsApi.findProjectsByLanguage("java", result -> {
+             context.assertTrue(result.failed());
+             context.assertTrue(result.cause() instanceof ProjectsApiException);
+             context.assertEquals(500, ((ProjectsApiException)result.cause()).getStatusCode());
+             async.complete();
+           });
+         }));
+  }
+
+  @Test
+  public void testParsePageFailHandled() throws Exception
+  {
+    projectsApi.setGitHubServiceClient(new PagesGitHubServiceClient((language, handler) -> handler.handle(
+      Future.succeededFuture(Collections.singletonList(new JsonObject(PAGE_FAIL_PAGE_JSON))))));
     Future<List<ProjectInfo>> future = Future.future();
     projectsApi.findProjectsByLanguage("java", future);
     assertThat(future.failed(), is(true));
@@ -91,9 +125,10 @@ public class ProjectsApiImplTest
   }
 
   @Test
-  public void testParsePageFailHandled() throws Exception
+  public void testParseProjectFailHandled() throws Exception
   {
-    projectsApi.setGitHubServiceClient(language -> Collections.singletonList(new JsonObject(PAGE_FAIL_PAGE_JSON)));
+    projectsApi.setGitHubServiceClient(new PagesGitHubServiceClient((language, handler) -> handler.handle(
+      Future.succeededFuture(Collections.singletonList(new JsonObject(PROJECT_FAIL_PAGE_JSON))))));
     Future<List<ProjectInfo>> future = Future.future();
     projectsApi.findProjectsByLanguage("java", future);
     assertThat(future.failed(), is(true));
@@ -102,14 +137,405 @@ public class ProjectsApiImplTest
   }
 
   @Test
-  public void testParseProjectFailHandled() throws Exception
+  public void testResultsCachedByNormalizedLanguage() throws Exception
+  {
+    int[] searchCount = {0};
+    projectsApi.setGitHubServiceClient(new PagesGitHubServiceClient((language, handler) -> {
+      searchCount[0]++;
+      handler.handle(Future.succeededFuture(Collections.singletonList(new JsonObject(TEST_PAGE_JSON))));
+    }));
+    Future<List<ProjectInfo>> first = Future.future();
+    projectsApi.findProjectsByLanguage("Java", first);
+    Future<List<ProjectInfo>> second = Future.future();
+    projectsApi.findProjectsByLanguage("java ", second);
+    assertThat(second.result(), is(first.result()));
+    assertThat(searchCount[0], is(1));
+    assertThat(projectsApi.getProjectInfoCache().getStats().getLong("hits"), is(1L));
+  }
+
+  @Test
+  public void testConcurrentSearchesCoalesced() throws Exception
   {
-    projectsApi.setGitHubServiceClient(language -> Collections.singletonList(new JsonObject(PROJECT_FAIL_PAGE_JSON)));
+    List<Handler<AsyncResult<List<JsonObject>>>> searches = new ArrayList<>();
+    projectsApi.setGitHubServiceClient(new PagesGitHubServiceClient((language, handler) -> searches.add(handler)));
+    Future<List<ProjectInfo>> first = Future.future();
+    projectsApi.findProjectsByLanguage("java", first);
+    Future<List<ProjectInfo>> second = Future.future();
+    projectsApi.findProjectsByLanguage("Java", second);
+    assertThat(searches.size(), is(1));
+    assertThat(first.isComplete(), is(false));
+
+    searches.get(0).handle(Future.failedFuture(new IOException("Failed : HTTP error code : 403")));
+    assertThat(first.failed(), is(true));
+    assertThat(second.failed(), is(true));
+    assertThat(((ProjectsApiException)second.cause()).getStatusCode(), is(500));
+
+    // the failure isn't cached, and the next caller searches again
+    projectsApi.findProjectsByLanguage("java", Future.future());
+    assertThat(searches.size(), is(2));
+  }
+
+  @Test
+  public void testStreamProjectsByLanguage() throws Exception
+  {
+    projectsApi.setGitHubServiceClient(new PagesGitHubServiceClient((language, handler) -> handler.handle(
+      Future.succeededFuture(Arrays.asList(new JsonObject(TEST_PAGE_JSON), new JsonObject(TEST_PAGE_JSON_2))))));
+    List<List<ProjectInfo>> batches = new ArrayList<>();
+    Future<Void> end = Future.future();
+    projectsApi.streamProjectsByLanguage("java", batches::add, end);
+    assertThat(end.succeeded(), is(true));
+    assertThat(batches.size(), is(2));
+    assertThat(batches.get(0).get(0).getName(), is("Tetris"));
+    assertThat(batches.get(1).get(0).getName(), is("tetros"));
+
+    // once cached, the projects are streamed in a single batch
+    batches.clear();
+    projectsApi.streamProjectsByLanguage("java", batches::add, Future.future());
+    assertThat(batches.size(), is(1));
+    assertThat(batches.get(0).size(), is(2));
+  }
+
+  @Test
+  public void testStreamInvalidLanguageFails() throws Exception
+  {
+    Future<Void> end = Future.future();
+    projectsApi.streamProjectsByLanguage(" ", projects -> {}, end);
+    assertThat(end.failed(), is(true));
+    assertThat(((ProjectsApiException)end.cause()).getStatusCode(), is(400));
+  }
+
+  @Test
+  public void testRateLimitedSearchReturnsPartialResults() throws Exception
+  {
+    projectsApi.setGitHubServiceClient(new PagesGitHubServiceClient(
+      (language, handler) -> handler.handle(Future.failedFuture(new RateLimitExceededException(0))))
+    {
+      @Override
+      public void streamRepositories(String language,
+                                     Handler<JsonObject> pageHandler,
+                                     Handler<AsyncResult<Void>> endHandler)
+      {
+        pageHandler.handle(new JsonObject(TEST_PAGE_JSON));
+        endHandler.handle(Future.failedFuture(new RateLimitExceededException(0)));
+      }
+    });
+    Future<List<ProjectInfo>> future = Future.future();
+    projectsApi.findProjectsByLanguage("java", future);
+    assertThat(future.succeeded(), is(true));
+    assertThat(future.result().size(), is(1));
+    assertThat(((ProjectInfoList)future.result()).isPartial(), is(true));
+  }
+
+  @Test
+  public void testRateLimitedSearchWithoutResultsFails() throws Exception
+  {
+    projectsApi.setGitHubServiceClient(new PagesGitHubServiceClient(
+      (language, handler) -> handler.handle(Future.failedFuture(new RateLimitExceededException(0)))));
     Future<List<ProjectInfo>> future = Future.future();
     projectsApi.findProjectsByLanguage("java", future);
     assertThat(future.failed(), is(true));
-    assertThat(future.cause(), is(instanceOf(ProjectsApiException.class)));
-    assertThat(((ProjectsApiException)future.cause()).getStatusCode(), is(500));
+    assertThat(((ProjectsApiException)future.cause()).getStatusCode(), is(503));
+  }
+
+  @Test
+  public void testLastKnownProjectsServedWhileCallsNotPermitted() throws Exception
+  {
+    // cached projects are never served as fresh or stale
+    JsonObject config = new JsonObject().put("cache", new JsonObject().put("ttlSeconds", 0).put("staleSeconds", 0));
+    ProjectsApiImpl projectsApi = new ProjectsApiImpl(Vertx.vertx(), config);
+    projectsApi.setGitHubServiceClient(new PagesGitHubServiceClient((language, handler) -> handler.handle(
+      Future.failedFuture(new CallNotPermittedException("GitHub circuit breaker is open")))));
+    Future<List<ProjectInfo>> failed = Future.future();
+    projectsApi.findProjectsByLanguage("java", failed);
+    assertThat(failed.failed(), is(true));
+    assertThat(((ProjectsApiException)failed.cause()).getStatusCode(), is(503));
+
+    ProjectInfoList lastKnown = new ProjectInfoList(Collections.emptyList(), false);
+    projectsApi.getProjectInfoCache().put("java", lastKnown);
+    Future<List<ProjectInfo>> lastKnownProjects = Future.future();
+    projectsApi.findProjectsByLanguage("java", lastKnownProjects);
+    assertThat(lastKnownProjects.result(), is(lastKnown));
+  }
+
+  @Test
+  public void testRangeFetchesOnlyProjectsNeeded() throws Exception
+  {
+    // a language with 5 projects
+    List<Integer> searches = new ArrayList<>();
+    projectsApi.setGitHubServiceClient(new PagesGitHubServiceClient(
+      (language, handler) -> handler.handle(Future.failedFuture(new IOException("not searched with a limit"))))
+    {
+      @Override
+      public void streamProjects(String language,
+                                 ProjectInfoList previous,
+                                 int maxProjects,
+                                 Handler<List<ProjectInfo>> projectsHandler,
+                                 Handler<AsyncResult<Void>> endHandler)
+      {
+        searches.add(maxProjects);
+        List<ProjectInfo> projects = new ArrayList<>();
+        for (long id = 1; id <= Math.min(5, maxProjects); id++) {
+          projects.add(new ProjectInfo(id, "project" + id, "https://github.com/owner/project" + id, "owner"));
+        }
+        projectsHandler.handle(projects);
+        endHandler.handle(Future.succeededFuture());
+      }
+    });
+    Future<List<ProjectInfo>> first = Future.future();
+    projectsApi.findProjectsByLanguage("java", new ProjectsQuery(0, 2, ProjectInfoField.ALL), first);
+    assertThat(searches, is(Arrays.asList(2)));
+    assertThat(first.result().size(), is(2));
+    assertThat(((ProjectInfoList)first.result()).isTruncated(), is(true));
+
+    // served from the first projects cached
+    Future<List<ProjectInfo>> second = Future.future();
+    projectsApi.findProjectsByLanguage("java", new ProjectsQuery(1, 1, ProjectInfoField.ALL), second);
+    assertThat(searches.size(), is(1));
+    assertThat(second.result().get(0).getId(), is(2L));
+
+    // beyond them, only the projects up to the end of the range are fetched
+    Future<List<ProjectInfo>> third = Future.future();
+    projectsApi.findProjectsByLanguage("java", new ProjectsQuery(2, 2, ProjectInfoField.ALL), third);
+    assertThat(searches, is(Arrays.asList(2, 4)));
+    assertThat(third.result().get(0).getId(), is(3L));
+
+    // and all of them for a range without a limit
+    Future<List<ProjectInfo>> all = Future.future();
+    projectsApi.findProjectsByLanguage("java", new ProjectsQuery(3, null, ProjectInfoField.ALL), all);
+    assertThat(searches, is(Arrays.asList(2, 4, ProjectsQuery.MAX_PROJECTS)));
+    assertThat(all.result().size(), is(2));
+    assertThat(((ProjectInfoList)all.result()).isTruncated(), is(false));
+  }
+
+  @Test
+  public void testFilteredRangeServedFromCachedProjects() throws Exception
+  {
+    List<Integer> searches = new ArrayList<>();
+    projectsApi.setGitHubServiceClient(new PagesGitHubServiceClient(
+      (language, handler) -> handler.handle(Future.failedFuture(new IOException("not searched with a limit"))))
+    {
+      @Override
+      public void streamProjects(String language,
+                                 ProjectInfoList previous,
+                                 int maxProjects,
+                                 Handler<List<ProjectInfo>> projectsHandler,
+                                 Handler<AsyncResult<Void>> endHandler)
+      {
+        searches.add(maxProjects);
+        projectsHandler.handle(Arrays.asList(
+          new ProjectInfo(3L, "vertx-web", "https://github.com/vert-x3/vertx-web", "vert-x3"),
+          new ProjectInfo(1L, "tetris", "https://github.com/dtrupenn/tetris", "dtrupenn"),
+          new ProjectInfo(2L, "vertx-core", "https://github.com/vert-x3/vertx-core", "vert-x3")));
+        endHandler.handle(Future.succeededFuture());
+      }
+    });
+    // a filtered range needs all the projects, even with a limit
+    Future<List<ProjectInfo>> first = Future.future();
+    projectsApi.findProjectsByLanguage("java",
+                                       ProjectsQuery.parse(null, "1", null, null, "Vert-x3", null, null, "id"),
+                                       first);
+    assertThat(searches, is(Arrays.asList(ProjectsQuery.MAX_PROJECTS)));
+    assertThat(first.result().get(0).getId(), is(2L));
+    assertThat(((ProjectInfoList)first.result()).isTruncated(), is(true));
+
+    // and is then selected from the cached projects
+    Future<List<ProjectInfo>> second = Future.future();
+    projectsApi.findProjectsByLanguage("java",
+                                       ProjectsQuery.parse("1", null, null, null, null, "VERTX", null, "name"),
+                                       second);
+    assertThat(searches.size(), is(1));
+    assertThat(second.result().size(), is(1));
+    assertThat(second.result().get(0).getName(), is("vertx-web"));
+  }
+
+  @Test(expected = ProjectsApiException.class)
+  public void testInvalidSortRejected() throws Exception
+  {
+    ProjectsQuery.parse(null, null, null, null, null, null, null, "stars");
+  }
+
+  @Test
+  public void testBatchServesCachedLanguagesFirstAndSearchesOthersOnce() throws Exception
+  {
+    List<String> searched = new ArrayList<>();
+    projectsApi.setGitHubServiceClient(new PagesGitHubServiceClient((language, handler) -> {
+      searched.add(language);
+      handler.handle(Future.succeededFuture(Collections.singletonList(new JsonObject(TEST_PAGE_JSON))));
+    }));
+    projectsApi.getProjectInfoCache().put("go", new ProjectInfoList(Collections.emptyList(), false));
+    List<String> results = new ArrayList<>();
+    Future<Void> end = Future.future();
+    projectsApi.findProjectsByLanguages(Arrays.asList("Java", "go", "java ", "rust"), ProjectsQuery.ALL, result -> {
+      assertThat(result.getRight().succeeded(), is(true));
+      results.add(result.getLeft());
+    }, end);
+    assertThat(end.succeeded(), is(true));
+    assertThat(results, is(Arrays.asList("go", "java", "rust")));
+    assertThat(searched, is(Arrays.asList("java", "rust")));
+  }
+
+  @Test
+  public void testBatchStopsSearchingOnceRateLimited() throws Exception
+  {
+    ProjectsApiImpl projectsApi = new ProjectsApiImpl(Vertx.vertx(), new JsonObject().put(
+      "projectsApi", new JsonObject().put("batchParallelism", 1)));
+    List<String> searched = new ArrayList<>();
+    projectsApi.setGitHubServiceClient(new PagesGitHubServiceClient((language, handler) -> {
+      searched.add(language);
+      handler.handle(Future.failedFuture(new RateLimitExceededException(0)));
+    }));
+    List<AsyncResult<List<ProjectInfo>>> results = new ArrayList<>();
+    Future<Void> end = Future.future();
+    projectsApi.findProjectsByLanguages(Arrays.asList("java", "go"), ProjectsQuery.ALL,
+                                        result -> results.add(result.getRight()), end);
+    assertThat(end.succeeded(), is(true));
+    assertThat(searched, is(Arrays.asList("java")));
+    assertThat(results.size(), is(2));
+    assertThat(((ProjectsApiException)results.get(1).cause()).getStatusCode(), is(503));
+  }
+
+  @Test
+  public void testBatchWithBlankLanguageFails() throws Exception
+  {
+    Future<Void> end = Future.future();
+    projectsApi.findProjectsByLanguages(Arrays.asList("java", " "), ProjectsQuery.ALL, result -> {}, end);
+    assertThat(end.failed(), is(true));
+    assertThat(((ProjectsApiException)end.cause()).getStatusCode(), is(400));
+  }
+
+  @Test
+  public void testUnmodifiedProjectsKeptOnRefresh() throws Exception
+  {
+    // cached projects are always stale, so are refreshed as soon as they are served
+    JsonObject config = new JsonObject().put("cache", new JsonObject().put("ttlSeconds", 0));
+    ProjectsApiImpl projectsApi = new ProjectsApiImpl(Vertx.vertx(), config);
+    ProjectInfoList cached = new ProjectInfoList(ProjectsApiImpl.createAllProjectInfos(Collections.singletonList(
+      new JsonObject(TEST_PAGE_JSON))), false, Collections.singletonList("\"page1\""), 1000L);
+    List<ProjectInfoList> revalidated = new ArrayList<>();
+    projectsApi.setGitHubServiceClient(new PagesGitHubServiceClient(
+      (language, handler) -> handler.handle(Future.failedFuture(new IOException("not revalidated"))))
+    {
+      @Override
+      public void streamProjects(String language,
+                                 ProjectInfoList previous,
+                                 Handler<List<ProjectInfo>> projectsHandler,
+                                 Handler<AsyncResult<Void>> endHandler)
+      {
+        revalidated.add(previous);
+        // as the GitHub client does when the page is not modified
+        projectsHandler.handle(new ProjectInfoList(previous, false, previous.getPageETags()));
+        endHandler.handle(Future.succeededFuture());
+      }
+    });
+    projectsApi.getProjectInfoCache().put("java", cached);
+    Future<List<ProjectInfo>> future = Future.future();
+    projectsApi.findProjectsByLanguage("java", future);
+    assertThat(future.result(), is(sameInstance(cached)));
+    assertThat(revalidated, is(Collections.singletonList(cached)));
+    ProjectInfoList refreshed = projectsApi.getProjectInfoCache().getLastKnown("java").getProjects();
+    assertThat(refreshed, is(sameInstance(cached)));
+    assertThat(refreshed.getLastModified(), is(1000L));
+  }
+
+  /**
+   * A GitHub client searching the result pages given by a search function, for a language or a query alike.
+   * Previous projects are not revalidated, so their pages are always searched again.
+   */
+  private static class PagesGitHubServiceClient implements GitHubServiceClient
+  {
+    private final BiConsumer<String, Handler<AsyncResult<List<JsonObject>>>> search;
+
+    PagesGitHubServiceClient(BiConsumer<String, Handler<AsyncResult<List<JsonObject>>>> search)
+    {
+      this.search = search;
+    }
+
+    @Override
+    public void searchRepositories(String language, Handler<AsyncResult<List<JsonObject>>> handler)
+    {
+      search.accept(language, handler);
+    }
+
+    @Override
+    public void streamProjects(String language,
+                               ProjectInfoList previous,
+                               Handler<List<ProjectInfo>> projectsHandler,
+                               Handler<AsyncResult<Void>> endHandler)
+    {
+      streamProjects(language, projectsHandler, endHandler);
+    }
+
+    @Override
+    public void streamProjects(String language,
+                               ProjectInfoList previous,
+                               int maxProjects,
+                               Handler<List<ProjectInfo>> projectsHandler,
+                               Handler<AsyncResult<Void>> endHandler)
+    {
+      int[] remaining = {maxProjects};
+      streamProjects(language, previous, projects -> {
+        if (remaining[0] > 0) {
+          projectsHandler.handle(projects.size() <= remaining[0] ? projects : projects.subList(0, remaining[0]));
+          remaining[0] -= projects.size();
+        }
+      }, endHandler);
+    }
+
+    @Override
+    public void streamProjectsMatching(String query,
+                                       IntPredicate totalCountFilter,
+                                       Handler<List<ProjectInfo>> projectsHandler,
+                                       Handler<AsyncResult<Void>> endHandler)
+    {
+      search.accept(query, pages -> {
+        if (pages.failed()) {
+          endHandler.handle(Future.failedFuture(pages.cause()));
+          return;
+        }
+        List<JsonObject> found = pages.result();
+        if (!found.isEmpty() && !totalCountFilter.test(found.get(0).getInteger("total_count", 0))) {
+          endHandler.handle(Future.succeededFuture());
+          return;
+        }
+        try {
+          found.forEach(page -> projectsHandler.handle(ProjectInfoPageDecoder.decode(page)));
+        } catch (JSONProcessingException e) {
+          endHandler.handle(Future.failedFuture(e));
+          return;
+        }
+        endHandler.handle(Future.succeededFuture());
+      });
+    }
+
+    @Override
+    public void streamProjectsUpdatedSince(String language,
+                                           long since,
+                                           Handler<List<ProjectInfo>> projectsHandler,
+                                           Handler<AsyncResult<Boolean>> endHandler)
+    {
+      search.accept(language, pages -> {
+        if (pages.failed()) {
+          endHandler.handle(Future.failedFuture(pages.cause()));
+          return;
+        }
+        try {
+          for (JsonObject page : pages.result()) {
+            ProjectInfoPageDecoder.UpdatedProjects updated = ProjectInfoPageDecoder.decodeUpdated(page.toBuffer());
+            List<ProjectInfo> projects = updated.getUpdatedSince(since);
+            if (!projects.isEmpty()) {
+              projectsHandler.handle(projects);
+            }
+            if (updated.reaches(since)) {
+              break;
+            }
+          }
+        } catch (JSONProcessingException e) {
+          endHandler.handle(Future.failedFuture(e));
+          return;
+        }
+        endHandler.handle(Future.succeededFuture(true));
+      });
+    }
   }
 
   //  @Test
@@ -0,0 +1,125 @@
+package server.api.verticle;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class RateLimitGovernorTest
+{
+  private Vertx vertx;
+
+  @Before
+  public void setUp()
+  {
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void tearDown(TestContext context)
+  {
+    vertx.close(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void testShedsBeyondLimit(TestContext context)
+  {
+    RateLimitGovernor governor = new RateLimitGovernor(vertx, new JsonObject().put("requestsPerWindow", 2)
+                                                                              .put("maxWaitSeconds", 0));
+    governor.acquire(context.asyncAssertSuccess());
+    governor.acquire(context.asyncAssertSuccess());
+    governor.acquire(context.asyncAssertFailure(cause -> {
+      context.assertTrue(cause instanceof RateLimitExceededException);
+      context.assertEquals(1L, governor.getStats().getLong("shed"));
+      // called back outside the lock shared by all the event loops
+      context.assertFalse(Thread.holdsLock(governor));
+    }));
+  }
+
+  @Test
+  public void testQueuesUntilWindowReset(TestContext context)
+  {
+    RateLimitGovernor governor = new RateLimitGovernor(vertx, new JsonObject().put("requestsPerWindow", 1)
+                                                                              .put("windowSeconds", 1)
+                                                                              .put("maxWaitSeconds", 5));
+    Async async = context.async();
+    vertx.runOnContext(v -> {
+      long start = System.currentTimeMillis();
+      governor.acquire(context.asyncAssertSuccess());
+      governor.acquire(context.asyncAssertSuccess(granted -> {
+        context.assertTrue(System.currentTimeMillis() - start >= 500);
+        context.assertNotNull(Vertx.currentContext());
+        async.complete();
+      }));
+      context.assertEquals(1, governor.getStats().getInteger("queued"));
+    });
+  }
+
+  @Test
+  public void testQuotaTrackedFromHeaders(TestContext context)
+  {
+    RateLimitGovernor governor = new RateLimitGovernor(vertx, new JsonObject().put("maxWaitSeconds", 0));
+    long resetSeconds = System.currentTimeMillis() / 1000 + 120;
+    MultiMap headers = MultiMap.caseInsensitiveMultiMap()
+                               .add("X-RateLimit-Limit", "30")
+                               .add("X-RateLimit-Remaining", "0")
+                               .add("X-RateLimit-Reset", String.valueOf(resetSeconds));
+    governor.update(headers);
+    context.assertEquals(30, governor.getStats().getInteger("limit"));
+    context.assertEquals(resetSeconds * 1000, governor.getStats().getLong("resetAt"));
+    governor.acquire(context.asyncAssertFailure());
+  }
+
+  @Test
+  public void testBudgetedRequestsSpreadOverWindows(TestContext context)
+  {
+    RateLimitGovernor governor = new RateLimitGovernor(vertx, new JsonObject().put("requestsPerWindow", 4)
+                                                                              .put("windowSeconds", 1)
+                                                                              .put("maxWaitSeconds", 0));
+    Async async = context.async();
+    vertx.runOnContext(v -> {
+      long start = System.currentTimeMillis();
+      // half of the quota, so 2 requests a window
+      governor.acquire(0.5, context.asyncAssertSuccess());
+      governor.acquire(0.5, context.asyncAssertSuccess());
+      context.assertFalse(governor.isWithinBudget(1, 0.5));
+      governor.acquire(0.5, context.asyncAssertSuccess(granted -> {
+        context.assertTrue(System.currentTimeMillis() - start >= 500);
+        context.assertNotNull(Vertx.currentContext());
+        async.complete();
+      }));
+      context.assertEquals(1, governor.getStats().getInteger("budgetQueued"));
+      // while the rest of the quota is left to the callers
+      governor.acquire(context.asyncAssertSuccess());
+      governor.acquire(context.asyncAssertSuccess());
+      context.assertEquals(0L, governor.getStats().getLong("shed"));
+    });
+  }
+
+  @Test
+  public void testReleasedPermitGrantsQueuedRequest(TestContext context)
+  {
+    RateLimitGovernor governor = new RateLimitGovernor(vertx, new JsonObject().put("requestsPerWindow", 1)
+                                                                              .put("windowSeconds", 60)
+                                                                              .put("maxWaitSeconds", 120));
+    Async async = context.async();
+    vertx.runOnContext(v -> {
+      long start = System.currentTimeMillis();
+      governor.acquire(context.asyncAssertSuccess());
+      governor.acquire(context.asyncAssertSuccess(granted -> {
+        // granted by the release, well before the window is reset
+        context.assertTrue(System.currentTimeMillis() - start < 10000);
+        context.assertEquals(0, governor.getStats().getInteger("remaining"));
+        async.complete();
+      }));
+      governor.release();
+    });
+  }
+}
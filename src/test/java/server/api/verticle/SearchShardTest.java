@@ -0,0 +1,61 @@
+package server.api.verticle;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SearchShardTest
+{
+  private static final LocalDate TODAY = LocalDate.of(2026, 10, 17);
+
+  @Test
+  public void testQuery()
+  {
+    assertThat(SearchShard.all("java", TODAY, 1000).getQuery(),
+               is("language:java created:2007-10-01..2026-10-17 stars:0..1000"));
+    assertThat(SearchShard.all("visual basic", TODAY, 10).getQuery(),
+               is("language:\"visual basic\" created:2007-10-01..2026-10-17 stars:0..10"));
+  }
+
+  @Test
+  public void testSplitsAlongPreferredPartition()
+  {
+    SearchShard shard = new SearchShard("java", LocalDate.of(2010, 1, 1), LocalDate.of(2010, 1, 10), 0, 9);
+    // the earliest created half first
+    assertThat(shard.split(SearchShard.Partition.CREATED),
+               is(Arrays.asList(new SearchShard("java", LocalDate.of(2010, 1, 1), LocalDate.of(2010, 1, 5), 0, 9),
+                                new SearchShard("java", LocalDate.of(2010, 1, 6), LocalDate.of(2010, 1, 10), 0, 9))));
+    // the most starred half first
+    assertThat(shard.split(SearchShard.Partition.STARS),
+               is(Arrays.asList(new SearchShard("java", LocalDate.of(2010, 1, 1), LocalDate.of(2010, 1, 10), 5, 9),
+                                new SearchShard("java", LocalDate.of(2010, 1, 1), LocalDate.of(2010, 1, 10), 0, 4))));
+  }
+
+  @Test
+  public void testSplitsAlongOtherPartitionOnceSingleValue()
+  {
+    LocalDate day = LocalDate.of(2010, 1, 1);
+    SearchShard singleDay = new SearchShard("java", day, day, 0, 1);
+    assertThat(singleDay.split(SearchShard.Partition.CREATED),
+               is(Arrays.asList(new SearchShard("java", day, day, 1, 1), new SearchShard("java", day, day, 0, 0))));
+    SearchShard singleStarCount = new SearchShard("java", day, day.plusDays(1), 3, 3);
+    assertThat(singleStarCount.split(SearchShard.Partition.STARS),
+               is(Arrays.asList(new SearchShard("java", day, day, 3, 3),
+                                new SearchShard("java", day.plusDays(1), day.plusDays(1), 3, 3))));
+    SearchShard single = new SearchShard("java", day, day, 3, 3);
+    assertThat(single.canSplit(), is(false));
+    assertThat(single.split(SearchShard.Partition.STARS), is(Collections.emptyList()));
+  }
+
+  @Test
+  public void testJson()
+  {
+    SearchShard shard = new SearchShard("c++", LocalDate.of(2010, 1, 1), LocalDate.of(2011, 12, 31), 10, 20);
+    assertThat(SearchShard.fromJson("c++", shard.toJson()), is(shard));
+  }
+}